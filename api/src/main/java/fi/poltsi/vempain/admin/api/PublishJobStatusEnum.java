@@ -0,0 +1,9 @@
+package fi.poltsi.vempain.admin.api;
+
+public enum PublishJobStatusEnum {
+	QUEUED,
+	RUNNING,
+	COMPLETED,
+	FAILED,
+	CANCELLED
+}
@@ -0,0 +1,43 @@
+package fi.poltsi.vempain.admin.api.request.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "FileBatchIngestRequest", description = "Manifest for ingesting several files into site storage with one request")
+public class FileBatchIngestRequest {
+	@Schema(description = "Existing gallery ID to associate all the files with (if any)", example = "1001")
+	@Positive
+	private Long galleryId;
+
+	@Schema(description = "Gallery short name (created/updated if provided)", example = "Summer 2025")
+	@Size(max = 255)
+	private String galleryName;
+
+	@Schema(description = "Gallery description (created/updated if provided)", example = "A sunny album from August 2025")
+	@Size(max = 2048)
+	private String galleryDescription;
+
+	@Schema(description = "Metadata of each file in the same order as the file parts, the gallery fields of the files are ignored",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	@NotEmpty
+	@Valid
+	private List<FileIngestRequest> files;
+}
@@ -0,0 +1,29 @@
+package fi.poltsi.vempain.admin.api.request.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "UploadSessionRequest", description = "Request to open a session for uploading a large file in chunks")
+public class UploadSessionRequest {
+	@Schema(description = "Total size of the file in bytes", example = "2147483648", requiredMode = Schema.RequiredMode.REQUIRED)
+	@Positive
+	private long size;
+
+	@Schema(description = "Name of the file, only used for logging", example = "video_001.mp4")
+	@Size(max = 255)
+	private String fileName;
+}
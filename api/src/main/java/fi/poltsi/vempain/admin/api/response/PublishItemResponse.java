@@ -0,0 +1,30 @@
+package fi.poltsi.vempain.admin.api.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import fi.poltsi.vempain.admin.api.PublishResultEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Result of publishing a single item when several items are published at once")
+public class PublishItemResponse {
+	@Schema(description = "ID of the published item", example = "123", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long              itemId;
+	@Schema(description = "Result of publishing the item", requiredMode = Schema.RequiredMode.REQUIRED)
+	private PublishResultEnum result;
+	@Schema(description = "Reason of the failure", example = "Failed to transfer files to site", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private String            message;
+	@Schema(description = "Time in milliseconds it took to publish the item", example = "1520", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long              durationMs;
+	@Schema(description = "Number of bytes transferred to the site-server", example = "1048576", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long              bytesSent;
+	@Schema(description = "Number of bytes not transferred as the files on the site-server were unchanged", example = "0",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	private long              bytesSkipped;
+}
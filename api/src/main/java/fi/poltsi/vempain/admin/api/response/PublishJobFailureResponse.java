@@ -0,0 +1,20 @@
+package fi.poltsi.vempain.admin.api.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Item which failed to be published by a publish job")
+public class PublishJobFailureResponse {
+	@Schema(description = "ID of the item which failed to be published", example = "123", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long   itemId;
+	@Schema(description = "Reason of the failure", example = "Failed to transfer files to site", requiredMode = Schema.RequiredMode.REQUIRED)
+	private String message;
+}
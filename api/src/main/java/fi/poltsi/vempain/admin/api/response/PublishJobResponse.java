@@ -0,0 +1,52 @@
+package fi.poltsi.vempain.admin.api.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import fi.poltsi.vempain.admin.api.ContentTypeEnum;
+import fi.poltsi.vempain.admin.api.PublishJobStatusEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+import java.util.List;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Progress of an asynchronous publish job")
+public class PublishJobResponse {
+	@Schema(description = "ID of the publish job", example = "12", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            jobId;
+	@Schema(description = "Type of the items published by the job", example = "GALLERY", requiredMode = Schema.RequiredMode.REQUIRED)
+	private ContentTypeEnum                 contentType;
+	@Schema(description = "Status of the job", example = "RUNNING", requiredMode = Schema.RequiredMode.REQUIRED)
+	private PublishJobStatusEnum            status;
+	@Schema(description = "Number of items to publish", example = "120", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            totalItems;
+	@Schema(description = "Number of items published successfully", example = "40", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            completedItems;
+	@Schema(description = "Number of items which failed to be published", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            failedItems;
+	@Schema(description = "Number of bytes transferred to the site-server", example = "1048576", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            bytesSent;
+	@Schema(description = "Number of bytes not transferred as the files on the site-server were unchanged", example = "0",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	private long                            bytesSkipped;
+	@Schema(description = "Processed items per second since the job started", example = "0.8", requiredMode = Schema.RequiredMode.REQUIRED)
+	private double                          itemsPerSecond;
+	@Schema(description = "Estimated time when the job will be finished, missing if not yet known",
+	        example = "2021-01-01T12:00:00Z",
+	        requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private Instant                         estimatedCompletion;
+	@Schema(description = "Time when the job was queued", example = "2021-01-01T12:00:00Z", requiredMode = Schema.RequiredMode.REQUIRED)
+	private Instant                         queued;
+	@Schema(description = "Time when the job started", example = "2021-01-01T12:00:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private Instant                         started;
+	@Schema(description = "Time when the job finished", example = "2021-01-01T12:00:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private Instant                         finished;
+	@Schema(description = "Items which failed to be published", requiredMode = Schema.RequiredMode.REQUIRED)
+	private List<PublishJobFailureResponse> failures;
+}
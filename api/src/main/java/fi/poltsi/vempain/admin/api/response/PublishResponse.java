@@ -10,6 +10,7 @@ import tools.jackson.databind.PropertyNamingStrategies;
 import tools.jackson.databind.annotation.JsonNaming;
 
 import java.time.Instant;
+import java.util.List;
 
 @Getter
 @Builder
@@ -27,4 +28,16 @@ public class PublishResponse {
 	        example = "2021-06-11T14:26:07.983Z",
 	        requiredMode = Schema.RequiredMode.REQUIRED)
 	private final Instant timestamp;
+	@Schema(name = "bytes_sent", description = "Number of bytes transferred to the site-server", example = "1048576",
+	        requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private final Long    bytesSent;
+	@Schema(name = "bytes_skipped", description = "Number of bytes not transferred as the files on the site-server were unchanged", example = "0",
+	        requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private final Long    bytesSkipped;
+	@Schema(name = "job_id", description = "ID of the publish job when the publishing is run asynchronously", example = "12",
+	        requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private final Long    jobId;
+	@Schema(name = "items", description = "Result and duration of each item when several items are published at once",
+	        requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+	private final List<PublishItemResponse> items;
 }
@@ -0,0 +1,37 @@
+package fi.poltsi.vempain.admin.api.response.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "FileBatchIngestItemResponse", description = "Result of ingesting a single file of a batch")
+public class FileBatchIngestItemResponse {
+	@Schema(description = "Position of the file in the batch", example = "0", requiredMode = Schema.RequiredMode.REQUIRED)
+	private int index;
+
+	@Schema(description = "Name of the file", example = "img_001.jpg")
+	private String fileName;
+
+	@Schema(description = "ID of the stored site file, missing if the file failed", example = "12345")
+	private Long siteFileId;
+
+	@Schema(description = "Whether the operation updated an existing file", example = "true", requiredMode = Schema.RequiredMode.REQUIRED)
+	private boolean updated;
+
+	@Schema(description = "Whether the file was ingested", example = "true", requiredMode = Schema.RequiredMode.REQUIRED)
+	private boolean success;
+
+	@Schema(description = "Reason of the failure", example = "SHA parity check failed")
+	private String message;
+}
@@ -0,0 +1,33 @@
+package fi.poltsi.vempain.admin.api.response.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "FileBatchIngestResponse", description = "Result of ingesting several files with one request")
+public class FileBatchIngestResponse {
+	@Schema(description = "ID of the optional gallery created or added on Vempain Admin-side", example = "12345")
+	private Long galleryId;
+
+	@Schema(description = "Number of files ingested", example = "498", requiredMode = Schema.RequiredMode.REQUIRED)
+	private int ingested;
+
+	@Schema(description = "Number of files which failed", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
+	private int failed;
+
+	@Schema(description = "Result of each file in the order of the request", requiredMode = Schema.RequiredMode.REQUIRED)
+	private List<FileBatchIngestItemResponse> items;
+}
@@ -0,0 +1,34 @@
+package fi.poltsi.vempain.admin.api.response.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "ThumbQueueResponse", description = "Backlog of site files waiting for their thumb to be generated")
+public class ThumbQueueResponse {
+	@Schema(description = "Number of files waiting for a worker", example = "42", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long pending;
+
+	@Schema(description = "Number of files of which the thumb is being generated", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long processing;
+
+	@Schema(description = "Number of files of which the thumb could not be generated within the allowed attempts", example = "0",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	private long failed;
+
+	@Schema(description = "When the longest waiting file was queued, missing if nothing is waiting", example = "2025-08-15T14:30:00Z")
+	private Instant oldestQueued;
+}
@@ -0,0 +1,38 @@
+package fi.poltsi.vempain.admin.api.response.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(name = "UploadSessionResponse", description = "State of a chunked upload session")
+public class UploadSessionResponse {
+	@Schema(description = "ID of the upload session", example = "3f2b8c1e-6a4d-4f0e-9b7a-2d5c8e1f0a3b", requiredMode = Schema.RequiredMode.REQUIRED)
+	private String uploadId;
+
+	@Schema(description = "Name of the file", example = "video_001.mp4")
+	private String fileName;
+
+	@Schema(description = "Total size of the file in bytes", example = "2147483648", requiredMode = Schema.RequiredMode.REQUIRED)
+	private long size;
+
+	@Schema(description = "Number of bytes received so far, the next chunk must start from this offset", example = "1073741824",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	private long offset;
+
+	@Schema(description = "When the session expires unless more chunks are received", example = "2025-08-15T14:30:00Z",
+	        requiredMode = Schema.RequiredMode.REQUIRED)
+	private Instant expires;
+}
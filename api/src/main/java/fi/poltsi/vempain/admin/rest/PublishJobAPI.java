@@ -0,0 +1,65 @@
+package fi.poltsi.vempain.admin.rest;
+
+import fi.poltsi.vempain.admin.api.response.PublishJobResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.util.List;
+
+import static fi.poltsi.vempain.admin.api.Constants.REST_CONTENT_PREFIX;
+
+@Tag(name = "PublishJobAPI", description = "API for following and cancelling asynchronous publish jobs")
+public interface PublishJobAPI {
+	String MAIN_PATH = REST_CONTENT_PREFIX + "/publish-jobs";
+
+	@Operation(summary = "List publish jobs", description = "Returns the queued, running and recently finished publish jobs", tags = "PublishJobAPI")
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "List of publish jobs",
+	                                    content = {@Content(array = @ArraySchema(schema = @Schema(implementation = PublishJobResponse.class)),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = MAIN_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<List<PublishJobResponse>> getPublishJobs();
+
+	@Operation(summary = "Get publish job progress", description = "Returns the progress, throughput, failures and estimated completion of a publish job",
+	           tags = "PublishJobAPI")
+	@Parameter(name = "job_id", description = "ID of the publish job", example = "12", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Publish job progress",
+	                                    content = {@Content(schema = @Schema(implementation = PublishJobResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No publish job found", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = MAIN_PATH + "/{job_id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<PublishJobResponse> getPublishJob(@PathVariable("job_id") long jobId);
+
+	@Operation(summary = "Cancel publish job", description = "Cancels a queued or running publish job, items already published are not reverted",
+	           tags = "PublishJobAPI")
+	@Parameter(name = "job_id", description = "ID of the publish job", example = "12", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Publish job cancelled",
+	                                    content = {@Content(schema = @Schema(implementation = PublishJobResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No publish job found", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@DeleteMapping(value = MAIN_PATH + "/{job_id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<PublishJobResponse> cancelPublishJob(@PathVariable("job_id") long jobId);
+}
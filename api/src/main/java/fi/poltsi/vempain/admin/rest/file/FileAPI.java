@@ -4,6 +4,7 @@ import fi.poltsi.vempain.admin.api.request.file.GalleryRequest;
 import fi.poltsi.vempain.admin.api.request.file.SiteFilePagedRequest;
 import fi.poltsi.vempain.admin.api.response.RefreshResponse;
 import fi.poltsi.vempain.admin.api.response.file.SiteFileResponse;
+import fi.poltsi.vempain.admin.api.response.file.ThumbQueueResponse;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -65,4 +66,16 @@ public interface FileAPI {
 	@SecurityRequirement(name = "Bearer Authentication")
 	@GetMapping(value = MAIN_PATH + "/refresh-all-gallery-files", produces = MediaType.APPLICATION_JSON_VALUE)
 	ResponseEntity<RefreshResponse> refreshAllGalleryFiles();
+
+	@Operation(summary = "Get the thumb generation backlog", description = "Number of site files waiting for their thumb to be generated",
+	           tags = "FileAPI")
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Thumb generation backlog",
+	                                    content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+	                                                        schema = @Schema(implementation = ThumbQueueResponse.class))}),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = MAIN_PATH + "/thumb-queue", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<ThumbQueueResponse> getThumbQueue();
 }
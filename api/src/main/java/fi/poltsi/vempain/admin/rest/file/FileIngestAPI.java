@@ -1,5 +1,6 @@
 package fi.poltsi.vempain.admin.rest.file;
 
+import fi.poltsi.vempain.admin.api.response.file.FileBatchIngestResponse;
 import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -10,6 +11,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 import static fi.poltsi.vempain.admin.api.Constants.REST_FILE_PREFIX;
 
 @Tag(name = "FileIngestAPI", description = "Test API for multiple file uploads and JSON payloads")
@@ -30,4 +33,20 @@ public interface FileIngestAPI {
 	ResponseEntity<FileIngestResponse> ingest(
 			@RequestPart("request") final String fileIngestRequestJSON,
 			@RequestPart(value = "site_file") final MultipartFile siteFile);
+
+	@Operation(
+			summary = "Ingest several files to the site storage",
+			description = "Service-to-service endpoint. Auth via Bearer token. Accepts a manifest JSON and one multipart file per manifest entry " +
+			              "in the same order. The gallery is resolved once for the whole batch and each file gets its own result, a file failing " +
+			              "the validation or the checksum does not prevent the other files from being ingested.",
+			tags = "FileIngestApi"
+	)
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(
+			value = MAIN_PATH + "/site-files",
+			consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<FileBatchIngestResponse> ingestBatch(
+			@RequestPart("request") final String fileBatchIngestRequestJSON,
+			@RequestPart(value = "site_files") final List<MultipartFile> siteFiles);
 }
@@ -0,0 +1,104 @@
+package fi.poltsi.vempain.admin.rest.file;
+
+import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.request.file.UploadSessionRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
+import fi.poltsi.vempain.admin.api.response.file.UploadSessionResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.InputStream;
+
+import static fi.poltsi.vempain.admin.api.Constants.REST_FILE_PREFIX;
+
+@Tag(name = "FileUploadAPI", description = "Resumable chunked upload of large files to the site storage")
+public interface FileUploadAPI {
+	String MAIN_PATH = REST_FILE_PREFIX + "/uploads";
+
+	@Operation(summary = "Open an upload session",
+	           description = "Service-to-service endpoint. Reserves space for the file and returns the ID of the session to which the chunks are sent",
+	           tags = "FileUploadAPI")
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Upload session opened",
+	                                    content = {@Content(schema = @Schema(implementation = UploadSessionResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "400", description = "Invalid file size", content = @Content),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(value = MAIN_PATH, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<UploadSessionResponse> createUploadSession(@Valid @RequestBody UploadSessionRequest uploadSessionRequest);
+
+	@Operation(summary = "Get upload session", description = "Returns the offset from which an interrupted upload is resumed", tags = "FileUploadAPI")
+	@Parameter(name = "upload_id", description = "ID of the upload session", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Upload session",
+	                                    content = {@Content(schema = @Schema(implementation = UploadSessionResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No upload session found", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = MAIN_PATH + "/{upload_id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<UploadSessionResponse> getUploadSession(@PathVariable("upload_id") String uploadId);
+
+	@Operation(summary = "Upload a chunk",
+	           description = "Writes the raw request body to the file starting from the given offset, which must be the current offset of the " +
+	                         "session. If the connection drops, the bytes received are kept and the upload is resumed from the returned offset",
+	           tags = "FileUploadAPI")
+	@Parameter(name = "upload_id", description = "ID of the upload session", required = true)
+	@Parameter(name = "offset", description = "Position in the file of the first byte of the chunk", example = "0", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "Chunk written",
+	                                    content = {@Content(schema = @Schema(implementation = UploadSessionResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "400", description = "Chunk exceeds the size of the file", content = @Content),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No upload session found", content = @Content),
+	                       @ApiResponse(responseCode = "409", description = "Offset does not match the session", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PutMapping(value = MAIN_PATH + "/{upload_id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<UploadSessionResponse> uploadChunk(@PathVariable("upload_id") String uploadId, @RequestParam("offset") long offset,
+	                                                  @Parameter(hidden = true) InputStream inputStream);
+
+	@Operation(summary = "Finalise an upload",
+	           description = "Verifies the SHA-256 checksum of the complete file and ingests it the same way as a single file upload",
+	           tags = "FileUploadAPI")
+	@Parameter(name = "upload_id", description = "ID of the upload session", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200",
+	                                    description = "File ingested",
+	                                    content = {@Content(schema = @Schema(implementation = FileIngestResponse.class),
+	                                                        mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+	                       @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No upload session found", content = @Content),
+	                       @ApiResponse(responseCode = "409", description = "Upload is not complete", content = @Content),
+	                       @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(value = MAIN_PATH + "/{upload_id}/finalize", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<FileIngestResponse> finalizeUpload(@PathVariable("upload_id") String uploadId, @RequestBody FileIngestRequest fileIngestRequest);
+
+	@Operation(summary = "Abort an upload", description = "Removes the upload session and the data received", tags = "FileUploadAPI")
+	@Parameter(name = "upload_id", description = "ID of the upload session", required = true)
+	@ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Upload session removed", content = @Content),
+	                       @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+	                       @ApiResponse(responseCode = "404", description = "No upload session found", content = @Content)})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@DeleteMapping(value = MAIN_PATH + "/{upload_id}")
+	ResponseEntity<Void> deleteUploadSession(@PathVariable("upload_id") String uploadId);
+}
@@ -0,0 +1,101 @@
+package fi.poltsi.vempain.tools;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resizing a large JPEG by decoding all of its pixels, as Thumbnailator does when given the file, with
+ * {@link ImageTools#resizeImage(Path, List)} which decodes the image subsampled to just above the target size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageDecodeBenchmark {
+	@Param({"6000x4000"})
+	private String sourceSize;
+	@Param({"250", "1400"})
+	private int    targetSize;
+
+	private Path       directory;
+	private Path       sourceFile;
+	private Path       destinationFile;
+	private Dimension  targetDimensions;
+	private ImageTools imageTools;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		var size = sourceSize.split("x");
+		var width = Integer.parseInt(size[0]);
+		var height = Integer.parseInt(size[1]);
+		directory       = Files.createTempDirectory("vempain-image-benchmark");
+		sourceFile      = directory.resolve("source.jpg");
+		destinationFile = directory.resolve("target.jpeg");
+		ImageIO.write(photoLikeImage(width, height), "jpg", sourceFile.toFile());
+		targetDimensions = ImageTools.targetDimensions(new Dimension(width, height), targetSize);
+		// The metadata tools are only used when the full metadata is copied, which the benchmark does not do
+		imageTools       = new ImageTools(null, 1024, List.of());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var paths = Files.walk(directory)) {
+			for (var path : paths.sorted(Comparator.reverseOrder())
+			                     .toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void fullDecode() throws IOException {
+		Thumbnails.of(sourceFile.toFile())
+		          .useExifOrientation(true)
+		          .size(targetDimensions.width, targetDimensions.height)
+		          .outputFormat("jpeg")
+		          .outputQuality(0.5F)
+		          .allowOverwrite(true)
+		          .toFile(destinationFile.toFile());
+	}
+
+	@Benchmark
+	public List<Dimension> subsampledDecode() {
+		return imageTools.resizeImage(sourceFile, List.of(new ImageTools.ResizeTarget(destinationFile, targetSize, 0.5F, false)));
+	}
+
+	// Smooth gradients with noise so that the JPEG is about the size of a real photo instead of compressing to almost nothing
+	private static BufferedImage photoLikeImage(int width, int height) {
+		var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		var random = new Random(42);
+
+		for (var y = 0; y < height; y++) {
+			for (var x = 0; x < width; x++) {
+				var red = (x * 255 / width + random.nextInt(32)) & 0xFF;
+				var green = (y * 255 / height + random.nextInt(32)) & 0xFF;
+				var blue = ((x + y) * 255 / (width + height) + random.nextInt(32)) & 0xFF;
+				image.setRGB(x, y, (red << 16) | (green << 8) | blue);
+			}
+		}
+
+		return image;
+	}
+}
@@ -3,12 +3,15 @@
  */
 package fi.poltsi.vempain;
 
+import fi.poltsi.vempain.admin.configuration.RenditionProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableConfigurationProperties(RenditionProperties.class)
 public class VempainAdminApplication {
 	static void main(String[] args) {
 		SpringApplication.run(VempainAdminApplication.class, args);
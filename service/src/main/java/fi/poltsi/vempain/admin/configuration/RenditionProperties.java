@@ -0,0 +1,29 @@
+package fi.poltsi.vempain.admin.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Additional sizes in which each image is rendered when its thumb is generated. All the renditions and the thumb are produced from a
+ * single decode of the image.
+ *
+ * @param renditions Renditions to generate, none if not configured
+ */
+@ConfigurationProperties(prefix = "vempain.admin.file")
+public record RenditionProperties(List<Rendition> renditions) {
+	public RenditionProperties {
+		renditions = renditions != null ? List.copyOf(renditions) : List.of();
+	}
+
+	/**
+	 * @param name         Name of the rendition, used as the directory of the rendered files
+	 * @param size         Size of the smaller side of the rendered image
+	 * @param format       Image format, for example jpeg
+	 * @param quality      Output quality between 0 and 1
+	 * @param publish      Whether the rendition is uploaded to the site when a gallery is published
+	 * @param fullMetadata Whether all the metadata of the original is copied with exiftool instead of only the minimal tags
+	 */
+	public record Rendition(String name, int size, String format, float quality, boolean publish, boolean fullMetadata) {
+	}
+}
@@ -13,6 +13,7 @@ import fi.poltsi.vempain.admin.entity.Page;
 import fi.poltsi.vempain.admin.rest.PageAPI;
 import fi.poltsi.vempain.admin.service.DeleteService;
 import fi.poltsi.vempain.admin.service.PageService;
+import fi.poltsi.vempain.admin.service.PublishJobService;
 import fi.poltsi.vempain.admin.service.PublishService;
 import fi.poltsi.vempain.admin.service.ScheduleService;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
@@ -32,10 +33,11 @@ import java.util.List;
 @RequiredArgsConstructor
 @RestController
 public class PageController implements PageAPI {
-	private final PageService     pageService;
-	private final PublishService  publishService;
-	private final DeleteService   deleteService;
-	private final ScheduleService scheduleService;
+	private final PageService       pageService;
+	private final PublishService    publishService;
+	private final PublishJobService publishJobService;
+	private final DeleteService     deleteService;
+	private final ScheduleService   scheduleService;
 
 	@Override
 	public ResponseEntity<PagedResponse<PageResponse>> getPages(PagePagedRequest request) {
@@ -136,14 +138,12 @@ public class PageController implements PageAPI {
 			                          .timestamp(Instant.now())
 			                          .build();
 		} else {
-			try {
-				publishService.publishAllPages();
-				response = PublishResponse.builder()
-				                          .result(PublishResultEnum.OK)
-				                          .message("Successfully published all pages")
-				                          .timestamp(Instant.now())
-				                          .build();
-			} catch (VempainEntityNotFoundException e) {
+			var pageIds = pageService.findAllByUser()
+			                         .stream()
+			                         .map(Page::getId)
+			                         .toList();
+
+			if (pageIds.isEmpty()) {
 				response = PublishResponse.builder()
 				                          .result(PublishResultEnum.FAIL)
 				                          .message("Could not find any pages")
@@ -152,6 +152,15 @@ public class PageController implements PageAPI {
 				return ResponseEntity.status(HttpStatus.NOT_FOUND)
 				                     .body(response);
 			}
+
+			// Publishing all pages takes longer than a request may wait, so it is run as a job
+			var job = publishJobService.submit(ContentTypeEnum.PAGE, pageIds);
+			response = PublishResponse.builder()
+			                          .result(PublishResultEnum.OK)
+			                          .message("Publishing of " + pageIds.size() + " pages queued")
+			                          .jobId(job.getJobId())
+			                          .timestamp(Instant.now())
+			                          .build();
 		}
 
 		return ResponseEntity.ok(response);
@@ -0,0 +1,33 @@
+package fi.poltsi.vempain.admin.controller;
+
+import fi.poltsi.vempain.admin.api.response.PublishJobResponse;
+import fi.poltsi.vempain.admin.rest.PublishJobAPI;
+import fi.poltsi.vempain.admin.service.PublishJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+public class PublishJobController implements PublishJobAPI {
+	private final PublishJobService publishJobService;
+
+	@Override
+	public ResponseEntity<List<PublishJobResponse>> getPublishJobs() {
+		return ResponseEntity.ok(publishJobService.getJobs());
+	}
+
+	@Override
+	public ResponseEntity<PublishJobResponse> getPublishJob(long jobId) {
+		return ResponseEntity.ok(publishJobService.getJob(jobId));
+	}
+
+	@Override
+	public ResponseEntity<PublishJobResponse> cancelPublishJob(long jobId) {
+		return ResponseEntity.ok(publishJobService.cancel(jobId));
+	}
+}
@@ -1,6 +1,7 @@
 package fi.poltsi.vempain.admin.controller;
 
 import fi.poltsi.vempain.admin.rest.UnitAPI;
+import fi.poltsi.vempain.admin.service.AccessService;
 import fi.poltsi.vempain.auth.api.request.UnitRequest;
 import fi.poltsi.vempain.auth.api.response.UnitResponse;
 import fi.poltsi.vempain.auth.entity.Unit;
@@ -23,7 +24,8 @@ import java.util.List;
 @RequiredArgsConstructor
 @RestController
 public class UnitController implements UnitAPI {
-	private final UnitService unitService;
+	private final UnitService   unitService;
+	private final AccessService accessService;
 
 	@Override
 	public ResponseEntity<List<UnitResponse>> getUnits() {
@@ -66,6 +68,7 @@ public class UnitController implements UnitAPI {
 	@Override
 	public ResponseEntity<UnitResponse> updateUser(Long unitId, UnitRequest unitRequest) {
 		var updatedUnitResponse = unitService.updateUnit(unitId, unitRequest);
+		accessService.evictAll();
 		return ResponseEntity.ok(updatedUnitResponse);
 	}
 
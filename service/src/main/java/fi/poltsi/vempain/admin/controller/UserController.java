@@ -1,6 +1,8 @@
 package fi.poltsi.vempain.admin.controller;
 
 import fi.poltsi.vempain.admin.rest.UserAPI;
+import fi.poltsi.vempain.admin.service.AccessService;
+import fi.poltsi.vempain.admin.service.UserNickService;
 import fi.poltsi.vempain.auth.api.request.UserRequest;
 import fi.poltsi.vempain.auth.api.response.UserResponse;
 import fi.poltsi.vempain.auth.entity.UserAccount;
@@ -22,7 +24,9 @@ import java.util.List;
 @RequiredArgsConstructor
 @RestController
 public class UserController implements UserAPI {
-	private final UserService userService;
+	private final UserService     userService;
+	private final UserNickService userNickService;
+	private final AccessService   accessService;
 
 	@Override
 	public ResponseEntity<List<UserResponse>> getUsers() {
@@ -64,6 +68,8 @@ public class UserController implements UserAPI {
 	@Override
 	public ResponseEntity<UserResponse> updateUser(Long userId, UserRequest userRequest) {
 		var userResponse = userService.updateUser(userId, userRequest);
+		userNickService.evict(userId);
+		accessService.evict(userId);
 		return ResponseEntity.ok(userResponse);
 	}
 
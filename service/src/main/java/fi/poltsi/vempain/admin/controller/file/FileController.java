@@ -3,8 +3,10 @@ package fi.poltsi.vempain.admin.controller.file;
 import fi.poltsi.vempain.admin.api.request.file.SiteFilePagedRequest;
 import fi.poltsi.vempain.admin.api.response.RefreshResponse;
 import fi.poltsi.vempain.admin.api.response.file.SiteFileResponse;
+import fi.poltsi.vempain.admin.api.response.file.ThumbQueueResponse;
 import fi.poltsi.vempain.admin.rest.file.FileAPI;
 import fi.poltsi.vempain.admin.service.file.FileService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +17,8 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 @RestController
 public class FileController implements FileAPI {
-	private final FileService fileService;
+	private final FileService       fileService;
+	private final ThumbQueueService thumbQueueService;
 
 	@Override
 	public ResponseEntity<PagedResponse<SiteFileResponse>> getPageableSiteFiles(SiteFilePagedRequest request) {
@@ -38,4 +41,8 @@ public class FileController implements FileAPI {
 		return ResponseEntity.ok(refreshResponse);
 	}
 
+	@Override
+	public ResponseEntity<ThumbQueueResponse> getThumbQueue() {
+		return ResponseEntity.ok(thumbQueueService.getBacklog());
+	}
 }
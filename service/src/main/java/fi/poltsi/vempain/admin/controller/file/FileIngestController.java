@@ -1,6 +1,8 @@
 package fi.poltsi.vempain.admin.controller.file;
 
+import fi.poltsi.vempain.admin.api.request.file.FileBatchIngestRequest;
 import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileBatchIngestResponse;
 import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
 import fi.poltsi.vempain.admin.rest.file.FileIngestAPI;
 import fi.poltsi.vempain.admin.service.file.FileIngestService;
@@ -12,6 +14,8 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import tools.jackson.databind.ObjectMapper;
 
+import java.util.List;
+
 import static fi.poltsi.vempain.auth.tools.JsonTools.toJson;
 
 @Slf4j
@@ -52,4 +56,36 @@ public class FileIngestController implements FileIngestAPI {
 			                     .build();
 		}
 	}
+
+	@Override
+	public ResponseEntity<FileBatchIngestResponse> ingestBatch(String fileBatchIngestRequestJSON, List<MultipartFile> siteFiles) {
+		FileBatchIngestRequest fileBatchIngestRequest;
+
+		try {
+			fileBatchIngestRequest = objectMapper.readValue(fileBatchIngestRequestJSON, FileBatchIngestRequest.class);
+			log.debug("Received batch file ingest request with {} files", fileBatchIngestRequest.getFiles() == null ? 0 : fileBatchIngestRequest.getFiles()
+			                                                                                                                                   .size());
+		} catch (IllegalArgumentException e) {
+			log.warn("Invalid batch file ingest request JSON: {}", e.getMessage());
+			return ResponseEntity.badRequest()
+			                     .build();
+		}
+
+		try {
+			var result = fileIngestService.ingestBatch(fileBatchIngestRequest, siteFiles);
+			return ResponseEntity.ok(result);
+		} catch (IllegalArgumentException e) {
+			log.warn("Bad request in batch file ingest: {}", e.getMessage());
+			return ResponseEntity.badRequest()
+			                     .build();
+		} catch (AccessDeniedException e) {
+			log.warn("Unauthorized S2S call: {}", e.getMessage());
+			return ResponseEntity.status(401)
+			                     .build();
+		} catch (Exception e) {
+			log.error("Batch file ingest failed", e);
+			return ResponseEntity.internalServerError()
+			                     .build();
+		}
+	}
 }
@@ -0,0 +1,66 @@
+package fi.poltsi.vempain.admin.controller.file;
+
+import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.request.file.UploadSessionRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
+import fi.poltsi.vempain.admin.api.response.file.UploadSessionResponse;
+import fi.poltsi.vempain.admin.rest.file.FileUploadAPI;
+import fi.poltsi.vempain.admin.service.file.FileUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class FileUploadController implements FileUploadAPI {
+	private final FileUploadService fileUploadService;
+
+	@Override
+	public ResponseEntity<UploadSessionResponse> createUploadSession(UploadSessionRequest uploadSessionRequest) {
+		return ResponseEntity.ok(fileUploadService.createSession(uploadSessionRequest));
+	}
+
+	@Override
+	public ResponseEntity<UploadSessionResponse> getUploadSession(String uploadId) {
+		return ResponseEntity.ok(fileUploadService.getSession(uploadId));
+	}
+
+	@Override
+	public ResponseEntity<UploadSessionResponse> uploadChunk(String uploadId, long offset, InputStream inputStream) {
+		return ResponseEntity.ok(fileUploadService.writeChunk(uploadId, offset, inputStream));
+	}
+
+	@Override
+	public ResponseEntity<FileIngestResponse> finalizeUpload(String uploadId, FileIngestRequest fileIngestRequest) {
+		try {
+			return ResponseEntity.ok(fileUploadService.finalizeUpload(uploadId, fileIngestRequest));
+		} catch (ResponseStatusException e) {
+			throw e;
+		} catch (IllegalArgumentException e) {
+			log.warn("Bad request in finalising upload {}: {}", uploadId, e.getMessage());
+			return ResponseEntity.badRequest()
+			                     .build();
+		} catch (AccessDeniedException e) {
+			log.warn("Unauthorized S2S call: {}", e.getMessage());
+			return ResponseEntity.status(401)
+			                     .build();
+		} catch (Exception e) {
+			log.error("Finalising upload {} failed", uploadId, e);
+			return ResponseEntity.internalServerError()
+			                     .build();
+		}
+	}
+
+	@Override
+	public ResponseEntity<Void> deleteUploadSession(String uploadId) {
+		fileUploadService.deleteSession(uploadId);
+		return ResponseEntity.ok()
+		                     .build();
+	}
+}
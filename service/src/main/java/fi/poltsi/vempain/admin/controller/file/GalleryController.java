@@ -14,6 +14,7 @@ import fi.poltsi.vempain.admin.api.response.file.GalleryResponse;
 import fi.poltsi.vempain.admin.entity.PageGallery;
 import fi.poltsi.vempain.admin.rest.file.GalleryAPI;
 import fi.poltsi.vempain.admin.service.PageGalleryService;
+import fi.poltsi.vempain.admin.service.PublishJobService;
 import fi.poltsi.vempain.admin.service.PublishService;
 import fi.poltsi.vempain.admin.service.ScheduleService;
 import fi.poltsi.vempain.admin.service.file.GalleryService;
@@ -38,6 +39,7 @@ import java.util.List;
 public class GalleryController implements GalleryAPI {
 	private final GalleryService     galleryService;
 	private final PublishService     publishService;
+	private final PublishJobService  publishJobService;
 	private final PageGalleryService pageGalleryService;
 	private final ScheduleService    scheduleService;
 
@@ -185,14 +187,13 @@ public class GalleryController implements GalleryAPI {
 			                          .timestamp(Instant.now())
 			                          .build();
 		} else {
-			try {
-				publishService.publishAllGalleries();
-				response = PublishResponse.builder()
-				                          .result(PublishResultEnum.OK)
-				                          .message("Successfully published all galleries")
-				                          .timestamp(Instant.now())
-				                          .build();
-			} catch (VempainEntityNotFoundException e) {
+			var galleryIds = new ArrayList<Long>();
+
+			for (var gallery : galleryService.findAll()) {
+				galleryIds.add(gallery.getId());
+			}
+
+			if (galleryIds.isEmpty()) {
 				response = PublishResponse.builder()
 				                          .result(PublishResultEnum.FAIL)
 				                          .message("Could not find any galleries")
@@ -201,6 +202,15 @@ public class GalleryController implements GalleryAPI {
 				return ResponseEntity.status(HttpStatus.NOT_FOUND)
 				                     .body(response);
 			}
+
+			// Publishing all galleries takes longer than a request may wait, so it is run as a job
+			var job = publishJobService.submit(ContentTypeEnum.GALLERY, galleryIds);
+			response = PublishResponse.builder()
+			                          .result(PublishResultEnum.OK)
+			                          .message("Publishing of " + galleryIds.size() + " galleries queued")
+			                          .jobId(job.getJobId())
+			                          .timestamp(Instant.now())
+			                          .build();
 		}
 
 		return ResponseEntity.ok(response);
@@ -220,10 +230,12 @@ public class GalleryController implements GalleryAPI {
 		}
 
 		try {
-			publishService.publishGallery(publishRequest.getId());
+			var statistics = publishService.publishGallery(publishRequest.getId());
 			response = PublishResponse.builder()
 			                          .result(PublishResultEnum.OK)
 			                          .message("Successfully published gallery")
+			                          .bytesSent(statistics != null ? statistics.bytesSent() : null)
+			                          .bytesSkipped(statistics != null ? statistics.bytesSkipped() : null)
 			                          .timestamp(Instant.now())
 			                          .build();
 		} catch (VempainEntityNotFoundException e) {
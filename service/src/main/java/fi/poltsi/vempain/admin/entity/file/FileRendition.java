@@ -0,0 +1,51 @@
+package fi.poltsi.vempain.admin.entity.file;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "file_rendition")
+public class FileRendition {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Column(name = "parent_id", nullable = false)
+	private Long parentId;
+
+	@Column(name = "name", nullable = false, length = 64)
+	private String name;
+
+	@Column(name = "filename", nullable = false)
+	private String filename;
+
+	@Column(name = "filepath", nullable = false)
+	private String filepath;
+
+	@Column(name = "filesize")
+	private Long filesize;
+
+	@Column(name = "width")
+	private Integer width;
+
+	@Column(name = "height")
+	private Integer height;
+
+	@Column(name = "sha256sum")
+	private String sha256sum;
+}
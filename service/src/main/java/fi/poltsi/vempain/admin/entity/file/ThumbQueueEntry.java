@@ -0,0 +1,52 @@
+package fi.poltsi.vempain.admin.entity.file;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "thumb_queue")
+public class ThumbQueueEntry {
+	@Id
+	@Column(name = "site_file_id", nullable = false)
+	private Long siteFileId;
+
+	@NotNull
+	@ColumnDefault("0")
+	@Column(name = "revision", nullable = false)
+	private long revision;
+
+	@NotNull
+	@ColumnDefault("0")
+	@Column(name = "attempts", nullable = false)
+	private int attempts;
+
+	@Column(name = "last_error", length = Integer.MAX_VALUE)
+	private String lastError;
+
+	@NotNull
+	@ColumnDefault("CURRENT_TIMESTAMP")
+	@Column(name = "queued_at", nullable = false)
+	private Instant queuedAt;
+
+	@Column(name = "claimed_at")
+	private Instant claimedAt;
+
+	@Column(name = "not_before")
+	private Instant notBefore;
+}
@@ -0,0 +1,15 @@
+package fi.poltsi.vempain.admin.repository;
+
+import fi.poltsi.vempain.auth.entity.Acl;
+import org.springframework.data.repository.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only access to the ACL rows of several objects at once, used for evaluating the permissions of a whole listing in one query.
+ */
+@org.springframework.stereotype.Repository
+public interface AclPermissionRepository extends Repository<Acl, Long> {
+	List<Acl> findByAclIdIn(Collection<Long> aclIds);
+}
@@ -0,0 +1,36 @@
+package fi.poltsi.vempain.admin.repository;
+
+import jakarta.persistence.Query;
+
+import java.util.List;
+
+/**
+ * Restricts a native query to the objects a user can read either directly or through one of its units, so that the database pages and
+ * counts only the readable objects.
+ *
+ * @param userId  ID of the user
+ * @param unitIds IDs of the units of the user
+ */
+public record AclReadFilter(long userId, List<Long> unitIds) {
+	public AclReadFilter {
+		unitIds = List.copyOf(unitIds);
+	}
+
+	/**
+	 * SQL predicate matching the rows whose ACL grants the read privilege to the user.
+	 *
+	 * @param aclIdColumn Qualified ACL ID column of the queried table
+	 */
+	public String predicate(String aclIdColumn) {
+		return "EXISTS (SELECT 1 FROM acl a WHERE a.acl_id = " + aclIdColumn + " AND a.read_privilege = true AND (a.user_id = :aclUserId"
+		       + (unitIds.isEmpty() ? "" : " OR a.unit_id IN (:aclUnitIds)") + "))";
+	}
+
+	public void bindParameters(Query query) {
+		query.setParameter("aclUserId", userId);
+
+		if (!unitIds.isEmpty()) {
+			query.setParameter("aclUnitIds", unitIds);
+		}
+	}
+}
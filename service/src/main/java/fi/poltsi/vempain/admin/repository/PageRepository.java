@@ -8,8 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface PageRepository extends ListPagingAndSortingRepository<Page, Long>, CrudRepository<Page, Long> {
-	// TODO Filter all results through ACL check so that we only return rows to which the user has permissions
+public interface PageRepository extends ListPagingAndSortingRepository<Page, Long>, CrudRepository<Page, Long>, PageRepositoryCustom {
 	Page findByPagePath(String path);
 
 	Page findById(long id);
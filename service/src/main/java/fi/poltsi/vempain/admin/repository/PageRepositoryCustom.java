@@ -0,0 +1,16 @@
+package fi.poltsi.vempain.admin.repository;
+
+import fi.poltsi.vempain.admin.entity.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface PageRepositoryCustom {
+	/**
+	 * Search the pages whose path, title or header contains the search term, filtering, sorting and paging in the database.
+	 *
+	 * @param searchTerm    Term to look for, null or blank to match all pages
+	 * @param caseSensitive Whether the term is matched case-sensitively
+	 * @param readFilter    Restricts the result to the pages readable by a user, null to return all pages
+	 * @param pageable      Page and sort, sortable by id, parent_id, form_id, page_path, title, created and modified
+	 */
+	org.springframework.data.domain.Page<Page> searchPages(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable);
+}
@@ -0,0 +1,117 @@
+package fi.poltsi.vempain.admin.repository;
+
+import fi.poltsi.vempain.admin.entity.Page;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class PageRepositoryImpl implements PageRepositoryCustom {
+	private final EntityManager entityManager;
+
+	@Override
+	public org.springframework.data.domain.Page<Page> searchPages(String searchTerm, boolean caseSensitive, AclReadFilter readFilter,
+	                                                              Pageable pageable) {
+		var hasTerm = searchTerm != null && !searchTerm.isBlank();
+		var whereClause = buildWhereClause(hasTerm, caseSensitive, readFilter);
+
+		var selectSql = "SELECT p.* FROM page p" + whereClause + buildOrderClause(pageable.getSort()) + " OFFSET :offset LIMIT :limit";
+		log.debug("Page search SQL: {}", selectSql);
+		Query dataQuery = entityManager.createNativeQuery(selectSql, Page.class);
+		bindParameters(dataQuery, hasTerm ? searchTerm : null, caseSensitive, readFilter);
+		dataQuery.setParameter("offset", (int) pageable.getOffset());
+		dataQuery.setParameter("limit", pageable.getPageSize());
+		@SuppressWarnings("unchecked")
+		List<Page> pages = dataQuery.getResultList();
+
+		var countSql = "SELECT COUNT(*) FROM page p" + whereClause;
+		Query countQuery = entityManager.createNativeQuery(countSql);
+		bindParameters(countQuery, hasTerm ? searchTerm : null, caseSensitive, readFilter);
+		Number total = (Number) countQuery.getSingleResult();
+
+		return new PageImpl<>(pages, pageable, total.longValue());
+	}
+
+	private void bindParameters(Query query, String searchTerm, boolean caseSensitive, AclReadFilter readFilter) {
+		if (searchTerm != null) {
+			var value = caseSensitive ? searchTerm : searchTerm.toLowerCase(Locale.ROOT);
+			// The term is matched literally, not as a pattern
+			value = value.replace("\\", "\\\\")
+			             .replace("%", "\\%")
+			             .replace("_", "\\_");
+			query.setParameter("term", "%" + value + "%");
+		}
+
+		if (readFilter != null) {
+			readFilter.bindParameters(query);
+		}
+	}
+
+	private String buildWhereClause(boolean hasTerm, boolean caseSensitive, AclReadFilter readFilter) {
+		var conditions = new ArrayList<String>();
+
+		if (hasTerm) {
+			conditions.add("(" + like("p.page_path", caseSensitive) + " OR " + like("p.title", caseSensitive) + " OR "
+			               + like("p.header", caseSensitive) + ")");
+		}
+
+		if (readFilter != null) {
+			conditions.add(readFilter.predicate("p.acl_id"));
+		}
+
+		return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+	}
+
+	private String like(String column, boolean caseSensitive) {
+		return (caseSensitive ? column : "LOWER(" + column + ")") + " LIKE :term";
+	}
+
+	private String buildOrderClause(Sort sort) {
+		var sb = new StringBuilder(" ORDER BY ");
+
+		for (var order : sort) {
+			sb.append(mapSort(order.getProperty()))
+			  .append(' ')
+			  .append(order.getDirection()
+			               .name());
+
+			// Pages never modified are sorted before the modified ones
+			if ("modified".equals(order.getProperty())) {
+				sb.append(order.isAscending() ? " NULLS FIRST" : " NULLS LAST");
+			}
+
+			sb.append(", ");
+		}
+
+		// The ID keeps the order stable between the pages
+		return sb.append("p.id ASC")
+		         .toString();
+	}
+
+	private String mapSort(String property) {
+		if (property == null) {
+			return "p.id";
+		}
+
+		return switch (property) {
+			case "parent_id" -> "COALESCE(p.parent_id, 0)";
+			case "form_id" -> "p.form_id";
+			case "page_path" -> "LOWER(p.page_path)";
+			case "title" -> "LOWER(p.title)";
+			case "created" -> "p.created";
+			case "modified" -> "p.modified";
+			default -> "p.id";
+		};
+	}
+}
@@ -0,0 +1,30 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface FileRenditionRepository extends ListCrudRepository<FileRendition, Long> {
+	Optional<FileRendition> findByParentIdAndName(Long parentId, String name);
+
+	List<FileRendition> findByParentIdInAndNameIn(Collection<Long> parentIds, Collection<String> names);
+
+	void deleteByParentId(long parentId);
+
+	List<FileRendition> findByIdGreaterThanAndNameInOrderByIdAsc(long id, Collection<String> names, Limit limit);
+
+	// Images which have a thumb but lack some of the named renditions, for example because the rendition was configured afterwards
+	@Query(value = """
+			SELECT ft.parent_id FROM file_thumb ft
+			WHERE ft.parent_class = 'IMAGE'
+			  AND (SELECT COUNT(*) FROM file_rendition fr WHERE fr.parent_id = ft.parent_id AND fr.name IN (:names)) < :nameCount
+			ORDER BY ft.parent_id
+			""", nativeQuery = true)
+	List<Long> findThumbParentIdsMissingRenditions(@Param("names") Collection<String> names, @Param("nameCount") long nameCount);
+}
@@ -4,8 +4,10 @@ import fi.poltsi.vempain.admin.entity.file.Gallery;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.ListPagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +17,22 @@ public interface GalleryRepository extends ListPagingAndSortingRepository<Galler
 
 	@Query("SELECT g.id FROM Gallery g")
 	List<Long> getAllGalleryIds();
+
+	// All the columns of site_file except for the metadata, which can be several kilobytes per file. The aliases are quoted to keep
+	// their case so that they match the getters of the projection.
+	@Query(nativeQuery = true, value = """
+			SELECT gf.gallery_id AS "galleryId", sf.id AS "id", sf.file_id AS "fileId", sf.acl_id AS "aclId", sf.file_name AS "fileName",
+			       sf.file_path AS "filePath", sf.mime_type AS "mimeType", sf.size AS "size", sf.file_type AS "fileType",
+			       sf.sha256sum AS "sha256sum", sf.comment AS "comment", sf.width AS "width", sf.height AS "height", sf.length AS "length",
+			       sf.pages AS "pages", sf.original_datetime AS "originalDateTime", sf.rights_holder AS "rightsHolder",
+			       sf.rights_terms AS "rightsTerms", sf.rights_url AS "rightsUrl", sf.creator_name AS "creatorName",
+			       sf.creator_email AS "creatorEmail", sf.creator_country AS "creatorCountry", sf.creator_url AS "creatorUrl",
+			       sf.location_id AS "locationId", sf.locked AS "locked", sf.creator AS "creator", sf.created AS "created",
+			       sf.modifier AS "modifier", sf.modified AS "modified"
+			FROM gallery_file gf
+			JOIN site_file sf ON sf.id = gf.site_file_id
+			WHERE gf.gallery_id IN (:galleryIds)
+			ORDER BY gf.gallery_id, gf.sort_order
+			""")
+	List<GallerySiteFileRow> findSiteFileRowsByGalleryIdIn(@Param("galleryIds") Collection<Long> galleryIds);
 }
@@ -1,13 +1,18 @@
 package fi.poltsi.vempain.admin.repository.file;
 
 import fi.poltsi.vempain.admin.entity.file.Gallery;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+/**
+ * Searches of galleries paged in the database. A null read filter returns all the matching galleries, otherwise only those readable by
+ * the user of the filter are returned and counted.
+ */
 public interface GalleryRepositoryCustom {
-	Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, Pageable pageable);
+	Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable);
 
-	Page<Gallery> searchGalleriesWithoutFiles(String searchTerm, boolean caseSensitive, Pageable pageable);
+	Page<Gallery> searchGalleriesWithoutFiles(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable);
 
-	Page<Gallery> searchGalleriesForList(String searchTerm, boolean caseSensitive, Pageable pageable);
+	Page<Gallery> searchGalleriesForList(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable);
 }
@@ -1,6 +1,7 @@
 package fi.poltsi.vempain.admin.repository.file;
 
 import fi.poltsi.vempain.admin.entity.file.Gallery;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
@@ -23,21 +24,21 @@ public class GalleryRepositoryImpl implements GalleryRepositoryCustom {
 	private final        EntityManager entityManager;
 
 	@Override
-	public Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, Pageable pageable) {
-		return searchGalleries(searchTerm, caseSensitive, pageable, true);
+	public Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable) {
+		return searchGalleries(searchTerm, caseSensitive, readFilter, pageable, true);
 	}
 
 	@Override
-	public Page<Gallery> searchGalleriesWithoutFiles(String searchTerm, boolean caseSensitive, Pageable pageable) {
-		return searchGalleries(searchTerm, caseSensitive, pageable, false);
+	public Page<Gallery> searchGalleriesWithoutFiles(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable) {
+		return searchGalleries(searchTerm, caseSensitive, readFilter, pageable, false);
 	}
 
 	@Override
-	public Page<Gallery> searchGalleriesForList(String searchTerm, boolean caseSensitive, Pageable pageable) {
-		return searchGalleries(searchTerm, caseSensitive, pageable, false);
+	public Page<Gallery> searchGalleriesForList(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable) {
+		return searchGalleries(searchTerm, caseSensitive, readFilter, pageable, false);
 	}
 
-	private Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, Pageable pageable, boolean includeFiles) {
+	private Page<Gallery> searchGalleries(String searchTerm, boolean caseSensitive, AclReadFilter readFilter, Pageable pageable, boolean includeFiles) {
 		List<String> tokens = tokenize(searchTerm);
 		String base = includeFiles
 					  ? """
@@ -47,14 +48,14 @@ public class GalleryRepositoryImpl implements GalleryRepositoryCustom {
 							  """
 					  : "FROM gallery g ";
 
-		String whereClause = buildWhereClause(tokens, caseSensitive, includeFiles);
+		String whereClause = buildWhereClause(tokens, caseSensitive, readFilter, includeFiles);
 		String orderClause = buildOrderClause(pageable);
 
 		String selectSql = "SELECT DISTINCT g.* " + base + whereClause + orderClause +
 		                   " OFFSET :offset LIMIT :limit";
 		log.debug("Gallery search SQL: {}", selectSql);
 		Query dataQuery = entityManager.createNativeQuery(selectSql, Gallery.class);
-		bindParameters(dataQuery, tokens, caseSensitive);
+		bindParameters(dataQuery, tokens, caseSensitive, readFilter);
 		dataQuery.setParameter("offset", (int) pageable.getOffset());
 		dataQuery.setParameter("limit", pageable.getPageSize());
 		@SuppressWarnings("unchecked")
@@ -62,27 +63,35 @@ public class GalleryRepositoryImpl implements GalleryRepositoryCustom {
 
 		String countSql = "SELECT COUNT(DISTINCT g.id) " + base + whereClause;
 		Query countQuery = entityManager.createNativeQuery(countSql);
-		bindParameters(countQuery, tokens, caseSensitive);
+		bindParameters(countQuery, tokens, caseSensitive, readFilter);
 		Number total = (Number) countQuery.getSingleResult();
 
 		return new PageImpl<>(galleries, pageable, total.longValue());
 	}
 
-	private void bindParameters(Query query, List<String> tokens, boolean caseSensitive) {
+	private void bindParameters(Query query, List<String> tokens, boolean caseSensitive, AclReadFilter readFilter) {
 		for (int i = 0; i < tokens.size(); i++) {
 			String value = caseSensitive ? tokens.get(i) : tokens.get(i)
 			                                                     .toLowerCase();
 			query.setParameter("term" + i, "%" + value + "%");
 		}
+
+		if (readFilter != null) {
+			readFilter.bindParameters(query);
+		}
 	}
 
-	private String buildWhereClause(List<String> tokens, boolean caseSensitive, boolean includeFiles) {
-		if (tokens.isEmpty()) {
+	private String buildWhereClause(List<String> tokens, boolean caseSensitive, AclReadFilter readFilter, boolean includeFiles) {
+		if (tokens.isEmpty() && readFilter == null) {
 			return "";
 		}
 		StringBuilder sb = new StringBuilder(" WHERE ");
+		// The ACL check is part of the query so that the pages are full and the total counts only the readable galleries
+		if (readFilter != null) {
+			sb.append(readFilter.predicate("g.acl_id"));
+		}
 		for (int i = 0; i < tokens.size(); i++) {
-			if (i > 0) {
+			if (i > 0 || readFilter != null) {
 				sb.append(" AND ");
 			}
 			sb.append('(')
@@ -0,0 +1,70 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+
+import java.time.Instant;
+
+/**
+ * Site file of a gallery without its metadata, as read by {@link GalleryRepository#findSiteFileRowsByGalleryIdIn}. The getters are
+ * matched to the column aliases of the query by name.
+ */
+public interface GallerySiteFileRow {
+	Long getGalleryId();
+
+	Long getId();
+
+	Long getFileId();
+
+	Long getAclId();
+
+	String getFileName();
+
+	String getFilePath();
+
+	String getMimeType();
+
+	Long getSize();
+
+	FileTypeEnum getFileType();
+
+	String getSha256sum();
+
+	String getComment();
+
+	Integer getWidth();
+
+	Integer getHeight();
+
+	// Length in milliseconds
+	Long getLength();
+
+	Integer getPages();
+
+	Instant getOriginalDateTime();
+
+	String getRightsHolder();
+
+	String getRightsTerms();
+
+	String getRightsUrl();
+
+	String getCreatorName();
+
+	String getCreatorEmail();
+
+	String getCreatorCountry();
+
+	String getCreatorUrl();
+
+	Long getLocationId();
+
+	Boolean getLocked();
+
+	Long getCreator();
+
+	Instant getCreated();
+
+	Long getModifier();
+
+	Instant getModified();
+}
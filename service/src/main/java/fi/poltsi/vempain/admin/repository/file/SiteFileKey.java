@@ -0,0 +1,7 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+/**
+ * ID of a site file with the path and name identifying it, without the rest of the entity.
+ */
+public record SiteFileKey(Long id, String filePath, String fileName) {
+}
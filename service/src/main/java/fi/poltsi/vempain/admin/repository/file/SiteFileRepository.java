@@ -12,13 +12,16 @@ import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SiteFileRepository extends ListPagingAndSortingRepository<SiteFile, Long>, JpaRepository<SiteFile, Long> {
+public interface SiteFileRepository extends ListPagingAndSortingRepository<SiteFile, Long>, JpaRepository<SiteFile, Long>, SiteFileRepositoryCustom {
 	Optional<SiteFile> findByFilePathAndFileName(String filePath, String fileName);
 
+	List<SiteFileKey> findKeyByFilePathInAndFileNameIn(Collection<String> filePaths, Collection<String> fileNames);
+
 	List<SiteFile> findByIdIn(ArrayList<Long> siteFileIdList);
 
 	@Query(nativeQuery = true, value = "SELECT DISTINCT s.id FROM site_file s JOIN file_subject sf ON s.id = sf.site_file_id")
@@ -64,13 +67,6 @@ public interface SiteFileRepository extends ListPagingAndSortingRepository<SiteF
 	// Size filter + class
 	Page<SiteFile> findBySizeGreaterThanEqualAndFileType(Long size, FileTypeEnum fileType, Pageable pageable);
 
-	default Optional<SiteFile> findByIdWithoutMetadata(Long id) {
-		return findById(id).map(siteFile -> {
-			siteFile.setMetadata(null);
-			return siteFile;
-		});
-	}
-
 	@Query("SELECT MAX(s.fileId) FROM SiteFile s")
 	Long findMaxFileId();
 }
@@ -0,0 +1,17 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface SiteFileRepositoryCustom {
+	/**
+	 * Load the site files of several galleries at once without their metadata.
+	 *
+	 * @param galleryIds IDs of the galleries
+	 * @return Site files by gallery ID in the sort order of the gallery, galleries without files are left out
+	 */
+	Map<Long, List<SiteFile>> findByGalleryIdsWithoutMetadata(Collection<Long> galleryIds);
+}
@@ -0,0 +1,99 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.admin.entity.file.GpsLocation;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SiteFileRepositoryImpl implements SiteFileRepositoryCustom {
+	private final EntityManager     entityManager;
+	private final GalleryRepository galleryRepository;
+
+	@Override
+	public Map<Long, List<SiteFile>> findByGalleryIdsWithoutMetadata(Collection<Long> galleryIds) {
+		var siteFiles = new LinkedHashMap<Long, List<SiteFile>>();
+
+		if (galleryIds.isEmpty()) {
+			return siteFiles;
+		}
+
+		var rows = galleryRepository.findSiteFileRowsByGalleryIdIn(galleryIds);
+		var locationIds = new HashSet<Long>();
+
+		for (var row : rows) {
+			if (row.getLocationId() != null) {
+				locationIds.add(row.getLocationId());
+			}
+		}
+
+		var locations = findLocations(locationIds);
+
+		for (var row : rows) {
+			var siteFile = SiteFile.builder()
+			                       .id(row.getId())
+			                       .fileId(row.getFileId())
+			                       .aclId(row.getAclId())
+			                       .fileName(row.getFileName())
+			                       .filePath(row.getFilePath())
+			                       .mimeType(row.getMimeType())
+			                       .size(row.getSize())
+			                       .fileType(row.getFileType())
+			                       .sha256sum(row.getSha256sum())
+			                       .comment(row.getComment())
+			                       .width(row.getWidth())
+			                       .height(row.getHeight())
+			                       .length(row.getLength() != null ? Duration.ofMillis(row.getLength()) : null)
+			                       .pages(row.getPages())
+			                       .originalDateTime(row.getOriginalDateTime())
+			                       .rightsHolder(row.getRightsHolder())
+			                       .rightsTerms(row.getRightsTerms())
+			                       .rightsUrl(row.getRightsUrl())
+			                       .creatorName(row.getCreatorName())
+			                       .creatorEmail(row.getCreatorEmail())
+			                       .creatorCountry(row.getCreatorCountry())
+			                       .creatorUrl(row.getCreatorUrl())
+			                       .location(row.getLocationId() != null ? locations.get(row.getLocationId()) : null)
+			                       .locked(Boolean.TRUE.equals(row.getLocked()))
+			                       .creator(row.getCreator())
+			                       .created(row.getCreated())
+			                       .modifier(row.getModifier())
+			                       .modified(row.getModified())
+			                       .build();
+			siteFiles.computeIfAbsent(row.getGalleryId(), galleryId -> new ArrayList<>())
+			         .add(siteFile);
+		}
+
+		log.debug("Loaded {} site files of {} galleries", rows.size(), galleryIds.size());
+		return siteFiles;
+	}
+
+	private Map<Long, GpsLocation> findLocations(Collection<Long> locationIds) {
+		var locations = new HashMap<Long, GpsLocation>();
+
+		if (locationIds.isEmpty()) {
+			return locations;
+		}
+
+		for (var location : entityManager.createQuery("SELECT l FROM GpsLocation l WHERE l.id IN :ids", GpsLocation.class)
+		                                 .setParameter("ids", locationIds)
+		                                 .getResultList()) {
+			locations.put(location.getId(), location);
+		}
+
+		return locations;
+	}
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +29,10 @@ public interface SubjectRepository extends PagingAndSortingRepository<Subject, L
 			AND   fs.subject_id = s.id
 			""", nativeQuery = true)
 	List<Subject> getSubjectsByFileId(@Param("siteFileId") Long siteFileId);
+
+	@Query(value = """
+			SELECT fs.site_file_id, fs.subject_id FROM file_subject fs
+			WHERE fs.site_file_id IN (:siteFileIds)
+			""", nativeQuery = true)
+	List<Object[]> findFileSubjectIdsByFileIds(@Param("siteFileIds") Collection<Long> siteFileIds);
 }
@@ -0,0 +1,80 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ThumbQueueRepository extends ListCrudRepository<ThumbQueueEntry, Long> {
+	// A file already waiting in the queue is left as is, a file being processed or which has failed is queued again
+	@Modifying
+	@Query(value = """
+			INSERT INTO thumb_queue (site_file_id)
+			SELECT sf.id FROM site_file sf
+			WHERE sf.id IN (:siteFileIds)
+			ON CONFLICT (site_file_id) DO UPDATE
+			SET revision   = thumb_queue.revision + 1,
+			    attempts   = 0,
+			    last_error = NULL,
+			    not_before = NULL,
+			    queued_at  = CURRENT_TIMESTAMP
+			WHERE thumb_queue.claimed_at IS NOT NULL
+			   OR thumb_queue.last_error IS NOT NULL
+			""", nativeQuery = true)
+	int enqueue(@Param("siteFileIds") Collection<Long> siteFileIds);
+
+	@Query(value = """
+			SELECT * FROM thumb_queue
+			WHERE attempts < :maxAttempts
+			  AND (claimed_at IS NULL OR claimed_at < :staleBefore)
+			  AND (not_before IS NULL OR not_before <= :now)
+			ORDER BY queued_at
+			LIMIT :limit
+			FOR UPDATE SKIP LOCKED
+			""", nativeQuery = true)
+	List<ThumbQueueEntry> findClaimable(@Param("maxAttempts") int maxAttempts, @Param("staleBefore") Instant staleBefore, @Param("now") Instant now,
+	                                    @Param("limit") int limit);
+
+	@Query(value = """
+			SELECT * FROM thumb_queue
+			WHERE site_file_id IN (:siteFileIds)
+			  AND attempts < :maxAttempts
+			  AND (claimed_at IS NULL OR claimed_at < :staleBefore)
+			FOR UPDATE SKIP LOCKED
+			""", nativeQuery = true)
+	List<ThumbQueueEntry> findClaimableBySiteFileIds(@Param("siteFileIds") Collection<Long> siteFileIds, @Param("maxAttempts") int maxAttempts,
+	                                                 @Param("staleBefore") Instant staleBefore);
+
+	@Modifying
+	@Query("DELETE FROM ThumbQueueEntry t WHERE t.siteFileId = :siteFileId AND t.revision = :revision")
+	int deleteBySiteFileIdAndRevision(@Param("siteFileId") long siteFileId, @Param("revision") long revision);
+
+	@Modifying
+	@Query("""
+			UPDATE ThumbQueueEntry t SET t.claimedAt = NULL, t.lastError = :lastError, t.notBefore = :notBefore
+			WHERE t.siteFileId = :siteFileId AND t.revision = :revision
+			""")
+	int release(@Param("siteFileId") long siteFileId, @Param("revision") long revision, @Param("lastError") String lastError,
+	            @Param("notBefore") Instant notBefore);
+
+	@Modifying
+	@Query("UPDATE ThumbQueueEntry t SET t.claimedAt = NULL WHERE t.siteFileId = :siteFileId")
+	int release(@Param("siteFileId") long siteFileId);
+
+	@Query("SELECT COUNT(t) FROM ThumbQueueEntry t WHERE t.attempts < :maxAttempts AND (t.claimedAt IS NULL OR t.claimedAt < :staleBefore)")
+	long countPending(@Param("maxAttempts") int maxAttempts, @Param("staleBefore") Instant staleBefore);
+
+	@Query("SELECT COUNT(t) FROM ThumbQueueEntry t WHERE t.claimedAt >= :staleBefore")
+	long countProcessing(@Param("staleBefore") Instant staleBefore);
+
+	@Query("SELECT COUNT(t) FROM ThumbQueueEntry t WHERE t.attempts >= :maxAttempts AND (t.claimedAt IS NULL OR t.claimedAt < :staleBefore)")
+	long countFailed(@Param("maxAttempts") int maxAttempts, @Param("staleBefore") Instant staleBefore);
+
+	@Query("SELECT MIN(t.queuedAt) FROM ThumbQueueEntry t WHERE t.attempts < :maxAttempts")
+	Instant findOldestQueuedAt(@Param("maxAttempts") int maxAttempts);
+}
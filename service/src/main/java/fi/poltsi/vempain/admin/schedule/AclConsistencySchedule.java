@@ -7,6 +7,7 @@ import fi.poltsi.vempain.admin.entity.Page;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.exception.VempainComponentException;
 import fi.poltsi.vempain.admin.exception.VempainLayoutException;
+import fi.poltsi.vempain.admin.service.AccessService;
 import fi.poltsi.vempain.admin.service.ComponentService;
 import fi.poltsi.vempain.admin.service.FormService;
 import fi.poltsi.vempain.admin.service.LayoutService;
@@ -49,6 +50,7 @@ public class AclConsistencySchedule {
 	private final UnitService unitService;
 	private final UserService userService;
 	private final FileService      fileService;
+	private final AccessService    accessService;
 	private final Set<Long>                        missingAcls         = new HashSet<>();
 	private final Set<Long>                        orphanAcls          = new HashSet<>();
 	private final ArrayList<AbstractVempainEntity> duplicateAclObjects = new ArrayList<>();
@@ -90,6 +92,8 @@ public class AclConsistencySchedule {
 		createMissingAcls();
 		removeOrphanAcls();
 		removeDuplicateAcls();
+		// The fixes above may have changed the privileges of any user
+		accessService.evictAll();
 	}
 
 	private void resetState() {
@@ -3,6 +3,7 @@ package fi.poltsi.vempain.admin.schedule;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
 import fi.poltsi.vempain.admin.service.file.FileService;
 import fi.poltsi.vempain.admin.service.file.FileThumbService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 
 @Slf4j
 @Service
@@ -18,24 +20,38 @@ public class MissingThumbGeneratorSchedule {
 	private static final long   DELAY         = 60 * 60 * 1000L;
 	private static final String INITIAL_DELAY = "#{ 30 * 1000 + T(java.util.concurrent.ThreadLocalRandom).current().nextInt(" + DELAY + ") }";
 
-	private final FileService      fileService;
-	private final FileThumbService fileThumbService;
+	private final FileService       fileService;
+	private final FileThumbService  fileThumbService;
+	private final ThumbQueueService thumbQueueService;
 
 	@Value("${vempain.admin.file.site-file-directory}")
 	private String siteFileDirectory;
 
-	public MissingThumbGeneratorSchedule(FileService fileService, FileThumbService fileThumbService) {
+	public MissingThumbGeneratorSchedule(FileService fileService, FileThumbService fileThumbService, ThumbQueueService thumbQueueService) {
 		this.fileService = fileService;
 		this.fileThumbService = fileThumbService;
+		this.thumbQueueService = thumbQueueService;
 	}
 
 	@Scheduled(fixedDelay = DELAY, initialDelayString = INITIAL_DELAY)
 	public void findMissingThumbnails() {
 		checkMissingInFileSystem();
+		checkMissingRenditions();
+	}
+
+	// The renditions are generated together with the thumb, so a missing rendition is backfilled by generating the thumb again
+	private void checkMissingRenditions() {
+		var missingSiteFileIds = fileThumbService.findSiteFileIdsMissingRenditions();
+
+		if (!missingSiteFileIds.isEmpty()) {
+			log.info("Queuing thumb image generation for {} site files missing renditions", missingSiteFileIds.size());
+			thumbQueueService.enqueue(missingSiteFileIds);
+		}
 	}
 
 	private void checkMissingInFileSystem() {
 		var thumbs = fileService.findAllFileThumbs();
+		var missingSiteFileIds = new ArrayList<Long>();
 
 		if (thumbs != null && thumbs.iterator()
 		                            .hasNext()) {
@@ -65,8 +81,8 @@ public class MissingThumbGeneratorSchedule {
 							log.info("Deleting the current thumb file entry in DB as it is missing in filesystem: {}", thumbFile);
 							fileThumbService.delete(fileThumb.getId());
 							log.info("Generating missing thumb file for: {}", fileThumb.getId());
-							log.info("Generating thumb image for site file: {}", siteFile.getId());
-							fileThumbService.generateThumbFile(siteFile.getId());
+							log.info("Queuing thumb image generation for site file: {}", siteFile.getId());
+							missingSiteFileIds.add(siteFile.getId());
 						}
 					} else {
 						log.warn("Could not generate new thumb for parent ID {} because no app file exists", fileThumb.getParentId());
@@ -77,5 +93,7 @@ public class MissingThumbGeneratorSchedule {
 				}
 			}
 		}
+
+		thumbQueueService.enqueue(missingSiteFileIds);
 	}
 }
@@ -0,0 +1,142 @@
+package fi.poltsi.vempain.admin.schedule;
+
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
+import fi.poltsi.vempain.admin.service.MetricsService;
+import fi.poltsi.vempain.admin.service.file.FileThumbService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates the thumbs of the site files in {@link ThumbQueueService} with a fixed number of workers, by default one per available
+ * processor. The queue is drained whenever new files are queued, and periodically to retry failed thumbs and to pick up what was left in
+ * the queue when the application was stopped. The memory used by the workers is bounded by the decoded pixel budget of
+ * {@link fi.poltsi.vempain.tools.ImageTools}.
+ * <p>
+ * The generation time of each thumb and the number of waiting and in-progress thumbs are recorded through {@link MetricsService}.
+ */
+@Slf4j
+@Service
+public class ThumbQueueSchedule {
+	private static final long   DELAY         = 60 * 1000L;
+	private static final String INITIAL_DELAY = "#{ 20 * 1000 + T(java.util.concurrent.ThreadLocalRandom).current().nextInt(" + DELAY + ") }";
+
+	private final ThumbQueueService  thumbQueueService;
+	private final FileThumbService   fileThumbService;
+	private final MetricsService     metricsService;
+	private final int                workerCount;
+	private final ExecutorService    workers;
+	private final ThreadPoolExecutor dispatcher;
+	private final AtomicBoolean      draining       = new AtomicBoolean();
+	private final AtomicBoolean      drainRequested = new AtomicBoolean();
+
+	public ThumbQueueSchedule(ThumbQueueService thumbQueueService, FileThumbService fileThumbService, MetricsService metricsService,
+	                          @Value("${vempain.admin.file.thumb-queue.workers}") int workerCount) {
+		this.thumbQueueService = thumbQueueService;
+		this.fileThumbService  = fileThumbService;
+		this.metricsService    = metricsService;
+		this.workerCount       = workerCount > 0 ? workerCount : Runtime.getRuntime()
+		                                                                 .availableProcessors();
+		this.workers           = Executors.newFixedThreadPool(this.workerCount, Thread.ofPlatform()
+		                                                                         .name("thumb-worker-", 1)
+		                                                                         .factory());
+		// A single pending wake-up is enough as the queue is drained until it is empty
+		this.dispatcher        = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+		                                                Thread.ofPlatform()
+		                                                      .name("thumb-dispatcher")
+		                                                      .factory(),
+		                                                new ThreadPoolExecutor.DiscardPolicy());
+
+		log.info("Generating thumbs with {} workers", this.workerCount);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onThumbsQueued(ThumbQueueService.ThumbsQueuedEvent thumbsQueuedEvent) {
+		dispatcher.execute(this::processQueue);
+	}
+
+	@Scheduled(fixedDelay = DELAY, initialDelayString = INITIAL_DELAY)
+	public void processQueue() {
+		drainRequested.set(true);
+
+		// Whoever finds the queue already being drained leaves the request for the thread draining it
+		while (drainRequested.get() && draining.compareAndSet(false, true)) {
+			try {
+				drainRequested.set(false);
+				drainQueue();
+			} finally {
+				draining.set(false);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		dispatcher.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	private void drainQueue() {
+		List<ThumbQueueEntry> entries;
+
+		while (!(entries = thumbQueueService.claim(workerCount)).isEmpty()) {
+			metricsService.setThumbQueueDepth(thumbQueueService.getPendingCount());
+			var tasks = new ArrayList<Callable<Void>>(entries.size());
+
+			for (var entry : entries) {
+				tasks.add(() -> {
+					generateThumb(entry);
+					return null;
+				});
+			}
+
+			try {
+				for (var future : workers.invokeAll(tasks)) {
+					future.get();
+				}
+			} catch (ExecutionException e) {
+				log.error("Failed to update the thumb queue", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+				      .interrupt();
+				return;
+			}
+		}
+
+		metricsService.setThumbQueueDepth(thumbQueueService.getPendingCount());
+	}
+
+	private void generateThumb(ThumbQueueEntry entry) {
+		var start = System.nanoTime();
+		metricsService.thumbGenerationStarted();
+
+		try {
+			fileThumbService.generateThumbFile(entry.getSiteFileId());
+		} catch (Exception e) {
+			metricsService.recordThumbGeneration(System.nanoTime() - start, false);
+			log.warn("Attempt {} to generate the thumb of site file {} failed: {}", entry.getAttempts(), entry.getSiteFileId(), e.getMessage());
+			thumbQueueService.fail(entry, e.getMessage());
+			return;
+		} finally {
+			metricsService.thumbGenerationFinished();
+		}
+
+		metricsService.recordThumbGeneration(System.nanoTime() - start, true);
+		thumbQueueService.complete(entry);
+	}
+}
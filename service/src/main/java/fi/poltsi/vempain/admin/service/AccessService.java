@@ -1,14 +1,17 @@
 package fi.poltsi.vempain.admin.service;
 
 import fi.poltsi.vempain.admin.VempainMessages;
+import fi.poltsi.vempain.admin.repository.AclPermissionRepository;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import fi.poltsi.vempain.auth.entity.Acl;
 import fi.poltsi.vempain.auth.entity.Unit;
 import fi.poltsi.vempain.auth.entity.UserAccount;
 import fi.poltsi.vempain.auth.service.AclService;
 import fi.poltsi.vempain.auth.service.UserDetailsImpl;
 import fi.poltsi.vempain.auth.service.UserService;
-import lombok.AllArgsConstructor;
+import fi.poltsi.vempain.tools.TransactionTools;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,23 +19,64 @@ import org.springframework.security.web.authentication.session.SessionAuthentica
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.StreamSupport;
 
+/**
+ * Checks the privileges of the authenticated user on objects by their ACL ID. The user, the IDs of its units and its privileges by ACL ID
+ * are kept in a small least recently used cache where each entry expires after a while, so that the repeated checks of a request are hash
+ * lookups after the first. The cache is evicted whenever ACLs or unit memberships change.
+ */
 @Slf4j
 @Service
-@AllArgsConstructor
 public class AccessService {
-	private static final List<Boolean> READ_PRIVILEGE   = Arrays.asList(true, false, false, false);
-	private static final List<Boolean> MODIFY_PRIVILEGE = Arrays.asList(false, true, false, false);
-	private static final List<Boolean> CREATE_PRIVILEGE = Arrays.asList(false, false, true, false);
-	private static final List<Boolean> DELETE_PRIVILEGE = Arrays.asList(false, false, false, true);
-	private final        AclService    aclService;
-	private final        UserService   userService;
-	private final        Environment   environment;
+	static final         int                        READ_PRIVILEGE   = 1;
+	static final         int                        MODIFY_PRIVILEGE = 1 << 1;
+	static final         int                        CREATE_PRIVILEGE = 1 << 2;
+	static final         int                        DELETE_PRIVILEGE = 1 << 3;
+	private final        AclService                 aclService;
+	private final        AclPermissionRepository    aclPermissionRepository;
+	private final        UserService                userService;
+	private final        Environment                environment;
+	private final        Duration                   timeToLive;
+	private final        Map<Long, CachedPrincipal> cachedPrincipals;
+	// Incremented on every eviction so that a user loaded concurrently with an eviction is not cached
+	private              long                       generation;
+
+	/**
+	 * @param unitIds    Sorted IDs of the units of the user
+	 * @param privileges Privilege bitmask of the user by ACL ID
+	 */
+	private record CachedPrincipal(UserAccount user, long[] unitIds, Map<Long, Integer> privileges, Instant expires) {
+	}
+
+	public AccessService(AclService aclService, AclPermissionRepository aclPermissionRepository, UserService userService, Environment environment,
+	                     @Value("${vempain.permission-cache.max-size}") int maxSize,
+	                     @Value("${vempain.permission-cache.ttl-seconds}") long ttlSeconds) {
+		this.aclService              = aclService;
+		this.aclPermissionRepository = aclPermissionRepository;
+		this.userService             = userService;
+		this.environment             = environment;
+		this.timeToLive              = Duration.ofSeconds(ttlSeconds);
+		this.cachedPrincipals        = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPrincipal> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
 
 	public boolean hasReadPermission(long aclId) {
 		return hasPermission(aclId, READ_PRIVILEGE);
@@ -50,6 +94,34 @@ public class AccessService {
 		return hasPermission(aclId, DELETE_PRIVILEGE);
 	}
 
+	/**
+	 * Evaluate the read permission of the current user on several objects at once. The ACL rows of all the given ACL IDs not yet cached
+	 * are fetched with a single query, so a listing costs at most two queries regardless of its length.
+	 *
+	 * @param aclIds ACL IDs of the objects to check
+	 * @return The subset of the given ACL IDs the user is allowed to read
+	 */
+	public Set<Long> filterReadable(Collection<Long> aclIds) {
+		return filterPermitted(aclIds, READ_PRIVILEGE);
+	}
+
+	/**
+	 * The filter restricting native queries to the objects the current user can read, for listings which page in the database.
+	 *
+	 * @return Null when running as an ITC, where every object is readable
+	 */
+	public AclReadFilter getReadFilter() {
+		if (isTestMode()) {
+			return null;
+		}
+
+		var principal = getAuthenticatedPrincipal();
+		return new AclReadFilter(principal.user()
+		                                  .getId(), Arrays.stream(principal.unitIds())
+		                                                  .boxed()
+		                                                  .toList());
+	}
+
 	public Long getUserId() {
 		// If we're running as a ITC, we return the first user ID we can find in database
 		if (Objects.requireNonNull(environment.getProperty("vempain.test"))
@@ -104,73 +176,228 @@ public class AccessService {
 		return userId;
 	}
 
-	private boolean hasPermission(long aclId, List<Boolean> permissionList) {
-		if (Objects.requireNonNull(environment.getProperty("vempain.test"))
-		           .equalsIgnoreCase("true")) {
+	/**
+	 * Remove all the users and their privileges from the cache, called whenever ACLs or unit memberships change. Within a transaction the
+	 * cache is cleared again once the transaction has completed, so that privileges read before the commit are not kept.
+	 */
+	public void evictAll() {
+		TransactionTools.evictNowAndAfterCompletion(() -> {
+			synchronized (cachedPrincipals) {
+				cachedPrincipals.clear();
+				generation++;
+			}
+		});
+	}
+
+	/**
+	 * Remove the user from the cache, called whenever the user is updated. Within a transaction the user is removed again once the
+	 * transaction has completed.
+	 *
+	 * @param userId ID of the user
+	 */
+	public void evict(Long userId) {
+		if (userId != null) {
+			TransactionTools.evictNowAndAfterCompletion(() -> {
+				synchronized (cachedPrincipals) {
+					cachedPrincipals.remove(userId);
+					generation++;
+				}
+			});
+		}
+	}
+
+	private boolean hasPermission(long aclId, int mask) {
+		if (isTestMode()) {
 			return true;
 		}
 
-		var user = getUser();
+		var principal = getAuthenticatedPrincipal();
+		var privileges = principal.privileges()
+		                          .get(aclId);
 
-		if (user == null) {
-			throw new SessionAuthenticationException(VempainMessages.INVALID_USER_SESSION);
+		if (privileges == null) {
+			privileges = effectivePrivileges(principal.user()
+			                                          .getId(), principal.unitIds(), aclService.findAclByAclId(aclId));
+			principal.privileges()
+			         .put(aclId, privileges);
 		}
 
-		List<Acl> acls = aclService.findAclByAclId(aclId);
+		return hasPrivileges(privileges, mask);
+	}
+
+	private Set<Long> filterPermitted(Collection<Long> aclIds, int mask) {
+		if (isTestMode()) {
+			return new HashSet<>(aclIds);
+		}
+
+		var principal = getAuthenticatedPrincipal();
+		var permitted = new HashSet<Long>();
+		var uncachedAclIds = new HashSet<Long>();
+
+		for (var aclId : aclIds) {
+			var privileges = principal.privileges()
+			                          .get(aclId);
+
+			if (privileges == null) {
+				uncachedAclIds.add(aclId);
+			} else if (hasPrivileges(privileges, mask)) {
+				permitted.add(aclId);
+			}
+		}
+
+		if (uncachedAclIds.isEmpty()) {
+			return permitted;
+		}
+
+		// An ACL ID without any rows applying to the user is cached as having no privileges
+		var loadedPrivileges = new HashMap<Long, Integer>();
 
-		if (acls.isEmpty()) {
-			return false;
+		for (var aclId : uncachedAclIds) {
+			loadedPrivileges.put(aclId, 0);
 		}
 
-		return aclListContainsPermission(permissionList, user, acls);
+		for (Acl acl : aclPermissionRepository.findByAclIdIn(uncachedAclIds)) {
+			if (appliesTo(acl, principal.user()
+			                            .getId(), principal.unitIds())) {
+				loadedPrivileges.merge(acl.getAclId(), privileges(acl), (a, b) -> a | b);
+			}
+		}
+
+		principal.privileges()
+		         .putAll(loadedPrivileges);
+
+		for (var entry : loadedPrivileges.entrySet()) {
+			if (hasPrivileges(entry.getValue(), mask)) {
+				permitted.add(entry.getKey());
+			}
+		}
+
+		return permitted;
+	}
+
+	protected boolean aclListContainsPermission(int mask, UserAccount userAccount, List<Acl> acls) {
+		return hasPrivileges(effectivePrivileges(userAccount.getId(), unitIds(userAccount), acls), mask);
+	}
+
+	protected boolean hasPermissions(Acl acl, int mask) {
+		return hasPrivileges(privileges(acl), mask);
+	}
+
+	private static boolean hasPrivileges(int privileges, int mask) {
+		return mask != 0 && (privileges & mask) == mask;
 	}
 
-	protected boolean aclListContainsPermission(List<Boolean> permissionList, UserAccount userAccount, List<Acl> acls) {
+	/**
+	 * The privileges the user has on an object, combined from the ACL rows of the user and of the units the user belongs to.
+	 */
+	private static int effectivePrivileges(Long userId, long[] unitIds, List<Acl> acls) {
+		var privileges = 0;
+
 		for (Acl acl : acls) {
-			if (acl.getUserId() != null &&
-			    acl.getUserId()
-			       .equals(userAccount.getId())
-			    && hasPermissions(acl, permissionList)) {
-				return true;
-			} else if (acl.getUnitId() != null) {
-				for (Unit unit : userAccount.getUnits()) {
-					return unit.getId()
-					           .equals(acl.getUnitId())
-					       && hasPermissions(acl, permissionList);
-				}
+			if (appliesTo(acl, userId, unitIds)) {
+				privileges |= privileges(acl);
 			}
 		}
 
-		return false;
+		return privileges;
+	}
+
+	private static int privileges(Acl acl) {
+		return (acl.isReadPrivilege() ? READ_PRIVILEGE : 0)
+		       | (acl.isModifyPrivilege() ? MODIFY_PRIVILEGE : 0)
+		       | (acl.isCreatePrivilege() ? CREATE_PRIVILEGE : 0)
+		       | (acl.isDeletePrivilege() ? DELETE_PRIVILEGE : 0);
+	}
+
+	private static boolean appliesTo(Acl acl, Long userId, long[] unitIds) {
+		return (acl.getUserId() != null && acl.getUserId()
+		                                      .equals(userId))
+		       || (acl.getUnitId() != null && Arrays.binarySearch(unitIds, acl.getUnitId()) >= 0);
+	}
+
+	private static long[] unitIds(UserAccount userAccount) {
+		if (userAccount.getUnits() == null) {
+			return new long[0];
+		}
+
+		return userAccount.getUnits()
+		                  .stream()
+		                  .mapToLong(Unit::getId)
+		                  .sorted()
+		                  .toArray();
 	}
 
-	protected boolean hasPermissions(Acl acl, List<Boolean> mask) {
-		var result = !mask.get(0) || (acl.isReadPrivilege());
-		result &= !mask.get(1) || (acl.isModifyPrivilege());
-		result &= !mask.get(2) || (acl.isCreatePrivilege());
-		result &= !mask.get(3) || (acl.isDeletePrivilege());
-		return result;
+	private boolean isTestMode() {
+		return Objects.requireNonNull(environment.getProperty("vempain.test"))
+		              .equalsIgnoreCase("true");
+	}
+
+	private CachedPrincipal getAuthenticatedPrincipal() {
+		var principal = getPrincipal();
+
+		if (principal == null) {
+			throw new SessionAuthenticationException(VempainMessages.INVALID_USER_SESSION);
+		}
+
+		return principal;
 	}
 
 	private UserAccount getUser() {
+		var principal = getPrincipal();
+		return principal != null ? principal.user() : null;
+	}
+
+	/**
+	 * Resolve the authenticated user through the cache, the user and its units are read from the database only when the user is not
+	 * cached or the cached entry has expired.
+	 */
+	private CachedPrincipal getPrincipal() {
 		var auth = SecurityContextHolder.getContext()
 		                                .getAuthentication();
 
-		if (auth != null) {
-			UserDetailsImpl userDetails;
+		if (auth == null) {
+			return null;
+		}
+
+		UserDetailsImpl userDetails;
 
-			try {
-				userDetails = (UserDetailsImpl) auth.getPrincipal();
-			} catch (Exception e) {
-				log.error("Failed to fetch authorisation principal from {}", auth);
-				return null;
+		try {
+			userDetails = (UserDetailsImpl) auth.getPrincipal();
+		} catch (Exception e) {
+			log.error("Failed to fetch authorisation principal from {}", auth);
+			return null;
+		}
+
+		var userId = userDetails.getId();
+		var now = Instant.now();
+		long loadedGeneration;
+
+		synchronized (cachedPrincipals) {
+			var cachedPrincipal = cachedPrincipals.get(userId);
+
+			if (cachedPrincipal != null && cachedPrincipal.expires()
+			                                              .isAfter(now)) {
+				return cachedPrincipal;
 			}
 
-			Optional<UserAccount> user = userService.findById(userDetails.getId());
+			loadedGeneration = generation;
+		}
 
-			return user.orElse(null);
+		Optional<UserAccount> user = userService.findById(userId);
+
+		if (user.isEmpty()) {
+			return null;
+		}
+
+		var principal = new CachedPrincipal(user.get(), unitIds(user.get()), new ConcurrentHashMap<>(), now.plus(timeToLive));
+
+		synchronized (cachedPrincipals) {
+			// The user is not cached if the cache was evicted while it was being loaded, as it may then already be stale
+			if (loadedGeneration == generation) {
+				cachedPrincipals.put(userId, principal);
+			}
 		}
 
-		return null;
+		return principal;
 	}
 }
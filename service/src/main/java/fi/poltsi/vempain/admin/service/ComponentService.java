@@ -9,6 +9,7 @@ import fi.poltsi.vempain.auth.exception.VempainAbstractException;
 import fi.poltsi.vempain.auth.exception.VempainAclException;
 import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
 import fi.poltsi.vempain.auth.service.AclService;
+import fi.poltsi.vempain.tools.TransactionTools;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -21,6 +22,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -31,6 +35,9 @@ public class ComponentService {
 	private final        AclService          aclService;
 	private final        AccessService       accessService;
 
+	// Components read when publishing, by component ID
+	private final Map<Long, Component> cachedComponents = new ConcurrentHashMap<>();
+
 	public List<Component> findAll() {
 		ArrayList<Component> components = new ArrayList<>();
 
@@ -45,8 +52,12 @@ public class ComponentService {
 		Iterable<Component> allComponents = componentRepository.findAll();
 		ArrayList<Component> accessableComponents = new ArrayList<>();
 
+		var readableAclIds = accessService.filterReadable(StreamSupport.stream(allComponents.spliterator(), false)
+		                                                               .map(Component::getAclId)
+		                                                               .toList());
+
 		for (Component component : allComponents) {
-			if (accessService.hasReadPermission(component.getAclId())) {
+			if (readableAclIds.contains(component.getAclId())) {
 				accessableComponents.add(component);
 			}
 		}
@@ -65,6 +76,37 @@ public class ComponentService {
 		return optionalComponent.get();
 	}
 
+	/**
+	 * Read-through cached version of {@link #findById(long)} used when publishing. The returned component is shared and must not be
+	 * modified.
+	 *
+	 * @param componentId ID of the component
+	 * @return Cached component
+	 * @throws VempainComponentException If the component does not exist
+	 */
+	public Component findCachedById(long componentId) throws VempainComponentException {
+		var component = cachedComponents.get(componentId);
+
+		if (component == null) {
+			component = findById(componentId);
+			cachedComponents.put(componentId, component);
+		}
+
+		return component;
+	}
+
+	/**
+	 * Remove the component from the cache, called whenever the component is saved or deleted. Within a transaction the component is
+	 * removed again once the transaction has completed.
+	 *
+	 * @param componentId ID of the component
+	 */
+	public void evictCached(Long componentId) {
+		if (componentId != null) {
+			TransactionTools.evictNowAndAfterCompletion(() -> cachedComponents.remove(componentId));
+		}
+	}
+
 	public Component findByIdByUser(long componentId) {
 		var userId = accessService.getValidUserId();
 
@@ -108,12 +150,15 @@ public class ComponentService {
 
 		aclService.deleteByAclId(optionalComponent.get()
 		                                          .getAclId());
+		accessService.evictAll();
 		componentRepository.deleteById(componentId);
+		evictCached(componentId);
 	}
 
 	@Transactional(propagation = Propagation.REQUIRED)
 	public Component save(Component component) throws VempainComponentException, VempainAbstractException {
 		validateComponent(component);
+		evictCached(component.getId());
 		return componentRepository.save(component);
 	}
 
@@ -166,12 +211,14 @@ public class ComponentService {
 
 		// We remove the old ACL entries and replace them with the new one from the request
 		aclService.updateFromRequestList(request.getAcls());
+		accessService.evictAll();
 		component.setCompData(request.getCompData());
 		component.setCompName(request.getCompName());
 		component.setModifier(userId);
 		component.setModified(Instant.now());
 
 		validateComponent(component);
+		evictCached(component.getId());
 		return componentRepository.save(component);
 	}
 
@@ -196,6 +243,7 @@ public class ComponentService {
 		try {
 			log.debug("component ACL ID: {}", component.getAclId());
 			aclService.deleteByAclId(component.getAclId());
+			accessService.evictAll();
 		} catch (VempainEntityNotFoundException e) {
 			log.warn("The layout referred to non-existing ACL ID: {}", component.getAclId());
 		} catch (Exception e) {
@@ -205,6 +253,7 @@ public class ComponentService {
 
 		try {
 			componentRepository.delete(component);
+			evictCached(componentId);
 		} catch (Exception e) {
 			log.error("Failed to remove component: {}", component, e);
 			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, VempainMessages.INTERNAL_ERROR);
@@ -6,6 +6,8 @@ import fi.poltsi.vempain.admin.api.response.DataResponse;
 import fi.poltsi.vempain.admin.api.response.DataSummaryResponse;
 import fi.poltsi.vempain.admin.entity.DataEntity;
 import fi.poltsi.vempain.admin.repository.DataRepository;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService.DependencyType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
@@ -37,15 +39,18 @@ import java.util.regex.Pattern;
 public class DataService {
 	private static final String  IDENTIFIER_REGEX   = "^[a-z][a-z0-9_]*$";
 	private static final Pattern IDENTIFIER_PATTERN = Pattern.compile(IDENTIFIER_REGEX);
-	private static final String  TABLE_PREFIX       = "website_data__";
+	static final         String  TABLE_PREFIX       = "website_data__";
 	private static final String  COLUMN_NAME_REGEX  = "^[a-zA-Z_][a-zA-Z0-9_]*$";
 
-	private final DataRepository dataRepository;
-	private final JdbcTemplate   siteJdbcTemplate;
+	private final DataRepository               dataRepository;
+	private final JdbcTemplate                 siteJdbcTemplate;
+	private final WebSitePageDependencyService webSitePageDependencyService;
 
-	public DataService(DataRepository dataRepository, @Qualifier("siteDataSource") DataSource siteDataSource) {
-		this.dataRepository = dataRepository;
-		this.siteJdbcTemplate = new JdbcTemplate(siteDataSource);
+	public DataService(DataRepository dataRepository, @Qualifier("siteDataSource") DataSource siteDataSource,
+	                   WebSitePageDependencyService webSitePageDependencyService) {
+		this.dataRepository               = dataRepository;
+		this.siteJdbcTemplate             = new JdbcTemplate(siteDataSource);
+		this.webSitePageDependencyService = webSitePageDependencyService;
 	}
 
 	public List<DataSummaryResponse> findAll(String type, String identifierPrefix, String search) {
@@ -197,6 +202,7 @@ public class DataService {
 			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, VempainMessages.INTERNAL_ERROR);
 		}
 
+		webSitePageDependencyService.resetCacheOfDependentPages(DependencyType.DATA, List.of(safeIdentifier));
 		return entity.toDataResponse();
 	}
 
@@ -27,6 +27,10 @@ public class DeleteService {
 	private final PageRepository       pageRepository;
 	private final FormRepository       formRepository;
 	private final LayoutRepository     layoutRepository;
+	private final LayoutService        layoutService;
+	private final FormService          formService;
+	private final ComponentService     componentService;
+	private final AccessService        accessService;
 
 	/**
 	 * Delete a layout as well as any forms and pages that are associated with the layout
@@ -48,7 +52,9 @@ public class DeleteService {
 		}
 
 		aclRepository.deleteAclsByAclId(layout.getAclId());
+		accessService.evictAll();
 		layoutRepository.deleteById(layoutId);
+		layoutService.evictCached(layoutId);
 	}
 
 	/**
@@ -77,7 +83,9 @@ public class DeleteService {
 		}
 
 		aclRepository.deleteAclsByAclId(component.getAclId());
+		accessService.evictAll();
 		componentRepository.deleteById(componentId);
+		componentService.evictCached(componentId);
 	}
 
 	/**
@@ -111,7 +119,9 @@ public class DeleteService {
 		}
 
 		aclRepository.deleteAclsByAclId(form.getAclId());
+		accessService.evictAll();
 		formRepository.deleteById(formId);
+		formService.evictCached(formId);
 	}
 
 	/**
@@ -129,6 +139,7 @@ public class DeleteService {
 		}
 
 		aclRepository.deleteAclsByAclId(page.getAclId());
+		accessService.evictAll();
 		pageRepository.deletePageById(pageId);
 	}
 }
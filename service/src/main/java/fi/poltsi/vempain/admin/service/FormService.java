@@ -19,6 +19,7 @@ import fi.poltsi.vempain.auth.entity.Acl;
 import fi.poltsi.vempain.auth.exception.VempainAclException;
 import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
 import fi.poltsi.vempain.auth.service.AclService;
+import fi.poltsi.vempain.tools.TransactionTools;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -31,6 +32,9 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -42,6 +46,10 @@ public class FormService {
 	private final AclService           aclService;
 	private final AccessService        accessService;
 
+	// Forms and their components read when publishing, by form ID
+	private final Map<Long, Form>                cachedForms          = new ConcurrentHashMap<>();
+	private final Map<Long, List<FormComponent>> cachedFormComponents = new ConcurrentHashMap<>();
+
 	public Iterable<Form> findAll() {
 		return formRepository.findAll();
 	}
@@ -50,8 +58,12 @@ public class FormService {
 		var forms = findAll();
 		var responses = new ArrayList<FormResponse>();
 
+		var readableAclIds = accessService.filterReadable(StreamSupport.stream(forms.spliterator(), false)
+		                                                               .map(Form::getAclId)
+		                                                               .toList());
+
 		for (Form form : forms) {
-			if (accessService.hasReadPermission(form.getAclId())) {
+			if (readableAclIds.contains(form.getAclId())) {
 				responses.add(getFormResponse(form));
 			}
 		}
@@ -70,6 +82,38 @@ public class FormService {
 		return optionalForm.get();
 	}
 
+	/**
+	 * Read-through cached version of {@link #findById(long)} used when publishing. The returned form is shared and must not be modified.
+	 *
+	 * @param formId ID of the form
+	 * @return Cached form
+	 * @throws VempainEntityNotFoundException If the form does not exist
+	 */
+	public Form findCachedById(long formId) throws VempainEntityNotFoundException {
+		var form = cachedForms.get(formId);
+
+		if (form == null) {
+			form = findById(formId);
+			cachedForms.put(formId, form);
+		}
+
+		return form;
+	}
+
+	/**
+	 * Remove the form and its components from the caches, called whenever the form or its components are saved or deleted. Within a
+	 * transaction the form is removed again once the transaction has completed.
+	 *
+	 * @param formId ID of the form
+	 */
+	public void evictCached(Long formId) {
+		if (formId != null) {
+			TransactionTools.evictNowAndAfterCompletion(() -> {
+				cachedForms.remove(formId);
+				cachedFormComponents.remove(formId);
+			});
+		}
+	}
 
 	public FormResponse getFormResponseById(Long formId) throws VempainEntityNotFoundException, VempainComponentException {
 		var form = findById(formId);
@@ -126,6 +170,7 @@ public class FormService {
 		try {
 			log.debug("Form ACL ID: {}", form.getAclId());
 			aclService.deleteByAclId(form.getAclId());
+			accessService.evictAll();
 		} catch (Exception e) {
 			log.error("Failed to remove acl: {}", form.getAclId(), e);
 		}
@@ -140,6 +185,7 @@ public class FormService {
 		try {
 			log.debug("Deleting form ID: {}", formId);
 			formRepository.deleteById(formId);
+			evictCached(formId);
 		} catch (Exception e) {
 			log.error("Failed to delete form: {}", form, e);
 			throw new ProcessingFailedException("Unknown exception when deleting form");
@@ -148,6 +194,7 @@ public class FormService {
 
 	@Transactional(propagation = Propagation.REQUIRED)
 	public Form save(Form form) {
+		evictCached(form.getId());
 		return formRepository.save(form);
 	}
 
@@ -230,6 +277,7 @@ public class FormService {
 
 		try {
 			aclService.saveAclRequests(form.getAclId(), formRequest.getAcls());
+			accessService.evictAll();
 		} catch (VempainAclException ex) {
 			log.error("Error saving ACLs for new form: {}", formRequest);
 			throw new InvalidRequestException("Failed to save the ACLs of request");
@@ -254,6 +302,7 @@ public class FormService {
 		var index = 0L;
 
 		var existingFormComponents = formComponentService.findFormComponentByFormId(form.getId());
+		evictCached(form.getId());
 
 		if (existingFormComponents.isEmpty()) {
 			// This is a new form, just add the components
@@ -311,8 +360,22 @@ public class FormService {
 		return response;
 	}
 
+	/**
+	 * Find the components of a form ordered by their sort order. The list is read-through cached as it is looked up for every page
+	 * published, and the returned list must not be modified.
+	 *
+	 * @param formId ID of the form
+	 * @return Components of the form
+	 */
 	public List<FormComponent> findAllFormComponentsByFormId(long formId) {
-		return formComponentService.findFormComponentByFormId(formId);
+		var formComponents = cachedFormComponents.get(formId);
+
+		if (formComponents == null) {
+			formComponents = List.copyOf(formComponentService.findFormComponentByFormId(formId));
+			cachedFormComponents.put(formId, formComponents);
+		}
+
+		return formComponents;
 	}
 
 	public List<FormResponse> findFormsByComponentId(long componentId) {
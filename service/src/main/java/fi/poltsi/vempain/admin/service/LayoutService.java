@@ -11,6 +11,8 @@ import fi.poltsi.vempain.auth.exception.VempainAbstractException;
 import fi.poltsi.vempain.auth.exception.VempainAclException;
 import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
 import fi.poltsi.vempain.auth.service.AclService;
+import fi.poltsi.vempain.tools.LayoutTemplate;
+import fi.poltsi.vempain.tools.TransactionTools;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,10 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -31,6 +37,14 @@ public class LayoutService {
 	private final AclService       aclService;
 	private final AccessService    accessService;
 
+	// Layouts read when publishing, by layout ID
+	private final Map<Long, Layout>         cachedLayouts   = new ConcurrentHashMap<>();
+	// Compiled layout structures by layout ID, together with the modification time of the layout they were compiled from
+	private final Map<Long, CompiledLayout> compiledLayouts = new ConcurrentHashMap<>();
+
+	private record CompiledLayout(Instant modified, LayoutTemplate template) {
+	}
+
 	public Iterable<Layout> findAll() {
 		return layoutRepository.findAll();
 	}
@@ -39,8 +53,12 @@ public class LayoutService {
 		Iterable<Layout> layouts = findAll();
 		ArrayList<LayoutResponse> responses = new ArrayList<>();
 
+		var readableAclIds = accessService.filterReadable(StreamSupport.stream(layouts.spliterator(), false)
+		                                                               .map(Layout::getAclId)
+		                                                               .toList());
+
 		for (Layout layout : layouts) {
-			if (accessService.hasReadPermission(layout.getAclId())) {
+			if (readableAclIds.contains(layout.getAclId())) {
 				var layoutResponse = layout.getLayoutResponse();
 				layoutResponse.setAcls(aclService.getAclResponses(layout.getAclId()));
 				responses.add(layoutResponse);
@@ -60,6 +78,59 @@ public class LayoutService {
 		return optionalLayout.get();
 	}
 
+	/**
+	 * Read-through cached version of {@link #findById(long)} used when publishing. The returned layout is shared and must not be modified.
+	 *
+	 * @param layoutId ID of the layout
+	 * @return Cached layout
+	 * @throws VempainEntityNotFoundException If the layout does not exist
+	 */
+	public Layout findCachedById(long layoutId) throws VempainEntityNotFoundException {
+		var layout = cachedLayouts.get(layoutId);
+
+		if (layout == null) {
+			layout = findById(layoutId);
+			cachedLayouts.put(layoutId, layout);
+		}
+
+		return layout;
+	}
+
+	/**
+	 * Remove the layout from the caches, called whenever the layout is saved or deleted. Within a transaction the layout is removed again
+	 * once the transaction has completed.
+	 *
+	 * @param layoutId ID of the layout
+	 */
+	public void evictCached(Long layoutId) {
+		if (layoutId != null) {
+			TransactionTools.evictNowAndAfterCompletion(() -> {
+				cachedLayouts.remove(layoutId);
+				compiledLayouts.remove(layoutId);
+			});
+		}
+	}
+
+	/**
+	 * Get the compiled template of the layout structure. The template is compiled only when the layout has not been compiled before, or it
+	 * has been modified since.
+	 *
+	 * @param layout Layout to get the template of
+	 * @return Compiled template of the layout structure
+	 */
+	public LayoutTemplate getCompiledTemplate(Layout layout) {
+		var modified = layout.getModified() != null ? layout.getModified() : layout.getCreated();
+		var compiledLayout = compiledLayouts.get(layout.getId());
+
+		if (compiledLayout == null || !Objects.equals(compiledLayout.modified(), modified)) {
+			log.debug("Compiling the structure of layout {}", layout.getId());
+			compiledLayout = new CompiledLayout(modified, LayoutTemplate.compile(layout.getStructure()));
+			compiledLayouts.put(layout.getId(), compiledLayout);
+		}
+
+		return compiledLayout.template();
+	}
+
 	public Layout findByIdByUser(long layoutId) throws VempainEntityNotFoundException {
 		var userId = accessService.getValidUserId();
 
@@ -110,6 +181,7 @@ public class LayoutService {
 	@Transactional(propagation = Propagation.REQUIRED)
 	public Layout save(Layout layout) throws VempainLayoutException, VempainAbstractException {
 		validateLayout(layout);
+		evictCached(layout.getId());
 		return layoutRepository.save(layout);
 	}
 
@@ -179,6 +251,7 @@ public class LayoutService {
 		try {
 			// Save the ACLs first
 			aclService.updateFromRequestList(layoutRequest.getAcls());
+			accessService.evictAll();
 
 			// The only fields that user can update is the name and structure, so we update these
 			layout.setLayoutName(layoutRequest.getLayoutName());
@@ -208,6 +281,7 @@ public class LayoutService {
 		try {
 			log.debug("Layout ACL ID: {}", layout.getAclId());
 			aclService.deleteByAclId(layout.getAclId());
+			accessService.evictAll();
 		} catch (VempainEntityNotFoundException e) {
 			log.warn("The layout referred to non-existing ACL ID: {}", layout.getAclId());
 		} catch (Exception e) {
@@ -218,6 +292,7 @@ public class LayoutService {
 		try {
 			log.debug("Layout ID: {}", layoutId);
 			layoutRepository.delete(layout);
+			evictCached(layoutId);
 		} catch (Exception e) {
 			log.error("Failed to delete layout: {}", layout, e);
 			throw new ProcessingFailedException("Failed to delete layout");
@@ -0,0 +1,152 @@
+package fi.poltsi.vempain.admin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers, counters and gauges of the file ingest, thumb generation and publishing, exported through the actuator metrics endpoint. The
+ * timers publish the median, 95th and 99th percentiles so that it can be seen where the time goes under load.
+ * <p>
+ * The durations are given in nanoseconds as measured with {@link System#nanoTime()} by the caller.
+ */
+@Service
+public class MetricsService {
+	public static final String INGEST_BYTES        = "vempain.ingest.bytes";
+	public static final String INGEST_HASH         = "vempain.ingest.hash";
+	public static final String INGEST_DB_UPSERT    = "vempain.ingest.db.upsert";
+	public static final String INGEST_SUBJECT_LINK = "vempain.ingest.subject.link";
+	public static final String THUMB_RESIZE        = "vempain.thumb.resize";
+	public static final String THUMB_GENERATION    = "vempain.thumb.generation";
+	public static final String THUMB_QUEUE_DEPTH   = "vempain.thumb.queue.depth";
+	public static final String THUMB_IN_PROGRESS   = "vempain.thumb.queue.in-progress";
+	public static final String SFTP_BYTES          = "vempain.sftp.bytes";
+	public static final String SFTP_UPLOAD         = "vempain.sftp.upload";
+	public static final String PUBLISH_DURATION    = "vempain.publish.duration";
+
+	public static final String PUBLISH_TYPE_GALLERY = "gallery";
+	public static final String PUBLISH_TYPE_PAGE    = "page";
+
+	private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+	private final Counter       ingestBytes;
+	private final Timer         ingestHash;
+	private final Timer         ingestDbUpsert;
+	private final Timer         ingestSubjectLink;
+	private final Timer         thumbResize;
+	private final Timer         thumbGenerated;
+	private final Timer         thumbFailed;
+	private final AtomicLong    thumbQueueDepth  = new AtomicLong();
+	private final AtomicInteger thumbsInProgress = new AtomicInteger();
+	private final Counter       sftpBytes;
+	private final Timer         sftpUpload;
+	private final Timer         publishGallery;
+	private final Timer         publishPage;
+
+	public MetricsService(MeterRegistry meterRegistry) {
+		this.ingestBytes       = Counter.builder(INGEST_BYTES)
+		                                .description("Bytes of the ingested files")
+		                                .baseUnit("bytes")
+		                                .register(meterRegistry);
+		this.ingestHash        = timer(meterRegistry, INGEST_HASH, "Time to store an ingested file while computing its checksum");
+		this.ingestDbUpsert    = timer(meterRegistry, INGEST_DB_UPSERT, "Time to save the site files of an ingest request");
+		this.ingestSubjectLink = timer(meterRegistry, INGEST_SUBJECT_LINK, "Time to link the tags of an ingest request as subjects");
+		this.thumbResize       = timer(meterRegistry, THUMB_RESIZE, "Time to render the thumb and the renditions of an image");
+		this.thumbGenerated    = thumbGenerationTimer(meterRegistry, "success");
+		this.thumbFailed       = thumbGenerationTimer(meterRegistry, "failure");
+		Gauge.builder(THUMB_QUEUE_DEPTH, thumbQueueDepth, AtomicLong::get)
+		     .description("Number of site files waiting for their thumb to be generated")
+		     .register(meterRegistry);
+		Gauge.builder(THUMB_IN_PROGRESS, thumbsInProgress, AtomicInteger::get)
+		     .description("Number of thumbs being generated")
+		     .register(meterRegistry);
+		this.sftpBytes         = Counter.builder(SFTP_BYTES)
+		                                .description("Bytes uploaded to the site-server")
+		                                .baseUnit("bytes")
+		                                .register(meterRegistry);
+		this.sftpUpload        = timer(meterRegistry, SFTP_UPLOAD, "Time to upload a single file to the site-server");
+		this.publishGallery    = publishTimer(meterRegistry, PUBLISH_TYPE_GALLERY);
+		this.publishPage       = publishTimer(meterRegistry, PUBLISH_TYPE_PAGE);
+	}
+
+	public void recordIngestedBytes(long bytes) {
+		ingestBytes.increment(bytes);
+	}
+
+	public void recordIngestHash(long nanos) {
+		ingestHash.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordIngestDbUpsert(long nanos) {
+		ingestDbUpsert.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordIngestSubjectLink(long nanos) {
+		ingestSubjectLink.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordThumbResize(long nanos) {
+		thumbResize.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the generation of a queued thumb, from claiming it to having the thumb and its renditions written.
+	 */
+	public void recordThumbGeneration(long nanos, boolean success) {
+		(success ? thumbGenerated : thumbFailed).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void setThumbQueueDepth(long depth) {
+		thumbQueueDepth.set(depth);
+	}
+
+	public void thumbGenerationStarted() {
+		thumbsInProgress.incrementAndGet();
+	}
+
+	public void thumbGenerationFinished() {
+		thumbsInProgress.decrementAndGet();
+	}
+
+	public void recordSftpUpload(long bytes, long nanos) {
+		sftpBytes.increment(bytes);
+		sftpUpload.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordGalleryPublish(long nanos) {
+		publishGallery.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordPagePublish(long nanos) {
+		publishPage.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static Timer thumbGenerationTimer(MeterRegistry meterRegistry, String outcome) {
+		return Timer.builder(THUMB_GENERATION)
+		            .description("Time to generate the thumb of a queued site file")
+		            .tag("outcome", outcome)
+		            .publishPercentiles(PERCENTILES)
+		            .register(meterRegistry);
+	}
+
+	private static Timer publishTimer(MeterRegistry meterRegistry, String type) {
+		return Timer.builder(PUBLISH_DURATION)
+		            .description("Time to publish a gallery or a page to the site")
+		            .tag("type", type)
+		            .publishPercentiles(PERCENTILES)
+		            .register(meterRegistry);
+	}
+
+	private static Timer timer(MeterRegistry meterRegistry, String name, String description) {
+		return Timer.builder(name)
+		            .description(description)
+		            .publishPercentiles(PERCENTILES)
+		            .register(meterRegistry);
+	}
+}
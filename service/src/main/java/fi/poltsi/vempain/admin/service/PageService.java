@@ -13,6 +13,7 @@ import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
 import fi.poltsi.vempain.auth.service.AclService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -21,9 +22,8 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -44,70 +44,35 @@ public class PageService {
 	public List<Page> findAllByUser() {
 		Iterable<Page> pages = findAll();
 		ArrayList<Page> accessiblePages = new ArrayList<>();
+		var readableAclIds = accessService.filterReadable(StreamSupport.stream(pages.spliterator(), false)
+		                                                               .map(Page::getAclId)
+		                                                               .toList());
 
 		for (Page page : pages) {
-			if (accessService.hasReadPermission(page.getAclId())) {
+			if (readableAclIds.contains(page.getAclId())) {
 				accessiblePages.add(page);
 			}
-
 		}
 
 		return accessiblePages;
 	}
 
+	/**
+	 * Find a page of the pages readable by the user. The ACL check, the search, the sorting and the paging are all done in the database.
+	 */
 	public PagedResponse<PageResponse> findPagedByUser(PagePagedRequest request) {
-		var pages = new ArrayList<>(findAllByUser());
-		var search = request.getSearch();
-		if (search != null && !search.isBlank()) {
-			var query = request.getCaseSensitive() != null && request.getCaseSensitive()
-			            ? search
-			            : search.toLowerCase(Locale.ROOT);
-			pages.removeIf(page -> !contains(page.getPagePath(), query, request)
-			                       && !contains(page.getTitle(), query, request)
-			                       && !contains(page.getHeader(), query, request));
-		}
-
 		var sortBy = request.getSortBy();
-		if (sortBy != null && !sortBy.isBlank()) {
-			var comparator = pageComparator(sortBy);
-			if (request.getDirection() == org.springframework.data.domain.Sort.Direction.DESC) {
-				comparator = comparator.reversed();
-			}
-			pages.sort(comparator);
-		}
-
-		var page = request.getPage();
-		var size = request.getSize();
-		var totalElements = pages.size();
-		var totalPages = (int) Math.ceil((double) totalElements / size);
-		var fromIndex = Math.min(page * size, totalElements);
-		var toIndex = Math.min(fromIndex + size, totalElements);
-		var content = pages.subList(fromIndex, toIndex)
-		                   .stream()
-		                   .map(this::toUnpopulatedResponse)
-		                   .toList();
-		return PagedResponse.of(content, page, size, totalElements, totalPages, page == 0, page + 1 >= totalPages);
-	}
-
-	private boolean contains(String value, String query, PagePagedRequest request) {
-		var candidate = request.getCaseSensitive() != null && request.getCaseSensitive()
-		                ? value
-		                : value.toLowerCase(Locale.ROOT);
-		return candidate.contains(query);
-	}
-
-	private Comparator<Page> pageComparator(String sortBy) {
-		return switch (sortBy) {
-			case "id" -> Comparator.comparing(Page::getId);
-			case "parent_id" -> Comparator.comparing(page -> page.getParentId() == null ? 0L : page.getParentId());
-			case "form_id" -> Comparator.comparing(Page::getFormId);
-			case "page_path" -> Comparator.comparing(Page::getPagePath, String.CASE_INSENSITIVE_ORDER);
-			case "title" -> Comparator.comparing(Page::getTitle, String.CASE_INSENSITIVE_ORDER);
-			case "created" -> Comparator.comparing(Page::getCreated);
-			case "modified" -> Comparator.comparing(Page::getModified,
-													Comparator.nullsFirst(Comparator.naturalOrder()));
-			default -> Comparator.comparing(Page::getId);
-		};
+		var direction = request.getDirection() != null ? request.getDirection() : Sort.Direction.ASC;
+		var sort = sortBy != null && !sortBy.isBlank() ? Sort.by(direction, sortBy) : Sort.unsorted();
+		var pageable = org.springframework.data.domain.PageRequest.of(request.getPage(), request.getSize(), sort);
+		var pageResult = pageRepository.searchPages(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()),
+		                                            accessService.getReadFilter(), pageable);
+		var content = pageResult.getContent()
+		                        .stream()
+		                        .map(this::toUnpopulatedResponse)
+		                        .toList();
+		return PagedResponse.of(content, pageResult.getNumber(), pageResult.getSize(), pageResult.getTotalElements(),
+		                        pageResult.getTotalPages(), pageResult.isFirst(), pageResult.isLast());
 	}
 
 	private PageResponse toUnpopulatedResponse(Page page) {
@@ -190,6 +155,7 @@ public class PageService {
 		try {
 			log.debug("Layout ACL ID: {}", page.getAclId());
 			aclService.deleteByAclId(page.getAclId());
+			accessService.evictAll();
 		} catch (Exception e) {
 			log.error("Failed to remove acl: {}", page.getAclId(), e);
 			throw new ProcessingFailedException("Failed to delete ACL");
@@ -243,6 +209,7 @@ public class PageService {
 
 		try {
 			aclService.updateFromRequestList(request.getAcls());
+			accessService.evictAll();
 		} catch (VempainAclException e) {
 			log.error("Failed to update ACLs from request for page {}: {}", page.getId(), request.getAcls());
 			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, VempainMessages.INTERNAL_ERROR);
@@ -292,6 +259,7 @@ public class PageService {
 		try {
 			log.debug("component ACL ID: {}", page.getAclId());
 			aclService.deleteByAclId(page.getAclId());
+			accessService.evictAll();
 		} catch (VempainEntityNotFoundException e) {
 			log.warn("The layout referred to non-existing ACL ID: {}", page.getAclId());
 		} catch (Exception e) {
@@ -0,0 +1,258 @@
+package fi.poltsi.vempain.admin.service;
+
+import fi.poltsi.vempain.admin.api.ContentTypeEnum;
+import fi.poltsi.vempain.admin.api.PublishJobStatusEnum;
+import fi.poltsi.vempain.admin.api.PublishResultEnum;
+import fi.poltsi.vempain.admin.api.response.PublishJobFailureResponse;
+import fi.poltsi.vempain.admin.api.response.PublishJobResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs publishing of many pages or galleries in the background. A job is queued and its ID returned immediately, the job is then run by
+ * a bounded worker pool publishing one item at a time, each item in its own transaction.
+ */
+@Slf4j
+@Service
+public class PublishJobService {
+	// Finished jobs are kept this long so that their final state can still be fetched
+	private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+	private final PublishService           publishService;
+	private final ThreadPoolExecutor       executor;
+	private final Map<Long, PublishJob>    jobs          = new ConcurrentHashMap<>();
+	private final AtomicLong               jobIdSequence = new AtomicLong();
+
+	public PublishJobService(PublishService publishService,
+	                         @Value("${vempain.publish.job.workers}") int workers,
+	                         @Value("${vempain.publish.job.queue-size}") int queueSize) {
+		this.publishService = publishService;
+		this.executor       = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+		                                             Thread.ofPlatform()
+		                                                   .name("publish-job-", 1)
+		                                                   .factory());
+	}
+
+	public PublishJobResponse submit(ContentTypeEnum contentType, List<Long> itemIds) {
+		if (contentType != ContentTypeEnum.GALLERY && contentType != ContentTypeEnum.PAGE) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only pages and galleries can be published as a job");
+		}
+
+		pruneFinishedJobs();
+		var job = new PublishJob(jobIdSequence.incrementAndGet(), contentType, List.copyOf(itemIds));
+		jobs.put(job.id, job);
+
+		try {
+			executor.execute(() -> run(job));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.id);
+			log.warn("Publish job queue is full, rejecting {} job of {} items", contentType, itemIds.size());
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many publish jobs queued, try again later");
+		}
+
+		log.info("Queued publish job {} for {} {} items", job.id, itemIds.size(), contentType);
+		return job.toResponse();
+	}
+
+	public PublishJobResponse getJob(long jobId) {
+		return findJob(jobId).toResponse();
+	}
+
+	public List<PublishJobResponse> getJobs() {
+		return jobs.values()
+		           .stream()
+		           .sorted(Comparator.comparingLong((PublishJob job) -> job.id)
+		                             .reversed())
+		           .map(PublishJob::toResponse)
+		           .toList();
+	}
+
+	/**
+	 * Cancel a job. A queued job is not started at all, a running job stops after the item currently being published.
+	 */
+	public PublishJobResponse cancel(long jobId) {
+		var job = findJob(jobId);
+		job.cancelled = true;
+
+		synchronized (job) {
+			if (job.status == PublishJobStatusEnum.QUEUED) {
+				job.status   = PublishJobStatusEnum.CANCELLED;
+				job.finished = Instant.now();
+			}
+		}
+
+		log.info("Cancellation requested for publish job {}", jobId);
+		return job.toResponse();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		jobs.values()
+		    .forEach(job -> job.cancelled = true);
+		executor.shutdown();
+	}
+
+	private PublishJob findJob(long jobId) {
+		var job = jobs.get(jobId);
+
+		if (job == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Publish job not found");
+		}
+
+		return job;
+	}
+
+	private void run(PublishJob job) {
+		synchronized (job) {
+			if (job.status != PublishJobStatusEnum.QUEUED) {
+				return;
+			}
+
+			job.status  = PublishJobStatusEnum.RUNNING;
+			job.started = Instant.now();
+		}
+
+		log.info("Starting publish job {} for {} {} items", job.id, job.itemIds.size(), job.contentType);
+
+		if (job.contentType == ContentTypeEnum.GALLERY) {
+			runGalleries(job);
+		} else {
+			runPages(job);
+		}
+
+		synchronized (job) {
+			if (job.cancelled) {
+				job.status = PublishJobStatusEnum.CANCELLED;
+			} else if (job.completedItems.get() == 0 && !job.failures.isEmpty()) {
+				job.status = PublishJobStatusEnum.FAILED;
+			} else {
+				job.status = PublishJobStatusEnum.COMPLETED;
+			}
+
+			job.finished = Instant.now();
+		}
+
+		log.info("Publish job {} finished as {}: {} published, {} failed", job.id, job.status, job.completedItems.get(), job.failures.size());
+	}
+
+	private void runGalleries(PublishJob job) {
+		// The galleries are published in parallel, each in its own transaction, and the progress is updated as each one finishes
+		publishService.publishGalleries(job.itemIds, item -> {
+			if (item.getResult() == PublishResultEnum.OK) {
+				job.bytesSent.addAndGet(item.getBytesSent());
+				job.bytesSkipped.addAndGet(item.getBytesSkipped());
+				job.completedItems.incrementAndGet();
+			} else {
+				log.error("Publish job {} failed to publish gallery {}: {}", job.id, item.getItemId(), item.getMessage());
+				addFailure(job, item.getItemId(), item.getMessage());
+			}
+		}, () -> job.cancelled);
+	}
+
+	private void runPages(PublishJob job) {
+		for (var itemId : job.itemIds) {
+			if (job.cancelled) {
+				break;
+			}
+
+			try {
+				// Each call runs in its own transaction as there is no transaction on the worker thread
+				publishService.publishPage(itemId);
+				job.completedItems.incrementAndGet();
+			} catch (Exception e) {
+				log.error("Publish job {} failed to publish page {}", job.id, itemId, e);
+				addFailure(job, itemId, e.getMessage());
+			}
+		}
+	}
+
+	private void addFailure(PublishJob job, long itemId, String message) {
+		job.failures.add(PublishJobFailureResponse.builder()
+		                                          .itemId(itemId)
+		                                          .message(message)
+		                                          .build());
+	}
+
+	private void pruneFinishedJobs() {
+		var threshold = Instant.now()
+		                       .minus(FINISHED_JOB_RETENTION);
+		jobs.values()
+		    .removeIf(job -> job.finished != null && job.finished.isBefore(threshold));
+	}
+
+	private static final class PublishJob {
+		private final long                                  id;
+		private final ContentTypeEnum                       contentType;
+		private final List<Long>                            itemIds;
+		private final Instant                               queued         = Instant.now();
+		private final AtomicLong                            completedItems = new AtomicLong();
+		private final AtomicLong                            bytesSent      = new AtomicLong();
+		private final AtomicLong                            bytesSkipped   = new AtomicLong();
+		private final List<PublishJobFailureResponse>       failures       = new CopyOnWriteArrayList<>();
+		private volatile PublishJobStatusEnum               status         = PublishJobStatusEnum.QUEUED;
+		private volatile boolean                            cancelled;
+		private volatile Instant                            started;
+		private volatile Instant                            finished;
+
+		private PublishJob(long id, ContentTypeEnum contentType, List<Long> itemIds) {
+			this.id          = id;
+			this.contentType = contentType;
+			this.itemIds     = itemIds;
+		}
+
+		private PublishJobResponse toResponse() {
+			var completed = completedItems.get();
+			var failed = failures.size();
+			var processed = completed + failed;
+			var itemsPerSecond = 0.0;
+			Instant estimatedCompletion = null;
+
+			if (started != null) {
+				var end = finished != null ? finished : Instant.now();
+				var elapsedMillis = Math.max(1L, Duration.between(started, end)
+				                                         .toMillis());
+				itemsPerSecond = processed * 1000.0 / elapsedMillis;
+
+				if (finished == null && processed > 0) {
+					var remaining = itemIds.size() - processed;
+					estimatedCompletion = end.plusMillis(remaining * elapsedMillis / processed);
+				}
+			}
+
+			return PublishJobResponse.builder()
+			                         .jobId(id)
+			                         .contentType(contentType)
+			                         .status(status)
+			                         .totalItems(itemIds.size())
+			                         .completedItems(completed)
+			                         .failedItems(failed)
+			                         .bytesSent(bytesSent.get())
+			                         .bytesSkipped(bytesSkipped.get())
+			                         .itemsPerSecond(itemsPerSecond)
+			                         .estimatedCompletion(estimatedCompletion)
+			                         .queued(queued)
+			                         .started(started)
+			                         .finished(finished)
+			                         .failures(new ArrayList<>(failures))
+			                         .build();
+		}
+	}
+}
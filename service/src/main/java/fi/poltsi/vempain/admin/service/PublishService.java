@@ -3,63 +3,91 @@ package fi.poltsi.vempain.admin.service;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.SftpException;
 import fi.poltsi.vempain.admin.api.PublishResultEnum;
+import fi.poltsi.vempain.admin.api.response.PublishItemResponse;
 import fi.poltsi.vempain.admin.api.response.PublishResponse;
 import fi.poltsi.vempain.admin.entity.FormComponent;
+import fi.poltsi.vempain.admin.entity.Subject;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
 import fi.poltsi.vempain.admin.exception.VempainComponentException;
-import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.file.FileService;
+import fi.poltsi.vempain.admin.service.file.FileThumbService;
 import fi.poltsi.vempain.admin.service.file.GalleryFileService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
 import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
-import fi.poltsi.vempain.auth.service.UserService;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
-import fi.poltsi.vempain.site.entity.WebGpsLocation;
 import fi.poltsi.vempain.site.entity.WebSitePage;
-import fi.poltsi.vempain.site.repository.WebGpsLocationRepository;
-import fi.poltsi.vempain.site.repository.WebSiteFileRepository;
 import fi.poltsi.vempain.site.repository.WebSiteGalleryRepository;
 import fi.poltsi.vempain.site.repository.WebSitePageRepository;
+import fi.poltsi.vempain.site.service.WebSiteFileBatchService;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService.DependencyType;
+import fi.poltsi.vempain.site.service.WebSitePublishManifestService;
 import fi.poltsi.vempain.site.service.WebSiteResourceService;
 import fi.poltsi.vempain.site.service.WebSiteSubjectService;
 import fi.poltsi.vempain.tools.JschClient;
+import fi.poltsi.vempain.tools.SiteTransferStatistics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.File;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
-
-import static fi.poltsi.vempain.auth.tools.JsonTools.toJson;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class PublishService {
-	private final SiteFileRepository siteFileRepository;
+	private static final Pattern DATA_SET_TABLE_PATTERN = Pattern.compile(DataService.TABLE_PREFIX + "([a-z][a-z0-9_]*)");
+
 	private final WebSitePageRepository    webSitePageRepository;
 	private final WebSiteGalleryRepository webSiteGalleryRepository;
-	private final WebSiteFileRepository    webSiteFileRepository;
-	private final WebGpsLocationRepository webGpsLocationRepository;
 
 	private final PageService           pageService;
 	private final FormService           formService;
 	private final ComponentService      componentService;
 	private final FileService           fileService;
 	private final LayoutService         layoutService;
-	private final UserService           userService;
+	private final UserNickService       userNickService;
 	private final SubjectService        subjectService;
 	private final GalleryFileService    galleryFileService;
+	private final FileThumbService      fileThumbService;
+	private final ThumbQueueService     thumbQueueService;
 	private final WebSiteSubjectService webSiteSubjectService;
 	private final PageGalleryService    pageGalleryService;
 	private final JschClient            jschClient;
-	private final WebSiteResourceService webSiteResourceService;
+	private final WebSiteResourceService  webSiteResourceService;
+	private final WebSiteFileBatchService webSiteFileBatchService;
+	private final WebSitePublishManifestService webSitePublishManifestService;
+	private final WebSitePageDependencyService  webSitePageDependencyService;
 	private final AccessService accessService;
+	private final MetricsService metricsService;
+	private final PlatformTransactionManager transactionManager;
 
 	@Value("${vempain.site.ssh.address}")
 	private String siteSshAddress;
@@ -74,67 +102,66 @@ public class PublishService {
 
 	@Value("${vempain.site.thumb-directory}")
 	private String thumbSubDir;
+	@Value("${vempain.site.incremental-publish}")
+	private boolean incrementalPublish;
+	@Value("${vempain.publish.parallel-galleries}")
+	private int     parallelGalleries;
 
 	/// ///////// Pages
 
-	@Transactional
-	public void publishAllPages() throws VempainEntityNotFoundException {
-		var pages = pageService.findAllByUser();
+	@Transactional(propagation = Propagation.REQUIRED)
+	public long publishPage(Long pageId) throws VempainEntityNotFoundException {
+		var start = System.nanoTime();
 
-		for (var page : pages) {
-			publishPage(page.getId());
+		try {
+			return publishPageInternal(pageId);
+		} finally {
+			metricsService.recordPagePublish(System.nanoTime() - start);
 		}
-
-		// Reset the site cache
-		webSitePageRepository.resetCache();
 	}
 
-	@Transactional(propagation = Propagation.REQUIRED)
-	public long publishPage(Long pageId) throws VempainEntityNotFoundException {
+	private long publishPageInternal(Long pageId) throws VempainEntityNotFoundException {
 		var page = pageService.findById(pageId);
-		var form = formService.findById(page.getFormId());
+		// Many pages share the same form, so the form, its layout and components are read through the caches
+		var form = formService.findCachedById(page.getFormId());
 		var formComponents = formService.findAllFormComponentsByFormId(page.getFormId());
-		var layout = layoutService.findById(form.getLayoutId());
+		var layout = layoutService.findCachedById(form.getLayoutId());
 
-		var pageBody = layout.getStructure();
-		pageBody = pageBody.replace("<!--page-->", page.getBody());
-		// Add PHP-tags to the beginning and end of body as the default content for layout is HTML
-		// See this why there is a space at the end: http://php.net/manual/en/function.eval.php#97063
-		pageBody = "?>" + pageBody + "<?php ";
-		var i = 0;
+		var componentDatas = new ArrayList<String>(formComponents.size());
 
 		for (FormComponent formComponent : formComponents) {
 			try {
-				var component = componentService.findById(formComponent.getComponentId());
-				// The default content for component is PHP, so we enclose the component content with PHP tags
-				pageBody = pageBody.replace("<!--comp_" + i + "-->", "<?php\n" + component.getCompData() + "\n?>");
+				var component = componentService.findCachedById(formComponent.getComponentId());
+				componentDatas.add(component.getCompData());
 			} catch (VempainComponentException e) {
 				log.error("Failed to fetch component ({}) for form {}", formComponent.getComponentId(), form.getId());
+				componentDatas.add(null);
 			}
-
-			i++;
 		}
 
-		// Remove any extra empty PHP tags
-		// Ending PGP-tag followed by white space and starting PHP-tag which then again is followed by white space and ending PHP-tag
-		pageBody = pageBody.replaceAll("\\?>\\s*<\\?php\\s*\\?>", "?>");
-		// Starting PHP-tag followed by white space and ending PHP-tag
-		pageBody = pageBody.replaceAll("<\\?php\\s*\\?>", "");
+		var pageBody = layoutService.getCompiledTemplate(layout)
+		                            .render(page.getBody(), componentDatas);
 
 		var optionalSitePage = webSitePageRepository.findByPageId(pageId);
-		var creator = userService.findUserResponseById(page.getCreator())
-		                         .getNick();
-		var modifier = "";
+		var creator = userNickService.getNick(page.getCreator());
+		String modifier = null;
 
 		if (page.getModifier() != null) {
-			modifier = userService.findUserResponseById(page.getModifier())
-			                      .getNick();
-		} else {
-			modifier = null;
+			modifier = userNickService.getNick(page.getModifier());
 		}
 
 		var published = Instant.now();
 		var webSitePage = optionalSitePage.orElseGet(WebSitePage::new);
+		// An index page lists its child pages, so the cache of both the current and a previous parent page is stale after the publish
+		var parentPageIds = new TreeSet<Long>();
+
+		if (webSitePage.getParentId() != null) {
+			parentPageIds.add(webSitePage.getParentId());
+		}
+
+		if (page.getParentId() != null) {
+			parentPageIds.add(page.getParentId());
+		}
 
 		if (webSitePage.getAclId() == 0) {
 			webSitePage.setAclId(webSiteResourceService.getNextWebSiteAcl());
@@ -162,21 +189,44 @@ public class PublishService {
 		page.setPublished(published);
 		pageService.save(page);
 
-		// Check if there are any galleries in the page, if then they should also be published
+		// Record what the page embeds so that publishing any of them later clears the cache of this page
 		var pageGalleries = pageGalleryService.findPageGalleryByPageId(pageId);
+		var dependencies = new LinkedHashSet<WebSitePageDependencyService.Dependency>();
 
-		if (!pageGalleries.isEmpty()) {
-			for (var pageGallery : pageGalleries) {
-				publishGallery(pageGallery.getGalleryId());
-			}
+		for (var pageGallery : pageGalleries) {
+			dependencies.add(new WebSitePageDependencyService.Dependency(DependencyType.GALLERY, String.valueOf(pageGallery.getGalleryId())));
+		}
+
+		for (var dataSetIdentifier : findDataSetIdentifiers(pageBody)) {
+			dependencies.add(new WebSitePageDependencyService.Dependency(DependencyType.DATA, dataSetIdentifier));
+		}
+
+		webSitePageDependencyService.replaceDependencies(savedPage.getId(), dependencies);
+
+		// Check if there are any galleries in the page, if then they should also be published
+		for (var pageGallery : pageGalleries) {
+			publishGallery(pageGallery.getGalleryId());
 		}
 
-		// Finally, we want to reset the cache for the page which includes the Top10 component
-		// Currently hard coded to page ID 10 which is the front page
-		webSitePageRepository.resetCacheByPageId(10L);
+		// Finally, reset the cache of the page itself, of its parent pages and of the front page which includes the Top10 component
+		webSitePageDependencyService.resetCache(List.of(savedPage.getId()), parentPageIds);
 		return savedPage.getId();
 	}
 
+	/**
+	 * Find the data sets the rendered page body refers to by their site table name.
+	 */
+	private static Set<String> findDataSetIdentifiers(String pageBody) {
+		var identifiers = new TreeSet<String>();
+		var matcher = DATA_SET_TABLE_PATTERN.matcher(pageBody);
+
+		while (matcher.find()) {
+			identifiers.add(matcher.group(1));
+		}
+
+		return identifiers;
+	}
+
 	public void deletePage(Long pageId) {
 		webSitePageRepository.deletePageById(pageId);
 	}
@@ -188,10 +238,21 @@ public class PublishService {
 	 * when updating an existing gallery, or in connection to publishing a page when it is detected to contain a gallery
 	 *
 	 * @param galleryId ID of the gallery to be published
+	 * @return Number of files and bytes sent to and skipped from the site-server
 	 */
 
 	@Transactional(propagation = Propagation.REQUIRED)
-	public void publishGallery(Long galleryId) throws VempainEntityNotFoundException {
+	public SiteTransferStatistics publishGallery(Long galleryId) throws VempainEntityNotFoundException {
+		var start = System.nanoTime();
+
+		try {
+			return publishGalleryInternal(galleryId);
+		} finally {
+			metricsService.recordGalleryPublish(System.nanoTime() - start);
+		}
+	}
+
+	private SiteTransferStatistics publishGalleryInternal(Long galleryId) throws VempainEntityNotFoundException {
 		var gallery = fileService.findGalleryById(galleryId);
 
 		if (gallery == null) {
@@ -203,129 +264,221 @@ public class PublishService {
 
 		if (galleryFileList.isEmpty()) {
 			log.warn("Gallery {} does not contain any files. There is nothing to publish", galleryId);
-			return;
+			return SiteTransferStatistics.EMPTY;
 		}
 
+		// Index the site files already loaded with the gallery, they are reused for both the transfer and the site database rows
+		var siteFilesById = new HashMap<Long, SiteFile>();
+
+		for (var siteFile : gallery.getSiteFiles()) {
+			siteFilesById.put(siteFile.getId(), siteFile);
+		}
+
+		// The thumbs are generated after the gallery has been saved, those still waiting in the queue are generated before publishing
+		generateQueuedThumbs(siteFilesById.keySet());
+
 		// Fetch the common and thumb files
 		var fileThumbList = fileService.findAllFileThumbsBySiteFileList(gallery.getSiteFiles());
+		var thumbSiteFileIds = new HashSet<Long>();
 
 		for (var fileThumb : fileThumbList) {
-			fileThumb.setSiteFile(gallery.getSiteFiles()
-			                             .stream()
-			                             .filter(fileCommon -> fileCommon.getId() == fileThumb.getParentId())
-			                             .findFirst()
-			                             .orElseThrow(VempainEntityNotFoundException::new));
+			var siteFile = siteFilesById.get(fileThumb.getParentId());
+
+			if (siteFile == null) {
+				throw new VempainEntityNotFoundException();
+			}
+
+			fileThumb.setSiteFile(siteFile);
+			thumbSiteFileIds.add(siteFile.getId());
 		}
 
-		// Transfer the files to the site-server
-		try {
+		// Transfer the new and changed files to the site-server, together with the renditions the site serves
+		var renditionList = fileService.findPublishedRenditionsBySiteFileList(gallery.getSiteFiles());
+		var uploads = jschClient.planTransfer(gallery.getSiteFiles(), fileThumbList, renditionList);
+		var pendingUploads = incrementalPublish ? filterUnchangedUploads(uploads) : uploads;
+		var statistics = transferStatistics(uploads, pendingUploads);
+
+		if (pendingUploads.isEmpty()) {
+			log.debug("All {} files of gallery {} are unchanged on the site-server, skipping transfer", uploads.size(), galleryId);
+		} else {
 			log.debug("Connecting to site-server {}", siteSshAddress);
 			log.debug("Connecting to site-server with user {}", siteSshUser);
 			log.debug("Using SSH home dir {}", adminSshHomeDir);
 			log.debug("Using SSH private key {}", adminSshPrivateKey);
-			jschClient.connect(siteSshAddress, siteSshPort, siteSshUser, adminSshHomeDir, adminSshPrivateKey);
-			log.debug("Transferring thumb files to site-server: {}", toJson(fileThumbList));
-			jschClient.transferFilesToSite(gallery.getSiteFiles(), fileThumbList);
-		} catch (JSchException e) {
-			log.error("Failed to create a SSH connection to site-server {}", siteSshAddress, e);
-			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create a SSH connection to site-server: " + siteSshAddress);
-		} catch (SftpException e) {
-			log.error("Failed to transfer files to site-server: {}", e.getMessage());
-			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to transfer files to site");
-		} finally {
-			jschClient.close();
+
+			try (var siteTransfer = jschClient.connect(siteSshAddress, siteSshPort, siteSshUser, adminSshHomeDir, adminSshPrivateKey)) {
+				log.debug("Transferring {} of {} files to site-server", pendingUploads.size(), uploads.size());
+				siteTransfer.transfer(pendingUploads);
+			} catch (JSchException e) {
+				log.error("Failed to create a SSH connection to site-server {}", siteSshAddress, e);
+				throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create a SSH connection to site-server: " + siteSshAddress);
+			} catch (SftpException e) {
+				log.error("Failed to transfer files to site-server: {}", e.getMessage());
+				throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to transfer files to site");
+			}
+
+			webSitePublishManifestService.saveAll(pendingUploads.stream()
+			                                                    .filter(upload -> upload.checksum() != null)
+			                                                    .map(upload -> new WebSitePublishManifestService.ManifestEntry(upload.remotePath(),
+			                                                                                                                   upload.siteFileId(),
+			                                                                                                                   upload.checksum(),
+			                                                                                                                   upload.size()))
+			                                                    .toList());
 		}
 
+		log.info("Gallery {} transfer: sent {} files ({} bytes), skipped {} unchanged files ({} bytes)", galleryId, statistics.filesSent(),
+		         statistics.bytesSent(), statistics.filesSkipped(), statistics.bytesSkipped());
+
 		//** Update the site database
+		// Reserve the ACL IDs for the gallery and all of its files at once
+		var aclIds = webSiteResourceService.getNextWebSiteAcls(galleryFileList.size() + 1);
 		// Remove any existing gallery data if present, the gallery - file relation is removed by cascade
 		webSiteGalleryRepository.deleteByGalleryId(galleryId);
 
 		// Add the gallery
 		var siteGallery = gallery.getSiteGallery();
-		siteGallery.setAclId(webSiteResourceService.getNextWebSiteAcl());
+		siteGallery.setAclId(aclIds.getFirst());
 		var newSiteGallery = webSiteGalleryRepository.save(siteGallery);
 		var siteGalleryId = newSiteGallery.getId();
 
+		// Subjects of all files are fetched at once, and each distinct subject is saved only once on the site-side
+		var subjectsByFileId = subjectService.getSubjectsByFileIds(siteFilesById.keySet());
+		var uniqueSubjects = new LinkedHashMap<Long, Subject>();
+
+		for (var subjects : subjectsByFileId.values()) {
+			for (var subject : subjects) {
+				uniqueSubjects.putIfAbsent(subject.getId(), subject);
+			}
+		}
+
+		var siteSubjectIdBySubjectId = new HashMap<Long, Long>();
+
+		if (!uniqueSubjects.isEmpty()) {
+			var adminSubjects = new ArrayList<>(uniqueSubjects.values());
+			var siteSubjects = webSiteSubjectService.saveAllFromAdminSubject(adminSubjects);
+
+			for (int i = 0; i < adminSubjects.size(); i++) {
+				siteSubjectIdBySubjectId.put(adminSubjects.get(i)
+				                                          .getId(), siteSubjects.get(i)
+				                                                                .getId());
+			}
+		}
+
 		// File data
+		var entries = new ArrayList<WebSiteFileBatchService.GalleryFileEntry>(galleryFileList.size());
+		var aclIndex = 1;
+
 		for (var galleryFile : galleryFileList) {
-			var siteFile = siteFileRepository.findById(galleryFile.getSiteFileId())
-			                                 .orElseThrow(VempainEntityNotFoundException::new);
-			// Remove the web site file if it exists
-			log.debug("Deleting potential web site file by file ID: {}", siteFile.getId());
-			webSiteFileRepository.deleteByFileId(siteFile.getId());
-
-			// Map / upsert GPS location into site DB (separate persistence unit)
-			WebGpsLocation webLocation = null;
-
-			if (siteFile.getLocation() != null) {
-				var adminLoc = siteFile.getLocation();
-				webLocation = webGpsLocationRepository.findById(adminLoc.getId())
-				                                      .orElseGet(() -> WebGpsLocation.builder()
-				                                                                     .id(adminLoc.getId())
-				                                                                     .build());
-				webLocation.setLatitude(adminLoc.getLatitude());
-				webLocation.setLatitudeRef(adminLoc.getLatitudeRef());
-				webLocation.setLongitude(adminLoc.getLongitude());
-				webLocation.setLongitudeRef(adminLoc.getLongitudeRef());
-				webLocation.setAltitude(adminLoc.getAltitude());
-				webLocation.setDirection(adminLoc.getDirection());
-				webLocation.setSatelliteCount(adminLoc.getSatelliteCount());
-				webLocation.setCountry(adminLoc.getCountry());
-				webLocation.setState(adminLoc.getState());
-				webLocation.setCity(adminLoc.getCity());
-				webLocation.setStreet(adminLoc.getStreet());
-				webLocation.setSubLocation(adminLoc.getSubLocation());
-				webLocation = webGpsLocationRepository.save(webLocation);
+			var siteFile = siteFilesById.get(galleryFile.getSiteFileId());
+
+			if (siteFile == null) {
+				throw new VempainEntityNotFoundException();
 			}
 
-			// When creating
 			var webSiteFile = siteFile.toWebSiteFile();
-			webSiteFile.setAclId(webSiteResourceService.getNextWebSiteAcl());
+			webSiteFile.setAclId(aclIds.get(aclIndex++));
 			webSiteFile.setFilePath(siteFile.getFileType().shortName + File.separator + siteFile.getFilePath() + File.separator + siteFile.getFileName());
-			webSiteFile.setLocation(webLocation);
 
-			// Set thumbnail path for image files
-			if (siteFile.getFileType() == FileTypeEnum.IMAGE) {
+			// Set thumbnail path for image files, a thumb still being generated by a worker is published with the next publish
+			if (siteFile.getFileType() == FileTypeEnum.IMAGE && thumbSiteFileIds.contains(siteFile.getId())) {
 				webSiteFile.setThumbnailPath(siteFile.getFileType().shortName + File.separator + siteFile.getFilePath() + File.separator + thumbSubDir + File.separator + siteFile.getFileName());
 			}
 
-			log.debug("Saving web site file: {} with metadata length {} from siteFile metadata length {}", toJson(webSiteFile),
-			          (webSiteFile.getMetadata() != null ? webSiteFile.getMetadata()
-			                                                          .length() : 0),
-			          (webSiteFile.getMetadata() != null ? siteFile.getMetadata()
-			                                                       .length() : 0));
-			var newWebSiteFile = webSiteFileRepository.save(webSiteFile);
-			// Add new gallery file relation
-			webSiteGalleryRepository.saveGalleryFile(siteGalleryId, newWebSiteFile.getId(), galleryFile.getSortOrder());
-			// Save subject on site-side
-			var subjects = subjectService.getSubjectsByFileId(siteFile.getId());
-			log.debug("Publishing subjects for site file {}: {}", newWebSiteFile.getId(), toJson(subjects));
-			var siteSubjects = webSiteSubjectService.saveAllFromAdminSubject(subjects);
-			// Save subject - file relation on site-side
-			webSiteSubjectService.saveSiteFileSubject(newWebSiteFile.getId(), siteSubjects);
+			var siteSubjectIds = new ArrayList<Long>();
+
+			for (var subject : subjectsByFileId.getOrDefault(siteFile.getId(), List.of())) {
+				siteSubjectIds.add(siteSubjectIdBySubjectId.get(subject.getId()));
+			}
+
+			entries.add(new WebSiteFileBatchService.GalleryFileEntry(webSiteFile, galleryFile.getSortOrder(), siteSubjectIds));
 		}
-	}
 
-	public Optional<WebSitePage> fetchSitePage(Long pageId) {
-		return webSitePageRepository.findById(pageId);
+		var webSiteFileIds = webSiteFileBatchService.replaceGalleryFiles(siteGalleryId, entries);
+		log.debug("Published gallery {} as site gallery {} with {} files", galleryId, siteGalleryId, webSiteFileIds.size());
+		// Only the pages embedding the gallery show the new content
+		webSitePageDependencyService.resetCacheOfDependentPages(DependencyType.GALLERY, List.of(String.valueOf(galleryId)));
+		return statistics;
 	}
 
-	@Transactional
-	public void publishAllGalleries() throws VempainEntityNotFoundException {
-		var galleries = fileService.findAllGalleries();
+	/**
+	 * Generate the thumbs of the given site files which are waiting in the thumb queue. Each thumb is generated in a transaction of its own
+	 * so that a failing thumb does not fail the publish, it is instead left in the queue for the workers to retry.
+	 */
+	private void generateQueuedThumbs(Collection<Long> siteFileIds) {
+		var entries = thumbQueueService.claimSiteFiles(siteFileIds);
 
-		for (var gallery : galleries) {
-			publishGallery(gallery.getId());
+		if (entries.isEmpty()) {
+			return;
 		}
+
+		log.info("Generating {} queued thumbs before publishing", entries.size());
+		var transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		for (var entry : entries) {
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					fileThumbService.generateThumbFile(entry.getSiteFileId());
+					thumbQueueService.complete(entry);
+				});
+			} catch (RuntimeException e) {
+				log.warn("Failed to generate the thumb of site file {} before publishing: {}", entry.getSiteFileId(), e.getMessage());
+				transactionTemplate.executeWithoutResult(status -> thumbQueueService.fail(entry, e.getMessage()));
+			}
+		}
+	}
+
+	/**
+	 * Drop the uploads whose checksum and size match what was last uploaded to the same remote path.
+	 */
+	private List<JschClient.Upload> filterUnchangedUploads(List<JschClient.Upload> uploads) {
+		var manifest = webSitePublishManifestService.findByRemotePaths(uploads.stream()
+		                                                                      .map(JschClient.Upload::remotePath)
+		                                                                      .toList());
+		var pendingUploads = new ArrayList<JschClient.Upload>();
+
+		for (var upload : uploads) {
+			var entry = manifest.get(upload.remotePath());
+
+			if (entry == null
+			    || upload.checksum() == null
+			    || !upload.checksum()
+			              .equals(entry.checksum())
+			    || upload.size() != entry.size()) {
+				pendingUploads.add(upload);
+			}
+		}
+
+		return pendingUploads;
 	}
 
-	@Transactional
+	private SiteTransferStatistics transferStatistics(List<JschClient.Upload> uploads, List<JschClient.Upload> pendingUploads) {
+		var bytesTotal = uploads.stream()
+		                        .mapToLong(JschClient.Upload::size)
+		                        .sum();
+		var bytesSent = pendingUploads.stream()
+		                              .mapToLong(JschClient.Upload::size)
+		                              .sum();
+		return new SiteTransferStatistics(pendingUploads.size(), bytesSent, uploads.size() - pendingUploads.size(), bytesTotal - bytesSent);
+	}
+
+	public Optional<WebSitePage> fetchSitePage(Long pageId) {
+		return webSitePageRepository.findById(pageId);
+	}
+
+	/**
+	 * Publish the given galleries the user has modify permission to. The permissions are checked on the calling thread, after which the
+	 * galleries are published concurrently, each in its own transaction.
+	 *
+	 * @param galleryIds IDs of the galleries to publish
+	 * @return Aggregated result with the result and duration of each gallery
+	 */
 	public PublishResponse publishSelectedGalleries(List<Long> galleryIds) {
 		if (galleryIds == null || galleryIds.isEmpty()) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Gallery ID list cannot be empty");
 		}
 
-		var publishedCount = 0L;
+		var allowedGalleryIds = new ArrayList<Long>();
 
 		for (var galleryId : galleryIds) {
 			if (galleryId == null || galleryId < 1) {
@@ -344,20 +497,132 @@ public class PublishService {
 				continue;
 			}
 
+			allowedGalleryIds.add(galleryId);
+		}
+
+		return toPublishResponse(publishGalleries(allowedGalleryIds), galleryIds.size());
+	}
+
+	private List<PublishItemResponse> publishGalleries(List<Long> galleryIds) {
+		return publishGalleries(galleryIds, item -> {
+		}, () -> false);
+	}
+
+	/**
+	 * Publish the galleries on virtual threads, at most vempain.publish.parallel-galleries at a time. A failing gallery does not affect the
+	 * others as each one is published in a transaction of its own.
+	 *
+	 * @param galleryIds  IDs of the galleries to publish
+	 * @param onPublished Called with the result of each gallery as soon as it has been published or has failed
+	 * @param cancelled   Checked before each gallery is started, the galleries not yet started once it is true are skipped
+	 * @return Result of each gallery which was started, in the order of the given IDs
+	 */
+	public List<PublishItemResponse> publishGalleries(List<Long> galleryIds, Consumer<PublishItemResponse> onPublished, BooleanSupplier cancelled) {
+		var permits = new Semaphore(Math.max(1, parallelGalleries));
+		var futures = new ArrayList<Future<PublishItemResponse>>(galleryIds.size());
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (var galleryId : galleryIds) {
+				futures.add(executor.submit(() -> {
+					permits.acquire();
+
+					try {
+						if (cancelled.getAsBoolean()) {
+							return null;
+						}
+
+						var item = publishGalleryInOwnTransaction(galleryId);
+						onPublished.accept(item);
+						return item;
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+		}
+
+		var items = new ArrayList<PublishItemResponse>(futures.size());
+
+		for (var i = 0; i < futures.size(); i++) {
 			try {
-				publishGallery(galleryId);
-				publishedCount++;
-			} catch (VempainEntityNotFoundException e) {
-				log.warn("Failed to publish gallery {}: {}", galleryId, e.getMessage());
+				var item = futures.get(i)
+				                  .get();
+
+				if (item != null) {
+					items.add(item);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+				      .interrupt();
+				throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Publishing of galleries was interrupted");
+			} catch (ExecutionException e) {
+				items.add(PublishItemResponse.builder()
+				                             .itemId(galleryIds.get(i))
+				                             .result(PublishResultEnum.FAIL)
+				                             .message(e.getCause()
+				                                       .getMessage())
+				                             .build());
+			}
+		}
+
+		return items;
+	}
+
+	private PublishItemResponse publishGalleryInOwnTransaction(long galleryId) {
+		var transactionTemplate = new TransactionTemplate(transactionManager);
+		var start = System.nanoTime();
+
+		try {
+			var statistics = transactionTemplate.execute(status -> {
+				try {
+					return publishGallery(galleryId);
+				} catch (VempainEntityNotFoundException e) {
+					throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gallery not found");
+				}
+			});
+
+			if (statistics == null) {
+				statistics = SiteTransferStatistics.EMPTY;
 			}
+
+			return PublishItemResponse.builder()
+			                          .itemId(galleryId)
+			                          .result(PublishResultEnum.OK)
+			                          .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+			                          .bytesSent(statistics.bytesSent())
+			                          .bytesSkipped(statistics.bytesSkipped())
+			                          .build();
+		} catch (RuntimeException e) {
+			log.warn("Failed to publish gallery {}: {}", galleryId, e.getMessage());
+			return PublishItemResponse.builder()
+			                          .itemId(galleryId)
+			                          .result(PublishResultEnum.FAIL)
+			                          .message(e.getMessage())
+			                          .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+			                          .build();
 		}
+	}
 
-		var skipped = galleryIds.size() - publishedCount;
+	private PublishResponse toPublishResponse(List<PublishItemResponse> items, int requestedCount) {
+		var publishedCount = items.stream()
+		                          .filter(item -> item.getResult() == PublishResultEnum.OK)
+		                          .count();
+		var bytesSent = items.stream()
+		                     .mapToLong(PublishItemResponse::getBytesSent)
+		                     .sum();
+		var bytesSkipped = items.stream()
+		                        .mapToLong(PublishItemResponse::getBytesSkipped)
+		                        .sum();
+		var skipped = requestedCount - publishedCount;
 		var result = publishedCount > 0 ? PublishResultEnum.OK : PublishResultEnum.FAIL;
 		var message = "Published " + publishedCount + " galleries, skipped " + skipped;
+		log.info("{} with {} parallel galleries", message, Math.max(1, parallelGalleries));
 		return PublishResponse.builder()
 		                      .result(result)
 		                      .message(message)
+		                      .bytesSent(bytesSent)
+		                      .bytesSkipped(bytesSkipped)
+		                      .items(items)
 		                      .timestamp(Instant.now())
 		                      .build();
 	}
@@ -10,12 +10,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class SubjectService {
+	// Keeps the number of bind parameters of a multi-row insert well below the limit of the database
+	private static final int LINK_INSERT_CHUNK_SIZE = 1000;
+
 	private final SubjectRepository subjectRepository;
 	private final EntityManager     entityManager;
 
@@ -83,6 +92,96 @@ public class SubjectService {
 		}
 	}
 
+	/**
+	 * Replace the subjects of several site files at once. Each distinct tag is resolved once for all the files and the links are written
+	 * with multi-row inserts.
+	 *
+	 * @param tagRequestsBySiteFileId Tags of each site file
+	 */
+	@Transactional(propagation = Propagation.REQUIRED)
+	public void saveTagsAsSubjects(Map<Long, List<TagRequest>> tagRequestsBySiteFileId) {
+		if (tagRequestsBySiteFileId.isEmpty()) {
+			return;
+		}
+
+		entityManager.flush();
+		entityManager.createNativeQuery("DELETE FROM file_subject WHERE site_file_id IN (:siteFileIds)")
+		             .setParameter("siteFileIds", tagRequestsBySiteFileId.keySet())
+		             .executeUpdate();
+
+		var subjectIdsByName = new HashMap<String, Long>();
+		var links = new LinkedHashSet<List<Long>>();
+
+		for (var entry : tagRequestsBySiteFileId.entrySet()) {
+			if (entry.getValue() == null) {
+				continue;
+			}
+
+			for (var tagRequest : entry.getValue()) {
+				var tagName = tagRequest.getTagName();
+
+				if (!subjectIdsByName.containsKey(tagName)) {
+					var subject = resolveSubject(tagRequest);
+					subjectIdsByName.put(tagName, subject == null ? null : subject.getId());
+				}
+
+				var subjectId = subjectIdsByName.get(tagName);
+
+				if (subjectId != null) {
+					links.add(List.of(entry.getKey(), subjectId));
+				}
+			}
+		}
+
+		var linkList = new ArrayList<>(links);
+
+		for (var start = 0; start < linkList.size(); start += LINK_INSERT_CHUNK_SIZE) {
+			var chunk = linkList.subList(start, Math.min(start + LINK_INSERT_CHUNK_SIZE, linkList.size()));
+			var sql = new StringBuilder("INSERT INTO file_subject (site_file_id, subject_id) VALUES ");
+
+			for (var i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "" : ", ")
+				   .append("(?")
+				   .append(i * 2 + 1)
+				   .append(", ?")
+				   .append(i * 2 + 2)
+				   .append(")");
+			}
+
+			var query = entityManager.createNativeQuery(sql.toString());
+
+			for (var i = 0; i < chunk.size(); i++) {
+				query.setParameter(i * 2 + 1, chunk.get(i)
+				                                   .get(0));
+				query.setParameter(i * 2 + 2, chunk.get(i)
+				                                   .get(1));
+			}
+
+			query.executeUpdate();
+		}
+
+		log.debug("Linked {} subjects to {} site files", links.size(), tagRequestsBySiteFileId.size());
+	}
+
+	private Subject resolveSubject(TagRequest tagRequest) {
+		var tagName = tagRequest.getTagName();
+		var subject = subjectRepository.findSubjectBySubjectName(tagName)
+		                               .orElse(null);
+
+		if (subject == null) {
+			Long subjectId = upsertSubjectReturnId(tagRequest);
+			subject = subjectRepository.findById(subjectId)
+			                           .orElse(null);
+
+			if (subject == null) {
+				log.error("Failed to load subject {} after upsert, id={}", tagName, subjectId);
+				return null;
+			}
+		}
+
+		return updateExistingSubject(tagRequest, subject);
+	}
+
 	private Subject updateExistingSubject(TagRequest tagRequest, Subject subject) {
 		// Update existing subject names in other languages if they are missing or have changed
 		boolean updated = false;
@@ -143,6 +242,49 @@ public class SubjectService {
 		return subjectRepository.getSubjectsByFileId(fileCommonId);
 	}
 
+	/**
+	 * Fetch the subjects of several site files with two queries, one for the file - subject links and one for the subjects.
+	 *
+	 * @param siteFileIds IDs of the site files
+	 * @return Map of site file ID to its subjects, files without subjects are not included
+	 */
+	public Map<Long, List<Subject>> getSubjectsByFileIds(Collection<Long> siteFileIds) {
+		var subjectsByFileId = new HashMap<Long, List<Subject>>();
+
+		if (siteFileIds == null || siteFileIds.isEmpty()) {
+			return subjectsByFileId;
+		}
+
+		var links = subjectRepository.findFileSubjectIdsByFileIds(siteFileIds);
+
+		if (links.isEmpty()) {
+			return subjectsByFileId;
+		}
+
+		var subjectIds = new HashSet<Long>();
+
+		for (Object[] link : links) {
+			subjectIds.add(((Number) link[1]).longValue());
+		}
+
+		var subjectsById = new HashMap<Long, Subject>();
+
+		for (var subject : subjectRepository.findAllById(subjectIds)) {
+			subjectsById.put(subject.getId(), subject);
+		}
+
+		for (Object[] link : links) {
+			var subject = subjectsById.get(((Number) link[1]).longValue());
+
+			if (subject != null) {
+				subjectsByFileId.computeIfAbsent(((Number) link[0]).longValue(), k -> new ArrayList<>())
+				                .add(subject);
+			}
+		}
+
+		return subjectsByFileId;
+	}
+
 	@Transactional
 	public Subject save(Subject subject) {
 		return subjectRepository.save(subject);
@@ -0,0 +1,86 @@
+package fi.poltsi.vempain.admin.service;
+
+import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
+import fi.poltsi.vempain.auth.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves user IDs to nicks. Publishing resolves the creator and modifier of every page, which are nearly always the same few users, so
+ * the nicks are kept in a small least recently used cache where each entry expires after a while.
+ */
+@Slf4j
+@Service
+public class UserNickService {
+	private final UserService           userService;
+	private final Duration              timeToLive;
+	private final Map<Long, CachedNick> cachedNicks;
+
+	private record CachedNick(String nick, Instant expires) {
+	}
+
+	public UserNickService(UserService userService,
+	                       @Value("${vempain.user-nick-cache.max-size}") int maxSize,
+	                       @Value("${vempain.user-nick-cache.ttl-seconds}") long ttlSeconds) {
+		this.userService = userService;
+		this.timeToLive  = Duration.ofSeconds(ttlSeconds);
+		this.cachedNicks = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedNick> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Get the nick of the user.
+	 *
+	 * @param userId ID of the user
+	 * @return Nick of the user
+	 * @throws VempainEntityNotFoundException If no user exists with the ID
+	 */
+	public String getNick(long userId) throws VempainEntityNotFoundException {
+		var now = Instant.now();
+
+		synchronized (cachedNicks) {
+			var cachedNick = cachedNicks.get(userId);
+
+			if (cachedNick != null && cachedNick.expires()
+			                                    .isAfter(now)) {
+				return cachedNick.nick();
+			}
+		}
+
+		var userResponse = userService.findUserResponseById(userId);
+
+		if (userResponse == null) {
+			log.error("Failed to resolve the nick of non-existing user ID {}", userId);
+			throw new VempainEntityNotFoundException("User not found", "user");
+		}
+
+		synchronized (cachedNicks) {
+			cachedNicks.put(userId, new CachedNick(userResponse.getNick(), now.plus(timeToLive)));
+		}
+
+		return userResponse.getNick();
+	}
+
+	/**
+	 * Remove the user from the cache, called whenever the user is updated.
+	 *
+	 * @param userId ID of the user
+	 */
+	public void evict(Long userId) {
+		if (userId != null) {
+			synchronized (cachedNicks) {
+				cachedNicks.remove(userId);
+			}
+		}
+	}
+}
@@ -1,34 +1,50 @@
 package fi.poltsi.vempain.admin.service.file;
 
+import fi.poltsi.vempain.admin.api.request.file.FileBatchIngestRequest;
 import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileBatchIngestItemResponse;
+import fi.poltsi.vempain.admin.api.response.file.FileBatchIngestResponse;
 import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
 import fi.poltsi.vempain.admin.configuration.StorageDirectoryConfiguration;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
+import fi.poltsi.vempain.admin.entity.file.GalleryFile;
 import fi.poltsi.vempain.admin.entity.file.SiteFile;
 import fi.poltsi.vempain.admin.exception.VempainIngestException;
 import fi.poltsi.vempain.admin.repository.file.GalleryRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.AccessService;
+import fi.poltsi.vempain.admin.service.MetricsService;
 import fi.poltsi.vempain.admin.service.SubjectService;
 import fi.poltsi.vempain.auth.service.AclService;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
+import fi.poltsi.vempain.file.api.request.TagRequest;
 import fi.poltsi.vempain.tools.LocalFileTools;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 import static fi.poltsi.vempain.auth.tools.JsonTools.toJson;
 import static fi.poltsi.vempain.tools.LocalFileTools.createAndVerifyDirectory;
@@ -47,7 +63,9 @@ public class FileIngestService {
 	private final StorageDirectoryConfiguration storageDirectoryConfiguration;
 	private final SubjectService subjectService;
 	private final FileService    fileService;
-	private final LocationService locationService;
+	private final LocationService      locationService;
+	private final MetricsService       metricsService;
+	private final SiteFileBatchService siteFileBatchService;
 
 	@Value("${vempain.admin.file.site-file-directory}")
 	private String siteFileDirectory;
@@ -81,73 +99,80 @@ public class FileIngestService {
 		try {
 			return ingestInternal(fileIngestRequest, multipartFile);
 		} catch (VempainIngestException vex) {
-			// Attempt to delete locally stored file if present
-			Path stored = vex.getStoredFile();
-			if (stored != null) {
-				try {
-					if (Files.deleteIfExists(stored)) {
-						log.info("Deleted stored file after ingest failure: {}", stored);
-					}
-				} catch (IOException ioe) {
-					log.warn("Failed to delete stored file after ingest failure: {}", stored, ioe);
+			throw cleanUpFailedIngest(vex);
+		}
+	}
+
+	/**
+	 * Ingest a file which has already been received in full, such as a completed chunked upload. The file is moved in place of the target
+	 * once its checksum has been verified.
+	 *
+	 * @param fileIngestRequest Metadata of the file
+	 * @param uploadedFile      The received file
+	 * @return Result of the ingest
+	 */
+	@Transactional
+	public FileIngestResponse ingestUploadedFile(FileIngestRequest fileIngestRequest, Path uploadedFile) throws Exception {
+		try {
+			return ingestInternal(fileIngestRequest, Files.size(uploadedFile),
+			                      targetFile -> moveVerifiedFile(uploadedFile, targetFile, fileIngestRequest.getSha256sum()));
+		} catch (VempainIngestException vex) {
+			throw cleanUpFailedIngest(vex);
+		}
+	}
+
+	private Exception cleanUpFailedIngest(VempainIngestException vex) {
+		// Attempt to delete locally stored file if present
+		Path stored = vex.getStoredFile();
+		if (stored != null) {
+			try {
+				if (Files.deleteIfExists(stored)) {
+					log.info("Deleted stored file after ingest failure: {}", stored);
 				}
+			} catch (IOException ioe) {
+				log.warn("Failed to delete stored file after ingest failure: {}", stored, ioe);
 			}
-			// Rethrow the original cause if it is a checked Exception, else rethrow the wrapper
-			Throwable cause = vex.getCause();
-			if (cause instanceof Exception) {
-				throw (Exception) cause;
-			}
-			throw vex;
 		}
+		// Return the original cause if it is a checked Exception, else the wrapper
+		Throwable cause = vex.getCause();
+		if (cause instanceof Exception) {
+			return (Exception) cause;
+		}
+		return vex;
+	}
+
+	@FunctionalInterface
+	private interface TargetFileWriter {
+		void write(Path targetFile) throws IOException, VempainIngestException;
 	}
 
-	// Internal implementation: wraps any failure into VempainIngestException including the stored file path
 	@Transactional
 	protected FileIngestResponse ingestInternal(FileIngestRequest fileIngestRequest, MultipartFile multipartFile) throws VempainIngestException {
+		var size = multipartFile == null || multipartFile.isEmpty() ? 0L : multipartFile.getSize();
+		return ingestInternal(fileIngestRequest, size, targetFile -> storeVerifiedFile(multipartFile, targetFile, fileIngestRequest.getSha256sum()));
+	}
+
+	// Internal implementation: wraps any failure into VempainIngestException including the stored file path
+	private FileIngestResponse ingestInternal(FileIngestRequest fileIngestRequest, long size, TargetFileWriter targetFileWriter) throws VempainIngestException {
 		Path storedFile = null;
 		Long galleryId = null;
 
 		try {
-			ValidateFileIngestRequest(fileIngestRequest, multipartFile);
-
-			// Determine main class directory by mimetype (fallback to "other" if configured)
-			final var fileTypeByMimetype = FileTypeEnum.getFileTypeByMimetype(fileIngestRequest.getMimeType());
-			final String baseDir = resolveBaseDir(fileTypeByMimetype);
-			log.debug("Resolved base directory for file type {}: {}", fileTypeByMimetype, baseDir);
-
-			// Sanitize and resolve target paths
-			final String cleanFileName = sanitizeFileName(fileIngestRequest.getFileName());
-			final String cleanRelPath = sanitizeRelativePath(Optional.ofNullable(fileIngestRequest.getFilePath())
-			                                                         .orElse(""));
-			final Path basePath = Paths.get(baseDir)
-			                           .toAbsolutePath()
-			                           .normalize();
-			final Path targetDir = basePath.resolve(cleanRelPath)
-			                               .normalize();
-
-			ensureWithinBase(targetDir, basePath);
-			log.debug("Creating target directory: {}", targetDir);
-			Files.createDirectories(targetDir);
-
-			final Path targetFile = targetDir.resolve(cleanFileName)
-			                                 .normalize();
-			ensureWithinBase(targetFile.getParent(), basePath);
+			ValidateFileIngestRequest(fileIngestRequest, size);
+
+			final var target = resolveTargetFile(fileIngestRequest);
+			final String cleanFileName = target.fileName();
+			final String cleanRelPath = target.filePath();
+			final Path targetFile = target.path();
 
 			final boolean siteFileExisted = Files.exists(targetFile);
-			Files.copy(multipartFile.getInputStream(), targetFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-			// Mark stored file for potential cleanup
-			storedFile = targetFile;
-
-			// Verify that the sha256 checksum of the created file matches the provided checksum
-			var checksum = LocalFileTools.computeSha256(targetFile.toFile());
-			if (!fileIngestRequest.getSha256sum()
-			                      .equals(checksum)) {
-				log.error("SHA-256 checksum mismatch for file: {}. Expected: {}, Actual: {}",
-				          targetFile, fileIngestRequest.getSha256sum(), checksum);
-				throw new VempainIngestException("SHA parity check failed", null, null);
+			targetFileWriter.write(targetFile);
+			metricsService.recordIngestedBytes(size);
+			// Mark stored file for potential cleanup, an existing file has already been replaced by the verified upload
+			if (!siteFileExisted) {
+				storedFile = targetFile;
 			}
 
-			final long size = multipartFile.getSize();
 			final Instant now = Instant.now();
 
 			// Fetch user account
@@ -161,61 +186,23 @@ public class FileIngestService {
 			var siteFile = siteFileRepository.findByFilePathAndFileName(cleanRelPath, cleanFileName)
 			                                 .orElseGet(SiteFile::new);
 
-			siteFile.setFileName(cleanFileName);
-			siteFile.setFilePath(cleanRelPath);
-			siteFile.setMimeType(fileIngestRequest.getMimeType());
-			siteFile.setFileType(FileTypeEnum.getFileTypeByMimetype(fileIngestRequest.getMimeType()));
-			siteFile.setSize(size);
-			siteFile.setSha256sum(fileIngestRequest.getSha256sum());
-			siteFile.setComment(fileIngestRequest.getComment());
-			siteFile.setMetadata(fileIngestRequest.getMetadata());
-			siteFile.setHeight(fileIngestRequest.getHeight());
-			siteFile.setWidth(fileIngestRequest.getWidth());
-			siteFile.setLength(fileIngestRequest.getLength());
-			siteFile.setPages(fileIngestRequest.getPages());
-
-			// Populate new fields
-			siteFile.setOriginalDateTime(fileIngestRequest.getOriginalDateTime());
-			var copyrightRequest = fileIngestRequest.getCopyright();
-
-			if (copyrightRequest != null) {
-				siteFile.setRightsHolder(copyrightRequest.getRightsHolder());
-				siteFile.setRightsTerms(copyrightRequest.getRightsTerms());
-				siteFile.setRightsUrl(copyrightRequest.getRightsUrl());
-				siteFile.setCreatorName(copyrightRequest.getCreatorName());
-				siteFile.setCreatorEmail(copyrightRequest.getCreatorEmail());
-				siteFile.setCreatorCountry(copyrightRequest.getCreatorCountry());
-				siteFile.setCreatorUrl(copyrightRequest.getCreatorUrl());
-			} else {
-				siteFile.setRightsHolder(null);
-				siteFile.setRightsTerms(null);
-				siteFile.setRightsUrl(null);
-				siteFile.setCreatorName(null);
-				siteFile.setCreatorEmail(null);
-				siteFile.setCreatorCountry(null);
-				siteFile.setCreatorUrl(null);
-			}
-
+			populateSiteFile(siteFile, fileIngestRequest, cleanRelPath, cleanFileName, size, userId, now);
 			// Upsert and link GPS location (shared by multiple files)
-			var location = locationService.upsertAndGet(fileIngestRequest.getLocation());
-			siteFile.setLocation(location);
+			siteFile.setLocation(locationService.upsertAndGet(fileIngestRequest.getLocation()));
 
 			if (siteFile.getId() == null) {
-				var nextAclId = aclService.createNewAcl(userId, null, true, true, true, true);
-				siteFile.setAclId(nextAclId);
-
-				siteFile.setCreator(userId);
-				siteFile.setCreated(now);
-			} else {
-				siteFile.setModifier(userId);
-				siteFile.setModified(now);
+				siteFile.setAclId(aclService.createNewAcl(userId, null, true, true, true, true));
 			}
 
 			log.debug("Storing new SiteFile: {}", siteFile);
+			var upsertStart = System.nanoTime();
 			siteFile = fileService.saveSiteFile(siteFile);
+			metricsService.recordIngestDbUpsert(System.nanoTime() - upsertStart);
 
 			log.debug("Save the tags: {}", toJson(fileIngestRequest.getTags()));
+			var subjectStart = System.nanoTime();
 			subjectService.saveTagsAsSubjects(fileIngestRequest.getTags(), siteFile.getId());
+			metricsService.recordIngestSubjectLink(System.nanoTime() - subjectStart);
 
 			// Upsert Gallery per requirements
 			var gallery = upsertGallery(fileIngestRequest, userId);
@@ -243,8 +230,334 @@ public class FileIngestService {
 		}
 	}
 
-	private void ValidateFileIngestRequest(FileIngestRequest fileIngestRequest, MultipartFile multipartFile) {
-		if (fileIngestRequest == null || multipartFile == null || multipartFile.isEmpty()) {
+	/**
+	 * Ingest several files with one transaction. The gallery is resolved once for the whole batch, the site files and their subjects are
+	 * written in batches and the new gallery files are linked with one insert. A file failing the validation or the checksum is reported in
+	 * its own item and does not prevent the other files from being ingested.
+	 *
+	 * @param fileBatchIngestRequest Manifest of the files
+	 * @param multipartFiles         Files in the same order as in the manifest
+	 * @return Result of each file
+	 */
+	@Transactional
+	public FileBatchIngestResponse ingestBatch(FileBatchIngestRequest fileBatchIngestRequest, List<MultipartFile> multipartFiles) throws Exception {
+		if (fileBatchIngestRequest == null || fileBatchIngestRequest.getFiles() == null || fileBatchIngestRequest.getFiles()
+		                                                                                                         .isEmpty()) {
+			throw new IllegalArgumentException("Missing payload");
+		}
+
+		var fileIngestRequests = fileBatchIngestRequest.getFiles();
+
+		if (multipartFiles == null || multipartFiles.size() != fileIngestRequests.size()) {
+			throw new IllegalArgumentException("The number of files does not match the manifest");
+		}
+
+		var userId = accessService.getUserId();
+
+		if (userId == null || userId < 1) {
+			throw new AccessDeniedException("Unauthorized S2S call: user ID mismatch");
+		}
+
+		var items = new ArrayList<FileBatchIngestItemResponse>(fileIngestRequests.size());
+		var storedFiles = new ArrayList<StoredFile>(fileIngestRequests.size());
+		var targetPaths = new HashSet<Path>();
+
+		// Store and verify each file on its own so that a broken file fails only its own item
+		for (var i = 0; i < fileIngestRequests.size(); i++) {
+			var fileIngestRequest = fileIngestRequests.get(i);
+			var item = FileBatchIngestItemResponse.builder()
+			                                      .index(i)
+			                                      .fileName(fileIngestRequest != null ? fileIngestRequest.getFileName() : null)
+			                                      .build();
+			items.add(item);
+
+			try {
+				ValidateFileIngestRequest(fileIngestRequest, multipartFiles.get(i) == null ? 0L : multipartFiles.get(i)
+				                                                                                  .getSize());
+				var target = resolveTargetFile(fileIngestRequest);
+
+				if (!targetPaths.add(target.path())) {
+					throw new IllegalArgumentException("Duplicate file in the batch");
+				}
+
+				var existed = Files.exists(target.path());
+				storeVerifiedFile(multipartFiles.get(i), target.path(), fileIngestRequest.getSha256sum());
+				metricsService.recordIngestedBytes(multipartFiles.get(i)
+				                                                 .getSize());
+				storedFiles.add(new StoredFile(item, fileIngestRequest, target, multipartFiles.get(i)
+				                                                                              .getSize(), existed));
+			} catch (Exception e) {
+				log.warn("Failed to store file {} of the ingest batch: {}", i, e.getMessage());
+				item.setMessage(e.getMessage());
+			}
+		}
+
+		try {
+			var galleryId = saveStoredFiles(fileBatchIngestRequest, storedFiles, userId);
+			log.info("Ingested {} of {} files in a batch", storedFiles.size(), fileIngestRequests.size());
+			return FileBatchIngestResponse.builder()
+			                              .galleryId(galleryId)
+			                              .ingested(storedFiles.size())
+			                              .failed(fileIngestRequests.size() - storedFiles.size())
+			                              .items(items)
+			                              .build();
+		} catch (Exception e) {
+			// Remove the files which did not exist before the batch, the existing ones have already been replaced by verified uploads
+			for (var storedFile : storedFiles) {
+				if (!storedFile.existed()) {
+					try {
+						Files.deleteIfExists(storedFile.target()
+						                               .path());
+					} catch (IOException ioe) {
+						log.warn("Failed to delete stored file after batch ingest failure: {}", storedFile.target()
+						                                                                                  .path(), ioe);
+					}
+				}
+			}
+
+			throw e;
+		}
+	}
+
+	private Long saveStoredFiles(FileBatchIngestRequest fileBatchIngestRequest, List<StoredFile> storedFiles, long userId) throws Exception {
+		if (storedFiles.isEmpty()) {
+			return null;
+		}
+
+		// Fetch the existing site files of the batch with one query
+		var filePaths = new HashSet<String>();
+		var fileNames = new HashSet<String>();
+
+		for (var storedFile : storedFiles) {
+			filePaths.add(storedFile.target()
+			                        .filePath());
+			fileNames.add(storedFile.target()
+			                        .fileName());
+		}
+
+		var existingSiteFileIds = new HashMap<Path, Long>();
+
+		for (var siteFileKey : siteFileRepository.findKeyByFilePathInAndFileNameIn(filePaths, fileNames)) {
+			existingSiteFileIds.put(Path.of(siteFileKey.filePath(), siteFileKey.fileName()), siteFileKey.id());
+		}
+
+		var now = Instant.now();
+		var siteFiles = new ArrayList<SiteFile>(storedFiles.size());
+
+		// The site files are written with JDBC batches, so only their IDs are read and the existing entities are not loaded
+		for (var storedFile : storedFiles) {
+			var target = storedFile.target();
+			var siteFile = new SiteFile();
+			siteFile.setId(existingSiteFileIds.get(Path.of(target.filePath(), target.fileName())));
+			populateSiteFile(siteFile, storedFile.request(), target.filePath(), target.fileName(), storedFile.size(), userId, now);
+			siteFile.setLocation(locationService.toEntity(storedFile.request()
+			                                                        .getLocation()));
+			siteFiles.add(siteFile);
+		}
+
+		var upsertStart = System.nanoTime();
+		var siteFileIds = siteFileBatchService.upsertSiteFiles(siteFiles, userId);
+		metricsService.recordIngestDbUpsert(System.nanoTime() - upsertStart);
+		var tagRequestsBySiteFileId = new LinkedHashMap<Long, List<TagRequest>>();
+
+		for (var i = 0; i < storedFiles.size(); i++) {
+			var storedFile = storedFiles.get(i);
+			var siteFileId = siteFileIds.get(i);
+			tagRequestsBySiteFileId.put(siteFileId, Objects.requireNonNullElse(storedFile.request()
+			                                                                             .getTags(), List.of()));
+			storedFile.item()
+			          .setSiteFileId(siteFileId);
+			storedFile.item()
+			          .setUpdated(storedFile.existed());
+			storedFile.item()
+			          .setSuccess(true);
+		}
+
+		var subjectStart = System.nanoTime();
+		subjectService.saveTagsAsSubjects(tagRequestsBySiteFileId);
+		metricsService.recordIngestSubjectLink(System.nanoTime() - subjectStart);
+
+		var gallery = upsertGallery(fileBatchIngestRequest.getGalleryId(), fileBatchIngestRequest.getGalleryName(),
+		                            fileBatchIngestRequest.getGalleryDescription(), userId);
+
+		if (gallery == null) {
+			return null;
+		}
+
+		// Link the files not yet in the gallery with one insert
+		var linkedSiteFileIds = new HashSet<Long>();
+
+		for (var galleryFile : galleryFileService.findGalleryFileByGalleryId(gallery.getId())) {
+			linkedSiteFileIds.add(galleryFile.getSiteFileId());
+		}
+
+		var newGalleryFiles = new ArrayList<GalleryFile>();
+
+		for (var i = 0; i < storedFiles.size(); i++) {
+			var siteFileId = siteFileIds.get(i);
+
+			if (linkedSiteFileIds.add(siteFileId)) {
+				newGalleryFiles.add(GalleryFile.builder()
+				                               .galleryId(gallery.getId())
+				                               .siteFileId(siteFileId)
+				                               .sortOrder(storedFiles.get(i)
+				                                                     .request()
+				                                                     .getSortOrder())
+				                               .build());
+			}
+		}
+
+		if (!newGalleryFiles.isEmpty()) {
+			galleryFileService.addGalleryFiles(gallery.getId(), newGalleryFiles);
+		}
+
+		return gallery.getId();
+	}
+
+	private record TargetFile(String filePath, String fileName, Path path) {
+	}
+
+	private record StoredFile(FileBatchIngestItemResponse item, FileIngestRequest request, TargetFile target, long size, boolean existed) {
+	}
+
+	/**
+	 * Resolve where the file of the request is stored, the directory is created if it does not exist.
+	 */
+	private TargetFile resolveTargetFile(FileIngestRequest fileIngestRequest) throws IOException {
+		// Determine main class directory by mimetype (fallback to "other" if configured)
+		final var fileTypeByMimetype = FileTypeEnum.getFileTypeByMimetype(fileIngestRequest.getMimeType());
+		final String baseDir = resolveBaseDir(fileTypeByMimetype);
+		log.debug("Resolved base directory for file type {}: {}", fileTypeByMimetype, baseDir);
+
+		// Sanitize and resolve target paths
+		final String cleanFileName = sanitizeFileName(fileIngestRequest.getFileName());
+		final String cleanRelPath = sanitizeRelativePath(Optional.ofNullable(fileIngestRequest.getFilePath())
+		                                                         .orElse(""));
+		final Path basePath = Paths.get(baseDir)
+		                           .toAbsolutePath()
+		                           .normalize();
+		final Path targetDir = basePath.resolve(cleanRelPath)
+		                               .normalize();
+
+		ensureWithinBase(targetDir, basePath);
+		log.debug("Creating target directory: {}", targetDir);
+		Files.createDirectories(targetDir);
+
+		final Path targetFile = targetDir.resolve(cleanFileName)
+		                                 .normalize();
+		ensureWithinBase(targetFile.getParent(), basePath);
+		return new TargetFile(cleanRelPath, cleanFileName, targetFile);
+	}
+
+	private void populateSiteFile(SiteFile siteFile, FileIngestRequest fileIngestRequest, String cleanRelPath, String cleanFileName, long size,
+	                              long userId, Instant now) {
+		siteFile.setFileName(cleanFileName);
+		siteFile.setFilePath(cleanRelPath);
+		siteFile.setMimeType(fileIngestRequest.getMimeType());
+		siteFile.setFileType(FileTypeEnum.getFileTypeByMimetype(fileIngestRequest.getMimeType()));
+		siteFile.setSize(size);
+		siteFile.setSha256sum(fileIngestRequest.getSha256sum());
+		siteFile.setComment(fileIngestRequest.getComment());
+		siteFile.setMetadata(fileIngestRequest.getMetadata());
+		siteFile.setHeight(fileIngestRequest.getHeight());
+		siteFile.setWidth(fileIngestRequest.getWidth());
+		siteFile.setLength(fileIngestRequest.getLength());
+		siteFile.setPages(fileIngestRequest.getPages());
+
+		// Populate new fields
+		siteFile.setOriginalDateTime(fileIngestRequest.getOriginalDateTime());
+		var copyrightRequest = fileIngestRequest.getCopyright();
+
+		if (copyrightRequest != null) {
+			siteFile.setRightsHolder(copyrightRequest.getRightsHolder());
+			siteFile.setRightsTerms(copyrightRequest.getRightsTerms());
+			siteFile.setRightsUrl(copyrightRequest.getRightsUrl());
+			siteFile.setCreatorName(copyrightRequest.getCreatorName());
+			siteFile.setCreatorEmail(copyrightRequest.getCreatorEmail());
+			siteFile.setCreatorCountry(copyrightRequest.getCreatorCountry());
+			siteFile.setCreatorUrl(copyrightRequest.getCreatorUrl());
+		} else {
+			siteFile.setRightsHolder(null);
+			siteFile.setRightsTerms(null);
+			siteFile.setRightsUrl(null);
+			siteFile.setCreatorName(null);
+			siteFile.setCreatorEmail(null);
+			siteFile.setCreatorCountry(null);
+			siteFile.setCreatorUrl(null);
+		}
+
+		if (siteFile.getId() == null) {
+			siteFile.setCreator(userId);
+			siteFile.setCreated(now);
+		} else {
+			siteFile.setModifier(userId);
+			siteFile.setModified(now);
+		}
+	}
+
+	/**
+	 * Store the upload as the target file. The upload is written to a temporary file next to the target while its checksum is computed,
+	 * and only moved in place of the target once the checksum matches, so an existing file is never replaced by a broken upload.
+	 */
+	private void storeVerifiedFile(MultipartFile multipartFile, Path targetFile, String expectedSha256sum) throws IOException,
+	                                                                                                             VempainIngestException {
+		try (var inputStream = multipartFile.getInputStream()) {
+			writeVerifiedFile(inputStream, targetFile, expectedSha256sum);
+		}
+	}
+
+	/**
+	 * Move the received file in place of the target file once its checksum has been verified. Should the file have been received on
+	 * another file system, it is written next to the target first so that the target is still replaced in one step.
+	 */
+	private void moveVerifiedFile(Path uploadedFile, Path targetFile, String expectedSha256sum) throws IOException, VempainIngestException {
+		var hashStart = System.nanoTime();
+		var checksum = LocalFileTools.computeSha256(uploadedFile.toFile());
+		metricsService.recordIngestHash(System.nanoTime() - hashStart);
+
+		if (!expectedSha256sum.equals(checksum)) {
+			log.error("SHA-256 checksum mismatch for file: {}. Expected: {}, Actual: {}", targetFile, expectedSha256sum, checksum);
+			throw new VempainIngestException("SHA parity check failed", null, null);
+		}
+
+		try {
+			Files.move(uploadedFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			try (var inputStream = Files.newInputStream(uploadedFile)) {
+				writeVerifiedFile(inputStream, targetFile, expectedSha256sum);
+			}
+
+			Files.delete(uploadedFile);
+		}
+	}
+
+	private void writeVerifiedFile(InputStream inputStream, Path targetFile, String expectedSha256sum) throws IOException, VempainIngestException {
+		// Created with the default permissions of any new file, a file from Files.createTempFile would stay readable by the owner only
+		var temporaryFile = Files.createFile(targetFile.resolveSibling("." + targetFile.getFileName() + "." + UUID.randomUUID() + ".part"));
+
+		try {
+			var hashStart = System.nanoTime();
+			var checksum = LocalFileTools.copyAndComputeSha256(inputStream, temporaryFile);
+			metricsService.recordIngestHash(System.nanoTime() - hashStart);
+
+			if (!expectedSha256sum.equals(checksum)) {
+				log.error("SHA-256 checksum mismatch for file: {}. Expected: {}, Actual: {}", targetFile, expectedSha256sum, checksum);
+				throw new VempainIngestException("SHA parity check failed", null, null);
+			}
+
+			try {
+				Files.move(temporaryFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				log.warn("Atomic move not supported for {}, replacing the file non-atomically", targetFile);
+				Files.move(temporaryFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private void ValidateFileIngestRequest(FileIngestRequest fileIngestRequest, long size) {
+		if (fileIngestRequest == null || size <= 0) {
 			throw new IllegalArgumentException("Missing payload");
 		}
 		if (fileIngestRequest.getFileName() == null || fileIngestRequest.getFileName()
@@ -310,28 +623,31 @@ public class FileIngestService {
 
 	@Transactional
 	protected Gallery upsertGallery(FileIngestRequest fileIngestRequest, long userId) {
+		return upsertGallery(fileIngestRequest.getGalleryId(), fileIngestRequest.getGalleryName(), fileIngestRequest.getGalleryDescription(), userId);
+	}
+
+	private Gallery upsertGallery(Long galleryId, String galleryName, String galleryDescription, long userId) {
 		// If gallery ID exists, update fields if changed; otherwise create if name/description is provided
 		Optional<Gallery> optionalGallery = Optional.empty();
 
-		if (fileIngestRequest.getGalleryId() != null) {
-			optionalGallery = galleryRepository.findById(fileIngestRequest.getGalleryId());
-		} else if (fileIngestRequest.getGalleryName() != null
-		           && !fileIngestRequest.getGalleryName()
-		                                .trim()
-		                                .isBlank()) {
-			optionalGallery = galleryRepository.findByShortname(fileIngestRequest.getGalleryName());
+		if (galleryId != null) {
+			optionalGallery = galleryRepository.findById(galleryId);
+		} else if (galleryName != null
+		           && !galleryName.trim()
+		                          .isBlank()) {
+			optionalGallery = galleryRepository.findByShortname(galleryName);
 		}
 
 		if (optionalGallery.isPresent()) {
 			var gallery = optionalGallery.get();
 			log.debug("Found existing gallery for ingest request: {}", toJson(gallery));
 
-			if (fileIngestRequest.getGalleryName() != null && !Objects.equals(gallery.getShortname(), fileIngestRequest.getGalleryName())) {
-				gallery.setShortname(fileIngestRequest.getGalleryName());
+			if (galleryName != null && !Objects.equals(gallery.getShortname(), galleryName)) {
+				gallery.setShortname(galleryName);
 			}
 
-			if (fileIngestRequest.getGalleryDescription() != null && !Objects.equals(gallery.getDescription(), fileIngestRequest.getGalleryDescription())) {
-				gallery.setDescription(fileIngestRequest.getGalleryDescription());
+			if (galleryDescription != null && !Objects.equals(gallery.getDescription(), galleryDescription)) {
+				gallery.setDescription(galleryDescription);
 			}
 
 			gallery.setModified(Instant.now());
@@ -342,15 +658,13 @@ public class FileIngestService {
 			return gallery;
 		}
 
-		log.debug("No gallery ID given, creating new gallery if name/description provided in request: {}", toJson(fileIngestRequest));
+		log.debug("No gallery ID given, creating new gallery if name/description provided in request: {} / {}", galleryName, galleryDescription);
 
-		if ((fileIngestRequest.getGalleryName() != null
-		     && !fileIngestRequest.getGalleryName()
-		                          .isBlank())
-		    || (fileIngestRequest.getGalleryDescription() != null
-		        && !fileIngestRequest.getGalleryDescription()
-		                             .isBlank())) {
-			log.debug("Creating new gallery for ingest request: {}", toJson(fileIngestRequest));
+		if ((galleryName != null
+		     && !galleryName.isBlank())
+		    || (galleryDescription != null
+		        && !galleryDescription.isBlank())) {
+			log.debug("Creating new gallery for ingest request: {}", galleryName);
 			// Fetch new acl for the gallery
 			long aclId = 0L;
 			try {
@@ -361,8 +675,8 @@ public class FileIngestService {
 			}
 
 			var gallery = Gallery.builder()
-			                     .shortname(fileIngestRequest.getGalleryName())
-			                     .description(fileIngestRequest.getGalleryDescription())
+			                     .shortname(galleryName)
+			                     .description(galleryDescription)
 			                     .siteFiles(new java.util.ArrayList<>())
 			                     .aclId(aclId)
 			                     .creator(userId)
@@ -6,6 +6,7 @@ import fi.poltsi.vempain.admin.api.response.RefreshDetailResponse;
 import fi.poltsi.vempain.admin.api.response.RefreshResponse;
 import fi.poltsi.vempain.admin.api.response.file.SiteFileResponse;
 import fi.poltsi.vempain.admin.entity.Subject;
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.entity.file.GalleryFile;
@@ -59,6 +60,7 @@ public class FileService {
 	private final AccessService               accessService;
 	private final GalleryFileService          galleryFileService;
 	private final SubjectService              subjectService;
+	private final FileThumbService            fileThumbService;
 
 	@Value("${vempain.admin.file.site-file-directory}")
 	private String siteFileDirectory;
@@ -321,6 +323,13 @@ public class FileService {
 		return thumbList;
 	}
 
+	@Transactional(readOnly = true)
+	public List<FileRendition> findPublishedRenditionsBySiteFileList(List<SiteFile> siteFiles) {
+		return fileThumbService.findPublishedRenditions(siteFiles.stream()
+		                                                         .map(SiteFile::getId)
+		                                                         .toList());
+	}
+
 	// Subject
 	public Subject saveSubject(Subject subject) {
 		return subjectRepository.save(subject);
@@ -32,8 +32,11 @@ public class FileSystemService {
 
 		if (files != null) {
 			for (File file : files) {
+				// Hidden directories, such as the one receiving chunked uploads, and the generated thumbs and renditions are not part of the storage
 				if (file.isDirectory()
-				    && !Objects.equals(file.toString(), siteFileDirectory + File.separator + FileTypeEnum.THUMB.shortName)) {
+				    && !file.isHidden()
+				    && !Objects.equals(file.toString(), siteFileDirectory + File.separator + FileTypeEnum.THUMB.shortName)
+				    && !Objects.equals(file.toString(), siteFileDirectory + File.separator + FileThumbService.RENDITION_DIRECTORY)) {
 					rootList.add(buildDirectoryTree(file));
 				}
 			}
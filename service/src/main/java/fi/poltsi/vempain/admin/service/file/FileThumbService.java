@@ -1,24 +1,34 @@
 package fi.poltsi.vempain.admin.service.file;
 
+import fi.poltsi.vempain.admin.configuration.RenditionProperties;
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
+import fi.poltsi.vempain.admin.repository.file.FileRenditionRepository;
 import fi.poltsi.vempain.admin.repository.file.FileThumbPageableRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
+import fi.poltsi.vempain.admin.service.MetricsService;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
 import fi.poltsi.vempain.tools.ImageTools;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import static fi.poltsi.vempain.tools.LocalFileTools.computeSha256;
 import static fi.poltsi.vempain.tools.LocalFileTools.createAndVerifyDirectory;
@@ -31,16 +41,27 @@ import static fi.poltsi.vempain.tools.LocalFileTools.setExtension;
 @Service
 public class FileThumbService {
 	private static final String                      RESPONSE_STATUS_EXCEPTION_MESSAGE = "Unknown error";
+	// Directory under the site file directory where the renditions are written, it is not part of the browsable storage
+	public static final  String                      RENDITION_DIRECTORY               = "rendition";
 	private final        FileThumbPageableRepository fileThumbPageableRepository;
 	private final        SiteFileRepository          siteFileRepository;
 	private final        ImageTools                  imageTools;
+	private final        FileRenditionRepository     fileRenditionRepository;
+	private final        RenditionProperties         renditionProperties;
+	private final        MetricsService              metricsService;
 
 	@Value("${vempain.admin.file.site-file-directory}")
-	private String siteFileDirectory;
+	private String  siteFileDirectory;
 	@Value("${vempain.admin.file.image-format}")
-	private String imageFormat;
+	private String  imageFormat;
 	@Value("${vempain.admin.file.thumbnail-size}")
-	private int    thumbnailSize;
+	private int     thumbnailSize;
+	@Value("${vempain.admin.file.thumbnail-full-metadata}")
+	private boolean thumbnailFullMetadata;
+	@Value("${vempain.admin.file.rendition-check-batch-size}")
+	private int     renditionCheckBatchSize;
+	// ID of the last rendition whose file was checked, the next check continues after it
+	private long    lastCheckedRenditionId;
 
 
 	@Transactional
@@ -90,16 +111,38 @@ public class FileThumbService {
 			createAndVerifyDirectory(absoluteDestinationPath);
 		}
 
-		// Generate thumb, for now we only handle images
+		// Generate thumb, for now we only handle images. The renditions are rendered from the same decoded image as the thumb
 		if (FileTypeEnum.equals(fi.poltsi.vempain.file.api.FileTypeEnum.IMAGE)) {
-			imageTools.resizeImage(sourceFile, destinationFile, (thumbnailSize != 0 ? thumbnailSize : 250), 0.5F);
+			var targets = new ArrayList<ImageTools.ResizeTarget>();
+			targets.add(new ImageTools.ResizeTarget(destinationFile, (thumbnailSize != 0 ? thumbnailSize : 250), 0.5F, thumbnailFullMetadata));
+			var renditionFiles = new ArrayList<Path>();
+
+			for (var rendition : renditionProperties.renditions()) {
+				var renditionDirectory = Path.of(siteFileDirectory, RENDITION_DIRECTORY, rendition.name(), FileTypeEnum.shortName, destination.toString());
+				createAndVerifyDirectory(renditionDirectory);
+				var renditionFile = renditionDirectory.resolve(setExtension(sourceFile.getFileName()
+				                                                                      .toString(), rendition.format()));
+				renditionFiles.add(renditionFile);
+				targets.add(new ImageTools.ResizeTarget(renditionFile, rendition.size(), rendition.quality(), rendition.fullMetadata()));
+			}
+
+			var resizeStart = System.nanoTime();
+			var renditionDimensions = imageTools.resizeImage(sourceFile, targets);
+			metricsService.recordThumbResize(System.nanoTime() - resizeStart);
+
+			for (var i = 0; i < renditionFiles.size(); i++) {
+				saveRendition(commonId, renditionProperties.renditions()
+				                                           .get(i)
+				                                           .name(), renditionFiles.get(i), renditionDimensions.get(i + 1));
+			}
 		} else {
 			log.info("Unsupported file class {}", FileTypeEnum.shortName);
 		}
 
 		var dimensions = imageTools.getImageDimensions(destinationFile);
 		long filesize = getFileSize(destinationFile);
-		var sha1sum = computeSha256(sourceFile.toFile());
+		// The checksum of the thumb itself, it decides whether the thumb is uploaded again when the gallery is published
+		var sha1sum = computeSha256(destinationFile.toFile());
 
 		// We store the full path name from the converted directory
 		var thumbDestinationFilename = sourceFile.getFileName()
@@ -136,11 +179,80 @@ public class FileThumbService {
 		fileThumbPageableRepository.save(fileThumb);
 	}
 
+	/**
+	 * IDs of the image site files which lack one of the configured renditions, either in the database or in the filesystem. The
+	 * renditions are generated together with the thumb, so these files need their thumb to be generated again. The files of only
+	 * {@code vempain.admin.file.rendition-check-batch-size} renditions are checked per call, each call continuing from where the previous
+	 * one stopped and starting over after the last rendition.
+	 *
+	 * @return IDs of the site files missing renditions
+	 */
+	public List<Long> findSiteFileIdsMissingRenditions() {
+		var names = renditionProperties.renditions()
+		                               .stream()
+		                               .map(RenditionProperties.Rendition::name)
+		                               .toList();
+
+		if (names.isEmpty()) {
+			return List.of();
+		}
+
+		var siteFileIds = new LinkedHashSet<>(fileRenditionRepository.findThumbParentIdsMissingRenditions(names, names.size()));
+		var fileRenditions = fileRenditionRepository.findByIdGreaterThanAndNameInOrderByIdAsc(lastCheckedRenditionId, names,
+		                                                                                      Limit.of(renditionCheckBatchSize));
+
+		for (var fileRendition : fileRenditions) {
+			if (!Files.exists(Path.of(siteFileDirectory, fileRendition.getFilepath(), fileRendition.getFilename()))) {
+				siteFileIds.add(fileRendition.getParentId());
+			}
+		}
+
+		lastCheckedRenditionId = fileRenditions.size() < renditionCheckBatchSize ? 0L : fileRenditions.getLast()
+		                                                                                              .getId();
+		return new ArrayList<>(siteFileIds);
+	}
+
+	/**
+	 * Renditions of the given site files which are uploaded to the site when a gallery is published.
+	 */
+	public List<FileRendition> findPublishedRenditions(Collection<Long> siteFileIds) {
+		var names = renditionProperties.renditions()
+		                               .stream()
+		                               .filter(RenditionProperties.Rendition::publish)
+		                               .map(RenditionProperties.Rendition::name)
+		                               .toList();
+
+		if (names.isEmpty() || siteFileIds.isEmpty()) {
+			return List.of();
+		}
+
+		return fileRenditionRepository.findByParentIdInAndNameIn(siteFileIds, names);
+	}
+
+	private void saveRendition(long parentId, String name, Path renditionFile, Dimension dimensions) {
+		var fileRendition = fileRenditionRepository.findByParentIdAndName(parentId, name)
+		                                           .orElseGet(() -> FileRendition.builder()
+		                                                                         .parentId(parentId)
+		                                                                         .name(name)
+		                                                                         .build());
+		fileRendition.setFilepath(Path.of(siteFileDirectory)
+		                              .relativize(renditionFile.getParent())
+		                              .toString());
+		fileRendition.setFilename(renditionFile.getFileName()
+		                                       .toString());
+		fileRendition.setFilesize(getFileSize(renditionFile));
+		fileRendition.setWidth(dimensions.width);
+		fileRendition.setHeight(dimensions.height);
+		fileRendition.setSha256sum(computeSha256(renditionFile.toFile()));
+		fileRenditionRepository.save(fileRendition);
+	}
+
 	public void delete(long id) {
 		fileThumbPageableRepository.deleteById(id);
 	}
 
 	public void deleteByParentId(long parentId) {
 		fileThumbPageableRepository.deleteByParentId(parentId);
+		fileRenditionRepository.deleteByParentId(parentId);
 	}
 }
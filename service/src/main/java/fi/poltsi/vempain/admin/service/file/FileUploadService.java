@@ -0,0 +1,270 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.request.file.UploadSessionRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
+import fi.poltsi.vempain.admin.api.response.file.UploadSessionResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives large files in chunks so that an interrupted upload can be resumed from where it stopped. The space for the file is reserved
+ * when the session is opened, the chunks are then written in order straight from the request body to the file, and only when the upload
+ * is finalised is the file handed over to {@link FileIngestService} and the database.
+ */
+@Slf4j
+@Service
+public class FileUploadService {
+	private static final String UPLOAD_FILE_SUFFIX = ".upload";
+	private static final long   PRUNE_DELAY        = 60 * 1000L;
+
+	private final FileIngestService          fileIngestService;
+	private final Path                       uploadDirectory;
+	private final long                       maxFileSize;
+	private final Duration                   sessionTimeToLive;
+	private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+	private static final class UploadSession {
+		private final    String  id;
+		private final    String  fileName;
+		private final    Path    file;
+		private final    long    size;
+		// Read without the lock so that the offset of a session can be fetched while a chunk is being written
+		private volatile long    offset;
+		private volatile Instant lastActivity;
+		private volatile boolean finalizing;
+
+		private UploadSession(String id, String fileName, Path file, long size) {
+			this.id           = id;
+			this.fileName     = fileName;
+			this.file         = file;
+			this.size         = size;
+			this.lastActivity = Instant.now();
+		}
+	}
+
+	public FileUploadService(FileIngestService fileIngestService,
+	                         @Value("${vempain.admin.file.upload.directory}") String uploadDirectory,
+	                         @Value("${vempain.admin.file.upload.max-file-size}") DataSize maxFileSize,
+	                         @Value("${vempain.admin.file.upload.session-ttl-minutes}") long sessionTtlMinutes) {
+		this.fileIngestService = fileIngestService;
+		this.uploadDirectory   = Path.of(uploadDirectory)
+		                             .toAbsolutePath()
+		                             .normalize();
+		this.maxFileSize       = maxFileSize.toBytes();
+		this.sessionTimeToLive = Duration.ofMinutes(sessionTtlMinutes);
+	}
+
+	@PostConstruct
+	public void setupEnv() {
+		try {
+			Files.createDirectories(uploadDirectory);
+
+			// The sessions are only kept in memory, so whatever is left from a previous run can no longer be finalised
+			try (var leftovers = Files.newDirectoryStream(uploadDirectory, "*" + UPLOAD_FILE_SUFFIX)) {
+				for (var leftover : leftovers) {
+					Files.deleteIfExists(leftover);
+					log.info("Removed unfinished upload from a previous run: {}", leftover);
+				}
+			}
+		} catch (IOException e) {
+			log.error("Could not prepare the upload directory: {}", uploadDirectory, e);
+			throw new FileSystemNotFoundException("Unable to initiate the upload directory");
+		}
+	}
+
+	public UploadSessionResponse createSession(UploadSessionRequest uploadSessionRequest) {
+		if (uploadSessionRequest == null || uploadSessionRequest.getSize() <= 0 || uploadSessionRequest.getSize() > maxFileSize) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File size must be between 1 and " + maxFileSize + " bytes");
+		}
+
+		var id = UUID.randomUUID()
+		             .toString();
+		var session = new UploadSession(id, uploadSessionRequest.getFileName(), uploadDirectory.resolve(id + UPLOAD_FILE_SUFFIX),
+		                                uploadSessionRequest.getSize());
+
+		// Reserve the full length up front so that the chunks are written into an existing file instead of growing it
+		try (var file = new RandomAccessFile(session.file.toFile(), "rw")) {
+			file.setLength(session.size);
+		} catch (IOException e) {
+			log.error("Failed to reserve {} bytes for upload {}", session.size, id, e);
+			deleteUploadFile(session);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to reserve space for the upload");
+		}
+
+		sessions.put(id, session);
+		log.info("Opened upload session {} for {} of {} bytes", id, session.fileName, session.size);
+		return toResponse(session);
+	}
+
+	public UploadSessionResponse getSession(String uploadId) {
+		return toResponse(findSession(uploadId));
+	}
+
+	/**
+	 * Write the chunk to the file. The chunk must start from the current offset of the session, so the file is only ever appended to. The
+	 * bytes written before an interrupted transfer are kept and the offset returned by {@link #getSession(String)} tells where to resume.
+	 *
+	 * @param uploadId    ID of the upload session
+	 * @param offset      Position of the first byte of the chunk in the file
+	 * @param inputStream Content of the chunk
+	 * @return State of the session after the chunk
+	 */
+	public UploadSessionResponse writeChunk(String uploadId, long offset, InputStream inputStream) {
+		var session = findSession(uploadId);
+
+		synchronized (session) {
+			if (session.finalizing) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being finalised");
+			}
+
+			if (offset != session.offset) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Expected a chunk starting from offset " + session.offset);
+			}
+
+			session.lastActivity = Instant.now();
+
+			try (var channel = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+				var source = Channels.newChannel(inputStream);
+
+				while (session.offset < session.size) {
+					var transferred = channel.transferFrom(source, session.offset, session.size - session.offset);
+
+					if (transferred <= 0) {
+						break;
+					}
+
+					session.offset += transferred;
+				}
+
+				if (session.offset == session.size && inputStream.read() != -1) {
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk exceeds the size of the file");
+				}
+			} catch (IOException e) {
+				log.warn("Chunk of upload {} was interrupted at offset {}: {}", uploadId, session.offset, e.getMessage());
+				throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Upload interrupted at offset " + session.offset);
+			}
+
+			log.debug("Upload {} received {} of {} bytes", uploadId, session.offset, session.size);
+			return toResponse(session);
+		}
+	}
+
+	/**
+	 * Ingest the complete file. The session is removed once the file has been ingested or is no longer available, otherwise the
+	 * finalisation can be retried.
+	 */
+	public FileIngestResponse finalizeUpload(String uploadId, FileIngestRequest fileIngestRequest) throws Exception {
+		var session = findSession(uploadId);
+
+		synchronized (session) {
+			if (session.finalizing) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being finalised");
+			}
+
+			if (session.offset != session.size) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is not complete, received " + session.offset + " of " + session.size
+				                                                       + " bytes");
+			}
+
+			session.finalizing = true;
+		}
+
+		try {
+			var fileIngestResponse = fileIngestService.ingestUploadedFile(fileIngestRequest, session.file);
+			sessions.remove(uploadId);
+			log.info("Finalised upload {} as site file {}", uploadId, fileIngestResponse.getSiteFileId());
+			return fileIngestResponse;
+		} finally {
+			synchronized (session) {
+				session.finalizing   = false;
+				session.lastActivity = Instant.now();
+
+				if (!Files.exists(session.file)) {
+					sessions.remove(uploadId);
+				}
+			}
+		}
+	}
+
+	public void deleteSession(String uploadId) {
+		var session = findSession(uploadId);
+
+		synchronized (session) {
+			if (session.finalizing) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being finalised");
+			}
+
+			sessions.remove(uploadId);
+			deleteUploadFile(session);
+		}
+
+		log.info("Removed upload session {}", uploadId);
+	}
+
+	private UploadSession findSession(String uploadId) {
+		var session = sessions.get(uploadId);
+
+		if (session == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No upload session found");
+		}
+
+		return session;
+	}
+
+	/**
+	 * Remove the sessions which have had no activity within the time-to-live, along with their partially uploaded files. Run on a timer so
+	 * that abandoned uploads do not keep their reserved space until the next session is opened.
+	 */
+	@Scheduled(fixedDelay = PRUNE_DELAY, initialDelay = PRUNE_DELAY)
+	public void pruneExpiredSessions() {
+		var oldest = Instant.now()
+		                    .minus(sessionTimeToLive);
+
+		for (var session : sessions.values()) {
+			if (!session.finalizing && session.lastActivity.isBefore(oldest) && sessions.remove(session.id, session)) {
+				deleteUploadFile(session);
+				log.info("Removed expired upload session {}", session.id);
+			}
+		}
+	}
+
+	private void deleteUploadFile(UploadSession session) {
+		try {
+			Files.deleteIfExists(session.file);
+		} catch (IOException e) {
+			log.warn("Failed to delete upload file: {}", session.file, e);
+		}
+	}
+
+	private UploadSessionResponse toResponse(UploadSession session) {
+		return UploadSessionResponse.builder()
+		                            .uploadId(session.id)
+		                            .fileName(session.fileName)
+		                            .size(session.size)
+		                            .offset(session.offset)
+		                            .expires(session.lastActivity.plus(sessionTimeToLive))
+		                            .build();
+	}
+}
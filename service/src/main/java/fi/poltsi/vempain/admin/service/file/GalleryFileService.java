@@ -8,13 +8,19 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @Service
 public class GalleryFileService {
-	private final EntityManager entityManager;
-	private final FileThumbService fileThumbService;
+	// Keeps the number of bind parameters of a multi-row insert well below the limit of the database
+	private static final int INSERT_CHUNK_SIZE = 1000;
+
+	private final EntityManager     entityManager;
+	private final ThumbQueueService thumbQueueService;
 
 	@Transactional(propagation = Propagation.REQUIRED)
 	public void deleteAllGalleryFiles() {
@@ -62,6 +68,33 @@ public class GalleryFileService {
 		return galleryFiles;
 	}
 
+	/**
+	 * Count the files of each of the given galleries with one query. Galleries without files are not included in the result.
+	 *
+	 * @param galleryIds IDs of the galleries
+	 * @return Number of files by gallery ID
+	 */
+	public Map<Long, Long> countGalleryFilesByGalleryIds(Collection<Long> galleryIds) {
+		var fileCounts = new HashMap<Long, Long>();
+
+		if (galleryIds.isEmpty()) {
+			return fileCounts;
+		}
+
+		var query = entityManager.createNativeQuery("SELECT gf.gallery_id, COUNT(*) " +
+		                                            "FROM gallery_file gf " +
+		                                            "WHERE gf.gallery_id IN (:galleryIds) " +
+		                                            "GROUP BY gf.gallery_id");
+		query.setParameter("galleryIds", galleryIds);
+		List<Object[]> countObjects = query.getResultList();
+
+		for (Object[] o : countObjects) {
+			fileCounts.put(((Number) o[0]).longValue(), ((Number) o[1]).longValue());
+		}
+
+		return fileCounts;
+	}
+
 	@Transactional(propagation = Propagation.REQUIRED)
 	public void addGalleryFile(Long galleryId, Long siteFileId, Long sortOrder) {
 		var query = entityManager.createNativeQuery("INSERT INTO gallery_file (gallery_id, site_file_id, sort_order) " +
@@ -71,18 +104,62 @@ public class GalleryFileService {
 		query.setParameter("sortOrder", sortOrder);
 		query.executeUpdate();
 
-		// Make also sure that the thumb file exists
-		fileThumbService.generateThumbFile(siteFileId);
+		// Make also sure that the thumb file exists, it is generated after the transaction has been committed
+		thumbQueueService.enqueue(List.of(siteFileId));
 	}
 
 	@Transactional(propagation = Propagation.REQUIRED)
 	public void addGalleryFiles(long galleryId, long[] siteFileIds) {
-		var orderId = 0L;
+		var galleryFiles = new ArrayList<GalleryFile>(siteFileIds.length);
+
+		for (var i = 0; i < siteFileIds.length; i++) {
+			galleryFiles.add(GalleryFile.builder()
+			                            .siteFileId(siteFileIds[i])
+			                            .sortOrder((long) i)
+			                            .build());
+		}
 
-		for (var siteFileId : siteFileIds) {
-			addGalleryFile(galleryId, siteFileId, orderId);
-			orderId++;
+		addGalleryFiles(galleryId, galleryFiles);
+	}
+
+	/**
+	 * Link several site files to the gallery with multi-row inserts.
+	 *
+	 * @param galleryId    ID of the gallery
+	 * @param galleryFiles Site files with their sort order, the gallery ID of the entries is ignored
+	 */
+	@Transactional(propagation = Propagation.REQUIRED)
+	public void addGalleryFiles(Long galleryId, List<GalleryFile> galleryFiles) {
+		for (var start = 0; start < galleryFiles.size(); start += INSERT_CHUNK_SIZE) {
+			var chunk = galleryFiles.subList(start, Math.min(start + INSERT_CHUNK_SIZE, galleryFiles.size()));
+			var sql = new StringBuilder("INSERT INTO gallery_file (gallery_id, site_file_id, sort_order) VALUES ");
+
+			for (var i = 0; i < chunk.size(); i++) {
+				sql.append(i == 0 ? "" : ", ")
+				   .append("(?1, ?")
+				   .append(i * 2 + 2)
+				   .append(", ?")
+				   .append(i * 2 + 3)
+				   .append(")");
+			}
+
+			var query = entityManager.createNativeQuery(sql.toString());
+			query.setParameter(1, galleryId);
+
+			for (var i = 0; i < chunk.size(); i++) {
+				query.setParameter(i * 2 + 2, chunk.get(i)
+				                                   .getSiteFileId());
+				query.setParameter(i * 2 + 3, chunk.get(i)
+				                                   .getSortOrder());
+			}
+
+			query.executeUpdate();
 		}
+
+		// Make also sure that the thumb files exist, they are generated after the transaction has been committed
+		thumbQueueService.enqueue(galleryFiles.stream()
+		                                      .map(GalleryFile::getSiteFileId)
+		                                      .toList());
 	}
 
 	@Transactional(propagation = Propagation.REQUIRED)
@@ -6,11 +6,13 @@ import fi.poltsi.vempain.admin.api.response.file.FileGroupListResponse;
 import fi.poltsi.vempain.admin.api.response.file.GalleryResponse;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.admin.repository.AclPermissionRepository;
 import fi.poltsi.vempain.admin.repository.file.GalleryRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.AccessService;
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.auth.entity.Acl;
 import fi.poltsi.vempain.auth.exception.VempainAclException;
 import fi.poltsi.vempain.auth.service.AclService;
 import lombok.RequiredArgsConstructor;
@@ -24,30 +26,38 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class GalleryService {
-	private final GalleryRepository  galleryRepository;
-	private final SiteFileRepository siteFileRepository;
-	private final GalleryFileService galleryFileService;
-	private final AclService    aclService;
-	private final AccessService accessService;
+	private final GalleryRepository       galleryRepository;
+	private final SiteFileRepository      siteFileRepository;
+	private final GalleryFileService      galleryFileService;
+	private final AclService              aclService;
+	private final AclPermissionRepository aclPermissionRepository;
+	private final AccessService           accessService;
 
 	public List<Gallery> findAllForUser() {
 		var galleryList = new ArrayList<Gallery>();
 		var fullList = galleryRepository.findAll();
 
+		var readableAclIds = accessService.filterReadable(StreamSupport.stream(fullList.spliterator(), false)
+		                                                               .map(Gallery::getAclId)
+		                                                               .toList());
+
 		for (Gallery gallery : fullList) {
-			if (accessService.hasReadPermission(gallery.getAclId())) {
-				populateGalleryWithSiteFiles(gallery, false);
+			if (readableAclIds.contains(gallery.getAclId())) {
 				galleryList.add(gallery);
 			}
 		}
 
+		populateGalleriesWithSiteFiles(galleryList);
 		return galleryList;
 	}
 
@@ -56,9 +66,11 @@ public class GalleryService {
 		var galleries = findAllForUser();
 		var responses = new ArrayList<GalleryResponse>();
 
-		for (Gallery gallery : galleries) {
-			populateGalleryWithSiteFiles(gallery, queryDetailEnum == QueryDetailEnum.FULL);
+		if (queryDetailEnum == QueryDetailEnum.FULL) {
+			populateSiteFilesWithMetadata(galleries);
+		}
 
+		for (Gallery gallery : galleries) {
 			var response = gallery.getResponse();
 			responses.add(response);
 		}
@@ -79,7 +91,7 @@ public class GalleryService {
 			return null;
 		}
 
-		populateGalleryWithSiteFiles(gallery, false);
+		populateGalleriesWithSiteFiles(List.of(gallery));
 		return gallery.getResponse();
 	}
 
@@ -106,7 +118,7 @@ public class GalleryService {
 			throw new VempainAclException("Could not create ACLs for new gallery with ID: " + newGallery.getId());
 		}
 
-		populateGalleryWithSiteFiles(newGallery, false);
+		populateGalleriesWithSiteFiles(List.of(newGallery));
 		return newGallery.getResponse();
 	}
 
@@ -132,12 +144,13 @@ public class GalleryService {
 
 		try {
 			aclService.updateFromRequestList(galleryRequest.getAcls());
+			accessService.evictAll();
 		} catch (Exception e) {
 			log.error("Could not update ACLs for gallery with ID: {}", galleryRequest.getId(), e);
 			throw new VempainAclException("Could not update ACLs for gallery with ID: " + galleryRequest.getId());
 		}
 
-		populateGalleryWithSiteFiles(updatedGallery, false);
+		populateGalleriesWithSiteFiles(List.of(updatedGallery));
 		return updatedGallery.getResponse();
 	}
 
@@ -146,24 +159,55 @@ public class GalleryService {
 		galleryRepository.deleteById(galleryId);
 	}
 
-	private void populateGalleryWithSiteFiles(Gallery gallery, boolean withMetadata) {
-		var aclList = aclService.findAclByAclId(gallery.getAclId());
-		gallery.setAcls(aclList);
-		var galleryFiles = galleryFileService.findGalleryFileByGalleryId(gallery.getId());
+	/**
+	 * Set the ACLs and the site files without metadata of the galleries. The number of queries does not depend on the number of the
+	 * galleries or of their files.
+	 */
+	private void populateGalleriesWithSiteFiles(List<Gallery> galleries) {
+		if (galleries.isEmpty()) {
+			return;
+		}
 
-		var fileCommons = new ArrayList<SiteFile>();
+		populateGalleriesWithAcls(galleries);
+		var siteFiles = siteFileRepository.findByGalleryIdsWithoutMetadata(galleries.stream()
+		                                                                            .map(Gallery::getId)
+		                                                                            .toList());
 
-		for (var galleryFile : galleryFiles) {
-			if (withMetadata) {
-				siteFileRepository.findById(galleryFile.getSiteFileId())
-				                  .ifPresent(fileCommons::add);
-			} else {
-				siteFileRepository.findByIdWithoutMetadata(galleryFile.getSiteFileId())
-				                  .ifPresent(fileCommons::add);
-			}
+		for (var gallery : galleries) {
+			gallery.setSiteFiles(new ArrayList<>(siteFiles.getOrDefault(gallery.getId(), List.of())));
+		}
+	}
+
+	/**
+	 * Replace the site files of the already populated galleries with ones including the metadata, loaded in one query.
+	 */
+	private void populateSiteFilesWithMetadata(List<Gallery> galleries) {
+		var siteFileIds = galleries.stream()
+		                           .flatMap(gallery -> gallery.getSiteFiles()
+		                                                      .stream())
+		                           .map(SiteFile::getId)
+		                           .distinct()
+		                           .toList();
+
+		if (siteFileIds.isEmpty()) {
+			return;
+		}
+
+		var siteFiles = new HashMap<Long, SiteFile>();
+
+		for (var siteFile : siteFileRepository.findAllById(siteFileIds)) {
+			siteFiles.put(siteFile.getId(), siteFile);
 		}
 
-		gallery.setSiteFiles(fileCommons);
+		for (var gallery : galleries) {
+			var fullSiteFiles = new ArrayList<SiteFile>();
+
+			for (var siteFile : gallery.getSiteFiles()) {
+				fullSiteFiles.add(siteFiles.getOrDefault(siteFile.getId(), siteFile));
+			}
+
+			gallery.setSiteFiles(fullSiteFiles);
+		}
 	}
 
 	public Iterable<Gallery> findAll() {
@@ -186,16 +230,18 @@ public class GalleryService {
 		int safeSize = Math.min(request.getSize(), 200);
 		Sort sortSpec = buildSort(request.getSortBy(), request.getDirection());
 		Pageable pageable = PageRequest.of(safePage, safeSize, sortSpec);
-		var pageResult = galleryRepository.searchGalleriesForList(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()), pageable);
+		// The read permission is checked in the query so that the page is filled with readable galleries only
+		var pageResult = galleryRepository.searchGalleriesForList(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()),
+		                                                          accessService.getReadFilter(), pageable);
 		var items = new ArrayList<FileGroupListResponse>();
+		populateGalleriesWithAcls(pageResult.getContent());
+		var fileCounts = galleryFileService.countGalleryFilesByGalleryIds(pageResult.getContent()
+		                                                                            .stream()
+		                                                                            .map(Gallery::getId)
+		                                                                            .toList());
 
 		for (var gallery : pageResult.getContent()) {
-			if (accessService.hasReadPermission(gallery.getAclId())) {
-				populateGalleryWithAcls(gallery);
-				var fileCount = galleryFileService.findGalleryFileByGalleryId(gallery.getId())
-				                                  .size();
-				items.add(gallery.getListResponse(fileCount));
-			}
+			items.add(gallery.getListResponse(fileCounts.getOrDefault(gallery.getId(), 0L)));
 		}
 
 		return PagedResponse.of(items, pageResult.getNumber(), pageResult.getSize(), pageResult.getTotalElements(),
@@ -209,9 +255,9 @@ public class GalleryService {
 		if (gallery == null || !accessService.hasReadPermission(gallery.getAclId())) {
 			return null;
 		}
-		populateGalleryWithAcls(gallery);
-		return gallery.getListResponse(galleryFileService.findGalleryFileByGalleryId(galleryId)
-		                                                 .size());
+		populateGalleriesWithAcls(List.of(gallery));
+		return gallery.getListResponse(galleryFileService.countGalleryFilesByGalleryIds(List.of(galleryId))
+		                                                 .getOrDefault(galleryId, 0L));
 	}
 
 	private PagedResponse<GalleryResponse> findPagedByUser(PagedRequest request, boolean includeFiles) {
@@ -220,29 +266,44 @@ public class GalleryService {
 		Sort sortSpec = buildSort(request.getSortBy(), request.getDirection());
 		Pageable pageable = PageRequest.of(safePage, safeSize, sortSpec);
 
+		// The read permission is checked in the query so that the page is filled with readable galleries only
+		var readFilter = accessService.getReadFilter();
 		var pageResult = includeFiles
-						 ? galleryRepository.searchGalleries(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()), pageable)
-						 : galleryRepository.searchGalleriesWithoutFiles(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()), pageable);
+						 ? galleryRepository.searchGalleries(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()), readFilter, pageable)
+						 : galleryRepository.searchGalleriesWithoutFiles(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()), readFilter,
+																		 pageable);
 
 		var items = new ArrayList<GalleryResponse>();
 
+		if (includeFiles) {
+			populateGalleriesWithSiteFiles(pageResult.getContent());
+		} else {
+			populateGalleriesWithAcls(pageResult.getContent());
+		}
+
 		for (var gallery : pageResult.getContent()) {
-			if (accessService.hasReadPermission(gallery.getAclId())) {
-				if (includeFiles) {
-					populateGalleryWithSiteFiles(gallery, false);
-				} else {
-					populateGalleryWithAcls(gallery);
-				}
-				items.add(gallery.getResponse());
-			}
+			items.add(gallery.getResponse());
 		}
 
 		return PagedResponse.of(items, pageResult.getNumber(), pageResult.getSize(), pageResult.getTotalElements(),
 		                        pageResult.getTotalPages(), pageResult.isFirst(), pageResult.isLast());
 	}
 
-	private void populateGalleryWithAcls(Gallery gallery) {
-		gallery.setAcls(aclService.findAclByAclId(gallery.getAclId()));
+	private void populateGalleriesWithAcls(List<Gallery> galleries) {
+		if (galleries.isEmpty()) {
+			return;
+		}
+
+		var acls = aclPermissionRepository.findByAclIdIn(galleries.stream()
+		                                                          .map(Gallery::getAclId)
+		                                                          .distinct()
+		                                                          .toList())
+		                                  .stream()
+		                                  .collect(Collectors.groupingBy(Acl::getAclId));
+
+		for (var gallery : galleries) {
+			gallery.setAcls(new ArrayList<>(acls.getOrDefault(gallery.getAclId(), List.of())));
+		}
 	}
 
 	private Sort buildSort(String sort, Sort.Direction direction) {
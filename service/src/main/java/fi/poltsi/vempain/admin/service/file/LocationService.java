@@ -25,6 +25,25 @@ public class LocationService {
 											  return created;
 										  });
 
+		copyLocation(dto, entity);
+		return gpsLocationRepository.save(entity);
+	}
+
+	/**
+	 * Map the location without reading or writing the database, for files whose locations are written as a batch.
+	 */
+	public GpsLocation toEntity(LocationResponse dto) {
+		if (dto == null || dto.getId() == null) {
+			return null;
+		}
+
+		var entity = new GpsLocation();
+		entity.setId(dto.getId());
+		copyLocation(dto, entity);
+		return entity;
+	}
+
+	private static void copyLocation(LocationResponse dto, GpsLocation entity) {
 		entity.setLatitude(dto.getLatitude());
 		entity.setLatitudeRef(dto.getLatitudeRef());
 		entity.setLongitude(dto.getLongitude());
@@ -37,8 +56,6 @@ public class LocationService {
 		entity.setCity(dto.getCity());
 		entity.setStreet(dto.getStreet());
 		entity.setSubLocation(dto.getSubLocation());
-
-		return gpsLocationRepository.save(entity);
 	}
 }
 
@@ -0,0 +1,276 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.entity.file.GpsLocation;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Set-based writes of ingested files into the admin database. Each statement type is sent as a single JDBC batch instead of one
+ * round-trip per row, the writes join the JPA transaction of the caller.
+ */
+@Slf4j
+@Service
+public class SiteFileBatchService {
+	private static final String NEXT_ACL_IDS_SQL    = "SELECT nextval('acl_acl_id_seq') FROM generate_series(1, ?)";
+	private static final String INSERT_ACL_SQL      = """
+			INSERT INTO acl (acl_id, user_id, unit_id, read_privilege, modify_privilege, create_privilege, delete_privilege)
+			VALUES (?, ?, NULL, true, true, true, true)
+			""";
+	private static final String UPSERT_LOCATION_SQL = """
+			INSERT INTO gps_location (id, latitude, latitude_ref, longitude, longitude_ref, altitude, direction, satellite_count, country, state,
+			                          city, street, sub_location)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			ON CONFLICT (id) DO UPDATE
+			  SET latitude        = EXCLUDED.latitude,
+			      latitude_ref    = EXCLUDED.latitude_ref,
+			      longitude       = EXCLUDED.longitude,
+			      longitude_ref   = EXCLUDED.longitude_ref,
+			      altitude        = EXCLUDED.altitude,
+			      direction       = EXCLUDED.direction,
+			      satellite_count = EXCLUDED.satellite_count,
+			      country         = EXCLUDED.country,
+			      state           = EXCLUDED.state,
+			      city            = EXCLUDED.city,
+			      street          = EXCLUDED.street,
+			      sub_location    = EXCLUDED.sub_location
+			""";
+	private static final String INSERT_FILE_SQL     = """
+			INSERT INTO site_file (file_id, acl_id, file_name, file_path, mime_type, size, file_type, sha256sum, comment, metadata, width, height,
+			                       length, pages, original_datetime, rights_holder, rights_terms, rights_url, creator_name, creator_email,
+			                       creator_country, creator_url, location_id, locked, creator, created)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, ?, ?)
+			""";
+	private static final String UPDATE_FILE_SQL     = """
+			UPDATE site_file
+			SET file_name = ?, file_path = ?, mime_type = ?, size = ?, file_type = ?, sha256sum = ?, comment = ?, metadata = ?, width = ?, height = ?,
+			    length = ?, pages = ?, original_datetime = ?, rights_holder = ?, rights_terms = ?, rights_url = ?, creator_name = ?, creator_email = ?,
+			    creator_country = ?, creator_url = ?, location_id = ?, modifier = ?, modified = ?
+			WHERE id = ?
+			""";
+
+	private final JdbcTemplate adminJdbcTemplate;
+
+	public SiteFileBatchService(@Qualifier("adminDataSource") DataSource adminDataSource) {
+		this.adminJdbcTemplate = new JdbcTemplate(adminDataSource);
+	}
+
+	/**
+	 * Write the site files of an ingest batch. The locations of the files are upserted once each, the new files get their ACLs from one
+	 * block of reserved ACL IDs and are inserted with one batch, the existing files are updated with another.
+	 *
+	 * @param siteFiles Populated site files, those without an ID are inserted and the others are updated
+	 * @param userId    Owner of the ACLs of the new files
+	 * @return IDs of the site files in the same order as given
+	 */
+	@Transactional
+	public List<Long> upsertSiteFiles(List<SiteFile> siteFiles, long userId) {
+		if (siteFiles.isEmpty()) {
+			return List.of();
+		}
+
+		upsertLocations(siteFiles.stream()
+		                         .map(SiteFile::getLocation)
+		                         .toList());
+
+		var newSiteFiles = new ArrayList<SiteFile>();
+		var existingSiteFiles = new ArrayList<SiteFile>();
+
+		for (var siteFile : siteFiles) {
+			if (siteFile.getId() == null) {
+				newSiteFiles.add(siteFile);
+			} else {
+				existingSiteFiles.add(siteFile);
+			}
+		}
+
+		if (!newSiteFiles.isEmpty()) {
+			var aclIds = createAcls(newSiteFiles.size(), userId);
+
+			for (var i = 0; i < newSiteFiles.size(); i++) {
+				newSiteFiles.get(i)
+				            .setAclId(aclIds.get(i));
+			}
+
+			var siteFileIds = insertFiles(newSiteFiles);
+
+			for (var i = 0; i < newSiteFiles.size(); i++) {
+				newSiteFiles.get(i)
+				            .setId(siteFileIds.get(i));
+			}
+		}
+
+		if (!existingSiteFiles.isEmpty()) {
+			updateFiles(existingSiteFiles);
+		}
+
+		log.debug("Inserted {} and updated {} site files", newSiteFiles.size(), existingSiteFiles.size());
+		return siteFiles.stream()
+		                .map(SiteFile::getId)
+		                .toList();
+	}
+
+	/**
+	 * Reserve the ACL IDs with a single round-trip to the sequence and give each an ACL with all the privileges for the user.
+	 */
+	private List<Long> createAcls(int count, long userId) {
+		var aclIds = adminJdbcTemplate.queryForList(NEXT_ACL_IDS_SQL, Long.class, count);
+		var aclRows = new ArrayList<Object[]>(aclIds.size());
+
+		for (var aclId : aclIds) {
+			aclRows.add(new Object[]{aclId, userId});
+		}
+
+		adminJdbcTemplate.batchUpdate(INSERT_ACL_SQL, aclRows);
+		return aclIds;
+	}
+
+	private void upsertLocations(Collection<GpsLocation> locations) {
+		// The same location may be shared by several files, write each only once
+		var uniqueLocations = new LinkedHashMap<Long, GpsLocation>();
+
+		for (var location : locations) {
+			if (location != null && location.getId() != null) {
+				uniqueLocations.put(location.getId(), location);
+			}
+		}
+
+		if (uniqueLocations.isEmpty()) {
+			return;
+		}
+
+		var locationList = new ArrayList<>(uniqueLocations.values());
+		adminJdbcTemplate.batchUpdate(UPSERT_LOCATION_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				var location = locationList.get(i);
+				ps.setLong(1, location.getId());
+				ps.setBigDecimal(2, location.getLatitude());
+				ps.setString(3, toStringOrNull(location.getLatitudeRef()));
+				ps.setBigDecimal(4, location.getLongitude());
+				ps.setString(5, toStringOrNull(location.getLongitudeRef()));
+				ps.setObject(6, location.getAltitude(), Types.DOUBLE);
+				ps.setObject(7, location.getDirection(), Types.DOUBLE);
+				ps.setObject(8, location.getSatelliteCount(), Types.INTEGER);
+				ps.setString(9, location.getCountry());
+				ps.setString(10, location.getState());
+				ps.setString(11, location.getCity());
+				ps.setString(12, location.getStreet());
+				ps.setString(13, location.getSubLocation());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return locationList.size();
+			}
+		});
+	}
+
+	private List<Long> insertFiles(List<SiteFile> siteFiles) {
+		var keyHolder = new GeneratedKeyHolder();
+		adminJdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_FILE_SQL, new String[]{"id"}), new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				var siteFile = siteFiles.get(i);
+				ps.setLong(1, siteFile.getFileId());
+				ps.setLong(2, siteFile.getAclId());
+				var index = setFileColumns(ps, 3, siteFile);
+				ps.setLong(index, siteFile.getCreator());
+				ps.setObject(index + 1, toTimestamp(siteFile.getCreated()), Types.TIMESTAMP_WITH_TIMEZONE);
+			}
+
+			@Override
+			public int getBatchSize() {
+				return siteFiles.size();
+			}
+		}, keyHolder);
+
+		var ids = new ArrayList<Long>(siteFiles.size());
+
+		for (var keys : keyHolder.getKeyList()) {
+			ids.add(((Number) keys.get("id")).longValue());
+		}
+
+		if (ids.size() != siteFiles.size()) {
+			throw new IllegalStateException("Expected " + siteFiles.size() + " generated site file IDs, got " + ids.size());
+		}
+
+		return ids;
+	}
+
+	private void updateFiles(List<SiteFile> siteFiles) {
+		adminJdbcTemplate.batchUpdate(UPDATE_FILE_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				var siteFile = siteFiles.get(i);
+				var index = setFileColumns(ps, 1, siteFile);
+				ps.setObject(index, siteFile.getModifier(), Types.BIGINT);
+				ps.setObject(index + 1, toTimestamp(siteFile.getModified()), Types.TIMESTAMP_WITH_TIMEZONE);
+				ps.setLong(index + 2, siteFile.getId());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return siteFiles.size();
+			}
+		});
+	}
+
+	/**
+	 * Set the columns shared by the insert and the update, from file_name to location_id.
+	 *
+	 * @return Index of the next parameter
+	 */
+	private static int setFileColumns(PreparedStatement ps, int index, SiteFile siteFile) throws SQLException {
+		ps.setString(index, siteFile.getFileName());
+		ps.setString(index + 1, siteFile.getFilePath());
+		ps.setString(index + 2, siteFile.getMimeType());
+		ps.setLong(index + 3, siteFile.getSize());
+		ps.setString(index + 4, siteFile.getFileType()
+		                                .name());
+		ps.setString(index + 5, siteFile.getSha256sum());
+		ps.setString(index + 6, siteFile.getComment());
+		ps.setString(index + 7, siteFile.getMetadata());
+		ps.setObject(index + 8, siteFile.getWidth(), Types.BIGINT);
+		ps.setObject(index + 9, siteFile.getHeight(), Types.BIGINT);
+		ps.setObject(index + 10, siteFile.getLength() != null ? siteFile.getLength()
+		                                                                .toMillis() : null, Types.BIGINT);
+		ps.setObject(index + 11, siteFile.getPages(), Types.BIGINT);
+		ps.setObject(index + 12, toTimestamp(siteFile.getOriginalDateTime()), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setString(index + 13, siteFile.getRightsHolder());
+		ps.setString(index + 14, siteFile.getRightsTerms());
+		ps.setString(index + 15, siteFile.getRightsUrl());
+		ps.setString(index + 16, siteFile.getCreatorName());
+		ps.setString(index + 17, siteFile.getCreatorEmail());
+		ps.setString(index + 18, siteFile.getCreatorCountry());
+		ps.setString(index + 19, siteFile.getCreatorUrl());
+		ps.setObject(index + 20, siteFile.getLocation() != null ? siteFile.getLocation()
+		                                                                  .getId() : null, Types.BIGINT);
+		return index + 21;
+	}
+
+	// Bound as UTC like Hibernate binds an Instant
+	private static Object toTimestamp(Instant instant) {
+		return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+	}
+
+	private static String toStringOrNull(Character character) {
+		return character != null ? character.toString() : null;
+	}
+}
@@ -0,0 +1,158 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.api.response.file.ThumbQueueResponse;
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
+import fi.poltsi.vempain.admin.repository.file.ThumbQueueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Persistent queue of site files waiting for their thumb to be generated. Generating a thumb takes seconds per image, so instead of doing
+ * it while a gallery is saved the site files are only queued here, in the same transaction as the gallery, and the thumbs are generated
+ * by the workers of {@link fi.poltsi.vempain.admin.schedule.ThumbQueueSchedule}.
+ */
+@Slf4j
+@Service
+public class ThumbQueueService {
+	private final ThumbQueueRepository      thumbQueueRepository;
+	private final ApplicationEventPublisher applicationEventPublisher;
+	private final int                       maxAttempts;
+	private final Duration                  claimTimeout;
+	private final Duration                  retryDelay;
+
+	/**
+	 * Published when site files have been queued, the workers are started once the transaction queuing them has been committed.
+	 */
+	public record ThumbsQueuedEvent(int count) {
+	}
+
+	public ThumbQueueService(ThumbQueueRepository thumbQueueRepository,
+	                         ApplicationEventPublisher applicationEventPublisher,
+	                         @Value("${vempain.admin.file.thumb-queue.max-attempts}") int maxAttempts,
+	                         @Value("${vempain.admin.file.thumb-queue.claim-timeout-minutes}") long claimTimeoutMinutes,
+	                         @Value("${vempain.admin.file.thumb-queue.retry-delay-seconds}") long retryDelaySeconds) {
+		this.thumbQueueRepository      = thumbQueueRepository;
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.maxAttempts               = maxAttempts;
+		this.claimTimeout              = Duration.ofMinutes(claimTimeoutMinutes);
+		this.retryDelay                = Duration.ofSeconds(retryDelaySeconds);
+	}
+
+	/**
+	 * Queue the site files for thumb generation. A file which is already waiting is queued only once.
+	 *
+	 * @param siteFileIds IDs of the site files
+	 */
+	@Transactional(propagation = Propagation.REQUIRED)
+	public void enqueue(Collection<Long> siteFileIds) {
+		if (siteFileIds.isEmpty()) {
+			return;
+		}
+
+		var queued = thumbQueueRepository.enqueue(new LinkedHashSet<>(siteFileIds));
+		log.debug("Queued {} of {} site files for thumb generation", queued, siteFileIds.size());
+
+		if (queued > 0) {
+			applicationEventPublisher.publishEvent(new ThumbsQueuedEvent(queued));
+		}
+	}
+
+	/**
+	 * Claim the longest waiting files for a worker. A claim which has not been completed within the claim timeout, for example because
+	 * the application was stopped, is handed out again. A failed file is not claimed before its retry delay has passed.
+	 *
+	 * @param limit Maximum number of files to claim
+	 * @return Claimed queue entries
+	 */
+	@Transactional
+	public List<ThumbQueueEntry> claim(int limit) {
+		var now = Instant.now();
+		var entries = thumbQueueRepository.findClaimable(maxAttempts, now.minus(claimTimeout), now, limit);
+
+		for (var entry : entries) {
+			entry.setClaimedAt(now);
+			entry.setAttempts(entry.getAttempts() + 1);
+		}
+
+		return thumbQueueRepository.saveAll(entries);
+	}
+
+	/**
+	 * Claim the given files if they are waiting in the queue, for generating their thumbs right away instead of waiting for a worker. The
+	 * claim is committed in a transaction of its own so that the workers skip the files. Files already being processed by a worker are
+	 * not returned.
+	 *
+	 * @param siteFileIds IDs of the site files
+	 * @return Claimed queue entries
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public List<ThumbQueueEntry> claimSiteFiles(Collection<Long> siteFileIds) {
+		if (siteFileIds.isEmpty()) {
+			return List.of();
+		}
+
+		var now = Instant.now();
+		var entries = thumbQueueRepository.findClaimableBySiteFileIds(siteFileIds, maxAttempts, now.minus(claimTimeout));
+
+		for (var entry : entries) {
+			entry.setClaimedAt(now);
+			entry.setAttempts(entry.getAttempts() + 1);
+		}
+
+		return thumbQueueRepository.saveAll(entries);
+	}
+
+	/**
+	 * Remove the file from the queue once its thumb has been generated, unless it was queued again meanwhile.
+	 */
+	@Transactional
+	public void complete(ThumbQueueEntry entry) {
+		if (thumbQueueRepository.deleteBySiteFileIdAndRevision(entry.getSiteFileId(), entry.getRevision()) == 0) {
+			log.debug("Site file {} was queued again during thumb generation", entry.getSiteFileId());
+			thumbQueueRepository.release(entry.getSiteFileId());
+		}
+	}
+
+	/**
+	 * Return the file to the queue after a failed attempt. The file is retried once the retry delay, doubled after each failed attempt,
+	 * has passed. Once the maximum number of attempts is reached the file stays in the queue as failed until it is queued again.
+	 */
+	@Transactional
+	public void fail(ThumbQueueEntry entry, String error) {
+		var notBefore = Instant.now()
+		                       .plus(retryDelay.multipliedBy(1L << Math.clamp(entry.getAttempts() - 1, 0, 16)));
+
+		if (thumbQueueRepository.release(entry.getSiteFileId(), entry.getRevision(), error, notBefore) == 0) {
+			thumbQueueRepository.release(entry.getSiteFileId());
+		}
+	}
+
+	/**
+	 * Number of files waiting for a worker.
+	 */
+	public long getPendingCount() {
+		return thumbQueueRepository.countPending(maxAttempts, Instant.now()
+		                                                          .minus(claimTimeout));
+	}
+
+	public ThumbQueueResponse getBacklog() {
+		var staleBefore = Instant.now()
+		                         .minus(claimTimeout);
+		return ThumbQueueResponse.builder()
+		                         .pending(thumbQueueRepository.countPending(maxAttempts, staleBefore))
+		                         .processing(thumbQueueRepository.countProcessing(staleBefore))
+		                         .failed(thumbQueueRepository.countFailed(maxAttempts, staleBefore))
+		                         .oldestQueued(thumbQueueRepository.findOldestQueuedAt(maxAttempts))
+		                         .build();
+	}
+}
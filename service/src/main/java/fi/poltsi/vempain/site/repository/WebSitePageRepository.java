@@ -5,12 +5,8 @@ import org.jspecify.annotations.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -22,16 +18,6 @@ public interface WebSitePageRepository extends PagingAndSortingRepository<WebSit
 
 	void deletePageById(long id);
 
-	@Transactional
-	@Modifying
-	@Query(value = "UPDATE web_site_page SET cache = NULL WHERE true", nativeQuery = true)
-	void resetCache();
-
-	@Transactional
-	@Modifying
-	@Query(value = "UPDATE web_site_page SET cache = NULL WHERE id = :pageId", nativeQuery = true)
-	void resetCacheByPageId(@Param("pageId") long pageId);
-
 	@NonNull
 	Page<WebSitePage> findAll(@NonNull Pageable pageable);
 
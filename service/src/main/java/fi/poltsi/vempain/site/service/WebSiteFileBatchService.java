@@ -0,0 +1,227 @@
+package fi.poltsi.vempain.site.service;
+
+import fi.poltsi.vempain.site.entity.WebGpsLocation;
+import fi.poltsi.vempain.site.entity.WebSiteFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Set-based writes of published files into the site database. Each statement type is sent as a single JDBC batch
+ * instead of one round-trip per row.
+ */
+@Slf4j
+@Service
+public class WebSiteFileBatchService {
+	private static final String DELETE_FILES_SQL = "DELETE FROM web_site_file WHERE file_id = ANY(?)";
+	private static final String UPSERT_LOCATION_SQL = """
+			INSERT INTO web_gps_location (id, latitude, latitude_ref, longitude, longitude_ref, altitude, direction, satellite_count,
+			                              country, state, city, street, sub_location)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			ON CONFLICT (id) DO UPDATE
+			  SET latitude        = EXCLUDED.latitude,
+			      latitude_ref    = EXCLUDED.latitude_ref,
+			      longitude       = EXCLUDED.longitude,
+			      longitude_ref   = EXCLUDED.longitude_ref,
+			      altitude        = EXCLUDED.altitude,
+			      direction       = EXCLUDED.direction,
+			      satellite_count = EXCLUDED.satellite_count,
+			      country         = EXCLUDED.country,
+			      state           = EXCLUDED.state,
+			      city            = EXCLUDED.city,
+			      street          = EXCLUDED.street,
+			      sub_location    = EXCLUDED.sub_location
+			""";
+	private static final String INSERT_FILE_SQL = """
+			INSERT INTO web_site_file (file_id, acl_id, comment, file_path, mimetype, file_type, original_datetime, rights_holder,
+			                           rights_terms, rights_url, creator_name, creator_email, creator_country, creator_url, location_id,
+			                           width, height, length, pages, metadata, thumbnail_path)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			""";
+	private static final String INSERT_GALLERY_FILE_SQL = "INSERT INTO web_site_gallery_file (gallery_id, file_id, sort_order) VALUES (?, ?, ?)";
+	private static final String INSERT_FILE_SUBJECT_SQL = "INSERT INTO web_site_file_subject (file_id, subject_id) VALUES (?, ?)";
+
+	private final JdbcTemplate siteJdbcTemplate;
+
+	public WebSiteFileBatchService(@Qualifier("siteDataSource") DataSource siteDataSource) {
+		this.siteJdbcTemplate = new JdbcTemplate(siteDataSource);
+	}
+
+	/**
+	 * A single file of a gallery to be written to the site database.
+	 *
+	 * @param webSiteFile    The file, the location (if any) is upserted as well
+	 * @param sortOrder      Position of the file in the gallery
+	 * @param siteSubjectIds Site-side subject IDs to link to the file
+	 */
+	public record GalleryFileEntry(WebSiteFile webSiteFile, long sortOrder, List<Long> siteSubjectIds) {
+	}
+
+	/**
+	 * Replace the site files of a gallery in one site transaction. Any existing web site file with the same admin file ID is removed
+	 * first, then locations, files, gallery - file relations and file - subject relations are written as batches.
+	 *
+	 * @param siteGalleryId ID of the web site gallery the files are attached to
+	 * @param entries       Files in gallery order
+	 * @return Generated web site file IDs in the same order as the entries
+	 */
+	@Transactional(transactionManager = "siteTransactionManager")
+	public List<Long> replaceGalleryFiles(long siteGalleryId, List<GalleryFileEntry> entries) {
+		if (entries.isEmpty()) {
+			return List.of();
+		}
+
+		deleteFilesByFileIds(entries.stream()
+		                            .map(entry -> entry.webSiteFile()
+		                                               .getFileId())
+		                            .toList());
+		upsertLocations(entries.stream()
+		                       .map(entry -> entry.webSiteFile()
+		                                          .getLocation())
+		                       .toList());
+		var webSiteFileIds = insertFiles(entries.stream()
+		                                        .map(GalleryFileEntry::webSiteFile)
+		                                        .toList());
+
+		var galleryFileRows = new ArrayList<Object[]>(entries.size());
+		var fileSubjectRows = new ArrayList<Object[]>();
+
+		for (int i = 0; i < entries.size(); i++) {
+			var entry = entries.get(i);
+			var webSiteFileId = webSiteFileIds.get(i);
+			galleryFileRows.add(new Object[]{siteGalleryId, webSiteFileId, entry.sortOrder()});
+
+			if (entry.siteSubjectIds() != null) {
+				for (var siteSubjectId : entry.siteSubjectIds()) {
+					fileSubjectRows.add(new Object[]{webSiteFileId, siteSubjectId});
+				}
+			}
+		}
+
+		siteJdbcTemplate.batchUpdate(INSERT_GALLERY_FILE_SQL, galleryFileRows);
+
+		if (!fileSubjectRows.isEmpty()) {
+			siteJdbcTemplate.batchUpdate(INSERT_FILE_SUBJECT_SQL, fileSubjectRows);
+		}
+
+		log.debug("Wrote {} files, {} gallery relations and {} subject relations for site gallery {}", webSiteFileIds.size(),
+		          galleryFileRows.size(), fileSubjectRows.size(), siteGalleryId);
+		return webSiteFileIds;
+	}
+
+	private void deleteFilesByFileIds(Collection<Long> fileIds) {
+		var deleted = siteJdbcTemplate.update(DELETE_FILES_SQL, ps -> ps.setArray(1, ps.getConnection()
+		                                                                               .createArrayOf("bigint", fileIds.toArray())));
+		log.debug("Removed {} existing web site files", deleted);
+	}
+
+	private void upsertLocations(Collection<WebGpsLocation> locations) {
+		// The same location may be shared by several files, write each only once
+		var uniqueLocations = new LinkedHashMap<Long, WebGpsLocation>();
+
+		for (var location : locations) {
+			if (location != null && location.getId() != null) {
+				uniqueLocations.put(location.getId(), location);
+			}
+		}
+
+		if (uniqueLocations.isEmpty()) {
+			return;
+		}
+
+		var locationList = new ArrayList<>(uniqueLocations.values());
+		siteJdbcTemplate.batchUpdate(UPSERT_LOCATION_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				var location = locationList.get(i);
+				ps.setLong(1, location.getId());
+				ps.setBigDecimal(2, location.getLatitude());
+				ps.setString(3, toStringOrNull(location.getLatitudeRef()));
+				ps.setBigDecimal(4, location.getLongitude());
+				ps.setString(5, toStringOrNull(location.getLongitudeRef()));
+				ps.setObject(6, location.getAltitude(), Types.DOUBLE);
+				ps.setObject(7, location.getDirection(), Types.DOUBLE);
+				ps.setObject(8, location.getSatelliteCount(), Types.INTEGER);
+				ps.setString(9, location.getCountry());
+				ps.setString(10, location.getState());
+				ps.setString(11, location.getCity());
+				ps.setString(12, location.getStreet());
+				ps.setString(13, location.getSubLocation());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return locationList.size();
+			}
+		});
+	}
+
+	private List<Long> insertFiles(List<WebSiteFile> webSiteFiles) {
+		var keyHolder = new GeneratedKeyHolder();
+		siteJdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_FILE_SQL, new String[]{"id"}), new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				var webSiteFile = webSiteFiles.get(i);
+				ps.setLong(1, webSiteFile.getFileId());
+				ps.setLong(2, webSiteFile.getAclId());
+				ps.setString(3, webSiteFile.getComment());
+				ps.setString(4, webSiteFile.getFilePath());
+				ps.setString(5, webSiteFile.getMimetype());
+				ps.setString(6, webSiteFile.getFileType()
+				                           .name());
+				ps.setTimestamp(7, webSiteFile.getOriginalDateTime() != null ? Timestamp.from(webSiteFile.getOriginalDateTime()) : null);
+				ps.setString(8, webSiteFile.getRightsHolder());
+				ps.setString(9, webSiteFile.getRightsTerms());
+				ps.setString(10, webSiteFile.getRightsUrl());
+				ps.setString(11, webSiteFile.getCreatorName());
+				ps.setString(12, webSiteFile.getCreatorEmail());
+				ps.setString(13, webSiteFile.getCreatorCountry());
+				ps.setString(14, webSiteFile.getCreatorUrl());
+				ps.setObject(15, webSiteFile.getLocation() != null ? webSiteFile.getLocation()
+				                                                                .getId() : null, Types.BIGINT);
+				ps.setObject(16, webSiteFile.getWidth(), Types.BIGINT);
+				ps.setObject(17, webSiteFile.getHeight(), Types.BIGINT);
+				ps.setObject(18, webSiteFile.getLength() != null ? webSiteFile.getLength()
+				                                                              .toMillis() : null, Types.BIGINT);
+				ps.setObject(19, webSiteFile.getPages(), Types.BIGINT);
+				ps.setString(20, webSiteFile.getMetadata());
+				ps.setString(21, webSiteFile.getThumbnailPath());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return webSiteFiles.size();
+			}
+		}, keyHolder);
+
+		var ids = new ArrayList<Long>(webSiteFiles.size());
+
+		for (var keys : keyHolder.getKeyList()) {
+			ids.add(((Number) keys.get("id")).longValue());
+		}
+
+		if (ids.size() != webSiteFiles.size()) {
+			throw new IllegalStateException("Expected " + webSiteFiles.size() + " generated web site file IDs, got " + ids.size());
+		}
+
+		return ids;
+	}
+
+	private static String toStringOrNull(Character character) {
+		return character != null ? character.toString() : null;
+	}
+}
@@ -0,0 +1,144 @@
+package fi.poltsi.vempain.site.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps track of what each published page embeds, so that when an embedded gallery or data set is published only the cache of the pages
+ * showing it needs to be cleared instead of the cache of the whole site.
+ */
+@Slf4j
+@Service
+public class WebSitePageDependencyService {
+	private static final String DELETE_DEPENDENCIES_SQL = "DELETE FROM web_site_page_dependency WHERE page_id = ?";
+	private static final String INSERT_DEPENDENCY_SQL   = """
+			INSERT INTO web_site_page_dependency (page_id, dependency_type, dependency_id)
+			VALUES (?, ?, ?)
+			ON CONFLICT DO NOTHING
+			""";
+	private static final String FIND_PAGE_IDS_SQL       = """
+			SELECT page_id
+			FROM web_site_page_dependency
+			WHERE dependency_type = ?
+			  AND dependency_id = ANY(?)
+			""";
+	private static final String RESET_CACHE_SQL         = """
+			UPDATE web_site_page
+			SET cache = NULL
+			WHERE (id = ANY(?) OR page_id = ANY(?) OR id = ?)
+			  AND cache IS NOT NULL
+			""";
+
+	private final JdbcTemplate siteJdbcTemplate;
+	private final long         frontPageId;
+
+	public WebSitePageDependencyService(@Qualifier("siteDataSource") DataSource siteDataSource,
+	                                    @Value("${vempain.site.front-page-id}") long frontPageId) {
+		this.siteJdbcTemplate = new JdbcTemplate(siteDataSource);
+		this.frontPageId      = frontPageId;
+	}
+
+	// Components are rendered into the page body when the page is published, so they are no dependency of the cached page
+	public enum DependencyType {
+		GALLERY,
+		DATA
+	}
+
+	/**
+	 * Something a published page embeds.
+	 *
+	 * @param type         Type of the embedded item
+	 * @param dependencyId ID of a gallery or the identifier of a data set
+	 */
+	public record Dependency(DependencyType type, String dependencyId) {
+	}
+
+	/**
+	 * Replace the recorded dependencies of a published page.
+	 *
+	 * @param sitePageId   ID of the web site page
+	 * @param dependencies Everything the page embeds
+	 */
+	@Transactional(transactionManager = "siteTransactionManager")
+	public void replaceDependencies(long sitePageId, Collection<Dependency> dependencies) {
+		siteJdbcTemplate.update(DELETE_DEPENDENCIES_SQL, sitePageId);
+
+		if (dependencies.isEmpty()) {
+			return;
+		}
+
+		var rows = new ArrayList<Object[]>(dependencies.size());
+
+		for (var dependency : dependencies) {
+			rows.add(new Object[]{sitePageId, dependency.type()
+			                                            .name(), dependency.dependencyId()});
+		}
+
+		siteJdbcTemplate.batchUpdate(INSERT_DEPENDENCY_SQL, rows);
+		log.debug("Recorded {} dependencies for site page {}", rows.size(), sitePageId);
+	}
+
+	/**
+	 * Clear the cache of the pages embedding any of the given items, as well as the cache of the front page.
+	 *
+	 * @param type          Type of the items
+	 * @param dependencyIds IDs of the items
+	 * @return Number of pages of which the cache was cleared
+	 */
+	public int resetCacheOfDependentPages(DependencyType type, Collection<String> dependencyIds) {
+		var sitePageIds = new ArrayList<Long>();
+
+		if (!dependencyIds.isEmpty()) {
+			siteJdbcTemplate.query(FIND_PAGE_IDS_SQL,
+			                       ps -> {
+				                       ps.setString(1, type.name());
+				                       ps.setArray(2, ps.getConnection()
+				                                        .createArrayOf("varchar", dependencyIds.toArray()));
+			                       },
+			                       rs -> {
+				                       sitePageIds.add(rs.getLong("page_id"));
+			                       });
+		}
+
+		return resetCache(sitePageIds);
+	}
+
+	/**
+	 * Clear the cache of the given pages, as well as the cache of the front page which lists the latest changes on the site.
+	 *
+	 * @param sitePageIds IDs of the web site pages
+	 * @return Number of pages of which the cache was cleared
+	 */
+	public int resetCache(List<Long> sitePageIds) {
+		return resetCache(sitePageIds, List.of());
+	}
+
+	/**
+	 * Clear the cache of the given pages and of the pages published from the given admin pages, as well as the cache of the front page.
+	 * The admin pages are the parents of a published page, as an index page lists its child pages.
+	 *
+	 * @param sitePageIds  IDs of the web site pages
+	 * @param adminPageIds Admin page IDs of further pages
+	 * @return Number of pages of which the cache was cleared
+	 */
+	public int resetCache(List<Long> sitePageIds, Collection<Long> adminPageIds) {
+		var resetCount = siteJdbcTemplate.update(RESET_CACHE_SQL, ps -> {
+			ps.setArray(1, ps.getConnection()
+			                 .createArrayOf("bigint", sitePageIds.toArray()));
+			ps.setArray(2, ps.getConnection()
+			                 .createArrayOf("bigint", adminPageIds.toArray()));
+			ps.setLong(3, frontPageId);
+		});
+		log.debug("Cleared the cache of {} site pages", resetCount);
+		return resetCount;
+	}
+}
@@ -0,0 +1,82 @@
+package fi.poltsi.vempain.site.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of what has been uploaded to the site-server, so that unchanged files do not need to be transferred again.
+ */
+@Slf4j
+@Service
+public class WebSitePublishManifestService {
+	private static final String UPSERT_SQL = """
+			INSERT INTO web_site_publish_manifest (remote_path, file_id, checksum, size, uploaded)
+			VALUES (?, ?, ?, ?, ?)
+			ON CONFLICT (remote_path) DO UPDATE
+			  SET file_id  = EXCLUDED.file_id,
+			      checksum = EXCLUDED.checksum,
+			      size     = EXCLUDED.size,
+			      uploaded = EXCLUDED.uploaded
+			""";
+
+	private final JdbcTemplate siteJdbcTemplate;
+
+	public WebSitePublishManifestService(@Qualifier("siteDataSource") DataSource siteDataSource) {
+		this.siteJdbcTemplate = new JdbcTemplate(siteDataSource);
+	}
+
+	/**
+	 * A file uploaded to the site-server.
+	 *
+	 * @param remotePath Absolute path of the file on the site-server
+	 * @param fileId     ID of the site file on the admin-side the file belongs to
+	 * @param checksum   Checksum of the file at the time of the upload
+	 * @param size       Size of the file in bytes
+	 */
+	public record ManifestEntry(String remotePath, long fileId, String checksum, long size) {
+	}
+
+	public Map<String, ManifestEntry> findByRemotePaths(Collection<String> remotePaths) {
+		var entries = new HashMap<String, ManifestEntry>();
+
+		if (remotePaths.isEmpty()) {
+			return entries;
+		}
+
+		siteJdbcTemplate.query("SELECT remote_path, file_id, checksum, size FROM web_site_publish_manifest WHERE remote_path = ANY(?)",
+		                       ps -> ps.setArray(1, ps.getConnection()
+		                                              .createArrayOf("varchar", remotePaths.toArray())),
+		                       rs -> {
+			                       var entry = new ManifestEntry(rs.getString("remote_path"), rs.getLong("file_id"), rs.getString("checksum"),
+			                                                     rs.getLong("size"));
+			                       entries.put(entry.remotePath(), entry);
+		                       });
+		return entries;
+	}
+
+	public void saveAll(Collection<ManifestEntry> entries) {
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		var uploaded = Timestamp.from(Instant.now());
+		var rows = new ArrayList<Object[]>(entries.size());
+
+		for (var entry : entries) {
+			rows.add(new Object[]{entry.remotePath(), entry.fileId(), entry.checksum(), entry.size(), uploaded});
+		}
+
+		siteJdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+		log.debug("Recorded {} uploaded files in the publish manifest", rows.size());
+	}
+}
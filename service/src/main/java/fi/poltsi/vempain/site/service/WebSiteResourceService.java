@@ -273,6 +273,30 @@ public class WebSiteResourceService {
 		return nextAcl;
 	}
 
+	/**
+	 * Reserve a block of web site ACL IDs with a single round-trip to the sequence.
+	 *
+	 * @param count number of ACL IDs to reserve
+	 * @return list of reserved ACL IDs, in allocation order
+	 */
+	public List<Long> getNextWebSiteAcls(int count) {
+		if (count < 1) {
+			return List.of();
+		}
+
+		List<?> rows = siteEntityManager.createNativeQuery("SELECT nextval('web_site_acl_id_seq') FROM generate_series(1, :count)")
+		                                .setParameter("count", count)
+		                                .getResultList();
+		var aclIds = new ArrayList<Long>(rows.size());
+
+		for (var row : rows) {
+			aclIds.add(((Number) row).longValue());
+		}
+
+		log.debug("Reserved {} web site ACL IDs", aclIds.size());
+		return aclIds;
+	}
+
 	private PagedResponse<WebSiteResourceResponse> listAllResourceTypes(String query, Long aclId, Sort sortSpec, int safePage, int safeSize) {
 		var requiredLong = (long) (safePage + 1) * safeSize;
 
@@ -0,0 +1,190 @@
+package fi.poltsi.vempain.tools;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pool of long-lived exiftool processes started with {@code -stay_open True -@ -}. Starting exiftool takes a large part of a second as
+ * the whole Perl interpreter is loaded, so instead of a new process per file the commands are written to the standard input of an
+ * already running process and its output is read up to the {@code {ready}} line printed after each command.
+ * <p>
+ * A process is started when it is first needed, at most {@code vempain.cmd-line.exiftool-pool.size} of them. A process which dies or
+ * does not finish a command within {@code vempain.cmd-line.exiftool-pool.timeout-seconds} is killed and replaced with a new one on the
+ * next command.
+ */
+@Slf4j
+@Component
+public class ExifToolPool {
+	private final String                          exifToolPath;
+	private final Duration                        timeout;
+	private final Semaphore                       processPermits;
+	private final BlockingQueue<ExifToolProcess> idleProcesses = new LinkedBlockingQueue<>();
+	private final ScheduledExecutorService        watchdog;
+
+	public ExifToolPool(@Value("${vempain.cmd-line.exiftool}") String exifToolPath,
+	                    @Value("${vempain.cmd-line.exiftool-pool.size}") int poolSize,
+	                    @Value("${vempain.cmd-line.exiftool-pool.timeout-seconds}") long timeoutSeconds) {
+		this.exifToolPath   = exifToolPath;
+		this.timeout        = Duration.ofSeconds(timeoutSeconds);
+		this.processPermits = new Semaphore(Math.max(1, poolSize), true);
+		this.watchdog       = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+		                                                                  .name("exiftool-watchdog")
+		                                                                  .daemon(true)
+		                                                                  .factory());
+	}
+
+	/**
+	 * Run exiftool with the given arguments.
+	 *
+	 * @param arguments Command line arguments, one argument per element
+	 * @return Standard output of the command
+	 * @throws IOException      If the process could not be started or it died, a died process is retried once with a new process
+	 * @throws TimeoutException If the command did not finish within the timeout
+	 */
+	public String execute(List<String> arguments) throws IOException, TimeoutException, InterruptedException {
+		processPermits.acquire();
+
+		try {
+			try {
+				return executeOnce(arguments);
+			} catch (ProcessDiedException e) {
+				// An idle process may have been killed from the outside, the command itself is not necessarily at fault
+				log.warn("exiftool process died, retrying with a new one: {}", e.getMessage());
+				return executeOnce(arguments);
+			}
+		} finally {
+			processPermits.release();
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		ExifToolProcess process;
+
+		while ((process = idleProcesses.poll()) != null) {
+			process.close();
+		}
+
+		watchdog.shutdownNow();
+	}
+
+	private String executeOnce(List<String> arguments) throws IOException, TimeoutException {
+		var process = idleProcesses.poll();
+
+		if (process == null) {
+			process = new ExifToolProcess(exifToolPath);
+		}
+
+		try {
+			var output = process.execute(arguments);
+			idleProcesses.offer(process);
+			return output;
+		} catch (IOException | TimeoutException | RuntimeException e) {
+			process.destroy();
+			throw e;
+		}
+	}
+
+	private static class ProcessDiedException extends IOException {
+		private ProcessDiedException(String message) {
+			super(message);
+		}
+	}
+
+	private final class ExifToolProcess {
+		private final Process        process;
+		private final BufferedWriter writer;
+		private final BufferedReader reader;
+		private       long           sequence;
+
+		private ExifToolProcess(String exifToolPath) throws IOException {
+			this.process = new ProcessBuilder(exifToolPath, "-stay_open", "True", "-@", "-").redirectError(ProcessBuilder.Redirect.DISCARD)
+			                                                                             .start();
+			this.writer  = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			this.reader  = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			log.debug("Started exiftool process {}", process.pid());
+		}
+
+		private String execute(List<String> arguments) throws IOException, TimeoutException {
+			var readyLine = "{ready" + ++sequence + "}";
+			// A hung command is only interrupted by killing the process, which also ends the blocking read below
+			var timeoutTask = watchdog.schedule(process::destroyForcibly, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+			try {
+				for (var argument : arguments) {
+					writer.write(argument);
+					writer.newLine();
+				}
+
+				writer.write("-execute" + sequence);
+				writer.newLine();
+				writer.flush();
+
+				var output = new StringBuilder();
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					if (line.equals(readyLine)) {
+						return output.toString();
+					}
+
+					output.append(line);
+				}
+			} catch (IOException e) {
+				if (!timeoutTask.isDone()) {
+					throw new ProcessDiedException(e.getMessage());
+				}
+			} finally {
+				timeoutTask.cancel(false);
+			}
+
+			if (timeoutTask.isDone() && !timeoutTask.isCancelled()) {
+				throw new TimeoutException("exiftool did not finish within " + timeout.toSeconds() + " seconds");
+			}
+
+			throw new ProcessDiedException("exiftool process " + process.pid() + " exited unexpectedly");
+		}
+
+		private void close() {
+			try {
+				writer.write("-stay_open");
+				writer.newLine();
+				writer.write("False");
+				writer.newLine();
+				writer.flush();
+
+				if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch (IOException e) {
+				process.destroyForcibly();
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread()
+				      .interrupt();
+			}
+		}
+
+		private void destroy() {
+			process.destroyForcibly();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package fi.poltsi.vempain.tools;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes a small subset of EXIF tags through the ImageIO JPEG metadata tree, so that the most important tags can be kept in
+ * resized images without running exiftool. Only the text tags of the main image directory are supported, together with the orientation.
+ */
+@Slf4j
+@UtilityClass
+public class ExifTools {
+	public static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+	// Orientation of an image whose pixels are already rotated upright
+	public static final int    ORIENTATION_UPRIGHT  = 1;
+
+	private static final int    APP1_MARKER      = 0xE1;
+	private static final byte[] EXIF_HEADER      = {'E', 'x', 'i', 'f', 0, 0};
+	private static final int    TYPE_ASCII       = 2;
+	private static final int    TYPE_SHORT       = 3;
+	private static final int    ORIENTATION_TAG  = 0x0112;
+	private static final int    ENTRY_SIZE       = 12;
+	// Tags which can be copied by name, all of them are text tags of the main image directory
+	private static final Map<String, Integer> TEXT_TAGS = Map.of("ImageDescription", 0x010E,
+	                                                             "Make", 0x010F,
+	                                                             "Model", 0x0110,
+	                                                             "Software", 0x0131,
+	                                                             "DateTime", 0x0132,
+	                                                             "Artist", 0x013B,
+	                                                             "Copyright", 0x8298);
+
+	/**
+	 * Look up the tag numbers of the given tag names, unsupported names are ignored.
+	 */
+	public static Map<String, Integer> textTagNumbers(Collection<String> tagNames) {
+		var tagNumbers = new LinkedHashMap<String, Integer>();
+
+		for (var tagName : tagNames) {
+			var tagNumber = TEXT_TAGS.get(tagName.strip());
+
+			if (tagNumber != null) {
+				tagNumbers.put(tagName.strip(), tagNumber);
+			} else if (!tagName.isBlank()) {
+				log.warn("EXIF tag {} can not be copied without exiftool, supported tags are {}", tagName, TEXT_TAGS.keySet());
+			}
+		}
+
+		return tagNumbers;
+	}
+
+	/**
+	 * Read the given text tags from the EXIF block of a JPEG image.
+	 *
+	 * @param metadata   Image metadata as read by the JPEG reader
+	 * @param tagNumbers Tags to read
+	 * @return Tag values by tag number, empty if the image has no EXIF block
+	 */
+	public static Map<Integer, String> readTextTags(IIOMetadata metadata, Collection<Integer> tagNumbers) {
+		var tags = new TreeMap<Integer, String>();
+
+		if (metadata == null || tagNumbers.isEmpty() || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+			return tags;
+		}
+
+		var root = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT);
+		var markers = root.getElementsByTagName("unknown");
+
+		for (var i = 0; i < markers.getLength(); i++) {
+			var marker = (IIOMetadataNode) markers.item(i);
+
+			if (Integer.parseInt(marker.getAttribute("MarkerTag")) == APP1_MARKER && marker.getUserObject() instanceof byte[] data && isExif(data)) {
+				try {
+					readTextTags(ByteBuffer.wrap(data, EXIF_HEADER.length, data.length - EXIF_HEADER.length)
+					                       .slice(), tagNumbers, tags);
+				} catch (RuntimeException e) {
+					log.warn("Ignoring malformed EXIF block: {}", e.getMessage());
+				}
+
+				break;
+			}
+		}
+
+		return tags;
+	}
+
+	/**
+	 * Add an EXIF block with the given text tags and orientation to the metadata of a JPEG image being written.
+	 *
+	 * @param metadata    Image metadata given to the JPEG writer
+	 * @param tags        Text tag values by tag number
+	 * @param orientation EXIF orientation of the written pixels
+	 */
+	public static void writeExif(IIOMetadata metadata, Map<Integer, String> tags, int orientation) throws IIOInvalidTreeException {
+		var root = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT);
+		var markerSequence = (IIOMetadataNode) root.getElementsByTagName("markerSequence")
+		                                           .item(0);
+		var app1 = new IIOMetadataNode("unknown");
+		app1.setAttribute("MarkerTag", String.valueOf(APP1_MARKER));
+		app1.setUserObject(exifBlock(tags, orientation));
+		// The JFIF segment written by default stays first, the EXIF block follows it before any other marker
+		markerSequence.insertBefore(app1, markerSequence.getFirstChild());
+		metadata.setFromTree(JPEG_METADATA_FORMAT, root);
+	}
+
+	static byte[] exifBlock(Map<Integer, String> tags, int orientation) {
+		var sortedTags = new TreeMap<>(tags);
+		var entryCount = sortedTags.size() + 1;
+		// Header, entry count, entries and the offset of the next directory, followed by the values not fitting in their entry
+		var valueOffset = 8 + 2 + entryCount * ENTRY_SIZE + 4;
+		var valuesSize = 0;
+
+		for (var value : sortedTags.values()) {
+			var length = value.getBytes(StandardCharsets.UTF_8).length + 1;
+			valuesSize += length > 4 ? length : 0;
+		}
+
+		var buffer = ByteBuffer.allocate(EXIF_HEADER.length + valueOffset + valuesSize)
+		                       .order(ByteOrder.BIG_ENDIAN);
+		buffer.put(EXIF_HEADER);
+		var tiff = buffer.slice()
+		                 .order(ByteOrder.BIG_ENDIAN);
+		tiff.put((byte) 'M')
+		    .put((byte) 'M')
+		    .putShort((short) 42)
+		    .putInt(8)
+		    .putShort((short) entryCount);
+		var orientationWritten = false;
+
+		for (var tag : sortedTags.entrySet()) {
+			if (!orientationWritten && tag.getKey() > ORIENTATION_TAG) {
+				putOrientation(tiff, orientation);
+				orientationWritten = true;
+			}
+
+			// Text is written as UTF-8 like most tools do, the terminating zero is added by the copy
+			var text = tag.getValue()
+			              .getBytes(StandardCharsets.UTF_8);
+			var value = Arrays.copyOf(text, text.length + 1);
+			tiff.putShort(tag.getKey()
+			                 .shortValue())
+			    .putShort((short) TYPE_ASCII)
+			    .putInt(value.length);
+
+			if (value.length <= 4) {
+				tiff.put(Arrays.copyOf(value, 4));
+			} else {
+				tiff.putInt(valueOffset);
+				tiff.put(valueOffset, value);
+				valueOffset += value.length;
+			}
+		}
+
+		if (!orientationWritten) {
+			putOrientation(tiff, orientation);
+		}
+
+		tiff.putInt(0);
+		return buffer.array();
+	}
+
+	private static void putOrientation(ByteBuffer tiff, int orientation) {
+		tiff.putShort((short) ORIENTATION_TAG)
+		    .putShort((short) TYPE_SHORT)
+		    .putInt(1)
+		    .putShort((short) orientation)
+		    .putShort((short) 0);
+	}
+
+	private static void readTextTags(ByteBuffer tiff, Collection<Integer> tagNumbers, Map<Integer, String> tags) {
+		tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		var directoryOffset = tiff.getInt(4);
+		var entryCount = Short.toUnsignedInt(tiff.getShort(directoryOffset));
+
+		for (var i = 0; i < entryCount; i++) {
+			var entryOffset = directoryOffset + 2 + i * ENTRY_SIZE;
+			var tag = Short.toUnsignedInt(tiff.getShort(entryOffset));
+			var type = Short.toUnsignedInt(tiff.getShort(entryOffset + 2));
+			var count = tiff.getInt(entryOffset + 4);
+
+			if (type != TYPE_ASCII || !tagNumbers.contains(tag) || count < 1) {
+				continue;
+			}
+
+			var valueOffset = count <= 4 ? entryOffset + 8 : tiff.getInt(entryOffset + 8);
+			var value = new byte[count];
+			tiff.get(valueOffset, value);
+			var text = new String(value, StandardCharsets.UTF_8);
+			var end = text.indexOf('\0');
+			tags.put(tag, end >= 0 ? text.substring(0, end) : text);
+		}
+	}
+
+	private static boolean isExif(byte[] data) {
+		return data.length > EXIF_HEADER.length && Arrays.equals(data, 0, EXIF_HEADER.length, EXIF_HEADER, 0, EXIF_HEADER.length);
+	}
+}
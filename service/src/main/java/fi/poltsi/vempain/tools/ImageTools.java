@@ -1,35 +1,195 @@
 package fi.poltsi.vempain.tools;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
-import org.springframework.beans.factory.annotation.Autowired;
+import net.coobird.thumbnailator.util.exif.ExifFilterUtils;
+import net.coobird.thumbnailator.util.exif.ExifUtils;
+import net.coobird.thumbnailator.util.exif.Orientation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ImageTools {
 	private static final String        RESPONSE_STATUS_EXCEPTION_MESSAGE = "Unknown error";
-	@Autowired
-	private              MetadataTools metadataTools;
+	private static final long          PIXELS_PER_MEGAPIXEL              = 1_000_000L;
+	private static final Set<String>   JPEG_FORMATS                      = Set.of("jpeg", "jpg");
+	private final        MetadataTools metadataTools;
+	private final        int           maxDecodedMegapixels;
+	// The decoded images of the resizes running concurrently may not exceed this many megapixels in total
+	private final        Semaphore     decodedMegapixels;
+	private final        List<Integer> minimalMetadataTags;
 
+	public ImageTools(MetadataTools metadataTools, @Value("${vempain.admin.file.max-decoded-megapixels}") int maxDecodedMegapixels,
+	                  @Value("${vempain.admin.file.minimal-metadata-tags}") List<String> minimalMetadataTags) {
+		this.metadataTools        = metadataTools;
+		this.maxDecodedMegapixels = maxDecodedMegapixels;
+		this.decodedMegapixels    = new Semaphore(maxDecodedMegapixels, true);
+		this.minimalMetadataTags  = List.copyOf(ExifTools.textTagNumbers(minimalMetadataTags)
+		                                                 .values());
+	}
+
+	/**
+	 * Resize the image and copy all of its metadata to the resized image with exiftool.
+	 */
 	public Dimension resizeImage(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality) {
+		return resizeImage(sourceFile, List.of(new ResizeTarget(destinationFile, imageMinimumSize, quality, true))).getFirst();
+	}
+
+	/**
+	 * Resize the image to several sizes while decoding the source only once. The format of each resized image is taken from the
+	 * extension of its destination file. Targets not copying the full metadata with exiftool get only the upright orientation and the
+	 * tags of {@code vempain.admin.file.minimal-metadata-tags} of a JPEG source, written in-process when the target is a JPEG.
+	 *
+	 * @param sourceFile Image to resize
+	 * @param targets    Destination files with their sizes
+	 * @return Dimensions of the written images in the order of the targets, after any rotation to the EXIF orientation of the source
+	 */
+	public List<Dimension> resizeImage(Path sourceFile, List<ResizeTarget> targets) {
+		if (targets.isEmpty()) {
+			return List.of();
+		}
+
 		// Get the original dimensions of the source file in order to see whether it should be resized
 		var origDimensions = getImageDimensions(sourceFile);
+		var targetDimensions = new ArrayList<Dimension>(targets.size());
+		var writtenDimensions = new ArrayList<Dimension>(targets.size());
+		var subsampling = Integer.MAX_VALUE;
+
+		for (var target : targets) {
+			var dimensions = targetDimensions(origDimensions, target.minimumSize());
+			targetDimensions.add(dimensions);
+			// Only every n:th pixel of a large image needs to be decoded for the image to still be larger than the largest target
+			subsampling = Math.min(subsampling, subsamplingFactor(origDimensions, dimensions));
+		}
+
+		var decodedPixels = (long) ((origDimensions.width + subsampling - 1) / subsampling) * ((origDimensions.height + subsampling - 1) / subsampling);
+		// An image larger than the whole budget is resized alone
+		var megapixels = (int) Math.min(maxDecodedMegapixels, Math.max(1L, (decodedPixels + PIXELS_PER_MEGAPIXEL - 1) / PIXELS_PER_MEGAPIXEL));
+
+		try {
+			decodedMegapixels.acquire(megapixels);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+			      .interrupt();
+			log.error("Interrupted while waiting to resize {}", sourceFile);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
+		}
+
+		try {
+			var decodedImage = decodeSubsampled(sourceFile, subsampling);
+
+			for (var i = 0; i < targets.size(); i++) {
+				var target = targets.get(i);
+				var destinationFile = target.destinationFile();
+				var format = destinationFile.toString()
+				                            .substring(destinationFile.toString()
+				                                                      .lastIndexOf(".") + 1);
+				Thumbnails.Builder<?> builder;
+
+				if (decodedImage != null) {
+					builder = Thumbnails.of(decodedImage.image());
+				} else {
+					// Without a reader for the source Thumbnailator decodes the file itself for each target
+					builder = Thumbnails.of(sourceFile.toFile())
+					                    .useExifOrientation(true);
+				}
+
+				builder.size(targetDimensions.get(i).width, targetDimensions.get(i).height)
+				       .outputFormat(format)
+				       .outputQuality(target.quality())
+				       .allowOverwrite(true);
+
+				if (decodedImage != null && decodedImage.orientation() != null && decodedImage.orientation() != Orientation.TOP_LEFT) {
+					builder.addFilter(ExifFilterUtils.getFilterForOrientation(decodedImage.orientation()));
+				}
+
+				// The target dimensions are of the unrotated source, the written image is measured as the orientation filter may transpose it
+				if (target.fullMetadata() || !JPEG_FORMATS.contains(format.toLowerCase())) {
+					builder.toFile(destinationFile.toFile());
+					writtenDimensions.add(getImageDimensions(destinationFile));
+				} else {
+					var resizedImage = builder.imageType(BufferedImage.TYPE_INT_RGB)
+					                          .asBufferedImage();
+					writeJpeg(resizedImage, destinationFile, target.quality(), decodedImage != null ? decodedImage.metadataTags() : Map.of());
+					writtenDimensions.add(new Dimension(resizedImage.getWidth(), resizedImage.getHeight()));
+				}
+			}
+		} catch (IOException e) {
+			log.error("Failed to copy/convert {} to {}", sourceFile, targets, e);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
+		} finally {
+			decodedMegapixels.release(megapixels);
+		}
+
+		for (var target : targets) {
+			if (target.fullMetadata()) {
+				metadataTools.copyMetadata(sourceFile.toFile(), target.destinationFile()
+				                                                      .toFile());
+			}
+		}
+
+		return writtenDimensions;
+	}
+
+	/**
+	 * A resized image to produce from a source image.
+	 *
+	 * @param destinationFile File to write, the extension sets the image format
+	 * @param minimumSize     Size of the smaller side of the resized image, a source smaller than this is not enlarged
+	 * @param quality         Output quality between 0 and 1
+	 * @param fullMetadata    Whether all the metadata of the source is copied with exiftool instead of only the minimal tags
+	 */
+	public record ResizeTarget(Path destinationFile, int minimumSize, float quality, boolean fullMetadata) {
+	}
+
+	private record DecodedImage(BufferedImage image, Orientation orientation, Map<Integer, String> metadataTags) {
+	}
+
+	/**
+	 * Write the image as a JPEG with an EXIF block holding the given tags, through the metadata tree of the ImageIO JPEG writer.
+	 */
+	private static void writeJpeg(BufferedImage image, Path destinationFile, float quality, Map<Integer, String> metadataTags) throws IOException {
+		var writer = ImageIO.getImageWritersByFormatName("jpeg")
+		                    .next();
+		// The output stream does not truncate an existing file
+		Files.deleteIfExists(destinationFile);
+
+		try (var out = ImageIO.createImageOutputStream(destinationFile.toFile())) {
+			var writeParam = writer.getDefaultWriteParam();
+			writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			writeParam.setCompressionQuality(quality);
+			var metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), writeParam);
+			// The pixels have already been rotated upright
+			ExifTools.writeExif(metadata, metadataTags, ExifTools.ORIENTATION_UPRIGHT);
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, metadata), writeParam);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	static Dimension targetDimensions(Dimension origDimensions, int imageMinimumSize) {
 		var targetDimensions = new Dimension();
-		var imageFormat = destinationFile.toString()
-		                                 .substring(destinationFile.toString()
-		                                                           .lastIndexOf(".") + 1);
 
 		// If the original image is smaller than the minimum size, just copy it
 		if (origDimensions.height < imageMinimumSize || origDimensions.width < imageMinimumSize) {
@@ -43,23 +203,50 @@ public class ImageTools {
 			}
 		}
 
-		try {
-			Thumbnails
-					.of(sourceFile.toFile())
-					.size(targetDimensions.width, targetDimensions.height)
-					.outputFormat(imageFormat)
-					.outputQuality(quality)
-					.allowOverwrite(true)
-					.useExifOrientation(true)
-					.toFile(destinationFile.toFile());
-
-			metadataTools.copyMetadata(sourceFile.toFile(), destinationFile.toFile());
-		} catch (IOException e) {
-			log.error("Failed to copy/convert {} to {}", sourceFile, destinationFile, e);
-			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
+		return targetDimensions;
+	}
+
+	/**
+	 * The largest power of two by which the source can be subsampled while both of its sides stay at least as large as the target.
+	 */
+	static int subsamplingFactor(Dimension sourceDimensions, Dimension targetDimensions) {
+		var factor = 1;
+
+		while (sourceDimensions.width / (factor * 2) >= targetDimensions.width && sourceDimensions.height / (factor * 2) >= targetDimensions.height) {
+			factor *= 2;
 		}
 
-		return targetDimensions;
+		return factor;
+	}
+
+	/**
+	 * Decode only every n:th pixel of every n:th row of the source. The EXIF orientation and the minimal metadata tags of the source are
+	 * returned with the image as they are lost when Thumbnailator is given the decoded image instead of the file.
+	 *
+	 * @return Null if no reader is available for the source
+	 */
+	private DecodedImage decodeSubsampled(Path sourceFile, int subsampling) throws IOException {
+		try (var in = ImageIO.createImageInputStream(sourceFile.toFile())) {
+			var readers = in != null ? ImageIO.getImageReaders(in) : null;
+
+			if (readers == null || !readers.hasNext()) {
+				return null;
+			}
+
+			var reader = readers.next();
+
+			try {
+				reader.setInput(in);
+				var orientation = ExifUtils.getExifOrientation(reader, 0);
+				var metadataTags = minimalMetadataTags.isEmpty() ? Map.<Integer, String>of() : ExifTools.readTextTags(reader.getImageMetadata(0),
+				                                                                                                      minimalMetadataTags);
+				var readParam = reader.getDefaultReadParam();
+				readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return new DecodedImage(reader.read(0, readParam), orientation, metadataTags);
+			} finally {
+				reader.dispose();
+			}
+		}
 	}
 
 	public Dimension getImageDimensions(Path imageFile) {
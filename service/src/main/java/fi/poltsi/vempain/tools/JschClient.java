@@ -1,13 +1,15 @@
 package fi.poltsi.vempain.tools;
 
-import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
 import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.admin.service.MetricsService;
+import jakarta.annotation.PreDestroy;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,121 +19,216 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * SFTP client for transferring files to the site-server. Connections (one SSH session with one SFTP channel each) are pooled and
+ * shared between publish operations, each publish borrows its own set of connections through {@link #connect} so concurrent
+ * publishes never share or close each other's channels.
+ */
 @Slf4j
 @Setter
 @Component
 public class JschClient {
-	private static final int    SESSION_TIMEOUT = 26_000;
-	private static final int    CHANNEL_TIMEOUT = 25_000;
-	private final        JSch        jsch;
-	private              Session     jschSession;
-	private              Channel     channel;
-	private              ChannelSftp channelSftp;
+	private static final int  SESSION_TIMEOUT = 26_000;
+	private static final int  CHANNEL_TIMEOUT = 25_000;
+	// Idle pooled connections older than this are closed instead of being reused
+	private static final long IDLE_TIMEOUT_MS = 60_000L;
+
+	private final JSch                          jsch;
+	private final BlockingDeque<SftpConnection> idleConnections = new LinkedBlockingDeque<>();
+	private final Set<String>                   knownRemoteDirectories = ConcurrentHashMap.newKeySet();
+	private       Semaphore                     connectionPermits;
+	private       String                        connectionKey;
+
 	@Value("${vempain.site.www-root}")
-	private              String siteWwwRoot;
+	private String siteWwwRoot;
 	@Value("${vempain.admin.file.site-file-directory}")
-	private              String siteFileDirectory;
+	private String siteFileDirectory;
 	@Value("${vempain.site.thumb-directory}")
-	private              String thumbSubDir;
+	private String thumbSubDir;
 	@Value("${vempain.site.image-size}")
-	private              int    siteImageSize;
+	private int    siteImageSize;
+	@Value("${vempain.site.ssh.parallel-uploads}")
+	private int    parallelUploads;
+	@Value("${vempain.site.ssh.max-connections}")
+	private int    maxConnections;
+	@Value("${vempain.site.ssh.cache-remote-directories}")
+	private boolean cacheRemoteDirectories;
 
 	@Autowired
-	private ImageTools imageTools;
+	private ImageTools     imageTools;
+	@Autowired
+	private MetricsService metricsService;
 
 	public JschClient() {
 		this.jsch = new JSch();
 	}
 
-	public void connect(String siteAddress, int sitePort, String siteUser, String adminSshHomeDir, String adminSshPrivateKey) throws JSchException {
-		var knownHostFile = adminSshHomeDir + File.separator + ".ssh" + File.separator + "known_hosts";
-		log.debug("Adding known host file from: {}", knownHostFile);
-		jsch.setKnownHosts(knownHostFile);
-		jschSession = jsch.getSession(siteUser, siteAddress, sitePort);
-		// Disable this for the moment as Jsch does not handle ssh-ed25519
-		jschSession.setConfig("StrictHostKeyChecking", "no");
-		log.debug("Adding identity from private key file: {}", adminSshPrivateKey);
+	/**
+	 * Borrow a connection to the site-server from the pool. The returned transfer must be closed, which returns its connections
+	 * to the pool.
+	 */
+	public SiteTransfer connect(String siteAddress, int sitePort, String siteUser, String adminSshHomeDir, String adminSshPrivateKey) throws JSchException {
+		configure(siteAddress, sitePort, siteUser, adminSshHomeDir, adminSshPrivateKey);
 
 		try {
-			jsch.addIdentity(adminSshPrivateKey);
-		} catch (JSchException e) {
-			log.error("Failed to load private key file {}. Make sure this exists", adminSshPrivateKey);
-			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to load private key file");
+			connectionPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+			      .interrupt();
+			throw new JSchException("Interrupted while waiting for a site-server connection", e);
 		}
 
-		jschSession.connect(SESSION_TIMEOUT);
-		channel = jschSession.openChannel("sftp");
-		channel.connect(CHANNEL_TIMEOUT);
-		channelSftp = (ChannelSftp) channel;
+		try {
+			return new SiteTransfer(borrowConnection(siteAddress, sitePort, siteUser));
+		} catch (JSchException | RuntimeException e) {
+			connectionPermits.release();
+			throw e;
+		}
 	}
 
-	public void transferFilesToSite(List<SiteFile> siteFiles, List<FileThumb> thumbList) throws SftpException {
-		if (!siteDirectoryExists(siteWwwRoot)) {
-			log.error("The site main directory {} does not exist, file transfer is aborted", siteWwwRoot);
-			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Site configuration is not set up correctly");
-		}
+	/**
+	 * List the originals and thumbs to upload for the given files, without connecting to the site-server.
+	 */
+	public List<Upload> planTransfer(List<SiteFile> siteFiles, List<FileThumb> thumbList) {
+		return planTransfer(siteFiles, thumbList, List.of());
+	}
+
+	/**
+	 * List the originals, thumbs and renditions to upload for the given files, without connecting to the site-server. Each rendition
+	 * is placed in a directory named after the rendition next to the original, the same way as the thumbs.
+	 */
+	public List<Upload> planTransfer(List<SiteFile> siteFiles, List<FileThumb> thumbList, List<FileRendition> renditionList) {
+		var uploads = new ArrayList<Upload>(siteFiles.size() + thumbList.size() + renditionList.size());
+		var siteFilesById = new HashMap<Long, SiteFile>();
 
 		for (var siteFile : siteFiles) {
+			siteFilesById.put(siteFile.getId(), siteFile);
 			var absolutePathConvertedFile =
 					siteFileDirectory + File.separator + siteFile.getFileType().shortName + File.separator + siteFile.getFilePath() + File.separator + siteFile.getFileName();
-			log.debug("Transferring file {} to {}", absolutePathConvertedFile, siteWwwRoot);
+			var targetDir = siteWwwRoot + File.separator + siteFile.getFileType().shortName + File.separator + siteFile.getFilePath();
+			uploads.add(new Upload(siteFile.getId(), absolutePathConvertedFile, normalizeRemotePath(targetDir + File.separator + siteFile.getFileName()),
+			                       siteFile.getSha256sum(), siteFile.getSize()));
+		}
 
-			var targetSubDir = siteFile.getFileType().shortName + File.separator + siteFile.getFilePath();
-			var targetDir = siteWwwRoot + File.separator + targetSubDir;
+		for (FileThumb fileThumb : thumbList) {
+			var absolutePathThumbFile = siteFileDirectory + File.separator + fileThumb.getFilepath() + File.separator + fileThumb.getFilename();
+			var targetDir = siteWwwRoot + File.separator + fileThumb.getParentType().shortName + File.separator + fileThumb.getSiteFile()
+			                                                                                                               .getFilePath() + File.separator + thumbSubDir;
+			uploads.add(new Upload(fileThumb.getParentId(), absolutePathThumbFile, normalizeRemotePath(targetDir + File.separator + fileThumb.getFilename()),
+			                       fileThumb.getSha1sum(), fileThumb.getFilesize() != null ? fileThumb.getFilesize() : 0L));
+		}
 
-			// We remove the leading / from the subdir so that it can be later split correctly
-			if (targetSubDir.startsWith(File.separator)) {
-				targetSubDir = targetSubDir.substring(1);
-			}
+		for (var fileRendition : renditionList) {
+			var siteFile = siteFilesById.get(fileRendition.getParentId());
 
-			if (!siteDirectoryExists(targetDir)) {
-				log.debug("Creating site directory: {}", targetDir);
-				var tmpArray = targetSubDir.split("/");
-				var siteDirPaths = new LinkedList<>(Arrays.asList(tmpArray));
-				// We add as the last item the .thumb directory which will then contain the thumb files
-				siteDirPaths.add(thumbSubDir);
-				createRecursivelySiteDirectory(siteWwwRoot, siteDirPaths);
-			} else {
-				log.debug("Site directory {} already exists", targetDir);
+			if (siteFile == null) {
+				log.warn("Rendition {} of site file {} is not part of the transfer, skipping it", fileRendition.getName(), fileRendition.getParentId());
+				continue;
 			}
 
-			channelSftp.put(absolutePathConvertedFile, targetDir + File.separator + siteFile.getFileName());
+			var absolutePathRenditionFile = siteFileDirectory + File.separator + fileRendition.getFilepath() + File.separator + fileRendition.getFilename();
+			var targetDir = siteWwwRoot + File.separator + siteFile.getFileType().shortName + File.separator + siteFile.getFilePath() + File.separator + "." + fileRendition.getName();
+			uploads.add(new Upload(siteFile.getId(), absolutePathRenditionFile, normalizeRemotePath(targetDir + File.separator + fileRendition.getFilename()),
+			                       fileRendition.getSha256sum(), fileRendition.getFilesize() != null ? fileRendition.getFilesize() : 0L));
 		}
 
-		for (FileThumb fileThumb : thumbList) {
-			var absolutePathThumbFile = siteFileDirectory + File.separator + fileThumb.getFilepath() + File.separator + fileThumb.getFilename();
-			var targetDir = siteWwwRoot + File.separator + fileThumb.getParentType().shortName + File.separator + fileThumb.getSiteFile()
-			                                                                                                               .getFilePath() + File.separator + thumbSubDir;
-			log.debug("Transferring thumb {} to {}", absolutePathThumbFile, targetDir);
-			channelSftp.put(absolutePathThumbFile, targetDir);
+		return uploads;
+	}
+
+	@PreDestroy
+	public void close() {
+		SftpConnection connection;
+
+		while ((connection = idleConnections.pollFirst()) != null) {
+			connection.disconnect();
 		}
 	}
 
-	private void createRecursivelySiteDirectory(String mainDir, List<String> subDirList) throws SftpException {
-		log.debug("Called with main directory {} and list of directory elements {}", mainDir, subDirList);
+	private synchronized void configure(String siteAddress, int sitePort, String siteUser, String adminSshHomeDir, String adminSshPrivateKey) throws JSchException {
+		if (connectionPermits == null) {
+			connectionPermits = new Semaphore(Math.max(1, maxConnections), true);
+		}
+
+		var key = siteUser + "@" + siteAddress + ":" + sitePort + ":" + adminSshPrivateKey;
 
-		if (subDirList.isEmpty()) {
-			log.debug("No more directory elements to create");
+		if (key.equals(connectionKey)) {
 			return;
 		}
 
-		String testDir = mainDir + File.separator + subDirList.getFirst();
+		// Connection settings changed, any pooled connection and known directory is of the old target
+		close();
+		knownRemoteDirectories.clear();
+		var knownHostFile = adminSshHomeDir + File.separator + ".ssh" + File.separator + "known_hosts";
+		log.debug("Adding known host file from: {}", knownHostFile);
+		jsch.setKnownHosts(knownHostFile);
+		log.debug("Adding identity from private key file: {}", adminSshPrivateKey);
+
+		try {
+			jsch.removeAllIdentity();
+			jsch.addIdentity(adminSshPrivateKey);
+		} catch (JSchException e) {
+			log.error("Failed to load private key file {}. Make sure this exists", adminSshPrivateKey);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to load private key file");
+		}
+
+		connectionKey = key;
+	}
+
+	private SftpConnection borrowConnection(String siteAddress, int sitePort, String siteUser) throws JSchException {
+		SftpConnection connection;
+
+		while ((connection = idleConnections.pollFirst()) != null) {
+			if (connection.isUsable()) {
+				return connection;
+			}
 
-		if (!siteDirectoryExists(testDir)) {
-			log.debug("Element dir {} did not exist as {}, creating it", subDirList.getFirst(), testDir);
-			channelSftp.mkdir(testDir);
+			connection.disconnect();
 		}
 
-		log.debug("Popping first element from subdir list");
-		subDirList.removeFirst();
-		createRecursivelySiteDirectory(testDir, subDirList);
+		var session = jsch.getSession(siteUser, siteAddress, sitePort);
+		// Disable this for the moment as Jsch does not handle ssh-ed25519
+		session.setConfig("StrictHostKeyChecking", "no");
+		session.connect(SESSION_TIMEOUT);
+
+		try {
+			var channel = (ChannelSftp) session.openChannel("sftp");
+			channel.connect(CHANNEL_TIMEOUT);
+			log.debug("Opened new SFTP connection to {}", siteAddress);
+			return new SftpConnection(session, channel);
+		} catch (JSchException e) {
+			session.disconnect();
+			throw e;
+		}
 	}
 
-	private boolean siteDirectoryExists(String siteDirectory) {
+	private void releaseConnection(SftpConnection connection) {
+		if (connection.isConnected()) {
+			connection.touch();
+			idleConnections.offerFirst(connection);
+		} else {
+			connection.disconnect();
+		}
+
+		connectionPermits.release();
+	}
+
+	private static boolean siteDirectoryExists(ChannelSftp channelSftp, String siteDirectory) {
 		try {
 			channelSftp.lstat(siteDirectory);
 			return true;
@@ -147,9 +244,228 @@ public class JschClient {
 		return false;
 	}
 
-	public void close() {
-		if (jschSession.isConnected()) {
-			jschSession.disconnect();
+	/**
+	 * Collapse repeated separators and remove a trailing one, so that the same remote directory is always spelled the same way.
+	 */
+	static String normalizeRemotePath(String path) {
+		var normalized = path.replaceAll("/{2,}", "/");
+
+		if (normalized.length() > 1 && normalized.endsWith("/")) {
+			normalized = normalized.substring(0, normalized.length() - 1);
+		}
+
+		return normalized;
+	}
+
+	private static String parentPath(String path) {
+		var index = path.lastIndexOf('/');
+		return index > 0 ? path.substring(0, index) : "/";
+	}
+
+	private static int pathDepth(String path) {
+		return (int) path.chars()
+		                 .filter(c -> c == '/')
+		                 .count();
+	}
+
+	private static final class SftpConnection {
+		private final Session     session;
+		private final ChannelSftp channel;
+		private       long        lastUsed;
+
+		private SftpConnection(Session session, ChannelSftp channel) {
+			this.session  = session;
+			this.channel  = channel;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		private boolean isConnected() {
+			return session.isConnected() && channel.isConnected();
+		}
+
+		private boolean isUsable() {
+			return isConnected() && System.currentTimeMillis() - lastUsed < IDLE_TIMEOUT_MS;
+		}
+
+		private void touch() {
+			lastUsed = System.currentTimeMillis();
+		}
+
+		private void disconnect() {
+			channel.disconnect();
+			session.disconnect();
+		}
+	}
+
+	/**
+	 * A single file to be uploaded to the site-server.
+	 *
+	 * @param siteFileId ID of the site file the upload belongs to, also for thumbs
+	 * @param localPath  Absolute path of the file on the admin-side
+	 * @param remotePath Absolute path of the file on the site-server
+	 * @param checksum   Checksum of the file, may be null if not known
+	 * @param size       Size of the file in bytes
+	 */
+	public record Upload(long siteFileId, String localPath, String remotePath, String checksum, long size) {
+	}
+
+	/**
+	 * Transfer to the site-server of a single publish operation. Holds at least one pooled connection, and borrows up to
+	 * {@code vempain.site.ssh.parallel-uploads} connections in total while uploading if the pool has free capacity.
+	 */
+	public final class SiteTransfer implements AutoCloseable {
+		private final SftpConnection primary;
+		// Remote directories known to exist, shared between transfers unless the cache is limited to a single publish
+		private final Set<String>    knownDirectories;
+
+		private SiteTransfer(SftpConnection primary) {
+			this.primary          = primary;
+			this.knownDirectories = cacheRemoteDirectories ? knownRemoteDirectories : ConcurrentHashMap.newKeySet();
+		}
+
+		public void transferFilesToSite(List<SiteFile> siteFiles, List<FileThumb> thumbList) throws SftpException {
+			transfer(planTransfer(siteFiles, thumbList));
+		}
+
+		/**
+		 * Create the missing remote directories and upload the given files.
+		 */
+		public void transfer(List<Upload> uploads) throws SftpException {
+			var channelSftp = primary.channel;
+			var wwwRoot = normalizeRemotePath(siteWwwRoot);
+
+			if (!knownDirectories.contains(wwwRoot)) {
+				if (!siteDirectoryExists(channelSftp, wwwRoot)) {
+					log.error("The site main directory {} does not exist, file transfer is aborted", siteWwwRoot);
+					throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Site configuration is not set up correctly");
+				}
+
+				knownDirectories.add(wwwRoot);
+			}
+
+			// Directories are created up front on the primary connection so that the parallel uploads only put files
+			var targetDirs = new LinkedHashSet<String>();
+
+			for (var upload : uploads) {
+				targetDirs.add(parentPath(upload.remotePath()));
+			}
+
+			createSiteDirectories(channelSftp, targetDirs);
+			upload(uploads);
+		}
+
+		/**
+		 * Create the missing directories in one pass. Only directories not already known to exist are checked, walking up from each
+		 * target directory until an existing one is found, and the missing ones are then created from the shallowest down.
+		 */
+		private void createSiteDirectories(ChannelSftp channelSftp, Collection<String> targetDirs) throws SftpException {
+			var wwwRoot = normalizeRemotePath(siteWwwRoot);
+			var missingDirs = new TreeSet<>(Comparator.comparingInt(JschClient::pathDepth)
+			                                          .thenComparing(Comparator.naturalOrder()));
+
+			for (var targetDir : targetDirs) {
+				var dir = targetDir;
+
+				while (dir.length() > wwwRoot.length() && !knownDirectories.contains(dir) && !missingDirs.contains(dir)) {
+					if (siteDirectoryExists(channelSftp, dir)) {
+						knownDirectories.add(dir);
+						break;
+					}
+
+					missingDirs.add(dir);
+					dir = parentPath(dir);
+				}
+			}
+
+			log.debug("Creating {} missing site directories for {} target directories", missingDirs.size(), targetDirs.size());
+
+			for (var missingDir : missingDirs) {
+				try {
+					channelSftp.mkdir(missingDir);
+				} catch (SftpException e) {
+					// Another publish may have created the directory in the meanwhile
+					if (!siteDirectoryExists(channelSftp, missingDir)) {
+						throw e;
+					}
+				}
+
+				knownDirectories.add(missingDir);
+			}
+		}
+
+		private void upload(List<Upload> uploads) throws SftpException {
+			var connections = new ArrayList<SftpConnection>();
+			connections.add(primary);
+
+			// Additional connections are only taken if the pool has room, so concurrent publishes can not starve each other
+			try {
+				while (connections.size() < Math.min(parallelUploads, uploads.size()) && connectionPermits.tryAcquire()) {
+					try {
+						connections.add(borrowConnection(primary.session.getHost(), primary.session.getPort(), primary.session.getUserName()));
+					} catch (JSchException e) {
+						connectionPermits.release();
+						log.warn("Failed to open an additional SFTP connection, continuing with {}: {}", connections.size(), e.getMessage());
+						break;
+					}
+				}
+
+				log.debug("Uploading {} files to site-server using {} connections", uploads.size(), connections.size());
+				var queue = new ConcurrentLinkedQueue<>(uploads);
+				var failure = new AtomicReference<SftpException>();
+
+				try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+					for (var connection : connections) {
+						executor.submit(() -> {
+							Upload upload;
+
+							while (failure.get() == null && (upload = queue.poll()) != null) {
+								try {
+									put(connection.channel, upload);
+								} catch (SftpException e) {
+									log.error("Failed to transfer {} to {}", upload.localPath(), upload.remotePath(), e);
+									failure.compareAndSet(null, e);
+								}
+							}
+						});
+					}
+				}
+
+				if (failure.get() != null) {
+					throw failure.get();
+				}
+			} finally {
+				// The primary connection is returned when the transfer is closed
+				for (var connection : connections.subList(1, connections.size())) {
+					releaseConnection(connection);
+				}
+			}
+		}
+
+		private void put(ChannelSftp channelSftp, Upload upload) throws SftpException {
+			log.debug("Transferring {} to {}", upload.localPath(), upload.remotePath());
+			var start = System.nanoTime();
+
+			try {
+				channelSftp.put(upload.localPath(), upload.remotePath());
+			} catch (SftpException e) {
+				if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+					throw e;
+				}
+
+				// The cached directory has been removed from the site-server, create it again and retry once
+				var targetDir = parentPath(upload.remotePath());
+				log.warn("Site directory {} has disappeared, recreating it", targetDir);
+				knownDirectories.remove(targetDir);
+				createSiteDirectories(channelSftp, List.of(targetDir));
+				channelSftp.put(upload.localPath(), upload.remotePath());
+			}
+
+			metricsService.recordSftpUpload(upload.size(), System.nanoTime() - start);
+		}
+
+		@Override
+		public void close() {
+			releaseConnection(primary);
 		}
 	}
 }
@@ -0,0 +1,141 @@
+package fi.poltsi.vempain.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a layout structure. The structure is parsed once into literal segments and the slots for the page body
+ * (<code>&lt;!--page--&gt;</code>) and the form components (<code>&lt;!--comp_N--&gt;</code>), so that rendering a page is a single pass
+ * over the segments instead of a string replacement over the whole layout per component.
+ */
+public final class LayoutTemplate {
+	private static final String  PAGE_MARKER         = "<!--page-->";
+	private static final String  COMPONENT_MARKER    = "<!--comp_";
+	private static final String  MARKER_END          = "-->";
+	private static final int     LITERAL             = -2;
+	private static final int     PAGE_SLOT           = -1;
+	// Ending PHP-tag followed by white space and starting PHP-tag which then again is followed by white space and ending PHP-tag
+	private static final Pattern EMPTY_PHP_AFTER_PHP = Pattern.compile("\\?>\\s*<\\?php\\s*\\?>");
+	// Starting PHP-tag followed by white space and ending PHP-tag
+	private static final Pattern EMPTY_PHP           = Pattern.compile("<\\?php\\s*\\?>");
+
+	private final List<Segment> segments;
+	private final int           literalLength;
+
+	private record Segment(int slot, String literal) {
+	}
+
+	private LayoutTemplate(List<Segment> segments, int literalLength) {
+		this.segments      = segments;
+		this.literalLength = literalLength;
+	}
+
+	public static LayoutTemplate compile(String structure) {
+		var segments = new ArrayList<Segment>();
+		var literalLength = 0;
+		var literalStart = 0;
+		var position = structure.indexOf("<!--");
+
+		while (position >= 0) {
+			var slot = LITERAL;
+			var markerEnd = position;
+
+			if (structure.startsWith(PAGE_MARKER, position)) {
+				slot      = PAGE_SLOT;
+				markerEnd = position + PAGE_MARKER.length();
+			} else if (structure.startsWith(COMPONENT_MARKER, position)) {
+				var digitsStart = position + COMPONENT_MARKER.length();
+				var digitsEnd = digitsStart;
+
+				while (digitsEnd < structure.length() && structure.charAt(digitsEnd) >= '0' && structure.charAt(digitsEnd) <= '9') {
+					digitsEnd++;
+				}
+
+				// Only the exact markers, no leading zeros, are slots, the same way as a plain string replacement would find them
+				var digitCount = digitsEnd - digitsStart;
+				var leadingZero = digitCount > 1 && structure.charAt(digitsStart) == '0';
+
+				if (digitCount > 0 && digitCount < 10 && !leadingZero && structure.startsWith(MARKER_END, digitsEnd)) {
+					slot      = Integer.parseInt(structure, digitsStart, digitsEnd, 10);
+					markerEnd = digitsEnd + MARKER_END.length();
+				}
+			}
+
+			if (slot != LITERAL) {
+				if (position > literalStart) {
+					segments.add(new Segment(LITERAL, structure.substring(literalStart, position)));
+					literalLength += position - literalStart;
+				}
+
+				segments.add(new Segment(slot, null));
+				literalStart = markerEnd;
+				position     = structure.indexOf("<!--", markerEnd);
+			} else {
+				position = structure.indexOf("<!--", position + 1);
+			}
+		}
+
+		if (literalStart < structure.length()) {
+			segments.add(new Segment(LITERAL, structure.substring(literalStart)));
+			literalLength += structure.length() - literalStart;
+		}
+
+		return new LayoutTemplate(List.copyOf(segments), literalLength);
+	}
+
+	/**
+	 * Render the page body. The result is enclosed in PHP-tags, as the default content of a layout is HTML, and each component is
+	 * enclosed in PHP-tags, as the default content of a component is PHP. Empty PHP-blocks are removed from the result.
+	 *
+	 * @param pageBody       Body of the page placed in the page slot
+	 * @param componentDatas Data of the form components by their order in the form. A null entry, or a missing one, leaves the component
+	 *                       marker in place
+	 * @return Rendered body of the page
+	 */
+	public String render(String pageBody, List<String> componentDatas) {
+		var capacity = literalLength + 16;
+
+		for (var segment : segments) {
+			if (segment.slot == PAGE_SLOT && pageBody != null) {
+				capacity += pageBody.length();
+			} else if (segment.slot >= 0 && segment.slot < componentDatas.size() && componentDatas.get(segment.slot) != null) {
+				capacity += componentDatas.get(segment.slot)
+				                          .length() + 10;
+			}
+		}
+
+		// See this why there is a space at the end: http://php.net/manual/en/function.eval.php#97063
+		var builder = new StringBuilder(capacity).append("?>");
+
+		for (var segment : segments) {
+			if (segment.slot == LITERAL) {
+				builder.append(segment.literal);
+			} else if (segment.slot == PAGE_SLOT) {
+				builder.append(pageBody);
+			} else if (segment.slot < componentDatas.size() && componentDatas.get(segment.slot) != null) {
+				builder.append("<?php\n")
+				       .append(componentDatas.get(segment.slot))
+				       .append("\n?>");
+			} else {
+				builder.append(COMPONENT_MARKER)
+				       .append(segment.slot)
+				       .append(MARKER_END);
+			}
+		}
+
+		var body = builder.append("<?php ")
+		                  .toString();
+
+		// Every empty PHP-block after an ending PHP-tag is also an empty PHP-block, so the common case needs only one scan
+		if (!EMPTY_PHP.matcher(body)
+		              .find()) {
+			return body;
+		}
+
+		body = EMPTY_PHP_AFTER_PHP.matcher(body)
+		                          .replaceAll("?>");
+		return EMPTY_PHP.matcher(body)
+		                .replaceAll("");
+	}
+}
@@ -2,14 +2,18 @@ package fi.poltsi.vempain.tools;
 
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.util.Comparator;
 
 @Slf4j
@@ -31,13 +35,29 @@ public class LocalFileTools {
 	}
 
 	public static String computeSha256(File file) {
-		try {
-			return DigestUtils.sha256Hex(Files.readAllBytes(file.toPath()));
+		try (var inputStream = Files.newInputStream(file.toPath())) {
+			return DigestUtils.sha256Hex(inputStream);
 		} catch (IOException e) {
 			return null;
 		}
 	}
 
+	/**
+	 * Write the stream to the target file while computing its SHA-256 checksum, so that the content is read only once and only a fixed
+	 * size buffer of it is held in memory at a time.
+	 *
+	 * @param inputStream Stream to be written, it is not closed
+	 * @param targetFile  File to be written, an existing file is replaced
+	 * @return Hex encoded SHA-256 checksum of the written content
+	 * @throws IOException If reading the stream or writing the file fails
+	 */
+	public static String copyAndComputeSha256(InputStream inputStream, Path targetFile) throws IOException {
+		var digest = DigestUtils.getSha256Digest();
+
+		Files.copy(new DigestInputStream(inputStream, digest), targetFile, StandardCopyOption.REPLACE_EXISTING);
+		return Hex.encodeHexString(digest.digest());
+	}
+
 	public static long getFileSize(Path filepath) {
 		try {
 			return Files.size(filepath);
@@ -2,37 +2,31 @@ package fi.poltsi.vempain.tools;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class MetadataTools {
-	@Value("${vempain.cmd-line.exiftool}")
-	private String exifToolPath;
+	private final ExifToolPool exifToolPool;
 
 	public void copyMetadata(File sourceFile, File destinationFile) {
-		var builder = new ProcessBuilder();
-		builder.command(exifToolPath, "-overwrite_original_in_place", "-TagsFromFile", sourceFile.getAbsolutePath(), "-all:all",
-		                destinationFile.getAbsolutePath());
-		var output = new StringBuilder();
-
 		try {
-			var exitVal = runCommand(builder, output);
+			var output = exifToolPool.execute(List.of("-overwrite_original_in_place", "-TagsFromFile", sourceFile.getAbsolutePath(), "-all:all",
+			                                          destinationFile.getAbsolutePath()));
 
-			if (exitVal == 0) {
+			// There is no exit value per command with a persistent exiftool, a successful copy reports the updated file
+			if (output.contains("1 image files updated")) {
 				log.debug("Metadata copied successfully from file {} to file {}", sourceFile, destinationFile);
 			} else {
-				log.error("Failed to copy metadata from file {} to file {}. Exit value: {}\nOutput: {}", sourceFile, destinationFile,
-				          exitVal, output);
+				log.error("Failed to copy metadata from file {} to file {}\nOutput: {}", sourceFile, destinationFile, output);
 			}
-		} catch (IOException e) {
+		} catch (IOException | TimeoutException e) {
 			log.error("Failed to copy metadata from file {} to file {}", sourceFile, destinationFile, e);
 		} catch (InterruptedException e) {
 			log.error("Failed to copy metadata from file {} to file {}", sourceFile, destinationFile, e);
@@ -42,21 +36,17 @@ public class MetadataTools {
 	}
 
 	public String getMetadataAsJSON(File file) {
-		var builder = new ProcessBuilder();
-		builder.command(exifToolPath, "-a", "-u", "-ee", "-api", "RequestAll=3", "-g1", "-J", file.getAbsolutePath());
-		var output = new StringBuilder();
-
 		try {
-			var exitVal = runCommand(builder, output);
+			var output = exifToolPool.execute(List.of("-a", "-u", "-ee", "-api", "RequestAll=3", "-g1", "-J", file.getAbsolutePath()));
 
-			if (exitVal == 0) {
-				log.debug("Metadata extracted successfully from file: {}", file);
-			} else {
+			if (output.isEmpty()) {
 				log.error("Failed to extract metadata from file: {}", file);
+			} else {
+				log.debug("Metadata extracted successfully from file: {}", file);
 			}
 
-			return output.toString();
-		} catch (IOException e) {
+			return output;
+		} catch (IOException | TimeoutException e) {
 			log.error("Failed to parse metadata of file {}", file, e);
 		} catch (InterruptedException e) {
 			log.error("Failed to parse metadata of file {}", file, e);
@@ -66,17 +56,4 @@ public class MetadataTools {
 
 		return null;
 	}
-
-	private int runCommand(ProcessBuilder builder, StringBuilder output) throws IOException, InterruptedException {
-		var process = builder.start();
-		var bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-		String line;
-
-		while ((line = bufferedReader.readLine()) != null) {
-			output.append(line);
-		}
-
-		return process.waitFor();
-	}
 }
@@ -0,0 +1,17 @@
+package fi.poltsi.vempain.tools;
+
+/**
+ * Counts of files and bytes sent to, or skipped from being sent to, the site-server by a publish operation.
+ */
+public record SiteTransferStatistics(long filesSent, long bytesSent, long filesSkipped, long bytesSkipped) {
+	public static final SiteTransferStatistics EMPTY = new SiteTransferStatistics(0L, 0L, 0L, 0L);
+
+	public SiteTransferStatistics plus(SiteTransferStatistics other) {
+		if (other == null) {
+			return this;
+		}
+
+		return new SiteTransferStatistics(filesSent + other.filesSent, bytesSent + other.bytesSent, filesSkipped + other.filesSkipped,
+		                                  bytesSkipped + other.bytesSkipped);
+	}
+}
@@ -0,0 +1,29 @@
+package fi.poltsi.vempain.tools;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionTools {
+	private TransactionTools() {
+	}
+
+	/**
+	 * Run a cache eviction now and, when called within a transaction, once more after the transaction has completed. The first run keeps
+	 * the transaction itself from reading the old entry, the second drops any entry another thread cached from the state before the commit
+	 * or the transaction cached from its own rolled back changes.
+	 *
+	 * @param eviction Eviction to run
+	 */
+	public static void evictNowAndAfterCompletion(Runnable eviction) {
+		eviction.run();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					eviction.run();
+				}
+			});
+		}
+	}
+}
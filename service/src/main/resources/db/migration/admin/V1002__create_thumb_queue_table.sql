@@ -0,0 +1,15 @@
+-- Site files waiting for their thumb to be generated, a file is queued only once however many times it is requested
+CREATE TABLE thumb_queue
+(
+	site_file_id BIGINT    NOT NULL PRIMARY KEY REFERENCES site_file (id) ON DELETE CASCADE,
+	-- Increased when the file is queued again while being processed, so that the new request is not lost when the old one finishes
+	revision     BIGINT    NOT NULL DEFAULT 0,
+	attempts     INT       NOT NULL DEFAULT 0,
+	last_error   TEXT,
+	queued_at    TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	claimed_at   TIMESTAMP,
+	-- A failed thumb is not retried before this time, the delay grows with each failed attempt
+	not_before   TIMESTAMP
+);
+
+CREATE INDEX thumb_queue_queued_at_idx ON thumb_queue (queued_at);
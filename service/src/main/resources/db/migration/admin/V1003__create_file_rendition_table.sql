@@ -0,0 +1,14 @@
+-- Additional sizes of the site file images, generated together with the thumb
+CREATE TABLE file_rendition
+(
+	id        BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	parent_id BIGINT       NOT NULL REFERENCES site_file (id) ON DELETE CASCADE,
+	name      VARCHAR(64)  NOT NULL,
+	filename  VARCHAR(255) NOT NULL,
+	filepath  VARCHAR(255) NOT NULL,
+	filesize  BIGINT,
+	width     INT,
+	height    INT,
+	sha256sum VARCHAR(255),
+	UNIQUE (parent_id, name)
+);
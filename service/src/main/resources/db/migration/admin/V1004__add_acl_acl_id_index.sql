@@ -0,0 +1,2 @@
+-- The paged listings check the read privilege of every listed object against the ACL rows of its ACL ID
+CREATE INDEX IF NOT EXISTS acl_acl_id_idx ON acl (acl_id);
@@ -0,0 +1,2 @@
+-- The site files of a page of galleries are loaded in one query by the gallery ID in the sort order of each gallery
+CREATE INDEX IF NOT EXISTS gallery_file_gallery_id_sort_order_idx ON gallery_file (gallery_id, sort_order);
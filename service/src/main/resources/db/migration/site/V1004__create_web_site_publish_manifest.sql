@@ -0,0 +1,10 @@
+CREATE TABLE web_site_publish_manifest
+(
+	remote_path VARCHAR(1024)               NOT NULL PRIMARY KEY,
+	file_id     BIGINT                      NOT NULL,
+	checksum    VARCHAR(128)                NOT NULL,
+	size        BIGINT                      NOT NULL,
+	uploaded    TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_web_site_publish_manifest_file_id ON web_site_publish_manifest (file_id);
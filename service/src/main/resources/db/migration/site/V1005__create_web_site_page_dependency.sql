@@ -0,0 +1,10 @@
+CREATE TABLE web_site_page_dependency
+(
+	page_id         BIGINT       NOT NULL,
+	dependency_type VARCHAR(16)  NOT NULL,
+	dependency_id   VARCHAR(255) NOT NULL,
+	PRIMARY KEY (page_id, dependency_type, dependency_id),
+	FOREIGN KEY (page_id) REFERENCES web_site_page (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_web_site_page_dependency_dependency ON web_site_page_dependency (dependency_type, dependency_id);
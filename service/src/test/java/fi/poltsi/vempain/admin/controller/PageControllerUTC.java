@@ -7,6 +7,7 @@ import fi.poltsi.vempain.admin.api.response.PageResponse;
 import fi.poltsi.vempain.admin.entity.Page;
 import fi.poltsi.vempain.admin.service.DeleteService;
 import fi.poltsi.vempain.admin.service.PageService;
+import fi.poltsi.vempain.admin.service.PublishJobService;
 import fi.poltsi.vempain.admin.service.PublishService;
 import fi.poltsi.vempain.admin.service.ScheduleService;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
@@ -46,6 +47,8 @@ class PageControllerUTC {
 	@Mock
 	private PublishService publishService;
 	@Mock
+	private PublishJobService publishJobService;
+	@Mock
 	private DeleteService  deleteService;
 	@Mock
 	private ScheduleService scheduleService;
@@ -1,5 +1,6 @@
 package fi.poltsi.vempain.admin.controller;
 
+import fi.poltsi.vempain.admin.service.AccessService;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
 import fi.poltsi.vempain.auth.api.response.UnitResponse;
 import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
@@ -24,7 +25,9 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UnitControllerUTC {
 	@Mock
-	UnitService unitService;
+	UnitService   unitService;
+	@Mock
+	AccessService accessService;
 
 	@InjectMocks
 	private UnitController unitController;
@@ -1,5 +1,7 @@
 package fi.poltsi.vempain.admin.controller;
 
+import fi.poltsi.vempain.admin.service.AccessService;
+import fi.poltsi.vempain.admin.service.UserNickService;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
 import fi.poltsi.vempain.auth.api.response.UserResponse;
 import fi.poltsi.vempain.auth.service.UserService;
@@ -23,7 +25,11 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UserAccountControllerUTC {
 	@Mock
-	private UserService userService;
+	private UserService     userService;
+	@Mock
+	private UserNickService userNickService;
+	@Mock
+	private AccessService   accessService;
 
 	@InjectMocks
 	private UserController userController;
@@ -3,7 +3,9 @@ package fi.poltsi.vempain.admin.controller.file;
 import fi.poltsi.vempain.admin.api.request.file.SiteFilePagedRequest;
 import fi.poltsi.vempain.admin.api.response.RefreshResponse;
 import fi.poltsi.vempain.admin.api.response.file.SiteFileResponse;
+import fi.poltsi.vempain.admin.api.response.file.ThumbQueueResponse;
 import fi.poltsi.vempain.admin.service.file.FileService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,9 +19,11 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class FileControllerUTC {
 	@Mock
-	private FileService    fileService;
+	private FileService       fileService;
+	@Mock
+	private ThumbQueueService thumbQueueService;
 	@InjectMocks
-	private FileController controller;
+	private FileController    controller;
 
 	@Test
 	void delegatesAllFileEndpoints() {
@@ -30,6 +34,10 @@ class FileControllerUTC {
 		when(fileService.findAllSiteFilesAsPageableResponseFiltered(request)).thenReturn(paged);
 		when(fileService.refreshGalleryFiles(3L)).thenReturn(refresh);
 		when(fileService.refreshAllGalleryFiles()).thenReturn(refresh);
+		var thumbQueue = ThumbQueueResponse.builder()
+		                                   .pending(3L)
+		                                   .build();
+		when(thumbQueueService.getBacklog()).thenReturn(thumbQueue);
 
 		assertSame(paged, controller.getPageableSiteFiles(request)
 		                            .getBody());
@@ -37,5 +45,7 @@ class FileControllerUTC {
 		                              .getBody());
 		assertSame(refresh, controller.refreshAllGalleryFiles()
 		                              .getBody());
+		assertSame(thumbQueue, controller.getThumbQueue()
+		                                 .getBody());
 	}
 }
@@ -1,12 +1,16 @@
 package fi.poltsi.vempain.admin.controller.file;
 
+import fi.poltsi.vempain.admin.api.ContentTypeEnum;
 import fi.poltsi.vempain.admin.api.request.PublishRequest;
 import fi.poltsi.vempain.admin.api.request.file.GalleryPublishRequest;
 import fi.poltsi.vempain.admin.api.request.file.GalleryRequest;
 import fi.poltsi.vempain.admin.api.response.file.FileGroupListResponse;
+import fi.poltsi.vempain.admin.api.response.PublishJobResponse;
 import fi.poltsi.vempain.admin.api.response.file.GalleryResponse;
 import fi.poltsi.vempain.admin.entity.PageGallery;
+import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.service.PageGalleryService;
+import fi.poltsi.vempain.admin.service.PublishJobService;
 import fi.poltsi.vempain.admin.service.PublishService;
 import fi.poltsi.vempain.admin.service.ScheduleService;
 import fi.poltsi.vempain.admin.service.file.GalleryService;
@@ -30,6 +34,8 @@ class GalleryControllerUTC {
 	@Mock
 	private PublishService     publishService;
 	@Mock
+	private PublishJobService  publishJobService;
+	@Mock
 	private PageGalleryService pageGalleryService;
 	@Mock
 	private ScheduleService    scheduleService;
@@ -125,6 +131,12 @@ class GalleryControllerUTC {
 		                             .shortName("summer")
 		                             .build();
 		when(galleryService.findById(7L)).thenReturn(gallery);
+		when(galleryService.findAll()).thenReturn(java.util.List.of(Gallery.builder()
+		                                                                   .id(7L)
+		                                                                   .build()));
+		when(publishJobService.submit(ContentTypeEnum.GALLERY, java.util.List.of(7L))).thenReturn(PublishJobResponse.builder()
+		                                                                                                            .jobId(1L)
+		                                                                                                            .build());
 
 		assertEquals(200, galleryController.deleteGallery(7L)
 		                                   .getStatusCode()
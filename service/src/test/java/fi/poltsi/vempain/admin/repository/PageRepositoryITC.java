@@ -0,0 +1,137 @@
+package fi.poltsi.vempain.admin.repository;
+
+import fi.poltsi.vempain.admin.AbstractITCTest;
+import fi.poltsi.vempain.admin.entity.Page;
+import fi.poltsi.vempain.admin.exception.VempainComponentException;
+import fi.poltsi.vempain.auth.exception.VempainAbstractException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+class PageRepositoryITC extends AbstractITCTest {
+	@Test
+	void searchPagesWithoutFilterOk() throws VempainAbstractException, VempainComponentException {
+		var pageId1 = testITCTools.generatePage();
+		var pageId2 = testITCTools.generatePage();
+
+		var result = pageRepository.searchPages("test PAGE title", false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+
+		assertEquals(2, result.getTotalElements());
+		assertEquals(List.of(pageId2, pageId1), ids(result.getContent()));
+	}
+
+	@Test
+	void searchPagesCaseSensitiveOk() throws VempainAbstractException, VempainComponentException {
+		testITCTools.generatePage();
+
+		var result = pageRepository.searchPages("test PAGE title", true, null, PageRequest.of(0, 10));
+
+		assertEquals(0, result.getTotalElements());
+	}
+
+	@Test
+	void searchPagesFiltersByUserOk() throws VempainAbstractException, VempainComponentException {
+		var pageId1 = testITCTools.generatePage();
+		testITCTools.generatePage();
+		var page1 = pageRepository.findById(pageId1.longValue());
+
+		var result = pageRepository.searchPages(null, false, new AclReadFilter(page1.getCreator(), List.of()), PageRequest.of(0, 10));
+
+		assertEquals(1, result.getTotalElements());
+		assertEquals(List.of(pageId1), ids(result.getContent()));
+	}
+
+	@Test
+	void searchPagesFiltersByUnitOk() throws VempainAbstractException, VempainComponentException {
+		var pageId1 = testITCTools.generatePage();
+		var pageId2 = testITCTools.generatePage();
+		var page1 = pageRepository.findById(pageId1.longValue());
+		var page2 = pageRepository.findById(pageId2.longValue());
+		var unitId = testITCTools.generateUnit();
+		testITCTools.generateAclWithId(page2.getAclId(), null, unitId, true, false, false, false);
+
+		var result = pageRepository.searchPages(null, false, new AclReadFilter(page1.getCreator(), List.of(unitId)), PageRequest.of(0, 1));
+
+		assertEquals(2, result.getTotalElements());
+		assertEquals(2, result.getTotalPages());
+		assertEquals(List.of(pageId1), ids(result.getContent()));
+	}
+
+	@Test
+	void searchPagesSortsNeverModifiedFirstAscendingOk() throws VempainAbstractException, VempainComponentException {
+		var pageIds = generatePages();
+		updatePage(pageIds.get(0), page -> page.setModified(Instant.parse("2026-03-10T14:00:00Z")));
+		updatePage(pageIds.get(2), page -> page.setModified(Instant.parse("2026-03-10T12:00:00Z")));
+
+		var ascending = pageRepository.searchPages(null, false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "modified")));
+		var descending = pageRepository.searchPages(null, false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "modified")));
+
+		assertEquals(List.of(pageIds.get(1), pageIds.get(2), pageIds.get(0)), ids(ascending.getContent()));
+		assertEquals(List.of(pageIds.get(0), pageIds.get(2), pageIds.get(1)), ids(descending.getContent()));
+	}
+
+	@Test
+	void searchPagesSortsPagesWithoutParentFirstOk() throws VempainAbstractException, VempainComponentException {
+		var pageIds = generatePages();
+		updatePage(pageIds.get(0), page -> page.setParentId(pageIds.get(1)));
+		updatePage(pageIds.get(2), page -> page.setParentId(pageIds.get(0)));
+
+		var result = pageRepository.searchPages(null, false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "parent_id")));
+
+		assertEquals(List.of(pageIds.get(1), pageIds.get(2), pageIds.get(0)), ids(result.getContent()));
+	}
+
+	@Test
+	void searchPagesSortsPathAndTitleIgnoringCaseOk() throws VempainAbstractException, VempainComponentException {
+		var pageIds = generatePages();
+		updatePage(pageIds.get(0), page -> {
+			page.setPagePath("/b");
+			page.setTitle("beta");
+		});
+		updatePage(pageIds.get(1), page -> {
+			page.setPagePath("/C");
+			page.setTitle("Alpha");
+		});
+		updatePage(pageIds.get(2), page -> {
+			page.setPagePath("/a");
+			page.setTitle("gamma");
+		});
+
+		var byPath = pageRepository.searchPages(null, false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "page_path")));
+		var byTitle = pageRepository.searchPages(null, false, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "title")));
+
+		assertEquals(List.of(pageIds.get(2), pageIds.get(0), pageIds.get(1)), ids(byPath.getContent()));
+		assertEquals(List.of(pageIds.get(1), pageIds.get(0), pageIds.get(2)), ids(byTitle.getContent()));
+	}
+
+	private List<Long> generatePages() throws VempainAbstractException, VempainComponentException {
+		var pageIds = new ArrayList<Long>();
+
+		for (var i = 0; i < 3; i++) {
+			pageIds.add(testITCTools.generatePage());
+		}
+
+		return pageIds;
+	}
+
+	private void updatePage(long pageId, Consumer<Page> update) {
+		var page = pageRepository.findById(pageId);
+		update.accept(page);
+		pageRepository.save(page);
+	}
+
+		private List<Long> ids(List<Page> pages) {
+		return pages.stream()
+		            .map(Page::getId)
+		            .toList();
+	}
+}
@@ -0,0 +1,76 @@
+package fi.poltsi.vempain.admin.repository.file;
+
+import fi.poltsi.vempain.admin.AbstractITCTest;
+import fi.poltsi.vempain.admin.entity.file.Gallery;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+class GalleryRepositoryITC extends AbstractITCTest {
+	@Test
+	void searchGalleriesWithoutFilterOk() {
+		var marker = RandomStringUtils.secure()
+		                              .nextAlphanumeric(12);
+		var userId1 = testITCTools.generateUser();
+		var userId2 = testITCTools.generateUser();
+		var gallery1 = fileService.createEmptyGallery("Gallery 1 " + marker, marker, userId1);
+		var gallery2 = fileService.createEmptyGallery("Gallery 2 " + marker, marker, userId2);
+
+		var result = galleryRepository.searchGalleriesWithoutFiles(marker, true, null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+
+		assertEquals(2, result.getTotalElements());
+		assertEquals(List.of(gallery2.getId(), gallery1.getId()), ids(result.getContent()));
+	}
+
+	@Test
+	void searchGalleriesFiltersByUserOk() {
+		var marker = RandomStringUtils.secure()
+		                              .nextAlphanumeric(12);
+		var userId1 = testITCTools.generateUser();
+		var userId2 = testITCTools.generateUser();
+		var gallery1 = fileService.createEmptyGallery("Gallery 1 " + marker, marker, userId1);
+		fileService.createEmptyGallery("Gallery 2 " + marker, marker, userId2);
+
+		var result = galleryRepository.searchGalleries(marker, true, new AclReadFilter(userId1, List.of()), PageRequest.of(0, 10));
+
+		assertEquals(1, result.getTotalElements());
+		assertEquals(List.of(gallery1.getId()), ids(result.getContent()));
+	}
+
+	@Test
+	void searchGalleriesForListFiltersByUnitBeforePagingOk() {
+		var marker = RandomStringUtils.secure()
+		                              .nextAlphanumeric(12);
+		var userId1 = testITCTools.generateUser();
+		var userId2 = testITCTools.generateUser();
+		// The first gallery is not readable, the next two fill the pages
+		fileService.createEmptyGallery("Gallery 1 " + marker, marker, userId2);
+		var gallery2 = fileService.createEmptyGallery("Gallery 2 " + marker, marker, userId1);
+		var gallery3 = fileService.createEmptyGallery("Gallery 3 " + marker, marker, userId2);
+		var unitId = testITCTools.generateUnit();
+		testITCTools.generateAclWithId(gallery3.getAclId(), null, unitId, true, false, false, false);
+		var readFilter = new AclReadFilter(userId1, List.of(unitId));
+
+		var firstPage = galleryRepository.searchGalleriesForList(marker, true, readFilter, PageRequest.of(0, 1, Sort.by("id")));
+		var secondPage = galleryRepository.searchGalleriesForList(marker, true, readFilter, PageRequest.of(1, 1, Sort.by("id")));
+
+		assertEquals(2, firstPage.getTotalElements());
+		assertEquals(2, firstPage.getTotalPages());
+		assertEquals(List.of(gallery2.getId()), ids(firstPage.getContent()));
+		assertEquals(List.of(gallery3.getId()), ids(secondPage.getContent()));
+	}
+
+	private List<Long> ids(List<Gallery> galleries) {
+		return galleries.stream()
+		                .map(Gallery::getId)
+		                .toList();
+	}
+}
@@ -7,13 +7,17 @@ import fi.poltsi.vempain.admin.service.SubjectService;
 import fi.poltsi.vempain.admin.service.file.SiteFileService;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 
 import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @Slf4j
 class SiteFileRepositoryITC extends AbstractITCTest {
@@ -117,4 +121,56 @@ class SiteFileRepositoryITC extends AbstractITCTest {
 
 		assertEquals(0, result.getTotalElements());
 	}
+
+	@Test
+	void findByGalleryIdsWithoutMetadataInSortOrderOk() {
+		var userId = testITCTools.generateUser();
+		var siteFile1 = saveSiteFile(userId, "gallery-file-1");
+		var siteFile2 = saveSiteFile(userId, "gallery-file-2");
+		var gallery = fileService.createGallery("Gallery " + siteFile1.getFileName(), "Gallery with files", userId, List.of(siteFile2, siteFile1));
+		var emptyGallery = fileService.createEmptyGallery("Empty " + siteFile1.getFileName(), "Gallery without files", userId);
+
+		var result = siteFileRepository.findByGalleryIdsWithoutMetadata(List.of(gallery.getId(), emptyGallery.getId()));
+
+		assertEquals(1, result.size());
+		var siteFiles = result.get(gallery.getId());
+		assertEquals(List.of(siteFile2.getId(), siteFile1.getId()), siteFiles.stream()
+		                                                                     .map(SiteFile::getId)
+		                                                                     .toList());
+		assertEquals(siteFile2.getFileName(), siteFiles.getFirst()
+		                                               .getFileName());
+		assertEquals(FileTypeEnum.IMAGE, siteFiles.getFirst()
+		                                          .getFileType());
+		assertEquals(siteFile2.getFileId(), siteFiles.getFirst()
+		                                             .getFileId());
+		assertEquals(siteFile2.getAclId(), siteFiles.getFirst()
+		                                            .getAclId());
+		assertEquals(siteFile2.getSha256sum(), siteFiles.getFirst()
+		                                                .getSha256sum());
+		assertEquals(siteFile2.getCreator(), siteFiles.getFirst()
+		                                             .getCreator());
+		assertNotNull(siteFiles.getFirst()
+		                       .getCreated());
+		assertNull(siteFiles.getFirst()
+		                    .getMetadata());
+	}
+
+	private SiteFile saveSiteFile(long userId, String fileName) {
+		var nextFileId = siteFileRepository.findMaxFileId();
+		var siteFile = SiteFile.builder()
+		                       .fileId(nextFileId == null ? 1L : nextFileId + 1)
+		                       .aclId(testITCTools.generateAcl(userId, null, true, true, true, true))
+		                       .filePath("gallery-path")
+		                       .fileName(fileName + "-" + RandomStringUtils.secure()
+		                                                                   .nextAlphanumeric(8))
+		                       .mimeType("image/jpeg")
+		                       .sha256sum("SHA256-" + fileName)
+		                       .fileType(FileTypeEnum.IMAGE)
+		                       .comment("")
+		                       .metadata("{\"Artist\": \"Test\"}")
+		                       .creator(userId)
+		                       .created(Instant.now())
+		                       .build();
+		return siteFileRepository.save(siteFile);
+	}
 }
@@ -4,6 +4,7 @@ import fi.poltsi.vempain.admin.entity.Component;
 import fi.poltsi.vempain.admin.entity.Form;
 import fi.poltsi.vempain.admin.entity.Layout;
 import fi.poltsi.vempain.admin.entity.Page;
+import fi.poltsi.vempain.admin.service.AccessService;
 import fi.poltsi.vempain.admin.service.ComponentService;
 import fi.poltsi.vempain.admin.service.FormService;
 import fi.poltsi.vempain.admin.service.LayoutService;
@@ -46,6 +47,8 @@ class AclConsistencyScheduleUTC {
 	private UserService      userService;
 	@Mock
 	private FileService      fileService;
+	@Mock
+	private AccessService    accessService;
 
 	@InjectMocks
 	private AclConsistencySchedule aclConsistencySchedule;
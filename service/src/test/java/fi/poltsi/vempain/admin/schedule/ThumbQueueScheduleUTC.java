@@ -0,0 +1,119 @@
+package fi.poltsi.vempain.admin.schedule;
+
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
+import fi.poltsi.vempain.admin.service.MetricsService;
+import fi.poltsi.vempain.admin.service.file.FileThumbService;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ThumbQueueScheduleUTC {
+	@Mock
+	private ThumbQueueService thumbQueueService;
+	@Mock
+	private FileThumbService  fileThumbService;
+
+	private SimpleMeterRegistry meterRegistry;
+	private ThumbQueueSchedule  thumbQueueSchedule;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry      = new SimpleMeterRegistry();
+		thumbQueueSchedule = new ThumbQueueSchedule(thumbQueueService, fileThumbService, new MetricsService(meterRegistry), 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		thumbQueueSchedule.shutdown();
+	}
+
+	@Test
+	void processQueueDrainsUntilEmpty() {
+		var first = entry(10L);
+		var second = entry(11L);
+		var third = entry(12L);
+		when(thumbQueueService.claim(2)).thenReturn(List.of(first, second), List.of(third), List.of());
+		when(thumbQueueService.getPendingCount()).thenReturn(1L, 0L, 0L);
+
+		thumbQueueSchedule.processQueue();
+
+		verify(fileThumbService).generateThumbFile(10L);
+		verify(fileThumbService).generateThumbFile(11L);
+		verify(fileThumbService).generateThumbFile(12L);
+		verify(thumbQueueService).complete(first);
+		verify(thumbQueueService).complete(second);
+		verify(thumbQueueService).complete(third);
+		verify(thumbQueueService, times(3)).claim(2);
+		assertEquals(3L, meterRegistry.get(MetricsService.THUMB_GENERATION)
+		                              .tag("outcome", "success")
+		                              .timer()
+		                              .count());
+		assertEquals(0.0, meterRegistry.get(MetricsService.THUMB_QUEUE_DEPTH)
+		                               .gauge()
+		                               .value());
+	}
+
+	@Test
+	void workerCountDefaultsToAvailableProcessors() {
+		var processors = Runtime.getRuntime()
+		                        .availableProcessors();
+		var entries = new ArrayList<ThumbQueueEntry>();
+
+		for (var i = 0; i < processors; i++) {
+			entries.add(entry(10L + i));
+		}
+
+		when(thumbQueueService.claim(processors)).thenReturn(entries, List.of());
+		var defaultSchedule = new ThumbQueueSchedule(thumbQueueService, fileThumbService, new MetricsService(new SimpleMeterRegistry()), 0);
+
+		try {
+			defaultSchedule.processQueue();
+		} finally {
+			defaultSchedule.shutdown();
+		}
+
+		verify(fileThumbService, times(processors)).generateThumbFile(anyLong());
+	}
+
+	@Test
+	void processQueueReturnsFailedThumbToQueue() {
+		var entry = entry(10L);
+		when(thumbQueueService.claim(2)).thenReturn(List.of(entry), List.of());
+		doThrow(new RuntimeException("Broken image")).when(fileThumbService)
+		                                             .generateThumbFile(10L);
+
+		thumbQueueSchedule.processQueue();
+
+		verify(thumbQueueService).fail(entry, "Broken image");
+		verify(thumbQueueService, never()).complete(any());
+		assertEquals(1L, meterRegistry.get(MetricsService.THUMB_GENERATION)
+		                              .tag("outcome", "failure")
+		                              .timer()
+		                              .count());
+	}
+
+	private ThumbQueueEntry entry(long siteFileId) {
+		return ThumbQueueEntry.builder()
+		                      .siteFileId(siteFileId)
+		                      .attempts(1)
+		                      .build();
+	}
+}
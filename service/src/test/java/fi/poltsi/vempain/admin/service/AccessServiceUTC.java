@@ -1,6 +1,8 @@
 package fi.poltsi.vempain.admin.service;
 
 import fi.poltsi.vempain.admin.VempainMessages;
+import fi.poltsi.vempain.admin.repository.AclPermissionRepository;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
 import fi.poltsi.vempain.auth.entity.Acl;
 import fi.poltsi.vempain.auth.entity.Unit;
@@ -8,9 +10,9 @@ import fi.poltsi.vempain.auth.entity.UserAccount;
 import fi.poltsi.vempain.auth.service.AclService;
 import fi.poltsi.vempain.auth.service.UserDetailsImpl;
 import fi.poltsi.vempain.auth.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.env.Environment;
@@ -19,6 +21,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.session.SessionAuthenticationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
@@ -27,11 +31,18 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,15 +52,21 @@ class AccessServiceUTC {
 	@Mock
 	SecurityContext securityContext;
 	@Mock
-	private AclService  aclService;
+	private AclService              aclService;
 	@Mock
-	private UserService userService;
+	private AclPermissionRepository aclPermissionRepository;
 	@Mock
-	private Environment environment;
+	private UserService             userService;
+	@Mock
+	private Environment             environment;
 
-	@InjectMocks
 	private AccessService accessService;
 
+	@BeforeEach
+	void setUp() {
+		accessService = new AccessService(aclService, aclPermissionRepository, userService, environment, 10, 60L);
+	}
+
 	@Test
 	void hasReadPermissionOk() {
 		when(environment.getProperty("vempain.test")).thenReturn("false");
@@ -205,6 +222,172 @@ class AccessServiceUTC {
 		}
 	}
 
+	@Test
+	void filterReadableOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		userAccount.getUnits()
+				   .add(TestUTCTools.generateUnit(2L));
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+
+		Acl userAcl = TestUTCTools.generateAcl(1L, 10L, 1L, null);
+		Acl unitAcl = TestUTCTools.generateAcl(2L, 11L, null, 2L);
+		Acl otherUserAcl = TestUTCTools.generateAcl(3L, 12L, 3L, null);
+		Acl noReadAcl = TestUTCTools.generateAcl(4L, 13L, 1L, null);
+		noReadAcl.setReadPrivilege(false);
+		when(aclPermissionRepository.findByAclIdIn(Set.of(10L, 11L, 12L, 13L, 14L))).thenReturn(List.of(userAcl, unitAcl, otherUserAcl, noReadAcl));
+
+		var readable = accessService.filterReadable(List.of(10L, 11L, 12L, 13L, 14L, 10L));
+
+		assertEquals(Set.of(10L, 11L), readable);
+		verify(userService, times(1)).findById(1L);
+		verify(aclService, never()).findAclByAclId(anyLong());
+	}
+
+	@Test
+	void filterReadableTestModeOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("true");
+
+		assertEquals(Set.of(1L, 2L), accessService.filterReadable(List.of(1L, 2L)));
+		verifyNoInteractions(aclPermissionRepository);
+	}
+
+	@Test
+	void filterReadableNoUserFail() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(null);
+		SecurityContextHolder.setContext(securityContext);
+
+		try {
+			accessService.filterReadable(List.of(1L));
+			fail("Should have received a SessionAuthenticationException");
+		} catch (SessionAuthenticationException e) {
+			assertEquals(VempainMessages.INVALID_USER_SESSION, e.getMessage());
+		}
+	}
+
+	@Test
+	void hasReadPermissionCachesUserAndPrivilegesOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+		Acl acl = TestUTCTools.generateAcl(1L, 1L, 1L, null);
+		acl.setDeletePrivilege(false);
+		when(aclService.findAclByAclId(1L)).thenReturn(List.of(acl));
+
+		assertTrue(accessService.hasReadPermission(1L));
+		assertTrue(accessService.hasModifyPermission(1L));
+		assertFalse(accessService.hasDeletePermission(1L));
+		assertEquals(Set.of(1L), accessService.filterReadable(List.of(1L)));
+
+		verify(userService, times(1)).findById(1L);
+		verify(aclService, times(1)).findAclByAclId(1L);
+		verifyNoInteractions(aclPermissionRepository);
+	}
+
+	@Test
+	void evictAllReloadsUserAndPrivilegesOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+		Acl acl = TestUTCTools.generateAcl(1L, 1L, 1L, null);
+		when(aclService.findAclByAclId(1L)).thenReturn(List.of(acl));
+
+		assertTrue(accessService.hasReadPermission(1L));
+		acl.setReadPrivilege(false);
+		assertTrue(accessService.hasReadPermission(1L));
+		accessService.evictAll();
+		assertFalse(accessService.hasReadPermission(1L));
+
+		verify(userService, times(2)).findById(1L);
+		verify(aclService, times(2)).findAclByAclId(1L);
+	}
+
+	@Test
+	void evictUserReloadsUnitsOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+		Acl acl = TestUTCTools.generateAcl(1L, 1L, null, 2L);
+		when(aclService.findAclByAclId(1L)).thenReturn(List.of(acl));
+
+		assertFalse(accessService.hasReadPermission(1L));
+		userAccount.getUnits()
+				   .add(TestUTCTools.generateUnit(2L));
+		accessService.evict(1L);
+		assertTrue(accessService.hasReadPermission(1L));
+
+		verify(userService, times(2)).findById(1L);
+	}
+
+	@Test
+	void evictAllWithinTransactionEvictsAgainAfterCommitOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+		Acl acl = TestUTCTools.generateAcl(1L, 1L, 1L, null);
+		when(aclService.findAclByAclId(1L)).thenReturn(List.of(acl));
+		TransactionSynchronizationManager.initSynchronization();
+
+		try {
+			accessService.evictAll();
+			// Another request caches the privileges as they were before the commit
+			assertTrue(accessService.hasReadPermission(1L));
+			acl.setReadPrivilege(false);
+			TransactionSynchronizationManager.getSynchronizations()
+											 .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertFalse(accessService.hasReadPermission(1L));
+		verify(aclService, times(2)).findAclByAclId(1L);
+	}
+
+	@Test
+	void getReadFilterOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("false");
+		when(securityContext.getAuthentication()).thenReturn(authentication);
+		SecurityContextHolder.setContext(securityContext);
+		UserAccount userAccount = TestUTCTools.generateUser(1L);
+		userAccount.getUnits()
+				   .add(TestUTCTools.generateUnit(3L));
+		userAccount.getUnits()
+				   .add(TestUTCTools.generateUnit(2L));
+		UserDetailsImpl userDetails = UserDetailsImpl.build(userAccount);
+		when(authentication.getPrincipal()).thenReturn(userDetails);
+		when(userService.findById(1L)).thenReturn(Optional.of(userAccount));
+
+		assertEquals(new AclReadFilter(1L, List.of(2L, 3L)), accessService.getReadFilter());
+	}
+
+	@Test
+	void getReadFilterTestModeOk() {
+		when(environment.getProperty("vempain.test")).thenReturn("true");
+
+		assertNull(accessService.getReadFilter());
+	}
+
 	@Test
 	void getUserIdOk() {
 		when(environment.getProperty("vempain.test")).thenReturn("false");
@@ -341,42 +524,42 @@ class AccessServiceUTC {
 
 	@Test
 	void aclListContainsPermissionOk() {
-		List<Boolean> permissionList = Arrays.asList(true, false, false, false);
+		int permissionMask = AccessService.READ_PRIVILEGE;
 		UserAccount userAccount = TestUTCTools.generateUser(1L);
 		List<Acl> acls = TestUTCTools.generateAclList(1L, 4L);
-		assertTrue(accessService.aclListContainsPermission(permissionList, userAccount, acls));
+		assertTrue(accessService.aclListContainsPermission(permissionMask, userAccount, acls));
 	}
 
 	@Test
 	void aclListContainsPermissionNoneFail() {
-		List<Boolean> permissionList = Arrays.asList(true, false, false, false);
+		int permissionMask = AccessService.READ_PRIVILEGE;
 		UserAccount userAccount = TestUTCTools.generateUser(5L);
 		List<Acl> acls = TestUTCTools.generateAclList(1L, 4L);
-		assertFalse(accessService.aclListContainsPermission(permissionList, userAccount, acls));
+		assertFalse(accessService.aclListContainsPermission(permissionMask, userAccount, acls));
 	}
 
 	@Test
 	void aclListContainsPermissionNoneListFail() {
-		List<Boolean> permissionList = Arrays.asList(false, false, false, false);
+		int permissionMask = 0;
 		UserAccount userAccount = TestUTCTools.generateUser(5L);
 		List<Acl> acls = TestUTCTools.generateAclList(1L, 4L);
-		assertFalse(accessService.aclListContainsPermission(permissionList, userAccount, acls));
+		assertFalse(accessService.aclListContainsPermission(permissionMask, userAccount, acls));
 	}
 
 	@Test
 	void aclListContainsPermissionUnitOk() {
-		List<Boolean> permissionList = Arrays.asList(true, false, false, false);
+		int permissionMask = AccessService.READ_PRIVILEGE;
 		UserAccount userAccount = TestUTCTools.generateUser(5L);
 		Unit unit = TestUTCTools.generateUnit(1L);
 		userAccount.getUnits()
 				   .add(unit);
 		List<Acl> acls = TestUTCTools.generateAclList(1L, 4L);
-		assertTrue(accessService.aclListContainsPermission(permissionList, userAccount, acls));
+		assertTrue(accessService.aclListContainsPermission(permissionMask, userAccount, acls));
 	}
 
 	@Test
 	void aclListContainsPermissionNoUserPermissionFail() {
-		testPermissions(Arrays.asList(true, false, false, false),
+		testPermissions(AccessService.READ_PRIVILEGE,
 						Arrays.asList(false, true, false, false),
 						Arrays.asList(false, true, false, false),
 						1L, 1L, false);
@@ -384,7 +567,7 @@ class AccessServiceUTC {
 
 	@Test
 	void aclListContainsPermissionUnitPermissionOk() {
-		testPermissions(Arrays.asList(true, false, false, false),
+		testPermissions(AccessService.READ_PRIVILEGE,
 						Arrays.asList(false, true, false, false),
 						Arrays.asList(true, false, false, false),
 						1L, 1L, true);
@@ -392,7 +575,7 @@ class AccessServiceUTC {
 
 	@Test
 	void aclListContainsPermissionUnitPermissionFail() {
-		testPermissions(Arrays.asList(true, false, false, false),
+		testPermissions(AccessService.READ_PRIVILEGE,
 						Arrays.asList(false, true, false, false),
 						Arrays.asList(false, true, false, false),
 						1L, 1L, false);
@@ -400,7 +583,7 @@ class AccessServiceUTC {
 
 	@Test
 	void aclListContainsPermissionNoUnitPermissionFail() {
-		testPermissions(Arrays.asList(true, false, false, false),
+		testPermissions(AccessService.READ_PRIVILEGE,
 						Arrays.asList(false, true, false, false),
 						Arrays.asList(false, true, false, false),
 						1L, 8L, false);
@@ -409,10 +592,9 @@ class AccessServiceUTC {
 	@Test
 	void hasPermissionsOk() {
 		Acl acl = TestUTCTools.generateAcl(1L, 1L, 1L, null);
-		List<Boolean> mask = Arrays.asList(false, false, false, false);
 
 		for (int i = 0; i < 4; i++) {
-			mask.set(i, true);
+			int mask = 1 << i;
 			acl.setReadPrivilege(false);
 			acl.setModifyPrivilege(false);
 			acl.setCreatePrivilege(false);
@@ -434,15 +616,13 @@ class AccessServiceUTC {
 			}
 
 			assertTrue(accessService.hasPermissions(acl, mask));
-
-			mask.set(i, false);
 		}
 	}
 
 	@Test
 	void hasPermissionsNoneFail() {
 		Acl acl = TestUTCTools.generateAcl(1L, 1L, 1L, null);
-		List<Boolean> mask = Arrays.asList(false, false, false, false);
+		int mask = 0;
 
 		acl.setReadPrivilege(false);
 		acl.setModifyPrivilege(false);
@@ -450,18 +630,16 @@ class AccessServiceUTC {
 		acl.setDeletePrivilege(false);
 
 		for (int i = 0; i < 4; i++) {
-			mask.set(i, true);
-			assertFalse(accessService.hasPermissions(acl, mask));
-			mask.set(i, false);
+			assertFalse(accessService.hasPermissions(acl, 1 << i));
 		}
 
 		for (int i = 0; i < 4; i++) {
-			mask.set(i, true);
+			mask |= 1 << i;
 			assertFalse(accessService.hasPermissions(acl, mask));
 		}
 	}
 
-	private void testPermissions(List<Boolean> permissionList, List<Boolean> userPermissions, List<Boolean> groupPermissions,
+	private void testPermissions(int permissionMask, List<Boolean> userPermissions, List<Boolean> groupPermissions,
 								 long userId, long unitId, boolean expectedResult) {
 		UserAccount userAccount = TestUTCTools.generateUser(userId);
 		Unit unit = TestUTCTools.generateUnit(unitId);
@@ -487,6 +665,6 @@ class AccessServiceUTC {
 			.setCreatePrivilege(groupPermissions.get(2));
 		acls.get(1)
 			.setDeletePrivilege(groupPermissions.get(3));
-		assertEquals(expectedResult, accessService.aclListContainsPermission(permissionList, userAccount, acls));
+		assertEquals(expectedResult, accessService.aclListContainsPermission(permissionMask, userAccount, acls));
 	}
 }
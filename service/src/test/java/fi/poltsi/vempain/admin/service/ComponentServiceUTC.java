@@ -21,14 +21,17 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
@@ -109,8 +112,7 @@ class ComponentServiceUTC {
 		}
 		when(componentRepository.findAll())
 				.thenReturn(inputComponents);
-		when(accessService.hasReadPermission(anyLong()))
-				.thenReturn(true);
+		when(accessService.filterReadable(anyCollection())).thenAnswer(invocation -> Set.copyOf(invocation.<Collection<Long>>getArgument(0)));
 
 		List<Component> components = componentService.findAllByUser();
 
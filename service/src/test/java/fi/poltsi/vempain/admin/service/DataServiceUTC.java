@@ -5,6 +5,8 @@ import fi.poltsi.vempain.admin.api.response.DataResponse;
 import fi.poltsi.vempain.admin.api.response.DataSummaryResponse;
 import fi.poltsi.vempain.admin.entity.DataEntity;
 import fi.poltsi.vempain.admin.repository.DataRepository;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService.DependencyType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,7 +37,9 @@ class DataServiceUTC {
 	private static final String TEST_IDENTIFIER = "test_data";
 
 	@Mock
-	private DataRepository dataRepository;
+	private DataRepository               dataRepository;
+	@Mock
+	private WebSitePageDependencyService webSitePageDependencyService;
 
 	private DataService dataService;
 	private JdbcTemplate mockJdbcTemplate;
@@ -43,7 +47,7 @@ class DataServiceUTC {
 	@BeforeEach
 	void setUp() {
 		var mockDataSource = mock(DataSource.class);
-		dataService = new DataService(dataRepository, mockDataSource);
+		dataService = new DataService(dataRepository, mockDataSource, webSitePageDependencyService);
 
 		mockJdbcTemplate = mock(JdbcTemplate.class);
 		// Inject the mock JdbcTemplate via reflection to control site DB interaction
@@ -304,6 +308,7 @@ class DataServiceUTC {
 		assertEquals(TEST_IDENTIFIER, response.getIdentifier());
 		verify(mockJdbcTemplate).execute("DROP TABLE IF EXISTS \"website_data__test_data\"");
 		verify(mockJdbcTemplate).execute("CREATE TABLE \"website_data__test_data\" (id BIGSERIAL PRIMARY KEY, title VARCHAR(255))");
+		verify(webSitePageDependencyService).resetCacheOfDependentPages(DependencyType.DATA, List.of(TEST_IDENTIFIER));
 	}
 
 	@Test
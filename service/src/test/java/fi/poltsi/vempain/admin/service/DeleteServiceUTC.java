@@ -45,6 +45,14 @@ class DeleteServiceUTC {
 	private FormRepository       formRepository;
 	@Mock
 	private LayoutRepository     layoutRepository;
+	@Mock
+	private LayoutService        layoutService;
+	@Mock
+	private FormService          formService;
+	@Mock
+	private ComponentService     componentService;
+	@Mock
+	private AccessService        accessService;
 
 	@InjectMocks
 	private DeleteService deleteService;
@@ -67,6 +75,7 @@ class DeleteServiceUTC {
 
 		verify(layoutRepository).deleteById(1L);
 		verify(aclRepository).deleteAclsByAclId(layout.getAclId());
+		verify(layoutService).evictCached(1L);
 	}
 
 	@Test
@@ -117,6 +126,7 @@ class DeleteServiceUTC {
 
 		verify(componentRepository).deleteById(1L);
 		verify(aclRepository).deleteAclsByAclId(component.getAclId());
+		verify(componentService).evictCached(1L);
 	}
 
 	@Test
@@ -168,6 +178,7 @@ class DeleteServiceUTC {
 
 		verify(formRepository).deleteById(2L);
 		verify(aclRepository).deleteAclsByAclId(form.getAclId());
+		verify(formService).evictCached(2L);
 	}
 
 	@Test
@@ -2,6 +2,7 @@ package fi.poltsi.vempain.admin.service;
 
 import fi.poltsi.vempain.admin.api.request.file.SiteFilePagedRequest;
 import fi.poltsi.vempain.admin.entity.Subject;
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.entity.file.GalleryFile;
@@ -370,6 +371,19 @@ class FileServiceUTC {
 		assertEquals(1, result.size());
 	}
 
+	@Test
+	void findPublishedRenditionsBySiteFileListOk() {
+		var rendition = FileRendition.builder()
+									 .parentId(1L)
+									 .name("site")
+									 .build();
+		when(fileThumbService.findPublishedRenditions(List.of(1L, 2L))).thenReturn(List.of(rendition));
+
+		var result = fileService.findPublishedRenditionsBySiteFileList(List.of(SiteFile.builder().id(1L).build(), SiteFile.builder().id(2L).build()));
+
+		assertEquals(List.of(rendition), result);
+	}
+
 	@Test
 	void refreshGalleryFilesOk() {
 		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(List.of());
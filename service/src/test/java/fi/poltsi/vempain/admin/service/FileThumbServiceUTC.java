@@ -1,31 +1,45 @@
 package fi.poltsi.vempain.admin.service;
 
+import fi.poltsi.vempain.admin.configuration.RenditionProperties;
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
 import fi.poltsi.vempain.admin.entity.file.FileThumb;
+import fi.poltsi.vempain.admin.repository.file.FileRenditionRepository;
 import fi.poltsi.vempain.admin.repository.file.FileThumbPageableRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.file.FileThumbService;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
 import fi.poltsi.vempain.tools.ImageTools;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 
 import static fi.poltsi.vempain.tools.LocalFileTools.createAndVerifyDirectory;
 import static fi.poltsi.vempain.tools.LocalFileTools.removeDirectory;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyFloat;
-import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @Slf4j
@@ -39,6 +53,14 @@ class FileThumbServiceUTC {
 	private SiteFileRepository          siteFileRepository;
 	@Mock
 	private ImageTools                  imageTools;
+	@Mock
+	private FileRenditionRepository     fileRenditionRepository;
+	@Mock
+	private MetricsService              metricsService;
+	@Spy
+	private RenditionProperties         renditionProperties = new RenditionProperties(List.of(
+			new RenditionProperties.Rendition("site", 1400, "jpeg", 0.8F, true, true),
+			new RenditionProperties.Rendition("retina", 2800, "jpeg", 0.7F, false, false)));
 
 	@InjectMocks
 	private FileThumbService fileThumbService;
@@ -60,8 +82,8 @@ class FileThumbServiceUTC {
 		when(siteFileRepository.findById(siteFileId)).thenReturn(Optional.of(siteFile));
 
 		var thumbDimension = new Dimension(250, 250);
-		when(imageTools.resizeImage(any(Path.class), any(Path.class), anyInt(), anyFloat()))
-				.thenReturn(thumbDimension);
+		when(imageTools.resizeImage(any(Path.class), anyList()))
+				.thenReturn(List.of(thumbDimension, new Dimension(1400, 1400), new Dimension(2800, 2800)));
 		when(imageTools.getImageDimensions(any(Path.class)))
 				.thenReturn(thumbDimension);
 		var thumbFileName = siteFile.getFileName();
@@ -77,11 +99,98 @@ class FileThumbServiceUTC {
 
 		fileThumbService.generateThumbFile(siteFileId);
 		verify(fileThumbPageableRepository, times(1)).save(any(FileThumb.class));
-		verify(imageTools, times(1)).resizeImage(any(Path.class), any(Path.class), anyInt(), anyFloat());
+		verify(imageTools, times(1)).resizeImage(any(Path.class), anyList());
 		verify(imageTools, times(1)).getImageDimensions(any(Path.class));
+		verify(fileRenditionRepository, times(2)).save(any(FileRendition.class));
+		verify(metricsService).recordThumbResize(anyLong());
+	}
+
+	@Test
+	void generateThumbFileStoresChecksumOfThumb() {
+		var siteFileId = 1L;
+		var siteFile = TestUTCTools.generateImageSiteFile(siteFileId, TEST_STORAGE_DIR);
+		assertNotNull(siteFile);
+		when(siteFileRepository.findById(siteFileId)).thenReturn(Optional.of(siteFile));
+		var thumbContent = "thumb".getBytes();
+		when(imageTools.resizeImage(any(Path.class), anyList())).thenAnswer(invocation -> {
+			List<ImageTools.ResizeTarget> targets = invocation.getArgument(1);
+			Files.write(targets.getFirst()
+			                   .destinationFile(), thumbContent);
+			return List.of(new Dimension(250, 250), new Dimension(1400, 1400), new Dimension(2800, 2800));
+		});
+		when(imageTools.getImageDimensions(any(Path.class))).thenReturn(new Dimension(250, 250));
+		when(fileThumbPageableRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		fileThumbService.generateThumbFile(siteFileId);
+
+		// A thumb regenerated from an unchanged original gets a new checksum when its own content changes
+		var fileThumbCaptor = ArgumentCaptor.forClass(FileThumb.class);
+		verify(fileThumbPageableRepository).save(fileThumbCaptor.capture());
+		assertEquals(DigestUtils.sha256Hex(thumbContent), fileThumbCaptor.getValue()
+		                                                                 .getSha1sum());
+	}
+
+	@Test
+	void findPublishedRenditionsOk() {
+		var rendition = FileRendition.builder()
+		                             .parentId(1L)
+		                             .name("site")
+		                             .build();
+		when(fileRenditionRepository.findByParentIdInAndNameIn(List.of(1L, 2L), List.of("site"))).thenReturn(List.of(rendition));
+
+		var renditions = fileThumbService.findPublishedRenditions(List.of(1L, 2L));
+
+		assertEquals(List.of(rendition), renditions);
 	}
 
 	@Test
+	void findPublishedRenditionsEmptyOk() {
+		assertTrue(fileThumbService.findPublishedRenditions(List.of())
+		                           .isEmpty());
+		verifyNoInteractions(fileRenditionRepository);
+	}
+
+	@Test
+	void findSiteFileIdsMissingRenditionsOk() throws IOException {
+		var renditionDirectory = Path.of(TEST_STORAGE_DIR, FileThumbService.RENDITION_DIRECTORY, "site", "image");
+		createAndVerifyDirectory(renditionDirectory);
+		Files.createFile(renditionDirectory.resolve("existing.jpeg"));
+		var missingFile = FileRendition.builder()
+		                               .id(10L)
+		                               .parentId(4L)
+		                               .name("site")
+		                               .filepath("rendition/site/image")
+		                               .filename("missing.jpeg")
+		                               .build();
+		var existingFile = FileRendition.builder()
+		                                .id(11L)
+		                                .parentId(5L)
+		                                .name("site")
+		                                .filepath("rendition/site/image")
+		                                .filename("existing.jpeg")
+		                                .build();
+		var laterFile = FileRendition.builder()
+		                             .id(12L)
+		                             .parentId(6L)
+		                             .name("retina")
+		                             .filepath("rendition/retina/image")
+		                             .filename("missing.jpeg")
+		                             .build();
+		fileThumbService.setRenditionCheckBatchSize(2);
+		when(fileRenditionRepository.findThumbParentIdsMissingRenditions(List.of("site", "retina"), 2L)).thenReturn(List.of(3L));
+		when(fileRenditionRepository.findByIdGreaterThanAndNameInOrderByIdAsc(0L, List.of("site", "retina"), Limit.of(2)))
+				.thenReturn(List.of(missingFile, existingFile));
+		when(fileRenditionRepository.findByIdGreaterThanAndNameInOrderByIdAsc(11L, List.of("site", "retina"), Limit.of(2)))
+				.thenReturn(List.of(laterFile));
+
+		// Each call checks the files of one batch of renditions, continuing from the previous batch and then starting over
+		assertEquals(List.of(3L, 4L), fileThumbService.findSiteFileIdsMissingRenditions());
+		assertEquals(List.of(3L, 6L), fileThumbService.findSiteFileIdsMissingRenditions());
+		assertEquals(List.of(3L, 4L), fileThumbService.findSiteFileIdsMissingRenditions());
+		verify(fileRenditionRepository, never()).findAll();
+	}
+
+		@Test
 	void deleteOk() {
 		fileThumbService.delete(1L);
 		verify(fileThumbPageableRepository, times(1)).deleteById(1L);
@@ -91,6 +200,7 @@ class FileThumbServiceUTC {
 	void deleteByParentIdOk() {
 		fileThumbService.deleteByParentId(5L);
 		verify(fileThumbPageableRepository, times(1)).deleteByParentId(5L);
+		verify(fileRenditionRepository, times(1)).deleteByParentId(5L);
 	}
 
 }
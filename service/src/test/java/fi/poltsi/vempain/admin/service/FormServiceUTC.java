@@ -7,6 +7,7 @@ import fi.poltsi.vempain.admin.api.request.FormRequest;
 import fi.poltsi.vempain.admin.api.response.FormResponse;
 import fi.poltsi.vempain.admin.entity.Component;
 import fi.poltsi.vempain.admin.entity.Form;
+import fi.poltsi.vempain.admin.entity.FormComponent;
 import fi.poltsi.vempain.admin.exception.EntityAlreadyExistsException;
 import fi.poltsi.vempain.admin.exception.InvalidRequestException;
 import fi.poltsi.vempain.admin.exception.ProcessingFailedException;
@@ -28,19 +29,25 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -77,6 +84,32 @@ class FormServiceUTC {
 		}
 	}
 
+	@Test
+	void findCachedByIdReadsFormOnceUntilSaved() throws VempainEntityNotFoundException {
+		Form form = TestUTCTools.generateForm(1L, 1L);
+		when(formRepository.findById(1L)).thenReturn(Optional.of(form));
+		when(formComponentService.findFormComponentByFormId(1L)).thenReturn(List.of(FormComponent.builder()
+																								  .formId(1L)
+																								  .componentId(2L)
+																								  .sortOrder(0L)
+																								  .build()));
+
+		assertSame(form, formService.findCachedById(1L));
+		assertSame(form, formService.findCachedById(1L));
+		assertEquals(1, formService.findAllFormComponentsByFormId(1L)
+								   .size());
+		assertEquals(1, formService.findAllFormComponentsByFormId(1L)
+								   .size());
+		verify(formRepository, times(1)).findById(1L);
+		verify(formComponentService, times(1)).findFormComponentByFormId(1L);
+
+		formService.save(form);
+		formService.findCachedById(1L);
+		formService.findAllFormComponentsByFormId(1L);
+		verify(formRepository, times(2)).findById(1L);
+		verify(formComponentService, times(2)).findFormComponentByFormId(1L);
+	}
+
 	@Test
 	void findAllNullResultOk() {
 		when(formRepository.findAll()).thenReturn(null);
@@ -107,7 +140,7 @@ class FormServiceUTC {
 	void findAllAsResponsesForUserOk() {
 		List<Form> forms = TestUTCTools.generateFormList(itemCount);
 		when(formRepository.findAll()).thenReturn(forms);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(true);
+		when(accessService.filterReadable(anyCollection())).thenAnswer(invocation -> Set.copyOf(invocation.<Collection<Long>>getArgument(0)));
 
 		try {
 			List<FormResponse> responses = formService.findAllAsResponsesForUser(QueryDetailEnum.FULL);
@@ -122,7 +155,7 @@ class FormServiceUTC {
 	void findAllAsResponsesForUserNoAccessOk() {
 		List<Form> forms = TestUTCTools.generateFormList(itemCount);
 		when(formRepository.findAll()).thenReturn(forms);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(false);
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of());
 
 		try {
 			List<FormResponse> responses = formService.findAllAsResponsesForUser(QueryDetailEnum.FULL);
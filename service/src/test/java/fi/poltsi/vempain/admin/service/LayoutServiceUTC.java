@@ -24,14 +24,19 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
@@ -71,10 +76,27 @@ class LayoutServiceUTC {
 									 .count());
 	}
 
+	@Test
+	void getCompiledTemplateRecompilesOnlyWhenModified() {
+		Layout layout = TestUTCTools.generateLayout(1L);
+		layout.setStructure("<div><!--page--></div>");
+
+		var template = layoutService.getCompiledTemplate(layout);
+		assertSame(template, layoutService.getCompiledTemplate(layout));
+		assertEquals("?><div>body</div><?php ", template.render("body", List.of()));
+
+		layout.setStructure("<p><!--page--></p>");
+		layout.setModified(layout.getModified()
+								 .plus(1, ChronoUnit.MINUTES));
+		var modifiedTemplate = layoutService.getCompiledTemplate(layout);
+		assertNotSame(template, modifiedTemplate);
+		assertEquals("?><p>body</p><?php ", modifiedTemplate.render("body", List.of()));
+	}
+
 	@Test
 	void findAllByUserOk() {
 		MockRepositoryTools.layoutRepositoryFindAllOk(layoutRepository, count);
-		when(accessService.hasReadPermission(1L)).thenReturn(true);
+		when(accessService.filterReadable(anyCollection())).thenAnswer(invocation -> Set.copyOf(invocation.<Collection<Long>>getArgument(0)));
 
 		List<LayoutResponse> layoutResponses = layoutService.findAllByUser();
 		assertNotNull(layoutResponses);
@@ -93,7 +115,7 @@ class LayoutServiceUTC {
 	@Test
 	void findAllByUserNoPermissionOk() {
 		MockRepositoryTools.layoutRepositoryFindAllOk(layoutRepository, count);
-		when(accessService.hasReadPermission(1L)).thenReturn(false);
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of());
 
 		List<LayoutResponse> layoutResponses = layoutService.findAllByUser();
 		assertNotNull(layoutResponses);
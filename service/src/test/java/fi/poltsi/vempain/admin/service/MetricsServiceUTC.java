@@ -0,0 +1,80 @@
+package fi.poltsi.vempain.admin.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsServiceUTC {
+	private SimpleMeterRegistry meterRegistry;
+	private MetricsService      metricsService;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry  = new SimpleMeterRegistry();
+		metricsService = new MetricsService(meterRegistry);
+	}
+
+	@Test
+	void recordSftpUploadCountsBytesAndTime() {
+		metricsService.recordSftpUpload(1024L, TimeUnit.MILLISECONDS.toNanos(20));
+		metricsService.recordSftpUpload(2048L, TimeUnit.MILLISECONDS.toNanos(40));
+
+		assertEquals(3072.0, meterRegistry.get(MetricsService.SFTP_BYTES)
+		                                  .counter()
+		                                  .count());
+		var timer = meterRegistry.get(MetricsService.SFTP_UPLOAD)
+		                         .timer();
+		assertEquals(2L, timer.count());
+		assertEquals(60.0, timer.totalTime(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void recordPublishIsTaggedByType() {
+		metricsService.recordGalleryPublish(TimeUnit.SECONDS.toNanos(2));
+		metricsService.recordPagePublish(TimeUnit.SECONDS.toNanos(1));
+		metricsService.recordPagePublish(TimeUnit.SECONDS.toNanos(1));
+
+		assertEquals(1L, meterRegistry.get(MetricsService.PUBLISH_DURATION)
+		                              .tag("type", MetricsService.PUBLISH_TYPE_GALLERY)
+		                              .timer()
+		                              .count());
+		assertEquals(2L, meterRegistry.get(MetricsService.PUBLISH_DURATION)
+		                              .tag("type", MetricsService.PUBLISH_TYPE_PAGE)
+		                              .timer()
+		                              .count());
+	}
+
+	@Test
+	void thumbQueueGaugesFollowTheQueue() {
+		metricsService.setThumbQueueDepth(5L);
+		metricsService.thumbGenerationStarted();
+		metricsService.thumbGenerationStarted();
+		metricsService.thumbGenerationFinished();
+
+		assertEquals(5.0, meterRegistry.get(MetricsService.THUMB_QUEUE_DEPTH)
+		                               .gauge()
+		                               .value());
+		assertEquals(1.0, meterRegistry.get(MetricsService.THUMB_IN_PROGRESS)
+		                               .gauge()
+		                               .value());
+	}
+
+	@Test
+	void recordThumbGenerationIsTaggedByOutcome() {
+		metricsService.recordThumbGeneration(TimeUnit.MILLISECONDS.toNanos(300), true);
+		metricsService.recordThumbGeneration(TimeUnit.MILLISECONDS.toNanos(100), false);
+
+		assertEquals(1L, meterRegistry.get(MetricsService.THUMB_GENERATION)
+		                              .tag("outcome", "success")
+		                              .timer()
+		                              .count());
+		assertEquals(1L, meterRegistry.get(MetricsService.THUMB_GENERATION)
+		                              .tag("outcome", "failure")
+		                              .timer()
+		                              .count());
+	}
+}
@@ -5,6 +5,7 @@ import fi.poltsi.vempain.admin.api.request.PagePagedRequest;
 import fi.poltsi.vempain.admin.api.request.PageRequest;
 import fi.poltsi.vempain.admin.entity.Page;
 import fi.poltsi.vempain.admin.exception.ProcessingFailedException;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import fi.poltsi.vempain.admin.repository.PageRepository;
 import fi.poltsi.vempain.admin.tools.TestUTCTools;
 import fi.poltsi.vempain.auth.exception.VempainAclException;
@@ -12,24 +13,31 @@ import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
 import fi.poltsi.vempain.auth.service.AclService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,7 +71,7 @@ class PageServiceUTC {
 	void findAllByUserOk() {
 		List<Page> pages = TestUTCTools.generatePageList(10L);
 		when(pageRepository.findAll()).thenReturn(pages);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(true);
+		when(accessService.filterReadable(anyCollection())).thenAnswer(invocation -> Set.copyOf(invocation.<Collection<Long>>getArgument(0)));
 
 		try {
 			Iterable<Page> returnPages = pageService.findAllByUser();
@@ -79,7 +87,7 @@ class PageServiceUTC {
 	void findAllByUserNoAccessOk() {
 		List<Page> pages = TestUTCTools.generatePageList(10L);
 		when(pageRepository.findAll()).thenReturn(pages);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(false);
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of());
 
 		try {
 			Iterable<Page> returnPages = pageService.findAllByUser();
@@ -92,73 +100,56 @@ class PageServiceUTC {
 	}
 
 	@Test
-	void findPagedByUserAppliesPaginationAndSorting() {
-		var pages = TestUTCTools.generatePageList(5L);
-		when(pageRepository.findAll()).thenReturn(pages);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(true);
+	void findPagedByUserPagesInDatabase() {
+		var pages = TestUTCTools.generatePageList(2L);
+		var readFilter = new AclReadFilter(1L, List.of(2L));
+		when(accessService.getReadFilter()).thenReturn(readFilter);
+		when(pageRepository.searchPages(eq("/page"), eq(true), eq(readFilter), any(Pageable.class)))
+				.thenAnswer(invocation -> new PageImpl<>(pages, invocation.getArgument(3), 5));
 
 		var request = new PagePagedRequest();
 		request.setPage(1);
 		request.setSize(2);
-		request.setSortBy("id");
+		request.setSearch("/page");
+		request.setCaseSensitive(true);
+		request.setSortBy("modified");
 		request.setDirection(Sort.Direction.DESC);
 
 		var response = pageService.findPagedByUser(request);
 
+		var pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+		verify(pageRepository).searchPages(eq("/page"), eq(true), eq(readFilter), pageableCaptor.capture());
+		assertEquals(1, pageableCaptor.getValue()
+		                              .getPageNumber());
+		assertEquals(2, pageableCaptor.getValue()
+		                              .getPageSize());
+		assertEquals(Sort.by(Sort.Direction.DESC, "modified"), pageableCaptor.getValue()
+		                                                                    .getSort());
 		assertEquals(5, response.getTotalElements());
 		assertEquals(3, response.getTotalPages());
-		assertEquals(2, response.getContent()
-		                        .size());
-		assertEquals(3L, response.getContent()
-		                         .get(0)
-		                         .getId());
-	}
-
-	@Test
-	void findPagedByUserSortsByModified() {
-		var pages = TestUTCTools.generatePageList(3L);
-		pages.get(0)
-		     .setModified(Instant.parse("2026-03-10T14:00:00Z"));
-		pages.get(1)
-		     .setModified(Instant.parse("2026-03-10T12:00:00Z"));
-		pages.get(2)
-		     .setModified(Instant.parse("2026-03-10T13:00:00Z"));
-		when(pageRepository.findAll()).thenReturn(pages);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(true);
-
-		var request = new PagePagedRequest();
-		request.setPage(0);
-		request.setSize(25);
-		request.setSortBy("modified");
-		request.setDirection(Sort.Direction.ASC);
-
-		var response = pageService.findPagedByUser(request);
-
-		assertEquals(List.of(2L, 3L, 1L), response.getContent()
-												  .stream()
-												  .map(page -> page.getId())
-												  .toList());
+		assertEquals(List.of(1L, 2L), response.getContent()
+		                                      .stream()
+		                                      .map(page -> page.getId())
+		                                      .toList());
 	}
 
 	@Test
-	void findPagedByUserAppliesSearch() {
-		var pages = TestUTCTools.generatePageList(5L);
-		pages.get(2)
-		     .setPagePath("/page/3");
-		when(pageRepository.findAll()).thenReturn(pages);
-		when(accessService.hasReadPermission(anyLong())).thenReturn(true);
+	void findPagedByUserWithoutSortIsUnsorted() {
+		when(pageRepository.searchPages(any(), eq(false), any(), any(Pageable.class)))
+				.thenAnswer(invocation -> new PageImpl<>(List.of(), invocation.getArgument(3), 0));
 
 		var request = new PagePagedRequest();
 		request.setPage(0);
 		request.setSize(25);
-		request.setSearch("/page/3");
 
 		var response = pageService.findPagedByUser(request);
 
-		assertEquals(1, response.getTotalElements());
-		assertEquals("/page/3", response.getContent()
-		                                .get(0)
-		                                .getPagePath());
+		var pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+		verify(pageRepository).searchPages(any(), eq(false), any(), pageableCaptor.capture());
+		assertTrue(pageableCaptor.getValue()
+		                         .getSort()
+		                         .isUnsorted());
+		assertEquals(0, response.getTotalElements());
 	}
 
 	@Test
@@ -0,0 +1,227 @@
+package fi.poltsi.vempain.admin.service;
+
+import fi.poltsi.vempain.admin.api.ContentTypeEnum;
+import fi.poltsi.vempain.admin.api.PublishJobStatusEnum;
+import fi.poltsi.vempain.admin.api.PublishResultEnum;
+import fi.poltsi.vempain.admin.api.response.PublishItemResponse;
+import fi.poltsi.vempain.admin.api.response.PublishJobResponse;
+import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PublishJobServiceUTC {
+	@Mock
+	private PublishService publishService;
+
+	private PublishJobService publishJobService;
+
+	@BeforeEach
+	void setUp() {
+		publishJobService = new PublishJobService(publishService, 1, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		publishJobService.shutdown();
+	}
+
+	@Test
+	void submitGalleryJobPublishesEveryGalleryAndCountsFailures() throws Exception {
+		stubPublishGalleries(galleryId -> switch (galleryId.intValue()) {
+			case 1 -> okItem(galleryId, 100L, 50L);
+			case 2 -> failItem(galleryId, "Gallery not found");
+			default -> okItem(galleryId, 0L, 0L);
+		});
+
+		var job = publishJobService.submit(ContentTypeEnum.GALLERY, List.of(1L, 2L, 3L));
+		var result = awaitFinished(job.getJobId());
+
+		assertEquals(PublishJobStatusEnum.COMPLETED, result.getStatus());
+		assertEquals(3, result.getTotalItems());
+		assertEquals(2, result.getCompletedItems());
+		assertEquals(1, result.getFailedItems());
+		assertEquals(2L, result.getFailures()
+		                       .getFirst()
+		                       .getItemId());
+		assertEquals("Gallery not found", result.getFailures()
+		                                        .getFirst()
+		                                        .getMessage());
+		assertEquals(100L, result.getBytesSent());
+		assertEquals(50L, result.getBytesSkipped());
+		assertNotNull(result.getFinished());
+	}
+
+	@Test
+	void submitPageJobPublishesEachPage() throws Exception {
+		var job = publishJobService.submit(ContentTypeEnum.PAGE, List.of(1L, 2L));
+		var result = awaitFinished(job.getJobId());
+
+		assertEquals(PublishJobStatusEnum.COMPLETED, result.getStatus());
+		assertEquals(2, result.getCompletedItems());
+		verify(publishService).publishPage(1L);
+		verify(publishService).publishPage(2L);
+	}
+
+	@Test
+	void submitJobWhereEveryItemFailsIsFailed() throws Exception {
+		doThrow(new VempainEntityNotFoundException("Page not found", "page")).when(publishService)
+		                                                                    .publishPage(1L);
+
+		var job = publishJobService.submit(ContentTypeEnum.PAGE, List.of(1L));
+		var result = awaitFinished(job.getJobId());
+
+		assertEquals(PublishJobStatusEnum.FAILED, result.getStatus());
+	}
+
+	@Test
+	void submitUnsupportedContentTypeFails() {
+		var exception = assertThrows(ResponseStatusException.class, () -> publishJobService.submit(ContentTypeEnum.FORM, List.of(1L)));
+		assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+	}
+
+	@Test
+	void submitRejectsJobsWhenQueueIsFull() throws Exception {
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var published = new CopyOnWriteArrayList<Long>();
+		stubPublishGalleries(galleryId -> {
+			published.add(galleryId);
+			started.countDown();
+			awaitRelease(release);
+			return okItem(galleryId, 0L, 0L);
+		});
+
+		publishJobService.submit(ContentTypeEnum.GALLERY, List.of(1L));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		var queued = publishJobService.submit(ContentTypeEnum.GALLERY, List.of(2L));
+
+		var exception = assertThrows(ResponseStatusException.class, () -> publishJobService.submit(ContentTypeEnum.GALLERY, List.of(3L)));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+
+		var cancelled = publishJobService.cancel(queued.getJobId());
+		assertEquals(PublishJobStatusEnum.CANCELLED, cancelled.getStatus());
+		release.countDown();
+		awaitFinished(queued.getJobId());
+		assertEquals(List.of(1L), published);
+	}
+
+	@Test
+	void cancelRunningJobStopsAfterCurrentItem() throws Exception {
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var published = new CopyOnWriteArrayList<Long>();
+		stubPublishGalleries(galleryId -> {
+			published.add(galleryId);
+			started.countDown();
+			awaitRelease(release);
+			return okItem(galleryId, 0L, 0L);
+		});
+
+		var job = publishJobService.submit(ContentTypeEnum.GALLERY, List.of(1L, 2L));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		publishJobService.cancel(job.getJobId());
+		release.countDown();
+		var result = awaitFinished(job.getJobId());
+
+		assertEquals(PublishJobStatusEnum.CANCELLED, result.getStatus());
+		assertEquals(1, result.getCompletedItems());
+		assertEquals(List.of(1L), published);
+	}
+
+	@Test
+	void getJobUnknownIdFails() {
+		var exception = assertThrows(ResponseStatusException.class, () -> publishJobService.getJob(-1L));
+		assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+	}
+
+	/**
+	 * Stub the parallel gallery publishing to publish the galleries one at a time in the given order, honouring the cancellation the same way
+	 */
+	private void stubPublishGalleries(Function<Long, PublishItemResponse> publisher) {
+		doAnswer(invocation -> {
+			List<Long> galleryIds = invocation.getArgument(0);
+			Consumer<PublishItemResponse> onPublished = invocation.getArgument(1);
+			BooleanSupplier cancelled = invocation.getArgument(2);
+			var items = new ArrayList<PublishItemResponse>();
+
+			for (var galleryId : galleryIds) {
+				if (cancelled.getAsBoolean()) {
+					continue;
+				}
+
+				var item = publisher.apply(galleryId);
+				onPublished.accept(item);
+				items.add(item);
+			}
+
+			return items;
+		}).when(publishService)
+		  .publishGalleries(anyList(), any(), any());
+	}
+
+	private PublishItemResponse okItem(long galleryId, long bytesSent, long bytesSkipped) {
+		return PublishItemResponse.builder()
+		                          .itemId(galleryId)
+		                          .result(PublishResultEnum.OK)
+		                          .bytesSent(bytesSent)
+		                          .bytesSkipped(bytesSkipped)
+		                          .build();
+	}
+
+	private PublishItemResponse failItem(long galleryId, String message) {
+		return PublishItemResponse.builder()
+		                          .itemId(galleryId)
+		                          .result(PublishResultEnum.FAIL)
+		                          .message(message)
+		                          .build();
+	}
+
+	private void awaitRelease(CountDownLatch release) {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+			      .interrupt();
+		}
+	}
+
+	private PublishJobResponse awaitFinished(long jobId) throws InterruptedException {
+		for (var i = 0; i < 500; i++) {
+			var job = publishJobService.getJob(jobId);
+
+			if (job.getFinished() != null) {
+				return job;
+			}
+
+			Thread.sleep(10);
+		}
+
+		throw new AssertionError("Publish job " + jobId + " did not finish in time");
+	}
+}
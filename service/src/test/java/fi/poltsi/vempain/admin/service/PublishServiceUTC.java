@@ -1,48 +1,80 @@
 package fi.poltsi.vempain.admin.service;
 
 import fi.poltsi.vempain.admin.api.PublishResultEnum;
+import fi.poltsi.vempain.admin.api.response.PublishItemResponse;
 import fi.poltsi.vempain.admin.api.response.PublishResponse;
+import fi.poltsi.vempain.admin.entity.Form;
+import fi.poltsi.vempain.admin.entity.Layout;
+import fi.poltsi.vempain.admin.entity.Page;
+import fi.poltsi.vempain.admin.entity.Subject;
+import fi.poltsi.vempain.admin.entity.file.FileThumb;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
-import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
+import fi.poltsi.vempain.admin.entity.file.GalleryFile;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
 import fi.poltsi.vempain.admin.service.file.FileService;
+import fi.poltsi.vempain.admin.service.file.FileThumbService;
 import fi.poltsi.vempain.admin.service.file.GalleryFileService;
-import fi.poltsi.vempain.auth.service.UserService;
-import fi.poltsi.vempain.site.repository.WebGpsLocationRepository;
-import fi.poltsi.vempain.site.repository.WebSiteFileRepository;
+import fi.poltsi.vempain.admin.service.file.ThumbQueueService;
+import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+import fi.poltsi.vempain.site.entity.WebSiteGallery;
+import fi.poltsi.vempain.site.entity.WebSitePage;
+import fi.poltsi.vempain.site.entity.WebSiteSubject;
 import fi.poltsi.vempain.site.repository.WebSiteGalleryRepository;
 import fi.poltsi.vempain.site.repository.WebSitePageRepository;
+import fi.poltsi.vempain.site.service.WebSiteFileBatchService;
+import fi.poltsi.vempain.site.service.WebSitePageDependencyService;
+import fi.poltsi.vempain.site.service.WebSitePublishManifestService;
 import fi.poltsi.vempain.site.service.WebSiteResourceService;
 import fi.poltsi.vempain.site.service.WebSiteSubjectService;
 import fi.poltsi.vempain.tools.JschClient;
+import fi.poltsi.vempain.tools.LayoutTemplate;
+import fi.poltsi.vempain.tools.SiteTransferStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class PublishServiceUTC {
-	@Mock
-	private SiteFileRepository       siteFileRepository;
 	@Mock
 	private WebSitePageRepository    webSitePageRepository;
 	@Mock
 	private WebSiteGalleryRepository webSiteGalleryRepository;
 	@Mock
-	private WebSiteFileRepository    webSiteFileRepository;
-	@Mock
-	private WebGpsLocationRepository webGpsLocationRepository;
-	@Mock
 	private PageService              pageService;
 	@Mock
 	private FormService              formService;
@@ -53,21 +85,37 @@ class PublishServiceUTC {
 	@Mock
 	private LayoutService            layoutService;
 	@Mock
-	private UserService              userService;
+	private UserNickService          userNickService;
 	@Mock
 	private SubjectService           subjectService;
 	@Mock
 	private GalleryFileService    galleryFileService;
 	@Mock
+	private FileThumbService      fileThumbService;
+	@Mock
+	private ThumbQueueService     thumbQueueService;
+	@Mock
 	private WebSiteSubjectService webSiteSubjectService;
 	@Mock
 	private PageGalleryService    pageGalleryService;
 	@Mock
 	private JschClient               jschClient;
 	@Mock
+	private JschClient.SiteTransfer  siteTransfer;
+	@Mock
 	private WebSiteResourceService   webSiteResourceService;
 	@Mock
+	private WebSiteFileBatchService  webSiteFileBatchService;
+	@Mock
+	private WebSitePublishManifestService webSitePublishManifestService;
+	@Mock
+	private WebSitePageDependencyService webSitePageDependencyService;
+	@Mock
 	private AccessService            accessService;
+	@Mock
+	private MetricsService           metricsService;
+	@Mock
+	private PlatformTransactionManager transactionManager;
 
 	@InjectMocks
 	private PublishService publishService;
@@ -76,9 +124,53 @@ class PublishServiceUTC {
 
 	@BeforeEach
 	void setupSpy() {
+		ReflectionTestUtils.setField(publishService, "parallelGalleries", 2);
 		publishServiceSpy = Mockito.spy(publishService);
 	}
 
+	@Test
+	void publishPageResetsCacheOfCurrentAndPreviousParentPage() throws Exception {
+		var page = Page.builder()
+		               .id(5L)
+		               .parentId(2L)
+		               .formId(3L)
+		               .pagePath("child")
+		               .title("Child")
+		               .header("Child")
+		               .body("Body")
+		               .creator(1L)
+		               .created(Instant.now())
+		               .build();
+		var layout = Layout.builder()
+		                   .id(4L)
+		                   .structure("<!--page-->")
+		                   .created(Instant.now())
+		                   .build();
+		var sitePage = WebSitePage.builder()
+		                          .id(20L)
+		                          .aclId(30L)
+		                          .pageId(5L)
+		                          .parentId(1L)
+		                          .build();
+		when(pageService.findById(5L)).thenReturn(page);
+		when(formService.findCachedById(3L)).thenReturn(Form.builder()
+		                                                    .id(3L)
+		                                                    .layoutId(4L)
+		                                                    .build());
+		when(formService.findAllFormComponentsByFormId(3L)).thenReturn(List.of());
+		when(layoutService.findCachedById(4L)).thenReturn(layout);
+		when(layoutService.getCompiledTemplate(layout)).thenReturn(LayoutTemplate.compile(layout.getStructure()));
+		when(webSitePageRepository.findByPageId(5L)).thenReturn(Optional.of(sitePage));
+		when(webSitePageRepository.save(sitePage)).thenReturn(sitePage);
+		when(pageGalleryService.findPageGalleryByPageId(5L)).thenReturn(List.of());
+
+		publishService.publishPage(5L);
+
+		// The page was moved from under page 1 to under page 2, both index pages list it
+		verify(webSitePageDependencyService).resetCache(List.of(20L), new TreeSet<>(List.of(1L, 2L)));
+		verify(webSitePageDependencyService).replaceDependencies(20L, Set.of());
+	}
+
 	@Test
 	void publishSelectedGalleriesPublishesAllowedOnes() throws Exception {
 		var gallery = Gallery.builder()
@@ -88,8 +180,8 @@ class PublishServiceUTC {
 		when(fileService.findGalleryById(1L)).thenReturn(gallery);
 		when(fileService.findGalleryById(2L)).thenReturn(null);
 		when(accessService.hasModifyPermission(101L)).thenReturn(true);
-		doNothing().when(publishServiceSpy)
-				   .publishGallery(1L);
+		doReturn(SiteTransferStatistics.EMPTY).when(publishServiceSpy)
+											  .publishGallery(1L);
 
 		PublishResponse response = publishServiceSpy.publishSelectedGalleries(List.of(1L, 2L));
 
@@ -106,5 +198,225 @@ class PublishServiceUTC {
 
 		assertEquals(PublishResultEnum.FAIL, response.getResult());
 	}
-}
 
+	@Test
+	void publishGalleriesPublishesEachGalleryInOwnTransaction() throws Exception {
+		doReturn(new SiteTransferStatistics(2, 2048L, 1, 512L)).when(publishServiceSpy)
+															 .publishGallery(1L);
+		doThrow(new VempainEntityNotFoundException("Gallery not found", "gallery")).when(publishServiceSpy)
+																				  .publishGallery(2L);
+		doReturn(SiteTransferStatistics.EMPTY).when(publishServiceSpy)
+											  .publishGallery(3L);
+
+		var reported = new CopyOnWriteArrayList<PublishItemResponse>();
+
+		var items = publishServiceSpy.publishGalleries(List.of(1L, 2L, 3L), reported::add, () -> false);
+
+		assertEquals(List.of(1L, 2L, 3L), items.stream()
+											   .map(PublishItemResponse::getItemId)
+											   .toList());
+		assertEquals(PublishResultEnum.OK, items.get(0)
+												.getResult());
+		assertEquals(2048L, items.get(0)
+								 .getBytesSent());
+		assertEquals(512L, items.get(0)
+								.getBytesSkipped());
+		assertEquals(PublishResultEnum.FAIL, items.get(1)
+												  .getResult());
+		assertEquals(3, reported.size());
+		verify(transactionManager, times(3)).getTransaction(any());
+		verify(transactionManager, times(2)).commit(any());
+		verify(transactionManager).rollback(any());
+	}
+
+	@Test
+	void publishGalleriesSkipsGalleriesNotStartedWhenCancelled() throws Exception {
+		var reported = new CopyOnWriteArrayList<PublishItemResponse>();
+
+		var items = publishServiceSpy.publishGalleries(List.of(1L, 2L), reported::add, () -> true);
+
+		assertTrue(items.isEmpty());
+		assertTrue(reported.isEmpty());
+		verify(publishServiceSpy, never()).publishGallery(anyLong());
+		verify(transactionManager, never()).getTransaction(any());
+	}
+
+	@Test
+	void publishGalleryWritesSiteFilesAsOneBatch() throws Exception {
+		var siteFiles = new ArrayList<SiteFile>();
+		var galleryFiles = new ArrayList<GalleryFile>();
+
+		for (long i = 1; i <= 3; i++) {
+			siteFiles.add(SiteFile.builder()
+								  .id(i)
+								  .fileName("file" + i + ".jpg")
+								  .filePath("dir")
+								  .mimeType("image/jpeg")
+								  .fileType(FileTypeEnum.IMAGE)
+								  .build());
+			galleryFiles.add(GalleryFile.builder()
+										.galleryId(1L)
+										.siteFileId(i)
+										.sortOrder(i)
+										.build());
+		}
+
+		var gallery = Gallery.builder()
+							 .id(1L)
+							 .aclId(101L)
+							 .siteFiles(siteFiles)
+							 .build();
+		var subject = Subject.builder()
+							 .id(7L)
+							 .subjectName("subject")
+							 .build();
+		when(fileService.findGalleryById(1L)).thenReturn(gallery);
+		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(galleryFiles);
+		var uploads = List.of(new JschClient.Upload(1L, "/local/file1.jpg", "/www/file1.jpg", "sum1", 100L));
+		when(jschClient.planTransfer(siteFiles, List.of(), List.of())).thenReturn(uploads);
+		when(jschClient.connect(any(), anyInt(), any(), any(), any())).thenReturn(siteTransfer);
+		when(webSiteResourceService.getNextWebSiteAcls(4)).thenReturn(List.of(10L, 11L, 12L, 13L));
+		when(webSiteGalleryRepository.save(any(WebSiteGallery.class))).thenAnswer(invocation -> {
+			WebSiteGallery siteGallery = invocation.getArgument(0);
+			siteGallery.setId(50L);
+			return siteGallery;
+		});
+		when(subjectService.getSubjectsByFileIds(anyCollection())).thenReturn(Map.of(1L, List.of(subject), 2L, List.of(subject)));
+		when(webSiteSubjectService.saveAllFromAdminSubject(List.of(subject))).thenReturn(List.of(WebSiteSubject.builder()
+																											  .id(70L)
+																											  .build()));
+		when(webSiteFileBatchService.replaceGalleryFiles(eq(50L), anyList())).thenReturn(List.of(100L, 101L, 102L));
+
+		publishService.publishGallery(1L);
+
+		ArgumentCaptor<List<WebSiteFileBatchService.GalleryFileEntry>> entryCaptor = ArgumentCaptor.captor();
+		verify(webSiteFileBatchService).replaceGalleryFiles(eq(50L), entryCaptor.capture());
+		var entries = entryCaptor.getValue();
+		assertEquals(3, entries.size());
+		assertEquals(11L, entries.getFirst()
+								 .webSiteFile()
+								 .getAclId());
+		assertEquals(13L, entries.get(2)
+								 .webSiteFile()
+								 .getAclId());
+		assertEquals(List.of(70L), entries.getFirst()
+										  .siteSubjectIds());
+		assertTrue(entries.get(2)
+						  .siteSubjectIds()
+						  .isEmpty());
+		verify(webSiteResourceService, never()).getNextWebSiteAcl();
+		verify(siteTransfer).transfer(uploads);
+		verify(siteTransfer).close();
+	}
+
+	@Test
+	void publishGalleryGeneratesQueuedThumbsFirst() throws Exception {
+		var siteFiles = new ArrayList<SiteFile>();
+		var galleryFiles = new ArrayList<GalleryFile>();
+
+		for (long i = 1; i <= 2; i++) {
+			siteFiles.add(SiteFile.builder()
+								  .id(i)
+								  .fileName("file" + i + ".jpg")
+								  .filePath("dir")
+								  .mimeType("image/jpeg")
+								  .fileType(FileTypeEnum.IMAGE)
+								  .build());
+			galleryFiles.add(GalleryFile.builder()
+										.galleryId(1L)
+										.siteFileId(i)
+										.sortOrder(i)
+										.build());
+		}
+
+		var gallery = Gallery.builder()
+							 .id(1L)
+							 .aclId(101L)
+							 .siteFiles(siteFiles)
+							 .build();
+		var entry1 = ThumbQueueEntry.builder()
+									.siteFileId(1L)
+									.build();
+		var entry2 = ThumbQueueEntry.builder()
+									.siteFileId(2L)
+									.build();
+		var fileThumbs = List.of(FileThumb.builder()
+										  .parentId(1L)
+										  .filename("file1.jpg")
+										  .build());
+		when(fileService.findGalleryById(1L)).thenReturn(gallery);
+		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(galleryFiles);
+		when(thumbQueueService.claimSiteFiles(Set.of(1L, 2L))).thenReturn(List.of(entry1, entry2));
+		doThrow(new IllegalStateException("Broken image")).when(fileThumbService)
+														 .generateThumbFile(2L);
+		when(fileService.findAllFileThumbsBySiteFileList(siteFiles)).thenReturn(fileThumbs);
+		when(jschClient.planTransfer(siteFiles, fileThumbs, List.of())).thenReturn(List.of());
+		when(webSiteResourceService.getNextWebSiteAcls(3)).thenReturn(List.of(10L, 11L, 12L));
+		when(webSiteGalleryRepository.save(any(WebSiteGallery.class))).thenAnswer(invocation -> {
+			WebSiteGallery siteGallery = invocation.getArgument(0);
+			siteGallery.setId(50L);
+			return siteGallery;
+		});
+		when(subjectService.getSubjectsByFileIds(anyCollection())).thenReturn(Map.of());
+		when(webSiteFileBatchService.replaceGalleryFiles(eq(50L), anyList())).thenReturn(List.of(100L, 101L));
+
+		publishService.publishGallery(1L);
+
+		verify(fileThumbService).generateThumbFile(1L);
+		verify(thumbQueueService).complete(entry1);
+		verify(thumbQueueService).fail(entry2, "Broken image");
+		ArgumentCaptor<List<WebSiteFileBatchService.GalleryFileEntry>> entryCaptor = ArgumentCaptor.captor();
+		verify(webSiteFileBatchService).replaceGalleryFiles(eq(50L), entryCaptor.capture());
+		// The thumb which could not be generated is not referenced from the site
+		assertNotNull(entryCaptor.getValue()
+								 .getFirst()
+								 .webSiteFile()
+								 .getThumbnailPath());
+		assertNull(entryCaptor.getValue()
+							  .get(1)
+							  .webSiteFile()
+							  .getThumbnailPath());
+		verify(jschClient, never()).connect(any(), anyInt(), any(), any(), any());
+	}
+
+	@Test
+	void publishGallerySkipsUnchangedFiles() throws Exception {
+		ReflectionTestUtils.setField(publishService, "incrementalPublish", true);
+		var siteFile = SiteFile.builder()
+							   .id(1L)
+							   .fileName("file1.jpg")
+							   .filePath("dir")
+							   .mimeType("image/jpeg")
+							   .fileType(FileTypeEnum.IMAGE)
+							   .build();
+		var gallery = Gallery.builder()
+							 .id(1L)
+							 .aclId(101L)
+							 .siteFiles(List.of(siteFile))
+							 .build();
+		var unchanged = new JschClient.Upload(1L, "/local/file1.jpg", "/www/file1.jpg", "sum1", 100L);
+		var changed = new JschClient.Upload(1L, "/local/.thumb/file1.jpg", "/www/.thumb/file1.jpg", "sum2", 10L);
+		when(fileService.findGalleryById(1L)).thenReturn(gallery);
+		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(List.of(GalleryFile.builder()
+																						  .galleryId(1L)
+																						  .siteFileId(1L)
+																						  .sortOrder(0L)
+																						  .build()));
+		when(jschClient.planTransfer(List.of(siteFile), List.of(), List.of())).thenReturn(List.of(unchanged, changed));
+		when(webSitePublishManifestService.findByRemotePaths(anyCollection()))
+				.thenReturn(Map.of("/www/file1.jpg", new WebSitePublishManifestService.ManifestEntry("/www/file1.jpg", 1L, "sum1", 100L),
+								   "/www/.thumb/file1.jpg", new WebSitePublishManifestService.ManifestEntry("/www/.thumb/file1.jpg", 1L, "old", 10L)));
+		when(jschClient.connect(any(), anyInt(), any(), any(), any())).thenReturn(siteTransfer);
+		when(webSiteResourceService.getNextWebSiteAcls(2)).thenReturn(List.of(10L, 11L));
+		when(webSiteGalleryRepository.save(any(WebSiteGallery.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		var statistics = publishService.publishGallery(1L);
+
+		verify(siteTransfer).transfer(List.of(changed));
+		verify(webSitePublishManifestService).saveAll(List.of(new WebSitePublishManifestService.ManifestEntry("/www/.thumb/file1.jpg", 1L, "sum2", 10L)));
+		assertEquals(1L, statistics.filesSent());
+		assertEquals(10L, statistics.bytesSent());
+		assertEquals(1L, statistics.filesSkipped());
+		assertEquals(100L, statistics.bytesSkipped());
+	}
+}
@@ -0,0 +1,77 @@
+package fi.poltsi.vempain.admin.service;
+
+import fi.poltsi.vempain.auth.api.response.UserResponse;
+import fi.poltsi.vempain.auth.exception.VempainEntityNotFoundException;
+import fi.poltsi.vempain.auth.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserNickServiceUTC {
+	@Mock
+	private UserService userService;
+
+	@Test
+	void getNickReadsUserOnceUntilEvicted() throws VempainEntityNotFoundException {
+		var userNickService = new UserNickService(userService, 10, 600L);
+		mockUser(1L, "admin");
+
+		assertEquals("admin", userNickService.getNick(1L));
+		assertEquals("admin", userNickService.getNick(1L));
+		verify(userService, times(1)).findUserResponseById(1L);
+
+		userNickService.evict(1L);
+		assertEquals("admin", userNickService.getNick(1L));
+		verify(userService, times(2)).findUserResponseById(1L);
+	}
+
+	@Test
+	void getNickRereadsExpiredUser() throws VempainEntityNotFoundException {
+		var userNickService = new UserNickService(userService, 10, 0L);
+		mockUser(1L, "admin");
+
+		userNickService.getNick(1L);
+		userNickService.getNick(1L);
+		verify(userService, times(2)).findUserResponseById(1L);
+	}
+
+	@Test
+	void getNickDropsLeastRecentlyUsedUser() throws VempainEntityNotFoundException {
+		var userNickService = new UserNickService(userService, 2, 600L);
+		mockUser(1L, "admin");
+		mockUser(2L, "editor");
+		mockUser(3L, "viewer");
+
+		userNickService.getNick(1L);
+		userNickService.getNick(2L);
+		userNickService.getNick(1L);
+		userNickService.getNick(3L);
+		userNickService.getNick(1L);
+		userNickService.getNick(2L);
+
+		verify(userService, times(1)).findUserResponseById(1L);
+		verify(userService, times(2)).findUserResponseById(2L);
+	}
+
+	@Test
+	void getNickUnknownUserFails() {
+		var userNickService = new UserNickService(userService, 10, 600L);
+
+		assertThrows(VempainEntityNotFoundException.class, () -> userNickService.getNick(5L));
+	}
+
+	private void mockUser(long userId, String nick) {
+		var userResponse = mock(UserResponse.class);
+		when(userResponse.getNick()).thenReturn(nick);
+		when(userService.findUserResponseById(userId)).thenReturn(userResponse);
+	}
+}
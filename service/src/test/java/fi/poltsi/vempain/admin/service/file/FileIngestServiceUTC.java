@@ -1,5 +1,6 @@
 package fi.poltsi.vempain.admin.service.file;
 
+import fi.poltsi.vempain.admin.api.request.file.FileBatchIngestRequest;
 import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
 import fi.poltsi.vempain.admin.configuration.StorageDirectoryConfiguration;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
@@ -7,8 +8,10 @@ import fi.poltsi.vempain.admin.entity.file.GalleryFile;
 import fi.poltsi.vempain.admin.entity.file.SiteFile;
 import fi.poltsi.vempain.admin.exception.VempainIngestException;
 import fi.poltsi.vempain.admin.repository.file.GalleryRepository;
+import fi.poltsi.vempain.admin.repository.file.SiteFileKey;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.AccessService;
+import fi.poltsi.vempain.admin.service.MetricsService;
 import fi.poltsi.vempain.admin.service.SubjectService;
 import fi.poltsi.vempain.auth.service.AclService;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -16,26 +19,37 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -62,6 +76,12 @@ class FileIngestServiceUTC {
 	private FileService                   fileService;
 	@Mock
 	private LocationService               locationService;
+	@Mock
+	private MetricsService                metricsService;
+	@Mock
+	private SiteFileBatchService          siteFileBatchService;
+	@Captor
+	private ArgumentCaptor<List<SiteFile>> siteFilesCaptor;
 
 	@InjectMocks
 	private FileIngestService fileIngestService;
@@ -107,9 +127,57 @@ class FileIngestServiceUTC {
 		assertNotNull(response);
 		assertEquals(42L, response.getSiteFileId());
 		assertNull(response.getGalleryId());
+		verify(metricsService).recordIngestedBytes(FILE_CONTENT.length);
+		verify(metricsService).recordIngestHash(anyLong());
+		verify(metricsService).recordIngestDbUpsert(anyLong());
+		verify(metricsService).recordIngestSubjectLink(anyLong());
 	}
 
 	@Test
+	void ingestInternal_newFile_hasDefaultFilePermissions() throws Exception {
+		assumeTrue(tempDir.getFileSystem()
+						  .supportedFileAttributeViews()
+						  .contains("posix"));
+		when(storageDirectoryConfiguration.storageLocations())
+				.thenReturn(Map.of("image", tempDir.toString()));
+		when(siteFileRepository.findByFilePathAndFileName(any(), any()))
+				.thenReturn(Optional.empty());
+		when(accessService.getUserId()).thenReturn(1L);
+		when(aclService.createNewAcl(anyLong(), isNull(), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean()))
+				.thenReturn(10L);
+		when(locationService.upsertAndGet(any())).thenReturn(null);
+		var savedFile = SiteFile.builder().build();
+		savedFile.setId(42L);
+		when(fileService.saveSiteFile(any(SiteFile.class))).thenReturn(savedFile);
+
+		var multipartFile = new MockMultipartFile("file", "test.jpg", "image/jpeg", FILE_CONTENT);
+		var request = FileIngestRequest.builder()
+									   .fileName("test.jpg")
+									   .mimeType("image/jpeg")
+									   .sha256sum(SHA256_SUM)
+									   .comment("")
+									   .metadata("{}")
+									   .tags(List.of())
+									   .build();
+
+		fileIngestService.ingestInternal(request, multipartFile);
+
+		Path ingestedFile;
+
+		try (var paths = Files.walk(tempDir)) {
+			ingestedFile = paths.filter(path -> path.getFileName()
+													.toString()
+													.equals("test.jpg"))
+								.findFirst()
+								.orElseThrow();
+		}
+
+		// The ingested file is readable the same way as any other new file, not only by the owner
+		var referenceFile = Files.createFile(tempDir.resolve("reference"));
+		assertEquals(Files.getPosixFilePermissions(referenceFile), Files.getPosixFilePermissions(ingestedFile));
+	}
+
+		@Test
 	void ingestInternal_existingFile_updatesAndReturnsResponse() throws VempainIngestException {
 		when(storageDirectoryConfiguration.storageLocations())
 				.thenReturn(Map.of("image", tempDir.toString()));
@@ -211,6 +279,31 @@ class FileIngestServiceUTC {
 		assertThrows(VempainIngestException.class, () -> fileIngestService.ingestInternal(request, multipartFile));
 	}
 
+	@Test
+	void ingestInternal_sha256Mismatch_keepsExistingFile() throws Exception {
+		when(storageDirectoryConfiguration.storageLocations())
+				.thenReturn(Map.of("image", tempDir.toString()));
+		var existingFile = tempDir.resolve("test.jpg");
+		Files.writeString(existingFile, "original-content");
+
+		var multipartFile = new MockMultipartFile("file", "test.jpg", "image/jpeg", FILE_CONTENT);
+		var request = FileIngestRequest.builder()
+									   .fileName("test.jpg")
+									   .mimeType("image/jpeg")
+									   .sha256sum("wrongchecksum")
+									   .comment("")
+									   .metadata("{}")
+									   .tags(List.of())
+									   .build();
+
+		assertThrows(VempainIngestException.class, () -> fileIngestService.ingestInternal(request, multipartFile));
+		assertEquals("original-content", Files.readString(existingFile));
+
+		try (var files = Files.list(tempDir)) {
+			assertEquals(List.of(existingFile), files.toList());
+		}
+	}
+
 	@Test
 	void ingestInternal_unauthorizedUser_throwsVempainIngestException() {
 		when(storageDirectoryConfiguration.storageLocations())
@@ -230,6 +323,131 @@ class FileIngestServiceUTC {
 		assertThrows(VempainIngestException.class, () -> fileIngestService.ingestInternal(request, multipartFile));
 	}
 
+	// ─── ingestUploadedFile ─────────────────────────────────────────────────────
+
+	@Test
+	void ingestUploadedFile_movesVerifiedFileInPlace() throws Exception {
+		when(storageDirectoryConfiguration.storageLocations())
+				.thenReturn(Map.of("image", tempDir.toString()));
+		when(siteFileRepository.findByFilePathAndFileName(any(), any()))
+				.thenReturn(Optional.empty());
+		when(accessService.getUserId()).thenReturn(1L);
+		when(aclService.createNewAcl(anyLong(), isNull(), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean()))
+				.thenReturn(10L);
+
+		var savedFile = SiteFile.builder().build();
+		savedFile.setId(42L);
+		when(fileService.saveSiteFile(any(SiteFile.class))).thenReturn(savedFile);
+
+		var uploadedFile = Files.write(tempDir.resolve("upload.part"), FILE_CONTENT);
+		var response = fileIngestService.ingestUploadedFile(buildRequest("video.jpg", SHA256_SUM, 0L), uploadedFile);
+
+		assertEquals(42L, response.getSiteFileId());
+		assertFalse(Files.exists(uploadedFile));
+		assertArrayEquals(FILE_CONTENT, Files.readAllBytes(tempDir.resolve("video.jpg")));
+	}
+
+	@Test
+	void ingestUploadedFile_sha256Mismatch_keepsUploadedFile() throws Exception {
+		when(storageDirectoryConfiguration.storageLocations())
+				.thenReturn(Map.of("image", tempDir.toString()));
+
+		var uploadedFile = Files.write(tempDir.resolve("upload.part"), FILE_CONTENT);
+
+		assertThrows(VempainIngestException.class,
+					 () -> fileIngestService.ingestUploadedFile(buildRequest("video.jpg", "wrongchecksum", 0L), uploadedFile));
+		assertTrue(Files.exists(uploadedFile));
+		assertFalse(Files.exists(tempDir.resolve("video.jpg")));
+	}
+
+	// ─── ingestBatch ────────────────────────────────────────────────────────────
+
+	@Test
+	void ingestBatch_storesValidFilesAndReportsFailedOnes() throws Exception {
+		when(storageDirectoryConfiguration.storageLocations())
+				.thenReturn(Map.of("image", tempDir.toString()));
+		when(accessService.getUserId()).thenReturn(1L);
+		when(siteFileRepository.findKeyByFilePathInAndFileNameIn(any(), any())).thenReturn(List.of(new SiteFileKey(101L, "", "c.jpg")));
+		when(siteFileBatchService.upsertSiteFiles(any(), eq(1L))).thenReturn(List.of(100L, 101L));
+		var gallery = Gallery.builder()
+							 .shortname("Summer")
+							 .build();
+		gallery.setId(5L);
+		when(galleryRepository.findById(5L)).thenReturn(Optional.of(gallery));
+		when(galleryRepository.save(any(Gallery.class))).thenReturn(gallery);
+		var linkedFile = GalleryFile.builder()
+									.galleryId(5L)
+									.siteFileId(101L)
+									.sortOrder(0L)
+									.build();
+		when(galleryFileService.findGalleryFileByGalleryId(5L)).thenReturn(List.of(linkedFile));
+
+		var batchRequest = FileBatchIngestRequest.builder()
+												 .galleryId(5L)
+												 .files(List.of(buildRequest("a.jpg", SHA256_SUM, 0L),
+																buildRequest("b.jpg", "wrongchecksum", 1L),
+																buildRequest("c.jpg", SHA256_SUM, 2L)))
+												 .build();
+		var multipartFiles = List.<MultipartFile>of(new MockMultipartFile("site_files", "a.jpg", "image/jpeg", FILE_CONTENT),
+													new MockMultipartFile("site_files", "b.jpg", "image/jpeg", FILE_CONTENT),
+													new MockMultipartFile("site_files", "c.jpg", "image/jpeg", FILE_CONTENT));
+
+		var response = fileIngestService.ingestBatch(batchRequest, multipartFiles);
+
+		assertEquals(5L, response.getGalleryId());
+		assertEquals(2, response.getIngested());
+		assertEquals(1, response.getFailed());
+		assertEquals(100L, response.getItems()
+								   .get(0)
+								   .getSiteFileId());
+		assertFalse(response.getItems()
+							.get(1)
+							.isSuccess());
+		assertEquals(101L, response.getItems()
+								   .get(2)
+								   .getSiteFileId());
+		assertFalse(Files.exists(tempDir.resolve("b.jpg")));
+		verify(galleryRepository).findById(5L);
+		// The new file is inserted and the existing one updated with the same batch, without per-file ACL or location calls
+		verify(siteFileBatchService).upsertSiteFiles(siteFilesCaptor.capture(), eq(1L));
+		assertNull(siteFilesCaptor.getValue()
+		                          .get(0)
+		                          .getId());
+		assertEquals(101L, siteFilesCaptor.getValue()
+		                                  .get(1)
+		                                  .getId());
+		verifyNoInteractions(aclService);
+		verify(locationService, never()).upsertAndGet(any());
+		verify(subjectService).saveTagsAsSubjects(Map.of(100L, List.of(), 101L, List.of()));
+		// The second stored file is already in the gallery
+		verify(galleryFileService).addGalleryFiles(5L, List.of(GalleryFile.builder()
+																		  .galleryId(5L)
+																		  .siteFileId(100L)
+																		  .sortOrder(0L)
+																		  .build()));
+	}
+
+	@Test
+	void ingestBatch_fileCountMismatch_throwsIllegalArgumentException() {
+		var batchRequest = FileBatchIngestRequest.builder()
+												 .files(List.of(buildRequest("a.jpg", SHA256_SUM, 0L)))
+												 .build();
+
+		assertThrows(IllegalArgumentException.class, () -> fileIngestService.ingestBatch(batchRequest, List.of()));
+	}
+
+	private static FileIngestRequest buildRequest(String fileName, String sha256sum, long sortOrder) {
+		return FileIngestRequest.builder()
+								.fileName(fileName)
+								.mimeType("image/jpeg")
+								.sha256sum(sha256sum)
+								.sortOrder(sortOrder)
+								.comment("")
+								.metadata("{}")
+								.tags(List.of())
+								.build();
+	}
+
 	// ─── validation ─────────────────────────────────────────────────────────────
 
 	@Test
@@ -67,6 +67,17 @@ class FileSystemServiceUTC {
 	}
 
 	@Test
+	void getConvertedDirectoryTreeExcludesRenditionDirOk() throws IOException {
+		new File(tempDir.toFile(), FileThumbService.RENDITION_DIRECTORY).mkdirs();
+		new File(tempDir.toFile(), "images").mkdirs();
+
+		List<DirectoryNodeResponse> result = fileSystemService.getConvertedDirectoryTree();
+
+		assertEquals(1, result.size());
+		assertEquals("images", result.getFirst().getDirectoryName());
+	}
+
+		@Test
 	void getConvertedDirectoryTreeWithNestedDirsOk() throws IOException {
 		File parent = new File(tempDir.toFile(), "gallery");
 		parent.mkdirs();
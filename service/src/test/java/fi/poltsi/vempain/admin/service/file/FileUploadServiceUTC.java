@@ -0,0 +1,157 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.request.file.UploadSessionRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FileUploadServiceUTC {
+	@TempDir
+	Path tempDir;
+
+	@Mock
+	private FileIngestService fileIngestService;
+
+	private FileUploadService fileUploadService;
+
+	@BeforeEach
+	void setUp() {
+		fileUploadService = new FileUploadService(fileIngestService, tempDir.toString(), DataSize.ofKilobytes(1), 60L);
+		fileUploadService.setupEnv();
+	}
+
+	@Test
+	void uploadResumesFromOffsetAndFinalisesOk() throws Exception {
+		var session = fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                  .size(10L)
+		                                                                  .fileName("video.mp4")
+		                                                                  .build());
+		var uploadFile = tempDir.resolve(session.getUploadId() + ".upload");
+		assertEquals(10L, Files.size(uploadFile));
+
+		assertEquals(4L, fileUploadService.writeChunk(session.getUploadId(), 0L, new ByteArrayInputStream("0123".getBytes()))
+		                                  .getOffset());
+
+		var conflict = assertThrows(ResponseStatusException.class,
+		                            () -> fileUploadService.writeChunk(session.getUploadId(), 0L, new ByteArrayInputStream("0123".getBytes())));
+		assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+		assertEquals(4L, fileUploadService.getSession(session.getUploadId())
+		                                  .getOffset());
+
+		assertEquals(10L, fileUploadService.writeChunk(session.getUploadId(), 4L, new ByteArrayInputStream("456789".getBytes()))
+		                                   .getOffset());
+		assertArrayEquals("0123456789".getBytes(), Files.readAllBytes(uploadFile));
+
+		var fileIngestRequest = FileIngestRequest.builder()
+		                                         .fileName("video.mp4")
+		                                         .build();
+		when(fileIngestService.ingestUploadedFile(fileIngestRequest, uploadFile)).thenAnswer(invocation -> {
+			Files.delete(uploadFile);
+			return FileIngestResponse.builder()
+			                         .siteFileId(42L)
+			                         .build();
+		});
+
+		assertEquals(42L, fileUploadService.finalizeUpload(session.getUploadId(), fileIngestRequest)
+		                                   .getSiteFileId());
+		var notFound = assertThrows(ResponseStatusException.class, () -> fileUploadService.getSession(session.getUploadId()));
+		assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+	}
+
+	@Test
+	void chunkBeyondFileSizeFails() {
+		var session = fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                  .size(4L)
+		                                                                  .build());
+
+		var exception = assertThrows(ResponseStatusException.class,
+		                             () -> fileUploadService.writeChunk(session.getUploadId(), 0L, new ByteArrayInputStream("012345".getBytes())));
+		assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+	}
+
+	@Test
+	void finaliseIncompleteUploadFails() throws Exception {
+		var session = fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                  .size(10L)
+		                                                                  .build());
+		fileUploadService.writeChunk(session.getUploadId(), 0L, new ByteArrayInputStream("0123".getBytes()));
+
+		var exception = assertThrows(ResponseStatusException.class,
+		                             () -> fileUploadService.finalizeUpload(session.getUploadId(), new FileIngestRequest()));
+		assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+	}
+
+	@Test
+	void failedFinaliseKeepsSessionForRetry() throws Exception {
+		var session = fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                  .size(4L)
+		                                                                  .build());
+		fileUploadService.writeChunk(session.getUploadId(), 0L, new ByteArrayInputStream("0123".getBytes()));
+		when(fileIngestService.ingestUploadedFile(any(), eq(tempDir.resolve(session.getUploadId() + ".upload"))))
+				.thenThrow(new IllegalArgumentException("Missing file name"));
+
+		assertThrows(IllegalArgumentException.class, () -> fileUploadService.finalizeUpload(session.getUploadId(), new FileIngestRequest()));
+		assertEquals(4L, fileUploadService.getSession(session.getUploadId())
+		                                  .getOffset());
+		verify(fileIngestService).ingestUploadedFile(any(), any());
+	}
+
+	@Test
+	void tooLargeFileIsRejected() {
+		var exception = assertThrows(ResponseStatusException.class, () -> fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                                                                     .size(2048L)
+		                                                                                                                     .build()));
+		assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+	}
+
+	@Test
+	void pruneExpiredSessionsRemovesSessionAndFile() throws Exception {
+		var expiringUploadService = new FileUploadService(fileIngestService, tempDir.toString(), DataSize.ofKilobytes(1), 0L);
+		var session = expiringUploadService.createSession(UploadSessionRequest.builder()
+		                                                                      .size(4L)
+		                                                                      .build());
+		var uploadFile = tempDir.resolve(session.getUploadId() + ".upload");
+		// With no time-to-live the session expires as soon as the clock moves on
+		Thread.sleep(10L);
+
+		expiringUploadService.pruneExpiredSessions();
+
+		assertFalse(Files.exists(uploadFile));
+		var exception = assertThrows(ResponseStatusException.class, () -> expiringUploadService.getSession(session.getUploadId()));
+		assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+	}
+
+	@Test
+	void pruneExpiredSessionsKeepsActiveSession() {
+		var session = fileUploadService.createSession(UploadSessionRequest.builder()
+		                                                                  .size(4L)
+		                                                                  .build());
+
+		fileUploadService.pruneExpiredSessions();
+
+		assertEquals(0L, fileUploadService.getSession(session.getUploadId())
+		                                  .getOffset());
+	}
+}
@@ -14,12 +14,13 @@ import org.mockito.quality.Strictness;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,11 +29,11 @@ import static org.mockito.Mockito.when;
 class GalleryFileServiceUTC {
 
 	@Mock
-	private EntityManager    entityManager;
+	private EntityManager     entityManager;
 	@Mock
-	private FileThumbService fileThumbService;
+	private ThumbQueueService thumbQueueService;
 	@Mock
-	private Query            query;
+	private Query             query;
 
 	@InjectMocks
 	private GalleryFileService galleryFileService;
@@ -112,29 +113,52 @@ class GalleryFileServiceUTC {
 		assertEquals(2, result.size());
 	}
 
+	// ---- countGalleryFilesByGalleryIds ----
+
+	@Test
+	void countGalleryFilesByGalleryIdsOk() {
+		Object[] row1 = {1L, 2L};
+		Object[] row2 = {3L, 5L};
+		when(query.getResultList()).thenReturn(List.of(row1, row2));
+
+		Map<Long, Long> result = galleryFileService.countGalleryFilesByGalleryIds(List.of(1L, 2L, 3L));
+
+		assertEquals(Map.of(1L, 2L, 3L, 5L), result);
+		verify(query).setParameter("galleryIds", List.of(1L, 2L, 3L));
+	}
+
+	@Test
+	void countGalleryFilesByGalleryIdsEmptyOk() {
+		Map<Long, Long> result = galleryFileService.countGalleryFilesByGalleryIds(List.of());
+
+		assertTrue(result.isEmpty());
+		verify(entityManager, never()).createNativeQuery(anyString());
+	}
+
 	// ---- addGalleryFile ----
 
 	@Test
 	void addGalleryFileOk() {
 		when(query.executeUpdate()).thenReturn(1);
-		doNothing().when(fileThumbService).generateThumbFile(10L);
 
 		galleryFileService.addGalleryFile(1L, 10L, 0L);
 
 		verify(query).executeUpdate();
-		verify(fileThumbService).generateThumbFile(10L);
+		verify(thumbQueueService).enqueue(List.of(10L));
 	}
 
 	// ---- addGalleryFiles ----
 
 	@Test
 	void addGalleryFilesOk() {
-		when(query.executeUpdate()).thenReturn(1);
-		doNothing().when(fileThumbService).generateThumbFile(org.mockito.ArgumentMatchers.anyLong());
+		when(query.setParameter(org.mockito.ArgumentMatchers.anyInt(), org.mockito.ArgumentMatchers.any())).thenReturn(query);
+		when(query.executeUpdate()).thenReturn(3);
 
 		galleryFileService.addGalleryFiles(1L, new long[]{10L, 11L, 12L});
 
-		verify(fileThumbService, org.mockito.Mockito.times(3)).generateThumbFile(org.mockito.ArgumentMatchers.anyLong());
+		verify(entityManager).createNativeQuery("INSERT INTO gallery_file (gallery_id, site_file_id, sort_order) VALUES (?1, ?2, ?3), (?1, ?4, ?5), (?1, ?6, ?7)");
+		verify(query).setParameter(7, 2L);
+		verify(thumbQueueService).enqueue(List.of(10L, 11L, 12L));
 	}
 
 	@Test
@@ -143,6 +167,25 @@ class GalleryFileServiceUTC {
 		// No interactions expected
 	}
 
+	@Test
+	void addGalleryFilesListUsesOneInsertOk() {
+		when(query.setParameter(org.mockito.ArgumentMatchers.anyInt(), org.mockito.ArgumentMatchers.any())).thenReturn(query);
+		when(query.executeUpdate()).thenReturn(2);
+
+		galleryFileService.addGalleryFiles(1L, List.of(GalleryFile.builder()
+		                                                          .siteFileId(10L)
+		                                                          .sortOrder(0L)
+		                                                          .build(),
+		                                               GalleryFile.builder()
+		                                                          .siteFileId(11L)
+		                                                          .sortOrder(1L)
+		                                                          .build()));
+
+		verify(entityManager).createNativeQuery("INSERT INTO gallery_file (gallery_id, site_file_id, sort_order) VALUES (?1, ?2, ?3), (?1, ?4, ?5)");
+		verify(query).executeUpdate();
+		verify(thumbQueueService).enqueue(List.of(10L, 11L));
+	}
+
 	// ---- deleteGalleryFilesByGalleryId ----
 
 	@Test
@@ -158,13 +201,13 @@ class GalleryFileServiceUTC {
 
 	@Test
 	void updateGalleryFilesOk() {
+		when(query.setParameter(org.mockito.ArgumentMatchers.anyInt(), org.mockito.ArgumentMatchers.any())).thenReturn(query);
 		when(query.executeUpdate()).thenReturn(1);
-		doNothing().when(fileThumbService).generateThumbFile(org.mockito.ArgumentMatchers.anyLong());
 
 		galleryFileService.updateGalleryFiles(1L, new long[]{20L});
 
-		// deleteGalleryFilesByGalleryId + addGalleryFile
-		verify(query, org.mockito.Mockito.atLeast(1)).executeUpdate();
-		verify(fileThumbService).generateThumbFile(20L);
+		// deleteGalleryFilesByGalleryId + addGalleryFiles
+		verify(query, org.mockito.Mockito.times(2)).executeUpdate();
+		verify(thumbQueueService).enqueue(List.of(20L));
 	}
 }
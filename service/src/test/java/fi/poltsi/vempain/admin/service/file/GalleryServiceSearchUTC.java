@@ -1,6 +1,8 @@
 package fi.poltsi.vempain.admin.service.file;
 
 import fi.poltsi.vempain.admin.entity.file.Gallery;
+import fi.poltsi.vempain.admin.repository.AclPermissionRepository;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import fi.poltsi.vempain.admin.repository.file.GalleryRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.AccessService;
@@ -29,15 +31,17 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class GalleryServiceSearchUTC {
 	@Mock
-	private GalleryRepository  galleryRepository;
+	private GalleryRepository       galleryRepository;
 	@Mock
-	private SiteFileRepository siteFileRepository;
+	private SiteFileRepository      siteFileRepository;
 	@Mock
-	private GalleryFileService galleryFileService;
+	private GalleryFileService      galleryFileService;
 	@Mock
-	private AclService         aclService;
+	private AclService              aclService;
 	@Mock
-	private AccessService      accessService;
+	private AclPermissionRepository aclPermissionRepository;
+	@Mock
+	private AccessService           accessService;
 
 	@InjectMocks
 	private GalleryService galleryService;
@@ -58,12 +62,13 @@ class GalleryServiceSearchUTC {
 
 	@Test
 	void searchGalleriesReturnsPage() {
-		when(galleryRepository.searchGalleries(eq("foo"), eq(false), any(PageRequest.class)))
+		var readFilter = new AclReadFilter(1L, List.of(2L));
+		when(accessService.getReadFilter()).thenReturn(readFilter);
+		when(galleryRepository.searchGalleries(eq("foo"), eq(false), eq(readFilter), any(PageRequest.class)))
 				.thenReturn(new PageImpl<>(List.of(sampleGallery), PageRequest.of(0, 25, Sort.by("id")), 1));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder()
-																   .aclId(10L)
-																   .build()));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder()
+		                                                                                .aclId(10L)
+		                                                                                .build()));
 
 		var resp = galleryService.findPagedByUser(request("foo", "id", false));
 
@@ -6,6 +6,8 @@ import fi.poltsi.vempain.admin.api.response.file.FileGroupListResponse;
 import fi.poltsi.vempain.admin.api.response.file.GalleryResponse;
 import fi.poltsi.vempain.admin.entity.file.Gallery;
 import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.admin.repository.AclPermissionRepository;
+import fi.poltsi.vempain.admin.repository.AclReadFilter;
 import fi.poltsi.vempain.admin.repository.file.GalleryRepository;
 import fi.poltsi.vempain.admin.repository.file.SiteFileRepository;
 import fi.poltsi.vempain.admin.service.AccessService;
@@ -20,6 +22,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
@@ -27,7 +30,9 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -36,10 +41,13 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -48,15 +56,17 @@ import static org.mockito.Mockito.when;
 class GalleryServiceUTC {
 
 	@Mock
-	private GalleryRepository  galleryRepository;
+	private GalleryRepository       galleryRepository;
 	@Mock
-	private SiteFileRepository siteFileRepository;
+	private SiteFileRepository      siteFileRepository;
 	@Mock
-	private GalleryFileService galleryFileService;
+	private GalleryFileService      galleryFileService;
 	@Mock
-	private AclService         aclService;
+	private AclService              aclService;
 	@Mock
-	private AccessService      accessService;
+	private AclPermissionRepository aclPermissionRepository;
+	@Mock
+	private AccessService           accessService;
 
 	@InjectMocks
 	private GalleryService galleryService;
@@ -80,9 +90,8 @@ class GalleryServiceUTC {
 	@Test
 	void findAllForUserOk() {
 		when(galleryRepository.findAll()).thenReturn(List.of(sampleGallery));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of(10L));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		List<Gallery> result = galleryService.findAllForUser();
 
@@ -93,7 +102,7 @@ class GalleryServiceUTC {
 	@Test
 	void findAllForUserNoPermissionExcludedOk() {
 		when(galleryRepository.findAll()).thenReturn(List.of(sampleGallery));
-		when(accessService.hasReadPermission(10L)).thenReturn(false);
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of());
 
 		List<Gallery> result = galleryService.findAllForUser();
 
@@ -116,9 +125,8 @@ class GalleryServiceUTC {
 	@Test
 	void findAllAsResponsesForUserShortDetailOk() {
 		when(galleryRepository.findAll()).thenReturn(List.of(sampleGallery));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of(10L));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		List<GalleryResponse> result = galleryService.findAllAsResponsesForUser(QueryDetailEnum.MINIMAL);
 
@@ -129,9 +137,8 @@ class GalleryServiceUTC {
 	@Test
 	void findAllAsResponsesForUserFullDetailOk() {
 		when(galleryRepository.findAll()).thenReturn(List.of(sampleGallery));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of(10L));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		List<GalleryResponse> result = galleryService.findAllAsResponsesForUser(QueryDetailEnum.FULL);
 
@@ -145,8 +152,7 @@ class GalleryServiceUTC {
 	void findByIdOk() {
 		when(galleryRepository.findById(1L)).thenReturn(Optional.of(sampleGallery));
 		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		GalleryResponse result = galleryService.findById(1L);
 
@@ -188,8 +194,7 @@ class GalleryServiceUTC {
 		when(galleryRepository.save(any(Gallery.class))).thenReturn(sampleGallery);
 		doNothing().when(galleryFileService).addGalleryFiles(anyLong(), any(long[].class));
 		doNothing().when(aclService).saveAclRequests(anyLong(), any());
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		GalleryResponse result = galleryService.createGallery(request);
 
@@ -231,8 +236,7 @@ class GalleryServiceUTC {
 		when(galleryRepository.save(any(Gallery.class))).thenReturn(sampleGallery);
 		doNothing().when(galleryFileService).updateGalleryFiles(anyLong(), any(long[].class));
 		doNothing().when(aclService).updateFromRequestList(any());
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		GalleryResponse result = galleryService.updateGallery(request);
 
@@ -289,10 +293,8 @@ class GalleryServiceUTC {
 	@Test
 	void searchGalleriesShortNameSortWithResultsOk() {
 		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		var result = galleryService.findPagedByUser(request(10, "short_name", "asc", "test", false));
 
@@ -304,10 +306,8 @@ class GalleryServiceUTC {
 	@Test
 	void searchGalleriesShortnameSortDescOk() {
 		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		var result = galleryService.findPagedByUser(request(10, "shortname", "desc", "test", true));
 
@@ -319,10 +319,8 @@ class GalleryServiceUTC {
 	@Test
 	void searchGalleriesDescriptionSortOk() {
 		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(Collections.emptyList());
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
 
 		var result = galleryService.findPagedByUser(request(10, "description", "asc", "", false));
 
@@ -331,9 +329,9 @@ class GalleryServiceUTC {
 
 	@Test
 	void searchGalleriesDefaultSortNoPermissionOk() {
-		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(false);
+		var readFilter = new AclReadFilter(1L, List.of());
+		when(accessService.getReadFilter()).thenReturn(readFilter);
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), eq(readFilter), any(Pageable.class))).thenReturn(Page.empty());
 
 		var result = galleryService.findPagedByUser(request(10, null, "asc", "x", false));
 
@@ -346,32 +344,68 @@ class GalleryServiceUTC {
 	void searchGalleriesWithSiteFilePopulatedOk() {
 		var siteFile = SiteFile.builder().id(5L).creator(1L).build();
 		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-
-		var galleryFile = fi.poltsi.vempain.admin.entity.file.GalleryFile.builder()
-																		  .galleryId(1L)
-																		  .siteFileId(5L)
-																		  .build();
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(List.of(galleryFile));
-		when(siteFileRepository.findByIdWithoutMetadata(5L)).thenReturn(Optional.of(siteFile));
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
+		when(siteFileRepository.findByGalleryIdsWithoutMetadata(List.of(1L))).thenReturn(Map.of(1L, List.of(siteFile)));
 
 		var result = galleryService.findPagedByUser(request(10, "id", "asc", "test", false));
 
 		assertNotNull(result);
 		assertEquals(1, result.getContent()
 		                      .size());
+		assertEquals(5L, result.getContent()
+		                       .getFirst()
+		                       .getSiteFiles()
+		                       .getFirst()
+		                       .getId());
+		verifyNoInteractions(galleryFileService);
+	}
+
+	@Test
+	void searchGalleriesLoadsSiteFilesOfPageInOneQueryOk() {
+		var secondGallery = Gallery.builder()
+								   .id(2L)
+								   .shortname("second-gallery")
+								   .description("Another test gallery")
+								   .aclId(11L)
+								   .creator(1L)
+								   .created(Instant.now())
+								   .build();
+		var page = new PageImpl<>(List.of(sampleGallery, secondGallery));
+		when(galleryRepository.searchGalleries(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L, 11L))).thenReturn(List.of(Acl.builder().aclId(10L).build(),
+		                                                                                      Acl.builder().aclId(11L).build()));
+		when(siteFileRepository.findByGalleryIdsWithoutMetadata(List.of(1L, 2L))).thenReturn(Map.of(1L, List.of(SiteFile.builder().id(5L).creator(1L).build(),
+		                                                                                                         SiteFile.builder().id(6L).creator(1L).build())));
+
+		var result = galleryService.findPagedByUser(request(10, "id", "asc", "", false));
+
+		assertEquals(2, result.getContent()
+		                      .size());
+		assertEquals(2, result.getContent()
+		                      .getFirst()
+		                      .getSiteFiles()
+		                      .size());
+		assertTrue(result.getContent()
+		                 .get(1)
+		                 .getSiteFiles()
+		                 .isEmpty());
+		assertEquals(1, result.getContent()
+		                      .get(1)
+		                      .getAcls()
+		                      .size());
+		verify(siteFileRepository).findByGalleryIdsWithoutMetadata(List.of(1L, 2L));
+		verify(aclPermissionRepository).findByAclIdIn(List.of(10L, 11L));
+		verifyNoInteractions(galleryFileService, aclService);
 	}
 
 	@Test
 	void searchGalleriesWithoutFilesDoesNotLoadGalleryFilesOk() {
 		var page = new PageImpl<>(List.of(sampleGallery));
-		when(galleryRepository.searchGalleriesWithoutFiles(anyString(), anyBoolean(), any(Pageable.class))).thenReturn(page);
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder()
-		                                                           .aclId(10L)
-		                                                           .build()));
+		when(galleryRepository.searchGalleriesWithoutFiles(anyString(), anyBoolean(), any(), any(Pageable.class))).thenReturn(page);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder()
+		                                                                                .aclId(10L)
+		                                                                                .build()));
 
 		var result = galleryService.findPagedByUserWithoutFiles(request(10, "short_name", "asc", "test", false));
 
@@ -384,7 +418,7 @@ class GalleryServiceUTC {
 		verifyNoInteractions(galleryFileService, siteFileRepository);
 	}
 
-	// ---- findAllAsResponsesForUser full detail (populateGalleryWithSiteFiles withMetadata=true) ----
+	// ---- findAllAsResponsesForUser full detail (populateSiteFilesWithMetadata) ----
 
 	private PagedRequest request(int size, String sortBy, String direction, String search, boolean caseSensitive) {
 		var request = new PagedRequest();
@@ -402,21 +436,21 @@ class GalleryServiceUTC {
 	@Test
 	void findAllAsResponsesForUserFullDetailWithSiteFilesOk() {
 		var siteFile = SiteFile.builder().id(5L).creator(1L).build();
+		var fullSiteFile = SiteFile.builder().id(5L).creator(1L).metadata("{}").build();
 		when(galleryRepository.findAll()).thenReturn(List.of(sampleGallery));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder().aclId(10L).build()));
-
-		var galleryFile = fi.poltsi.vempain.admin.entity.file.GalleryFile.builder()
-																		  .galleryId(1L)
-																		  .siteFileId(5L)
-																		  .build();
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(List.of(galleryFile));
-		when(siteFileRepository.findById(5L)).thenReturn(Optional.of(siteFile));
+		when(accessService.filterReadable(anyCollection())).thenReturn(Set.of(10L));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder().aclId(10L).build()));
+		when(siteFileRepository.findByGalleryIdsWithoutMetadata(List.of(1L))).thenReturn(Map.of(1L, List.of(siteFile)));
+		when(siteFileRepository.findAllById(List.of(5L))).thenReturn(List.of(fullSiteFile));
 
 		List<GalleryResponse> result = galleryService.findAllAsResponsesForUser(QueryDetailEnum.FULL);
 
 		assertNotNull(result);
 		assertEquals(1, result.size());
+		assertEquals("{}", result.getFirst()
+		                         .getSiteFiles()
+		                         .getFirst()
+		                         .getMetadata());
 	}
 
 	// ---- findAll ----
@@ -434,21 +468,12 @@ class GalleryServiceUTC {
 	@Test
 	void findPagedGalleryListByUserReturnsMetadataAndFileCount() {
 		var request = request(25, "short_name", "asc", null, false);
-		when(galleryRepository.searchGalleriesForList(any(), anyBoolean(), any(Pageable.class)))
+		when(galleryRepository.searchGalleriesForList(any(), anyBoolean(), any(), any(Pageable.class)))
 				.thenReturn(new PageImpl<>(List.of(sampleGallery), Pageable.ofSize(25), 1));
-		when(accessService.hasReadPermission(10L)).thenReturn(true);
-		when(aclService.findAclByAclId(10L)).thenReturn(List.of(Acl.builder()
-		                                                           .aclId(10L)
-		                                                           .build()));
-		when(galleryFileService.findGalleryFileByGalleryId(1L)).thenReturn(List.of(
-				fi.poltsi.vempain.admin.entity.file.GalleryFile.builder()
-				                                               .galleryId(1L)
-				                                               .siteFileId(5L)
-				                                               .build(),
-				fi.poltsi.vempain.admin.entity.file.GalleryFile.builder()
-				                                               .galleryId(1L)
-				                                               .siteFileId(6L)
-				                                               .build()));
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of(Acl.builder()
+		                                                                                .aclId(10L)
+		                                                                                .build()));
+		when(galleryFileService.countGalleryFilesByGalleryIds(List.of(1L))).thenReturn(Map.of(1L, 2L));
 
 		PagedResponse<FileGroupListResponse> result = galleryService.findPagedGalleryListByUser(request);
 
@@ -460,7 +485,20 @@ class GalleryServiceUTC {
 		assertEquals(2, result.getContent()
 		                      .getFirst()
 		                      .getFileCount());
-		verify(galleryFileService).findGalleryFileByGalleryId(1L);
+		verify(galleryFileService, never()).findGalleryFileByGalleryId(anyLong());
+	}
+
+	@Test
+	void findGalleryListByIdWithoutFilesHasZeroFileCount() {
+		when(galleryRepository.findById(1L)).thenReturn(Optional.of(sampleGallery));
+		when(accessService.hasReadPermission(10L)).thenReturn(true);
+		when(aclPermissionRepository.findByAclIdIn(List.of(10L))).thenReturn(List.of());
+		when(galleryFileService.countGalleryFilesByGalleryIds(List.of(1L))).thenReturn(Map.of());
+
+		var result = galleryService.findGalleryListById(1L);
+
+		assertNotNull(result);
+		assertEquals(0, result.getFileCount());
 	}
 
 }
@@ -12,12 +12,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -94,6 +96,26 @@ class LocationServiceUTC {
 		verify(gpsLocationRepository).save(any(GpsLocation.class));
 	}
 
+	// ---- toEntity ----
+
+	@Test
+	void toEntityMapsWithoutRepositoryOk() {
+		LocationResponse dto = buildLocationResponse(40L);
+
+		GpsLocation result = locationService.toEntity(dto);
+
+		assertEquals(40L, result.getId());
+		assertEquals(BigDecimal.valueOf(60.123), result.getLatitude());
+		assertEquals('E', result.getLongitudeRef());
+		assertEquals("Area 1", result.getSubLocation());
+		verifyNoInteractions(gpsLocationRepository);
+	}
+
+	@Test
+	void toEntityNullDtoReturnsNullOk() {
+		assertNull(locationService.toEntity(null));
+	}
+
 	private LocationResponse buildLocationResponse(long id) {
 		LocationResponse dto = mock(LocationResponse.class);
 		when(dto.getId()).thenReturn(id);
@@ -0,0 +1,101 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.AbstractITCTest;
+import fi.poltsi.vempain.admin.entity.file.GpsLocation;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.admin.repository.GpsLocationRepository;
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteFileBatchServiceITC extends AbstractITCTest {
+	@Autowired
+	private SiteFileBatchService  siteFileBatchService;
+	@Autowired
+	private GpsLocationRepository gpsLocationRepository;
+	@Autowired
+	private EntityManager         entityManager;
+
+	@Test
+	void upsertSiteFilesInsertsNewAndUpdatesExistingOk() {
+		var userId = testITCTools.generateUser();
+		var existing = testITCTools.generateSiteFile(1L);
+		var location = GpsLocation.builder()
+		                          .id(900L)
+		                          .latitude(BigDecimal.valueOf(60.17))
+		                          .latitudeRef('N')
+		                          .longitude(BigDecimal.valueOf(24.94))
+		                          .longitudeRef('E')
+		                          .city("Helsinki")
+		                          .build();
+		var nextFileId = siteFileRepository.findMaxFileId();
+		var newFile1 = buildSiteFile(nextFileId + 1, "new-1.jpg", location, userId);
+		var newFile2 = buildSiteFile(nextFileId + 2, "new-2.jpg", location, userId);
+		var updatedFile = buildSiteFile(existing.getFileId(), existing.getFileName(), null, userId);
+		updatedFile.setId(existing.getId());
+		updatedFile.setFilePath(existing.getFilePath());
+		updatedFile.setComment("Updated comment");
+		updatedFile.setModifier(userId);
+		updatedFile.setModified(Instant.now());
+
+		var siteFileIds = siteFileBatchService.upsertSiteFiles(List.of(newFile1, updatedFile, newFile2), userId);
+		// The rows were written with JDBC, read them from the database instead of the persistence context
+		entityManager.clear();
+
+		assertEquals(3, siteFileIds.size());
+		assertEquals(existing.getId(), siteFileIds.get(1));
+		// Each new file gets an ACL of its own for the user
+		var aclId1 = siteFileRepository.findById(siteFileIds.get(0))
+		                               .orElseThrow()
+		                               .getAclId();
+		var aclId2 = siteFileRepository.findById(siteFileIds.get(2))
+		                               .orElseThrow()
+		                               .getAclId();
+		assertNotEquals(aclId1, aclId2);
+		assertTrue(aclService.findAclByAclId(aclId1)
+		                     .stream()
+		                     .anyMatch(acl -> userId.equals(acl.getUserId())));
+		assertEquals(1, aclService.findAclByAclId(aclId2)
+		                          .size());
+		assertEquals(900L, siteFileRepository.findById(siteFileIds.get(2))
+		                                     .orElseThrow()
+		                                     .getLocation()
+		                                     .getId());
+		assertEquals("Helsinki", gpsLocationRepository.findById(900L)
+		                                              .orElseThrow()
+		                                              .getCity());
+		// The existing file keeps its ACL and creator
+		var updated = siteFileRepository.findById(existing.getId())
+		                                .orElseThrow();
+		assertEquals("Updated comment", updated.getComment());
+		assertEquals(existing.getAclId(), updated.getAclId());
+		assertEquals(existing.getCreator(), updated.getCreator());
+		assertEquals(userId, updated.getModifier());
+	}
+
+	private static SiteFile buildSiteFile(long fileId, String fileName, GpsLocation location, long userId) {
+		return SiteFile.builder()
+		               .fileId(fileId)
+		               .fileName(fileName)
+		               .filePath("batch")
+		               .mimeType("image/jpeg")
+		               .size(1024L)
+		               .fileType(FileTypeEnum.IMAGE)
+		               .comment("Batch file")
+		               .metadata("{}")
+		               .sha256sum("sha256-" + fileName)
+		               .location(location)
+		               .creator(userId)
+		               .created(Instant.now())
+		               .build();
+	}
+}
@@ -0,0 +1,183 @@
+package fi.poltsi.vempain.admin.service.file;
+
+import fi.poltsi.vempain.admin.entity.file.ThumbQueueEntry;
+import fi.poltsi.vempain.admin.repository.file.ThumbQueueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ThumbQueueServiceUTC {
+	@Mock
+	private ThumbQueueRepository      thumbQueueRepository;
+	@Mock
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	private ThumbQueueService thumbQueueService;
+
+	@BeforeEach
+	void setUp() {
+		thumbQueueService = new ThumbQueueService(thumbQueueRepository, applicationEventPublisher, 3, 30L, 60L);
+	}
+
+	@Test
+	void enqueueRemovesDuplicatesAndWakesWorkers() {
+		when(thumbQueueRepository.enqueue(Set.of(10L, 11L))).thenReturn(2);
+
+		thumbQueueService.enqueue(List.of(10L, 11L, 10L));
+
+		verify(thumbQueueRepository).enqueue(Set.of(10L, 11L));
+		verify(applicationEventPublisher).publishEvent(new ThumbQueueService.ThumbsQueuedEvent(2));
+	}
+
+	@Test
+	void enqueueAlreadyQueuedDoesNotWakeWorkers() {
+		when(thumbQueueRepository.enqueue(Set.of(10L))).thenReturn(0);
+
+		thumbQueueService.enqueue(List.of(10L));
+
+		verify(applicationEventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void enqueueEmptyDoesNothing() {
+		thumbQueueService.enqueue(List.of());
+
+		verifyNoInteractions(thumbQueueRepository, applicationEventPublisher);
+	}
+
+	@Test
+	void claimMarksEntriesClaimed() {
+		var entry = ThumbQueueEntry.builder()
+		                           .siteFileId(10L)
+		                           .attempts(1)
+		                           .build();
+		when(thumbQueueRepository.findClaimable(eq(3), any(Instant.class), any(Instant.class), eq(2))).thenReturn(List.of(entry));
+		when(thumbQueueRepository.saveAll(List.of(entry))).thenReturn(List.of(entry));
+
+		var claimed = thumbQueueService.claim(2);
+
+		assertEquals(1, claimed.size());
+		assertEquals(2, entry.getAttempts());
+		assertNotNull(entry.getClaimedAt());
+	}
+
+	@Test
+	void claimSiteFilesMarksEntriesClaimed() {
+		var entry = ThumbQueueEntry.builder()
+		                           .siteFileId(10L)
+		                           .build();
+		when(thumbQueueRepository.findClaimableBySiteFileIds(eq(Set.of(10L, 11L)), eq(3), any(Instant.class))).thenReturn(List.of(entry));
+		when(thumbQueueRepository.saveAll(List.of(entry))).thenReturn(List.of(entry));
+
+		var claimed = thumbQueueService.claimSiteFiles(Set.of(10L, 11L));
+
+		assertEquals(List.of(entry), claimed);
+		assertEquals(1, entry.getAttempts());
+		assertNotNull(entry.getClaimedAt());
+	}
+
+	@Test
+	void claimSiteFilesEmptyDoesNothing() {
+		assertEquals(List.of(), thumbQueueService.claimSiteFiles(List.of()));
+
+		verifyNoInteractions(thumbQueueRepository);
+	}
+
+	@Test
+	void completeRemovesEntry() {
+		var entry = entry(10L, 0L);
+		when(thumbQueueRepository.deleteBySiteFileIdAndRevision(10L, 0L)).thenReturn(1);
+
+		thumbQueueService.complete(entry);
+
+		verify(thumbQueueRepository, never()).release(anyLong());
+	}
+
+	@Test
+	void completeRequeuedEntryReleasesIt() {
+		var entry = entry(10L, 0L);
+		when(thumbQueueRepository.deleteBySiteFileIdAndRevision(10L, 0L)).thenReturn(0);
+
+		thumbQueueService.complete(entry);
+
+		verify(thumbQueueRepository).release(10L);
+	}
+
+	@Test
+	void failRecordsErrorAndDelaysRetry() {
+		var entry = entry(10L, 2L);
+		entry.setAttempts(1);
+		var before = Instant.now();
+		when(thumbQueueRepository.release(eq(10L), eq(2L), eq("Broken image"), any(Instant.class))).thenReturn(1);
+
+		thumbQueueService.fail(entry, "Broken image");
+
+		var notBefore = ArgumentCaptor.forClass(Instant.class);
+		verify(thumbQueueRepository).release(eq(10L), eq(2L), eq("Broken image"), notBefore.capture());
+		assertFalse(notBefore.getValue()
+		                     .isBefore(before.plusSeconds(60)));
+		verify(thumbQueueRepository, never()).release(anyLong());
+	}
+
+	@Test
+	void failDoublesRetryDelayAfterEachAttempt() {
+		var entry = entry(10L, 2L);
+		entry.setAttempts(3);
+		var before = Instant.now();
+		when(thumbQueueRepository.release(eq(10L), eq(2L), eq("Broken image"), any(Instant.class))).thenReturn(1);
+
+		thumbQueueService.fail(entry, "Broken image");
+
+		var notBefore = ArgumentCaptor.forClass(Instant.class);
+		verify(thumbQueueRepository).release(eq(10L), eq(2L), eq("Broken image"), notBefore.capture());
+		assertFalse(notBefore.getValue()
+		                     .isBefore(before.plusSeconds(240)));
+		assertTrue(notBefore.getValue()
+		                    .isBefore(Instant.now()
+		                                     .plusSeconds(241)));
+	}
+
+	@Test
+	void getBacklogOk() {
+		var oldest = Instant.parse("2025-08-15T14:30:00Z");
+		when(thumbQueueRepository.countPending(eq(3), any(Instant.class))).thenReturn(5L);
+		when(thumbQueueRepository.countProcessing(any(Instant.class))).thenReturn(2L);
+		when(thumbQueueRepository.countFailed(eq(3), any(Instant.class))).thenReturn(1L);
+		when(thumbQueueRepository.findOldestQueuedAt(3)).thenReturn(oldest);
+
+		var backlog = thumbQueueService.getBacklog();
+
+		assertEquals(5L, backlog.getPending());
+		assertEquals(2L, backlog.getProcessing());
+		assertEquals(1L, backlog.getFailed());
+		assertEquals(oldest, backlog.getOldestQueued());
+	}
+
+	private ThumbQueueEntry entry(long siteFileId, long revision) {
+		return ThumbQueueEntry.builder()
+		                      .siteFileId(siteFileId)
+		                      .revision(revision)
+		                      .build();
+	}
+}
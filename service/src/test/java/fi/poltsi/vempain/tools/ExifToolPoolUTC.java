@@ -0,0 +1,70 @@
+package fi.poltsi.vempain.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExifToolPoolUTC {
+	// Answers like exiftool -stay_open, echoing the arguments of each command and failing on request
+	private static final String FAKE_EXIFTOOL = """
+			#!/bin/bash
+			while IFS= read -r line; do
+				case "$line" in
+					-execute*) echo "{ready${line#-execute}}" ;;
+					-stay_open) ;;
+					False) exit 0 ;;
+					crash) exit 1 ;;
+					hang) exec sleep 30 ;;
+					*) echo "$line" ;;
+				esac
+			done
+			""";
+
+	@TempDir
+	private Path         directory;
+	private ExifToolPool exifToolPool;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		var exifTool = directory.resolve("exiftool");
+		Files.writeString(exifTool, FAKE_EXIFTOOL);
+		Files.setPosixFilePermissions(exifTool, PosixFilePermissions.fromString("rwx------"));
+		exifToolPool = new ExifToolPool(exifTool.toString(), 2, 1L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		exifToolPool.close();
+	}
+
+	@Test
+	void executeReusesProcess() throws Exception {
+		assertEquals("-Jfile.jpg", exifToolPool.execute(List.of("-J", "file.jpg")));
+		assertEquals("second.jpg", exifToolPool.execute(List.of("second.jpg")));
+	}
+
+	@Test
+	void executeReplacesDiedProcess() throws Exception {
+		assertThrows(IOException.class, () -> exifToolPool.execute(List.of("crash")));
+
+		assertEquals("file.jpg", exifToolPool.execute(List.of("file.jpg")));
+	}
+
+	@Test
+	void executeKillsHungProcess() throws Exception {
+		assertThrows(TimeoutException.class, () -> exifToolPool.execute(List.of("hang")));
+
+		assertEquals("file.jpg", exifToolPool.execute(List.of("file.jpg")));
+	}
+}
@@ -0,0 +1,35 @@
+package fi.poltsi.vempain.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExifToolsUTC {
+	@Test
+	void textTagNumbersIgnoresUnsupportedTags() {
+		assertEquals(Map.of("Artist", 0x013B, "Copyright", 0x8298), ExifTools.textTagNumbers(List.of("Artist", " Copyright", "GPSLatitude", "")));
+	}
+
+	@Test
+	void exifBlockSortsEntriesAndStoresLongValuesAfterDirectory() {
+		var block = ExifTools.exifBlock(Map.of(0x8298, "(c) Vempain", 0x010F, "AB"), ExifTools.ORIENTATION_UPRIGHT);
+		var tiff = ByteBuffer.wrap(block, 6, block.length - 6)
+		                     .slice();
+
+		assertEquals('M', tiff.get(0));
+		assertEquals(3, tiff.getShort(8));
+		// Make fits in its entry, the orientation follows it and the copyright is stored after the directory
+		assertEquals(0x010F, tiff.getShort(10));
+		assertEquals('A', tiff.get(18));
+		assertEquals(0x0112, tiff.getShort(22));
+		assertEquals(ExifTools.ORIENTATION_UPRIGHT, tiff.getShort(30));
+		assertEquals((short) 0x8298, tiff.getShort(34));
+		assertEquals(12, tiff.getInt(38));
+		assertEquals(10 + 3 * 12 + 4, tiff.getInt(42));
+		assertEquals('(', tiff.get(10 + 3 * 12 + 4));
+	}
+}
@@ -0,0 +1,173 @@
+package fi.poltsi.vempain.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ImageToolsUTC {
+	@Mock
+	private MetadataTools metadataTools;
+	@TempDir
+	private Path          directory;
+
+	@Test
+	void resizeImageScalesSmallerSideToMinimumSize() throws Exception {
+		var imageTools = new ImageTools(metadataTools, 256, List.of("Artist"));
+		var source = writeImage("source.jpg", 600, 400);
+		var destination = directory.resolve("thumb.jpeg");
+
+		var dimensions = imageTools.resizeImage(source, destination, 250, 0.5F);
+
+		assertEquals(375, dimensions.width);
+		assertEquals(250, dimensions.height);
+		assertEquals(dimensions, imageTools.getImageDimensions(destination));
+		verify(metadataTools).copyMetadata(source.toFile(), destination.toFile());
+	}
+
+	@Test
+	void resizeImageDecodesLargeImageSubsampled() throws Exception {
+		var imageTools = new ImageTools(metadataTools, 256, List.of("Artist"));
+		var source = writeImage("large.jpg", 2000, 1000);
+		var destination = directory.resolve("thumb.jpeg");
+
+		var dimensions = imageTools.resizeImage(source, destination, 250, 0.5F);
+
+		assertEquals(new Dimension(500, 250), dimensions);
+		assertEquals(dimensions, imageTools.getImageDimensions(destination));
+	}
+
+	@Test
+	void resizeImageToSeveralSizesOk() throws Exception {
+		var imageTools = new ImageTools(metadataTools, 256, List.of("Artist"));
+		var source = writeImage("large.jpg", 2000, 1000);
+		var thumb = directory.resolve("thumb.jpeg");
+		var site = directory.resolve("site.jpeg");
+		var retina = directory.resolve("retina.png");
+
+		var dimensions = imageTools.resizeImage(source, List.of(new ImageTools.ResizeTarget(thumb, 250, 0.5F, true),
+		                                                        new ImageTools.ResizeTarget(site, 500, 0.8F, true),
+		                                                        new ImageTools.ResizeTarget(retina, 1200, 0.7F, true)));
+
+		assertEquals(List.of(new Dimension(500, 250), new Dimension(1000, 500), new Dimension(2000, 1000)), dimensions);
+		assertEquals(dimensions.get(0), imageTools.getImageDimensions(thumb));
+		assertEquals(dimensions.get(1), imageTools.getImageDimensions(site));
+		assertEquals(dimensions.get(2), imageTools.getImageDimensions(retina));
+		verify(metadataTools, times(3)).copyMetadata(eq(source.toFile()), any());
+	}
+
+	@Test
+	void resizeImageWithMinimalMetadataDoesNotRunExiftool() throws Exception {
+		var imageTools = new ImageTools(metadataTools, 256, List.of("Artist"));
+		var source = directory.resolve("source.jpg");
+		writeJpeg(new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB), source, Map.of(0x013B, "Photographer", 0x8298, "Copyright"));
+		var thumb = directory.resolve("thumb.jpeg");
+
+		var dimensions = imageTools.resizeImage(source, List.of(new ImageTools.ResizeTarget(thumb, 250, 0.5F, false)));
+
+		assertEquals(List.of(new Dimension(375, 250)), dimensions);
+		assertEquals(Map.of(0x013B, "Photographer"), readTextTags(thumb));
+		verifyNoInteractions(metadataTools);
+	}
+
+	@Test
+	void resizeImageReturnsDimensionsOfRotatedImage() throws Exception {
+		var imageTools = new ImageTools(metadataTools, 256, List.of("Artist"));
+		var source = directory.resolve("portrait.jpg");
+		// Stored as landscape, the EXIF orientation 6 rotates it to portrait like most camera and phone portraits
+		writeJpeg(new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB), source, Map.of(), 6);
+		var thumb = directory.resolve("thumb.jpeg");
+		var site = directory.resolve("site.jpeg");
+
+		var dimensions = imageTools.resizeImage(source, List.of(new ImageTools.ResizeTarget(thumb, 250, 0.5F, false),
+		                                                        new ImageTools.ResizeTarget(site, 300, 0.8F, true)));
+
+		assertEquals(List.of(new Dimension(250, 375), new Dimension(300, 450)), dimensions);
+		assertEquals(dimensions.get(0), imageTools.getImageDimensions(thumb));
+		assertEquals(dimensions.get(1), imageTools.getImageDimensions(site));
+	}
+
+	@Test
+	void subsamplingFactorKeepsDecodedImageLargerThanTarget() {
+		assertEquals(1, ImageTools.subsamplingFactor(new Dimension(600, 400), new Dimension(375, 250)));
+		assertEquals(4, ImageTools.subsamplingFactor(new Dimension(2000, 1000), new Dimension(500, 250)));
+		assertEquals(16, ImageTools.subsamplingFactor(new Dimension(8660, 5773), new Dimension(375, 250)));
+		assertEquals(1, ImageTools.subsamplingFactor(new Dimension(200, 100), new Dimension(200, 100)));
+	}
+
+	@Test
+	void resizeImageLargerThanBudgetIsResizedAlone() throws Exception {
+		// Each image is larger than the whole budget, so the resizes are run one at a time instead of blocking forever
+		var imageTools = new ImageTools(metadataTools, 1, List.of("Artist"));
+		var source = writeImage("large.jpg", 1500, 1000);
+		var tasks = new ArrayList<Callable<Object>>();
+
+		for (var i = 0; i < 4; i++) {
+			var destination = directory.resolve("thumb-" + i + ".jpeg");
+			tasks.add(() -> imageTools.resizeImage(source, destination, 250, 0.5F));
+		}
+
+		try (var executor = Executors.newFixedThreadPool(4)) {
+			for (var future : executor.invokeAll(tasks)) {
+				assertEquals(250, ((Dimension) future.get()).height);
+			}
+		}
+
+		verify(metadataTools, times(4)).copyMetadata(eq(source.toFile()), any());
+	}
+
+	private static void writeJpeg(BufferedImage image, Path file, Map<Integer, String> tags) throws Exception {
+		writeJpeg(image, file, tags, ExifTools.ORIENTATION_UPRIGHT);
+	}
+
+	private static void writeJpeg(BufferedImage image, Path file, Map<Integer, String> tags, int orientation) throws Exception {
+		var writer = ImageIO.getImageWritersByFormatName("jpeg")
+		                    .next();
+
+		try (var out = ImageIO.createImageOutputStream(file.toFile())) {
+			var metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+			ExifTools.writeExif(metadata, tags, orientation);
+			writer.setOutput(out);
+			writer.write(new IIOImage(image, null, metadata));
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static Map<Integer, String> readTextTags(Path file) throws Exception {
+		try (var in = ImageIO.createImageInputStream(file.toFile())) {
+			var reader = ImageIO.getImageReaders(in)
+			                    .next();
+			reader.setInput(in);
+			return ExifTools.readTextTags(reader.getImageMetadata(0), List.of(0x013B, 0x8298));
+		}
+	}
+
+	private Path writeImage(String fileName, int width, int height) throws Exception {
+		var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		var file = directory.resolve(fileName);
+		ImageIO.write(image, "jpeg", file.toFile());
+		return file;
+	}
+}
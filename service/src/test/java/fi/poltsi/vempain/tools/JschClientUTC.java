@@ -0,0 +1,92 @@
+package fi.poltsi.vempain.tools;
+
+import fi.poltsi.vempain.admin.entity.file.FileRendition;
+import fi.poltsi.vempain.admin.entity.file.FileThumb;
+import fi.poltsi.vempain.admin.entity.file.SiteFile;
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JschClientUTC {
+	private JschClient jschClient;
+
+	@BeforeEach
+	void setUp() {
+		jschClient = new JschClient();
+		ReflectionTestUtils.setField(jschClient, "siteWwwRoot", "/var/www/");
+		ReflectionTestUtils.setField(jschClient, "siteFileDirectory", "/data/site");
+		ReflectionTestUtils.setField(jschClient, "thumbSubDir", ".thumb");
+	}
+
+	@Test
+	void planTransferNormalizesRemotePaths() {
+		var siteFile = SiteFile.builder()
+							   .id(3L)
+							   .fileName("beach.jpg")
+							   .filePath("/2024/summer/")
+							   .fileType(FileTypeEnum.IMAGE)
+							   .sha256sum("abc")
+							   .size(1234L)
+							   .build();
+		var fileThumb = FileThumb.builder()
+								 .parentId(3L)
+								 .parentType(FileTypeEnum.IMAGE)
+								 .filename("beach.jpg")
+								 .filepath("thumbs")
+								 .filesize(12L)
+								 .sha1sum("def")
+								 .build();
+		fileThumb.setSiteFile(siteFile);
+
+		var uploads = jschClient.planTransfer(List.of(siteFile), List.of(fileThumb));
+
+		var imageDir = "/var/www/" + FileTypeEnum.IMAGE.shortName + "/2024/summer";
+		assertEquals(2, uploads.size());
+		assertEquals(new JschClient.Upload(3L, "/data/site/" + FileTypeEnum.IMAGE.shortName + "//2024/summer//beach.jpg", imageDir + "/beach.jpg", "abc", 1234L),
+					 uploads.getFirst());
+		assertEquals(new JschClient.Upload(3L, "/data/site/thumbs/beach.jpg", imageDir + "/.thumb/beach.jpg", "def", 12L), uploads.get(1));
+	}
+
+	@Test
+	void planTransferPlacesRenditionsNextToOriginal() {
+		var siteFile = SiteFile.builder()
+							   .id(3L)
+							   .fileName("beach.jpg")
+							   .filePath("2024/summer")
+							   .fileType(FileTypeEnum.IMAGE)
+							   .sha256sum("abc")
+							   .size(1234L)
+							   .build();
+		var site = FileRendition.builder()
+								.parentId(3L)
+								.name("site")
+								.filename("beach.jpeg")
+								.filepath("rendition/site/image/2024/summer")
+								.filesize(56L)
+								.sha256sum("ghi")
+								.build();
+		var orphan = FileRendition.builder()
+								  .parentId(4L)
+								  .name("site")
+								  .filename("forest.jpeg")
+								  .filepath("rendition/site/image/2024/summer")
+								  .build();
+
+		var uploads = jschClient.planTransfer(List.of(siteFile), List.of(), List.of(site, orphan));
+
+		assertEquals(2, uploads.size());
+		assertEquals(new JschClient.Upload(3L, "/data/site/rendition/site/image/2024/summer/beach.jpeg",
+										   "/var/www/" + FileTypeEnum.IMAGE.shortName + "/2024/summer/.site/beach.jpeg", "ghi", 56L), uploads.get(1));
+	}
+
+	@Test
+	void normalizeRemotePathCollapsesSeparators() {
+		assertEquals("/var/www/image/a", JschClient.normalizeRemotePath("/var/www//image///a/"));
+		assertEquals("/", JschClient.normalizeRemotePath("/"));
+	}
+}
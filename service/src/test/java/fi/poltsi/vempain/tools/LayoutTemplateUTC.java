@@ -0,0 +1,65 @@
+package fi.poltsi.vempain.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LayoutTemplateUTC {
+	@Test
+	void renderReplacesPageAndComponentSlots() {
+		var template = LayoutTemplate.compile("<html><!--comp_0--><body><!--page--></body><!--comp_1--></html>");
+
+		assertEquals("?><html><?php\necho 'head';\n?><body><p>Body</p></body><?php\necho 'foot';\n?></html><?php ",
+					 template.render("<p>Body</p>", List.of("echo 'head';", "echo 'foot';")));
+	}
+
+	@Test
+	void renderRemovesEmptyPhpBlocks() {
+		var template = LayoutTemplate.compile("<!--comp_0-->  <div><!--comp_1--></div>");
+
+		assertEquals("?>  <div></div><?php ", template.render("", List.of("", "  ")));
+	}
+
+	@Test
+	void renderLeavesMissingComponentMarkers() {
+		var template = LayoutTemplate.compile("<div><!--comp_0--><!--comp_1--><!--comp_01--><!-- other --></div>");
+		var componentDatas = new ArrayList<String>();
+		componentDatas.add(null);
+
+		assertEquals("?><div><!--comp_0--><!--comp_1--><!--comp_01--><!-- other --></div><?php ", template.render("", componentDatas));
+	}
+
+	@Test
+	void renderMatchesStringReplacement() {
+		var structures = List.of("<!--page-->",
+								 "<header><!--comp_0--></header><main><!--page--></main><footer><!--comp_1--><!--comp_2--></footer>",
+								 "<!--comp_1--><!--comp_0-->\n<!--page--><!--page--><!--comp_10-->",
+								 "<!-- note --><p><!--comp_0</p><!--page-->");
+		var componentDatas = new ArrayList<String>();
+
+		for (var i = 0; i < 11; i++) {
+			componentDatas.add(i % 3 == 2 ? "" : "echo " + i + ";");
+		}
+
+		for (var structure : structures) {
+			assertEquals(renderWithStringReplacement(structure, "<p>page</p>", componentDatas),
+						 LayoutTemplate.compile(structure)
+									   .render("<p>page</p>", componentDatas));
+		}
+	}
+
+	// The rendering PublishService did before the layouts were compiled
+	private static String renderWithStringReplacement(String structure, String pageBody, List<String> componentDatas) {
+		var body = "?>" + structure.replace("<!--page-->", pageBody) + "<?php ";
+
+		for (var i = 0; i < componentDatas.size(); i++) {
+			body = body.replace("<!--comp_" + i + "-->", "<?php\n" + componentDatas.get(i) + "\n?>");
+		}
+
+		body = body.replaceAll("\\?>\\s*<\\?php\\s*\\?>", "?>");
+		return body.replaceAll("<\\?php\\s*\\?>", "");
+	}
+}
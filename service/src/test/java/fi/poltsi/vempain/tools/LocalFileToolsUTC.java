@@ -2,6 +2,7 @@ package fi.poltsi.vempain.tools;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.Files;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -22,4 +23,16 @@ class LocalFileToolsUTC {
 		                                                 .toFile()));
 		LocalFileTools.removeDirectory(directory.toString());
 	}
+
+	@Test
+	void copyAndComputeSha256WritesAndHashesStream() throws Exception {
+		var directory = Files.createTempDirectory("vempain-file-tools");
+		var file = directory.resolve("copy.txt");
+		Files.writeString(file, "previous content");
+
+		assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+					 LocalFileTools.copyAndComputeSha256(new ByteArrayInputStream("hello".getBytes()), file));
+		assertEquals("hello", Files.readString(file));
+		LocalFileTools.removeDirectory(directory.toString());
+	}
 }
@@ -0,0 +1,53 @@
+package fi.poltsi.vempain.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionToolsUTC {
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void evictOutsideTransactionRunsOnce() {
+		var evictions = new AtomicInteger();
+
+		TransactionTools.evictNowAndAfterCompletion(evictions::incrementAndGet);
+
+		assertEquals(1, evictions.get());
+	}
+
+	@Test
+	void evictWithinTransactionRunsAgainAfterCommit() {
+		var evictions = new AtomicInteger();
+		TransactionSynchronizationManager.initSynchronization();
+
+		TransactionTools.evictNowAndAfterCompletion(evictions::incrementAndGet);
+		assertEquals(1, evictions.get());
+
+		TransactionSynchronizationManager.getSynchronizations()
+		                                 .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+		assertEquals(2, evictions.get());
+	}
+
+	@Test
+	void evictWithinTransactionRunsAgainAfterRollback() {
+		var evictions = new AtomicInteger();
+		TransactionSynchronizationManager.initSynchronization();
+
+		TransactionTools.evictNowAndAfterCompletion(evictions::incrementAndGet);
+		TransactionSynchronizationManager.getSynchronizations()
+		                                 .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertEquals(2, evictions.get());
+	}
+}